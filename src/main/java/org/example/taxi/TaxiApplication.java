@@ -12,6 +12,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional; // Import for @Transactional
@@ -19,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional; // Import for @
 import java.util.Optional;
 
 @SpringBootApplication
+@EnableScheduling // Periodic flush of in-memory analytics rollups
 public class TaxiApplication {
 
     private static final Logger logger = LoggerFactory.getLogger(TaxiApplication.class);
@@ -0,0 +1,224 @@
+package org.example.taxi.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.example.taxi.entity.DailyActivitySketch;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.DailyActivitySketchRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderActivityRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Per-day HyperLogLog sketches of active drivers and clients (at least one completed order picked up that day).
+ * <p>
+ * All days are held in memory (8 KB per day) and persisted as {@link DailyActivitySketch} rows; dirty days are
+ * flushed periodically. Adding an id to a sketch is idempotent, so replaying the same orders (startup backfill
+ * racing with live completions) never double counts.
+ */
+@Component
+public class ActivitySketchStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivitySketchStore.class);
+
+    private static final LocalDateTime BACKFILL_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired private DailyActivitySketchRepository sketchRepository;
+    @Autowired private OrderRepository orderRepository;
+
+    private final Map<LocalDate, DayActivity> days = new ConcurrentHashMap<>();
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    /** Distinct driver and client counts over a range; {@code exact} is false for sketch estimates. */
+    public record ActiveCounts(long drivers, long clients, boolean exact) {
+    }
+
+    private static final class DayActivity {
+        final HyperLogLog drivers;
+        final HyperLogLog clients;
+
+        DayActivity(HyperLogLog drivers, HyperLogLog clients) {
+            this.drivers = drivers;
+            this.clients = clients;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadSketches() {
+        List<DailyActivitySketch> stored = sketchRepository.findAll();
+        if (stored.isEmpty()) {
+            long rows = backfillFromOrders();
+            logger.info("Activity sketch table was empty; backfilled {} days from {} completed orders.", days.size(), rows);
+            dirtyDays.addAll(days.keySet());
+            return;
+        }
+        for (DailyActivitySketch sketch : stored) {
+            DayActivity day = dayFor(sketch.getDay());
+            synchronized (day) {
+                day.drivers.merge(HyperLogLog.fromBytes(sketch.getDriverSketch()));
+                day.clients.merge(HyperLogLog.fromBytes(sketch.getClientSketch()));
+            }
+        }
+        logger.info("Loaded activity sketches for {} days.", stored.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getNewStatus() != OrderStatus.COMPLETED) {
+            return;
+        }
+        OrderEntity order = event.getOrder();
+        LocalDateTime pickupTime = order.getPickupTime() != null ? order.getPickupTime() : event.getOccurredAt();
+        record(pickupTime.toLocalDate(), order.getDriverId(), order.getUserId());
+    }
+
+    /**
+     * Writes all days touched since the last flush back to the rollup table.
+     */
+    @Scheduled(fixedDelayString = "${analytics.activity.flush-interval-ms:60000}")
+    public void flushDirtyDays() {
+        if (dirtyDays.isEmpty()) {
+            return;
+        }
+        List<LocalDate> toFlush = new ArrayList<>(dirtyDays);
+        // Remove before snapshotting: a concurrent add marks the day dirty again and is picked up next time.
+        dirtyDays.removeAll(toFlush);
+
+        Map<LocalDate, DailyActivitySketch> existing = new HashMap<>();
+        sketchRepository.findByDayIn(toFlush).forEach(row -> existing.put(row.getDay(), row));
+        List<DailyActivitySketch> rows = new ArrayList<>(toFlush.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate date : toFlush) {
+            DayActivity day = days.get(date);
+            if (day == null) continue;
+            DailyActivitySketch row = existing.computeIfAbsent(date, d -> {
+                DailyActivitySketch created = new DailyActivitySketch();
+                created.setDay(d);
+                return created;
+            });
+            synchronized (day) {
+                row.setDriverSketch(day.drivers.toBytes());
+                row.setClientSketch(day.clients.toBytes());
+            }
+            row.setUpdatedAt(now);
+            rows.add(row);
+        }
+        try {
+            sketchRepository.saveAll(rows);
+            logger.debug("Flushed activity sketches for {} days.", rows.size());
+        } catch (RuntimeException e) {
+            dirtyDays.addAll(toFlush);
+            logger.error("Failed to flush activity sketches: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirtyDays();
+    }
+
+    /**
+     * Estimates distinct active drivers and clients over [startInclusive, endInclusive] by merging daily sketches.
+     * Relative standard error is {@link HyperLogLog#RELATIVE_STANDARD_ERROR}.
+     */
+    public ActiveCounts estimate(LocalDate startInclusive, LocalDate endInclusive) {
+        HyperLogLog drivers = new HyperLogLog();
+        HyperLogLog clients = new HyperLogLog();
+        for (LocalDate date = startInclusive; !date.isAfter(endInclusive); date = date.plusDays(1)) {
+            DayActivity day = days.get(date);
+            if (day == null) continue;
+            synchronized (day) {
+                drivers.merge(day.drivers);
+                clients.merge(day.clients);
+            }
+        }
+        return new ActiveCounts(drivers.estimate(), clients.estimate(), false);
+    }
+
+    /**
+     * Counts distinct active drivers and clients exactly, bucketing each completed order into a period.
+     * Reads the orders table, so callers should keep the range short.
+     * @param startInclusive First day of the range.
+     * @param endInclusive Last day of the range.
+     * @param periodOf Maps a pickup day to the start of its reporting period.
+     * @return Exact counts keyed by period start.
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, ActiveCounts> exactCounts(LocalDate startInclusive, LocalDate endInclusive,
+                                                    Function<LocalDate, LocalDate> periodOf) {
+        Map<LocalDate, Set<Long>> driversByPeriod = new HashMap<>();
+        Map<LocalDate, Set<Long>> clientsByPeriod = new HashMap<>();
+        try (Stream<OrderActivityRow> rows = orderRepository.streamActivityRows(OrderStatus.COMPLETED,
+                startInclusive.atStartOfDay(), endInclusive.plusDays(1).atStartOfDay())) {
+            rows.forEach(row -> {
+                LocalDate period = periodOf.apply(row.getPickupTime().toLocalDate());
+                if (row.getDriverId() != null) {
+                    driversByPeriod.computeIfAbsent(period, k -> new HashSet<>()).add(row.getDriverId());
+                }
+                if (row.getUserId() != null) {
+                    clientsByPeriod.computeIfAbsent(period, k -> new HashSet<>()).add(row.getUserId());
+                }
+            });
+        }
+        Map<LocalDate, ActiveCounts> result = new HashMap<>();
+        Set<LocalDate> periods = new HashSet<>(driversByPeriod.keySet());
+        periods.addAll(clientsByPeriod.keySet());
+        for (LocalDate period : periods) {
+            result.put(period, new ActiveCounts(
+                    driversByPeriod.getOrDefault(period, Set.of()).size(),
+                    clientsByPeriod.getOrDefault(period, Set.of()).size(),
+                    true));
+        }
+        return result;
+    }
+
+    private long backfillFromOrders() {
+        long[] count = {0};
+        try (Stream<OrderActivityRow> rows = orderRepository.streamActivityRows(OrderStatus.COMPLETED,
+                BACKFILL_START, LocalDateTime.now().plusYears(1))) {
+            rows.forEach(row -> {
+                if (row.getPickupTime() != null) {
+                    record(row.getPickupTime().toLocalDate(), row.getDriverId(), row.getUserId());
+                    count[0]++;
+                }
+            });
+        }
+        return count[0];
+    }
+
+    private void record(LocalDate date, Long driverId, Long clientUserId) {
+        DayActivity day = dayFor(date);
+        synchronized (day) {
+            if (driverId != null) day.drivers.add(driverId);
+            if (clientUserId != null) day.clients.add(clientUserId);
+        }
+        dirtyDays.add(date);
+    }
+
+    private DayActivity dayFor(LocalDate date) {
+        return days.computeIfAbsent(date, d -> new DayActivity(new HyperLogLog(), new HyperLogLog()));
+    }
+}
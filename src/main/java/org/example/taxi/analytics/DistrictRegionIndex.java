@@ -0,0 +1,61 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.repository.DistrictRepository;
+import org.example.taxi.repository.projection.DistrictRegionRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory district to region mapping for analytics that aggregate per region on the hot path.
+ * Loaded before the other startup listeners and refreshed periodically; districts are rarely added.
+ */
+@Component
+public class DistrictRegionIndex {
+
+    /** Region key for orders whose origin district is missing or not mapped to a region. */
+    public static final long UNKNOWN_REGION = -1;
+
+    @Autowired private DistrictRepository districtRepository;
+
+    private volatile Map<Long, Long> regionByDistrict = Map.of();
+    private volatile Map<Long, String> regionNames = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.regions.refresh-interval-ms:600000}", initialDelayString = "${analytics.regions.refresh-interval-ms:600000}")
+    public void reload() {
+        Map<Long, Long> byDistrict = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (DistrictRegionRow row : districtRepository.findAllRegionMappings()) {
+            byDistrict.put(row.getDistrictId(), row.getRegionId());
+            names.put(row.getRegionId(), row.getRegionName());
+        }
+        regionByDistrict = byDistrict;
+        regionNames = names;
+    }
+
+    /** @return Region id of the district, or {@link #UNKNOWN_REGION}. */
+    public long regionOf(Long districtId) {
+        if (districtId == null) {
+            return UNKNOWN_REGION;
+        }
+        return regionByDistrict.getOrDefault(districtId, UNKNOWN_REGION);
+    }
+
+    /** @return Region id to name for every region that has districts. */
+    public Map<Long, String> regionNames() {
+        return regionNames;
+    }
+}
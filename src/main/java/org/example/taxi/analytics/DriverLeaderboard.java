@@ -0,0 +1,303 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.DriverRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.DriverCompletedOrdersRow;
+import org.example.taxi.repository.projection.DriverRankingRow;
+import org.example.taxi.util.AppFees;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Driver leaderboards by rating, completed rides and net earnings, globally and per home district.
+ * <p>
+ * Boards are rebuilt from two GROUP BY queries at startup and on a fixed interval (which also picks up rating
+ * and district changes), and updated in place after every committed order completion in between.
+ * Top-N and rank are answered from the boards without touching the database.
+ * <p>
+ * A rebuild reads in one repeatable-read snapshot. Completions that commit while it runs are applied to the live
+ * boards and buffered; at the swap, the buffered orders the snapshot does not hold as completed (looked up by id in
+ * the same snapshot) are replayed onto the new boards, so they are neither lost nor counted twice.
+ */
+@Component
+public class DriverLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverLeaderboard.class);
+
+    private static final long RATING_SCALE = 1000;
+
+    @Autowired private DriverRepository driverRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired @Lazy private DriverLeaderboard self; // startup rebuild goes through the transactional proxy
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Boards boards = new Boards();
+    private List<OrderEntity> completedDuringRebuild; // guarded by lock; non-null while a rebuild runs
+
+    public enum Metric { RATING, RIDES, EARNINGS }
+
+    /** One board position. Value is the rating, ride count or net earnings in UZS depending on the metric. */
+    public record Position(long driverId, int rank, Number value) {
+    }
+
+    private static final class DriverState {
+        Long districtId;
+        double rating;
+        long rides;
+        long earningsMinor;
+    }
+
+    private static final class Boards {
+        final Map<Long, DriverState> drivers = new HashMap<>();
+        final Map<Metric, RankedBoard> global = new EnumMap<>(Metric.class);
+        final Map<Metric, Map<Long, RankedBoard>> byDistrict = new EnumMap<>(Metric.class);
+
+        Boards() {
+            for (Metric metric : Metric.values()) {
+                global.put(metric, new RankedBoard());
+                byDistrict.put(metric, new HashMap<>());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        self.rebuild();
+    }
+
+    /**
+     * Recomputes every board from the database and swaps them in. Bounds any drift from missed events.
+     */
+    @Scheduled(initialDelayString = "${analytics.leaderboard.rebuild-interval-ms:900000}",
+            fixedDelayString = "${analytics.leaderboard.rebuild-interval-ms:900000}")
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ) // the id lookups must see the aggregate's snapshot
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Boards fresh = new Boards();
+        lock.writeLock().lock();
+        try {
+            completedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Long> counted;
+        int checked;
+        try {
+            for (DriverRankingRow row : driverRepository.findRankingRows()) {
+                DriverState state = new DriverState();
+                state.districtId = row.getDistrictId();
+                state.rating = row.getRatings();
+                fresh.drivers.put(row.getDriverId(), state);
+            }
+            for (DriverCompletedOrdersRow row : orderRepository.sumOrdersByDriver(OrderStatus.COMPLETED, OrderType.LUGGAGE)) {
+                DriverState state = fresh.drivers.computeIfAbsent(row.getDriverId(), id -> new DriverState());
+                state.rides = row.getRides();
+                long appFeeMinor = AppFees.PER_PASSENGER_MINOR * row.getSeats() + AppFees.LUGGAGE_MINOR * row.getLuggageOrders();
+                state.earningsMinor = toMinor(row.getTotalCost()) - appFeeMinor;
+            }
+            fresh.drivers.forEach((driverId, state) -> place(fresh, driverId, state));
+            List<OrderEntity> buffered;
+            lock.readLock().lock();
+            try {
+                buffered = new ArrayList<>(completedDuringRebuild);
+            } finally {
+                lock.readLock().unlock();
+            }
+            counted = completedInSnapshot(buffered);
+            checked = buffered.size();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                completedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("Failed to rebuild driver leaderboards: {}", e.getMessage(), e);
+            return;
+        }
+
+        int replayed = 0;
+        lock.writeLock().lock();
+        try {
+            // Completions buffered since the lookup above; usually none, so no query under the lock
+            counted.addAll(completedInSnapshot(completedDuringRebuild.subList(checked, completedDuringRebuild.size())));
+            for (OrderEntity order : completedDuringRebuild) {
+                if (!counted.contains(order.getId())) {
+                    applyCompletion(fresh, order);
+                    replayed++;
+                }
+            }
+            boards = fresh;
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild driver leaderboards: {}", e.getMessage(), e);
+            return;
+        } finally {
+            completedDuringRebuild = null;
+            lock.writeLock().unlock();
+        }
+        logger.info("Rebuilt driver leaderboards for {} drivers in {} ms ({} completions replayed).",
+                fresh.drivers.size(), (System.nanoTime() - startedAt) / 1_000_000, replayed);
+    }
+
+    /** Ids of the orders the rebuild's snapshot holds as completed, i.e. already in its aggregate. */
+    private Set<Long> completedInSnapshot(List<OrderEntity> orders) {
+        Set<Long> counted = new HashSet<>();
+        if (!orders.isEmpty()) {
+            List<Long> ids = orders.stream().map(OrderEntity::getId).toList();
+            counted.addAll(orderRepository.findIdsByIdInAndStatus(ids, OrderStatus.COMPLETED));
+        }
+        return counted;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        OrderEntity order = event.getOrder();
+        if (event.getNewStatus() != OrderStatus.COMPLETED || order.getDriverId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyCompletion(boards, order);
+            if (completedDuringRebuild != null) {
+                completedDuringRebuild.add(order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void applyCompletion(Boards target, OrderEntity order) {
+        long appFeeMinor = AppFees.PER_PASSENGER_MINOR * order.getSeats()
+                + (order.getOrderType() == OrderType.LUGGAGE ? AppFees.LUGGAGE_MINOR : 0);
+        DriverState state = target.drivers.computeIfAbsent(order.getDriverId(), id -> new DriverState());
+        state.rides++;
+        state.earningsMinor += toMinor(order.getTotalCost()) - appFeeMinor;
+        place(target, order.getDriverId(), state);
+    }
+
+    /**
+     * Applies a rating change immediately instead of waiting for the next rebuild.
+     */
+    public void updateRating(long driverId, double rating) {
+        lock.writeLock().lock();
+        try {
+            DriverState state = boards.drivers.computeIfAbsent(driverId, id -> new DriverState());
+            state.rating = rating;
+            place(boards, driverId, state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param metric Ranking metric.
+     * @param districtId Home district of the drivers, or null for the global board.
+     * @param limit Maximum number of positions.
+     * @return Top positions, best first.
+     */
+    public List<Position> top(Metric metric, Long districtId, int limit) {
+        lock.readLock().lock();
+        try {
+            RankedBoard board = boardFor(boards, metric, districtId, false);
+            if (board == null) {
+                return List.of();
+            }
+            long[] ids = board.topDriverIds(limit);
+            long[] scores = board.topScores(limit);
+            List<Position> positions = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                positions.add(new Position(ids[i], i + 1, toValue(metric, scores[i])));
+            }
+            return positions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The driver's position, or null if the driver is not on that board.
+     */
+    public Position rankOf(Metric metric, Long districtId, long driverId) {
+        lock.readLock().lock();
+        try {
+            RankedBoard board = boardFor(boards, metric, districtId, false);
+            if (board == null) {
+                return null;
+            }
+            int rank = board.rankOf(driverId);
+            return rank < 0 ? null : new Position(driverId, rank, toValue(metric, board.scoreOf(driverId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int boardSize(Metric metric, Long districtId) {
+        lock.readLock().lock();
+        try {
+            RankedBoard board = boardFor(boards, metric, districtId, false);
+            return board == null ? 0 : board.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void place(Boards target, long driverId, DriverState state) {
+        putEverywhere(target, Metric.RIDES, driverId, state.districtId, state.rides);
+        // Same eligibility as the old report: rating and earnings only count once a driver has completed a ride.
+        if (state.rides > 0) {
+            putEverywhere(target, Metric.RATING, driverId, state.districtId, Math.round(state.rating * RATING_SCALE));
+            putEverywhere(target, Metric.EARNINGS, driverId, state.districtId, state.earningsMinor);
+        }
+    }
+
+    private static void putEverywhere(Boards target, Metric metric, long driverId, Long districtId, long score) {
+        target.global.get(metric).put(driverId, score);
+        if (districtId != null) {
+            boardFor(target, metric, districtId, true).put(driverId, score);
+        }
+    }
+
+    private static RankedBoard boardFor(Boards target, Metric metric, Long districtId, boolean create) {
+        if (districtId == null) {
+            return target.global.get(metric);
+        }
+        Map<Long, RankedBoard> boardsByDistrict = target.byDistrict.get(metric);
+        return create ? boardsByDistrict.computeIfAbsent(districtId, id -> new RankedBoard()) : boardsByDistrict.get(districtId);
+    }
+
+    private static Number toValue(Metric metric, long score) {
+        return switch (metric) {
+            case RATING -> (double) score / RATING_SCALE;
+            case RIDES -> score;
+            case EARNINGS -> BigDecimal.valueOf(score, 2);
+        };
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+}
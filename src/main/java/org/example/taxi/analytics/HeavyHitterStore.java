@@ -0,0 +1,199 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderRouteRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Most booked routes (origin/destination district pairs) and pickup / drop-off locations, per origin region,
+ * in hourly buckets for the last day and daily buckets for the last week.
+ * <p>
+ * Each bucket holds {@link SpaceSaving} summaries of fixed capacity, so memory stays constant however many distinct
+ * free-text locations are typed. Buckets are fed on order creation, merged at query time, and rebuilt from the last
+ * week of orders at startup (nothing is persisted).
+ */
+@Component
+public class HeavyHitterStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeavyHitterStore.class);
+
+    private static final int MAX_LOCATION_LENGTH = 80;
+    private static final int HOURLY_RETENTION_HOURS = 25;
+    private static final int DAILY_RETENTION_DAYS = 7;
+
+    public enum HitterKind { ROUTE, PICKUP_LOCATION, DROPOFF_LOCATION }
+
+    public enum TopWindow {
+        /** The current clock hour so far. */
+        CURRENT_HOUR,
+        /** Since midnight. */
+        TODAY,
+        /** The current hour and the 23 before it. */
+        LAST_24_HOURS,
+        /** Today and the 6 days before it. */
+        LAST_7_DAYS
+    }
+
+    public record Route(long fromDistrictId, long toDistrictId) {
+    }
+
+    /** Summaries of one region in one bucket. */
+    private final class Sketches {
+        final SpaceSaving<Object> routes = new SpaceSaving<>(capacity);
+        final SpaceSaving<Object> pickups = new SpaceSaving<>(capacity);
+        final SpaceSaving<Object> dropoffs = new SpaceSaving<>(capacity);
+
+        SpaceSaving<Object> of(HitterKind kind) {
+            return switch (kind) {
+                case ROUTE -> routes;
+                case PICKUP_LOCATION -> pickups;
+                case DROPOFF_LOCATION -> dropoffs;
+            };
+        }
+    }
+
+    private record HourKey(long regionId, LocalDateTime hour) {
+    }
+
+    private record DayKey(long regionId, LocalDate day) {
+    }
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DistrictRegionIndex regionIndex;
+
+    // Counters per summary and bucket; items seen more than 1/capacity of the time are always reported
+    @Value("${analytics.heavy-hitters.capacity:100}")
+    private int capacity;
+
+    private final Map<HourKey, Sketches> hourly = new ConcurrentHashMap<>();
+    private final Map<DayKey, Sketches> daily = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void backfill() {
+        long[] count = {0};
+        try (Stream<OrderRouteRow> rows = orderRepository.streamRouteRowsCreatedSince(
+                LocalDate.now().minusDays(DAILY_RETENTION_DAYS - 1).atStartOfDay())) {
+            rows.forEach(row -> {
+                record(row.getCreatedAt(), row.getFromDistrictId(), row.getToDistrictId(), row.getFromLocation(), row.getToLocation());
+                count[0]++;
+            });
+        }
+        logger.info("Heavy-hitter sketches rebuilt from {} recent orders.", count[0]);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (!event.isCreation()) {
+            return;
+        }
+        OrderEntity order = event.getOrder();
+        record(order.getCreatedAt(), order.getFromDistrictId(), order.getToDistrictId(), order.getFromLocation(), order.getToLocation());
+    }
+
+    /**
+     * Merges the buckets of a window into one summary.
+     * @param regionId Origin region, or null for all regions.
+     */
+    public SpaceSaving<Object> top(HitterKind kind, TopWindow window, Long regionId) {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<Sketches> buckets = new ArrayList<>();
+        switch (window) {
+            case CURRENT_HOUR -> collect(hourly, key -> !key.hour().isBefore(currentHour), HourKey::regionId, regionId, buckets);
+            case TODAY -> collect(hourly, key -> !key.hour().isBefore(currentHour.toLocalDate().atStartOfDay()), HourKey::regionId, regionId, buckets);
+            case LAST_24_HOURS -> collect(hourly, key -> key.hour().isAfter(currentHour.minusHours(24)), HourKey::regionId, regionId, buckets);
+            case LAST_7_DAYS -> collect(daily, key -> key.day().isAfter(currentHour.toLocalDate().minusDays(DAILY_RETENTION_DAYS)), DayKey::regionId, regionId, buckets);
+        }
+        SpaceSaving<Object> result = new SpaceSaving<>(capacity);
+        for (Sketches sketches : buckets) {
+            SpaceSaving<Object> summary = sketches.of(kind);
+            synchronized (summary) {
+                result.merge(summary);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.heavy-hitters.eviction-interval-ms:600000}")
+    public void evictExpired() {
+        LocalDateTime hourCutoff = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(HOURLY_RETENTION_HOURS);
+        LocalDate dayCutoff = LocalDate.now().minusDays(DAILY_RETENTION_DAYS);
+        hourly.keySet().removeIf(key -> key.hour().isBefore(hourCutoff));
+        daily.keySet().removeIf(key -> !key.day().isAfter(dayCutoff));
+    }
+
+    /**
+     * Lower-cases, trims and collapses whitespace so "Chorsu bazaar " and "chorsu  Bazaar" count as one location.
+     * @return The normalized location, or null when blank.
+     */
+    public static String normalizeLocation(String location) {
+        if (location == null) {
+            return null;
+        }
+        String normalized = location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return normalized.length() > MAX_LOCATION_LENGTH ? normalized.substring(0, MAX_LOCATION_LENGTH) : normalized;
+    }
+
+    private void record(LocalDateTime createdAt, Long fromDistrictId, Long toDistrictId, String fromLocation, String toLocation) {
+        if (createdAt == null) {
+            return;
+        }
+        long regionId = regionIndex.regionOf(fromDistrictId);
+        Route route = fromDistrictId != null && toDistrictId != null ? new Route(fromDistrictId, toDistrictId) : null;
+        String pickup = normalizeLocation(fromLocation);
+        String dropoff = normalizeLocation(toLocation);
+        offer(hourly.computeIfAbsent(new HourKey(regionId, createdAt.truncatedTo(ChronoUnit.HOURS)), k -> new Sketches()), route, pickup, dropoff);
+        offer(daily.computeIfAbsent(new DayKey(regionId, createdAt.toLocalDate()), k -> new Sketches()), route, pickup, dropoff);
+    }
+
+    private static void offer(Sketches sketches, Route route, String pickup, String dropoff) {
+        offer(sketches.routes, route);
+        offer(sketches.pickups, pickup);
+        offer(sketches.dropoffs, dropoff);
+    }
+
+    private static void offer(SpaceSaving<Object> summary, Object item) {
+        if (item == null) {
+            return;
+        }
+        synchronized (summary) {
+            summary.offer(item);
+        }
+    }
+
+    private static <K> void collect(Map<K, Sketches> buckets, Predicate<K> inWindow, Function<K, Long> regionOf,
+                                    Long regionId, List<Sketches> into) {
+        buckets.forEach((key, sketches) -> {
+            if (inWindow.test(key) && (regionId == null || regionOf.apply(key).equals(regionId))) {
+                into.add(sketches);
+            }
+        });
+    }
+}
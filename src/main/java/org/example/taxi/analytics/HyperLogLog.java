@@ -0,0 +1,93 @@
+package org.example.taxi.analytics;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter with 2^12 one-byte registers (4 KB per sketch).
+ * <p>
+ * The relative standard error of {@link #estimate()} is 1.04 / sqrt(4096) ~= 1.6%, i.e. about 3.2% at two
+ * standard deviations. Small cardinalities (below 2.5 * m) use linear counting and are close to exact.
+ * Sketches of the same precision can be merged losslessly, so the distinct count over any set of days is the
+ * estimate of the register-wise maximum of the daily sketches.
+ * <p>
+ * Not thread-safe; callers synchronize on the instance.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+    public static final double RELATIVE_STANDARD_ERROR = 1.04 / Math.sqrt(REGISTER_COUNT);
+
+    private static final double ALPHA = 0.7213 / (1.0 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTER_COUNT) {
+            return new HyperLogLog();
+        }
+        return new HyperLogLog(Arrays.copyOf(bytes, REGISTER_COUNT));
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(registers, REGISTER_COUNT);
+    }
+
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rank of the first set bit in the remaining 52 bits, 1-based; a sentinel bit bounds it at 53.
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        byte[] theirs = other.registers;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(Arrays.copyOf(registers, REGISTER_COUNT));
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double raw = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (raw <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            return Math.round(REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    // 64-bit finalizer from MurmurHash3; ids are sequential, so they must be spread before bucketing.
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
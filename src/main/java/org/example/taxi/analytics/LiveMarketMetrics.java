@@ -0,0 +1,162 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.DistrictCountRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window order KPIs per region for the live market control view: orders created, orders accepted and time
+ * to accept over the last hour in one-minute slots, plus the number of orders currently waiting for a driver.
+ * <p>
+ * Counters are fed by order events and updated lock-free ({@link MinuteRingCounter}), so the booking path pays a few
+ * CAS operations and reads never touch the database. Open pending counts drift if an event is lost (e.g. a
+ * status change made directly in SQL), so they are periodically re-synced from a grouped count.
+ */
+@Component
+public class LiveMarketMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveMarketMetrics.class);
+
+    /** Region key for orders whose origin district is missing or not mapped to a region. */
+    public static final long UNKNOWN_REGION = DistrictRegionIndex.UNKNOWN_REGION;
+
+    /** Longest window that can be queried, in minutes. */
+    public static final int MAX_WINDOW_MINUTES = 60;
+
+    public record WindowTotals(long created, long accepted, long acceptDelayMillis) {
+    }
+
+    private static final class RegionCounters {
+        final MinuteRingCounter created = new MinuteRingCounter();
+        final MinuteRingCounter accepted = new MinuteRingCounter();
+        final MinuteRingCounter acceptDelayMillis = new MinuteRingCounter();
+        final AtomicLong openPending = new AtomicLong();
+    }
+
+    @Autowired private DistrictRegionIndex regionIndex;
+    @Autowired private OrderRepository orderRepository;
+    private final Map<Long, RegionCounters> regions = new ConcurrentHashMap<>();
+    private final RegionCounters all = new RegionCounters();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        resyncOpenPending();
+        logger.info("Live market metrics initialized for {} regions; {} orders pending.", regionIndex.regionNames().size(), all.openPending.get());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        OrderEntity order = event.getOrder();
+        long minute = currentMinute();
+        RegionCounters region = countersFor(regionIndex.regionOf(order.getFromDistrictId()));
+        if (event.isCreation()) {
+            region.created.add(minute, 1);
+            all.created.add(minute, 1);
+            if (event.getNewStatus() == OrderStatus.PENDING) {
+                region.openPending.incrementAndGet();
+                all.openPending.incrementAndGet();
+            }
+            return;
+        }
+        if (event.getNewStatus() == OrderStatus.PENDING) {
+            // Back to waiting, e.g. the driver dropped an accepted order
+            if (event.getPreviousStatus() != OrderStatus.PENDING) {
+                region.openPending.incrementAndGet();
+                all.openPending.incrementAndGet();
+            }
+            return;
+        }
+        if (event.getPreviousStatus() != OrderStatus.PENDING) {
+            return;
+        }
+        region.openPending.decrementAndGet();
+        all.openPending.decrementAndGet();
+        if (event.getNewStatus() == OrderStatus.ACCEPTED && order.getCreatedAt() != null) {
+            long delayMillis = Math.max(0, Duration.between(order.getCreatedAt(), event.getOccurredAt()).toMillis());
+            region.accepted.add(minute, 1);
+            region.acceptDelayMillis.add(minute, delayMillis);
+            all.accepted.add(minute, 1);
+            all.acceptDelayMillis.add(minute, delayMillis);
+        }
+    }
+
+    /**
+     * @param regionId Region id, {@link #UNKNOWN_REGION}, or null for all regions.
+     * @param minutes Window length ending with the current minute, at most {@link #MAX_WINDOW_MINUTES}.
+     */
+    public WindowTotals totals(Long regionId, int minutes) {
+        RegionCounters counters = regionId == null ? all : regions.get(regionId);
+        if (counters == null) {
+            return new WindowTotals(0, 0, 0);
+        }
+        long minute = currentMinute();
+        return new WindowTotals(counters.created.sum(minute, minutes), counters.accepted.sum(minute, minutes),
+                counters.acceptDelayMillis.sum(minute, minutes));
+    }
+
+    /** @param regionId Region id, {@link #UNKNOWN_REGION}, or null for all regions. */
+    public long openPending(Long regionId) {
+        RegionCounters counters = regionId == null ? all : regions.get(regionId);
+        return counters == null ? 0 : Math.max(0, counters.openPending.get());
+    }
+
+    /** @return Every known region (id to name), plus {@link #UNKNOWN_REGION} once it has seen orders. */
+    public Map<Long, String> regions() {
+        Map<Long, String> result = new HashMap<>(regionIndex.regionNames());
+        if (regions.containsKey(UNKNOWN_REGION)) {
+            result.put(UNKNOWN_REGION, "Unknown");
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the open pending counts with a fresh grouped count.
+     * Events that commit while the count runs may be missed or counted twice until the next run.
+     */
+    @Scheduled(fixedDelayString = "${analytics.live.resync-interval-ms:300000}", initialDelayString = "${analytics.live.resync-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void resync() {
+        resyncOpenPending();
+    }
+
+    private void resyncOpenPending() {
+        Map<Long, Long> pending = new HashMap<>();
+        long total = 0;
+        for (DistrictCountRow row : orderRepository.countByStatusGroupByFromDistrict(OrderStatus.PENDING)) {
+            pending.merge(regionIndex.regionOf(row.getDistrictId()), row.getTotal(), Long::sum);
+            total += row.getTotal();
+        }
+        for (Map.Entry<Long, RegionCounters> entry : regions.entrySet()) {
+            entry.getValue().openPending.set(pending.getOrDefault(entry.getKey(), 0L));
+        }
+        pending.forEach((regionId, count) -> countersFor(regionId).openPending.set(count));
+        all.openPending.set(total);
+    }
+
+    private RegionCounters countersFor(long regionId) {
+        return regions.computeIfAbsent(regionId, id -> new RegionCounters());
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.taxi.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free per-minute counter over the most recent {@link #SLOTS} minutes.
+ * <p>
+ * Each slot packs the minute it belongs to (low 24 bits of the epoch minute) with its count (40 bits) in a single
+ * long, so moving a slot to a new minute and incrementing it is one CAS: an increment can never land in a slot
+ * that another thread is about to reset, and readers simply ignore slots tagged with an older minute.
+ */
+public final class MinuteRingCounter {
+
+    public static final int SLOTS = 64;
+
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long TAG_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+    public void add(long epochMinute, long delta) {
+        int index = (int) Math.floorMod(epochMinute, (long) SLOTS);
+        long tag = epochMinute & TAG_MASK;
+        while (true) {
+            long current = slots.get(index);
+            long next = (current >>> COUNT_BITS) == tag
+                    ? current + delta
+                    : (tag << COUNT_BITS) | (delta & COUNT_MASK);
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The sum over the {@code minutes} minutes ending with (and including) {@code currentEpochMinute}.
+     */
+    public long sum(long currentEpochMinute, int minutes) {
+        if (minutes > SLOTS) {
+            throw new IllegalArgumentException("At most " + SLOTS + " minutes are retained");
+        }
+        long total = 0;
+        for (long minute = currentEpochMinute - minutes + 1; minute <= currentEpochMinute; minute++) {
+            long value = slots.get((int) Math.floorMod(minute, (long) SLOTS));
+            if ((value >>> COUNT_BITS) == (minute & TAG_MASK)) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+}
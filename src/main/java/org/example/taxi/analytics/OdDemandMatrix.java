@@ -0,0 +1,293 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderDemandRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Origin-destination demand cells: (ISO week, fromDistrictId, toDistrictId, hour-of-week) -> counters.
+ * <p>
+ * Orders are bucketed by pickup time. A cell counts orders, passenger orders (non-LUGGAGE), booked seats,
+ * completions and cancellations; counters are bumped lock-free on creation and on the final status change.
+ * Because week plus hour-of-week identifies a single calendar hour, any date range is answered exactly by
+ * merging the cells of the weeks it overlaps. Cells are rebuilt from the orders table at startup.
+ * <p>
+ * Status changes that commit during the startup load are buffered and applied once the loaded cells are swapped in,
+ * deduplicated by order id and status. A buffered change is skipped when the load already counted it: the creation of
+ * an order the cursor read, or a completion or cancellation the cursor read as the order's status.
+ */
+@Component
+public class OdDemandMatrix {
+
+    private static final Logger logger = LoggerFactory.getLogger(OdDemandMatrix.class);
+
+    public static final int HOURS_PER_WEEK = 7 * 24;
+    public static final int SEATS_PER_CAR = 4;
+
+    static final int ORDERS = 0;
+    static final int PASSENGER_ORDERS = 1;
+    static final int SEATS = 2;
+    static final int COMPLETED = 3;
+    static final int CANCELED = 4;
+    private static final int COUNTER_COUNT = 5;
+
+    private static final long NO_DISTRICT = 0xFFFFFFL; // 24-bit sentinel for orders without a district
+
+    @Autowired private OrderRepository orderRepository;
+
+    private volatile Map<Long, Map<Long, AtomicLongArray>> weeks = new ConcurrentHashMap<>();
+
+    private final Object loadLock = new Object();
+    private volatile boolean loading = true;
+    // Keyed by order id and new status, so a change delivered twice is applied once
+    private final Map<String, OrderStatusChangedEvent> pendingDuringLoad = new LinkedHashMap<>();
+
+    /** What the startup cursor counted, by order id; ids above the int range are treated as unseen. */
+    private static final class LoadedOrders {
+        final BitSet created = new BitSet();
+        final BitSet completed = new BitSet();
+        final BitSet canceled = new BitSet();
+
+        void add(Long id, OrderStatus status) {
+            if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+                return;
+            }
+            int index = id.intValue();
+            created.set(index);
+            if (status == OrderStatus.COMPLETED) {
+                completed.set(index);
+            } else if (status == OrderStatus.CANCELED) {
+                canceled.set(index);
+            }
+        }
+
+        static boolean contains(BitSet ids, Long id) {
+            return id != null && id >= 0 && id <= Integer.MAX_VALUE && ids.get(id.intValue());
+        }
+    }
+
+    /** Merged counters for one group of cells. */
+    public record Totals(long orders, long passengerOrders, long seats, long completed, long canceled) {
+
+        /** Booked seats over passenger-order capacity ({@value #SEATS_PER_CAR} seats per car). */
+        public double fillRatio() {
+            return passengerOrders == 0 ? 0.0 : (double) seats / (passengerOrders * SEATS_PER_CAR);
+        }
+
+        public double cancellationRate() {
+            return orders == 0 ? 0.0 : (double) canceled / orders;
+        }
+    }
+
+    /** One (from, to) pair of the matrix; district ids are null for orders without a district. */
+    public record OdPair(Long fromDistrictId, Long toDistrictId, Totals totals) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadFromDatabase() {
+        long startedAt = System.nanoTime();
+        long rows = 0;
+        Map<Long, Map<Long, AtomicLongArray>> loadedWeeks = new ConcurrentHashMap<>();
+        LoadedOrders loadedOrders = new LoadedOrders();
+        try (Stream<OrderDemandRow> stream = orderRepository.streamDemandRows()) {
+            for (OrderDemandRow row : (Iterable<OrderDemandRow>) stream::iterator) {
+                LocalDateTime when = row.getPickupTime() != null ? row.getPickupTime() : row.getCreatedAt();
+                if (when == null) continue;
+                AtomicLongArray cell = cellFor(loadedWeeks, when, row.getFromDistrictId(), row.getToDistrictId());
+                addCreation(cell, row.getOrderType(), row.getSeats());
+                addFinalStatus(cell, row.getStatus());
+                loadedOrders.add(row.getId(), row.getStatus());
+                rows++;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to load OD demand cells from the database: {}", e.getMessage(), e);
+        }
+
+        int replayed = 0;
+        synchronized (loadLock) {
+            weeks = loadedWeeks;
+            for (OrderStatusChangedEvent event : pendingDuringLoad.values()) {
+                if (apply(event, loadedOrders)) {
+                    replayed++;
+                }
+            }
+            pendingDuringLoad.clear();
+            loading = false;
+        }
+        logger.info("OD demand matrix loaded {} orders into {} weeks in {} ms ({} changes replayed).",
+                rows, loadedWeeks.size(), (System.nanoTime() - startedAt) / 1_000_000, replayed);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (loading) {
+            synchronized (loadLock) {
+                if (loading) {
+                    pendingDuringLoad.putIfAbsent(event.getOrder().getId() + ":" + event.getNewStatus(), event);
+                    return;
+                }
+            }
+        }
+        apply(event, null);
+    }
+
+    /**
+     * @param loadedOrders What the load counted (parts of the change it already holds are skipped), or null.
+     * @return Whether any counter was changed.
+     */
+    private boolean apply(OrderStatusChangedEvent event, LoadedOrders loadedOrders) {
+        OrderEntity order = event.getOrder();
+        LocalDateTime when = order.getPickupTime() != null ? order.getPickupTime() : order.getCreatedAt();
+        if (when == null) {
+            return false;
+        }
+        boolean creation = event.isCreation()
+                && (loadedOrders == null || !LoadedOrders.contains(loadedOrders.created, order.getId()));
+        OrderStatus finalStatus = event.getNewStatus();
+        if (loadedOrders != null && (finalStatus == OrderStatus.COMPLETED && LoadedOrders.contains(loadedOrders.completed, order.getId())
+                || finalStatus == OrderStatus.CANCELED && LoadedOrders.contains(loadedOrders.canceled, order.getId()))) {
+            finalStatus = null;
+        }
+        if (!creation && finalStatus != OrderStatus.COMPLETED && finalStatus != OrderStatus.CANCELED) {
+            return false;
+        }
+        AtomicLongArray cell = cellFor(weeks, when, order.getFromDistrictId(), order.getToDistrictId());
+        if (creation) {
+            addCreation(cell, order.getOrderType(), order.getSeats());
+        }
+        addFinalStatus(cell, finalStatus);
+        return true;
+    }
+
+    /**
+     * Merges cells by (from, to) pair for pickups in [startInclusive, endInclusive].
+     * @param fromDistrictId Optional origin filter.
+     * @param toDistrictId Optional destination filter.
+     */
+    public List<OdPair> matrix(LocalDate startInclusive, LocalDate endInclusive, Long fromDistrictId, Long toDistrictId) {
+        Map<Long, long[]> byPair = new HashMap<>();
+        scan(startInclusive, endInclusive, fromDistrictId, toDistrictId, (cellKey, counters) ->
+                accumulate(byPair.computeIfAbsent(cellKey >>> 8, k -> new long[COUNTER_COUNT]), counters));
+        List<OdPair> pairs = new ArrayList<>(byPair.size());
+        byPair.forEach((pairKey, counters) -> pairs.add(new OdPair(
+                decodeDistrict(pairKey >>> 24), decodeDistrict(pairKey & 0xFFFFFFL), toTotals(counters))));
+        return pairs;
+    }
+
+    /**
+     * Merges cells by hour of week (0 = Monday 00:00) for pickups in [startInclusive, endInclusive].
+     * @return Array of {@value #HOURS_PER_WEEK} totals.
+     */
+    public Totals[] hourOfWeek(LocalDate startInclusive, LocalDate endInclusive, Long fromDistrictId, Long toDistrictId) {
+        long[][] byHour = new long[HOURS_PER_WEEK][COUNTER_COUNT];
+        scan(startInclusive, endInclusive, fromDistrictId, toDistrictId,
+                (cellKey, counters) -> accumulate(byHour[(int) (cellKey & 0xFF)], counters));
+        Totals[] totals = new Totals[HOURS_PER_WEEK];
+        for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+            totals[hour] = toTotals(byHour[hour]);
+        }
+        return totals;
+    }
+
+    private interface CellVisitor {
+        void visit(long cellKey, AtomicLongArray counters);
+    }
+
+    private void scan(LocalDate startInclusive, LocalDate endInclusive, Long fromDistrictId, Long toDistrictId, CellVisitor visitor) {
+        long startDay = startInclusive.toEpochDay();
+        long endDay = endInclusive.toEpochDay();
+        long wantedFrom = fromDistrictId != null ? encodeDistrict(fromDistrictId) : -1;
+        long wantedTo = toDistrictId != null ? encodeDistrict(toDistrictId) : -1;
+        Map<Long, Map<Long, AtomicLongArray>> current = weeks;
+        for (long week = weekOf(startDay); week <= weekOf(endDay); week++) {
+            Map<Long, AtomicLongArray> cells = current.get(week);
+            if (cells == null) continue;
+            long weekStartDay = week * 7 - 3;
+            boolean wholeWeek = weekStartDay >= startDay && weekStartDay + 6 <= endDay;
+            for (Map.Entry<Long, AtomicLongArray> entry : cells.entrySet()) {
+                long cellKey = entry.getKey();
+                if (!wholeWeek) {
+                    long day = weekStartDay + (cellKey & 0xFF) / 24;
+                    if (day < startDay || day > endDay) continue;
+                }
+                if (wantedFrom >= 0 && (cellKey >>> 32) != wantedFrom) continue;
+                if (wantedTo >= 0 && ((cellKey >>> 8) & 0xFFFFFFL) != wantedTo) continue;
+                visitor.visit(cellKey, entry.getValue());
+            }
+        }
+    }
+
+    private static AtomicLongArray cellFor(Map<Long, Map<Long, AtomicLongArray>> weeks, LocalDateTime when,
+                                           Long fromDistrictId, Long toDistrictId) {
+        long epochDay = when.toLocalDate().toEpochDay();
+        long week = weekOf(epochDay);
+        int hourOfWeek = (when.getDayOfWeek().getValue() - 1) * 24 + when.getHour();
+        long cellKey = (encodeDistrict(fromDistrictId) << 32) | (encodeDistrict(toDistrictId) << 8) | hourOfWeek;
+        return weeks.computeIfAbsent(week, w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(cellKey, k -> new AtomicLongArray(COUNTER_COUNT));
+    }
+
+    private static void addCreation(AtomicLongArray cell, OrderType orderType, int seats) {
+        cell.incrementAndGet(ORDERS);
+        if (orderType != OrderType.LUGGAGE) {
+            cell.incrementAndGet(PASSENGER_ORDERS);
+            cell.addAndGet(SEATS, seats);
+        }
+    }
+
+    private static void addFinalStatus(AtomicLongArray cell, OrderStatus status) {
+        if (status == OrderStatus.COMPLETED) {
+            cell.incrementAndGet(COMPLETED);
+        } else if (status == OrderStatus.CANCELED) {
+            cell.incrementAndGet(CANCELED);
+        }
+    }
+
+    private static void accumulate(long[] target, AtomicLongArray counters) {
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            target[i] += counters.get(i);
+        }
+    }
+
+    private static Totals toTotals(long[] c) {
+        return new Totals(c[ORDERS], c[PASSENGER_ORDERS], c[SEATS], c[COMPLETED], c[CANCELED]);
+    }
+
+    // ISO weeks: epoch day 0 (1970-01-01) was a Thursday, so Mondays are at epochDay = 7k - 3.
+    private static long weekOf(long epochDay) {
+        return Math.floorDiv(epochDay + 3, 7);
+    }
+
+    private static long encodeDistrict(Long districtId) {
+        return districtId == null ? NO_DISTRICT : (districtId & 0xFFFFFFL);
+    }
+
+    private static Long decodeDistrict(long encoded) {
+        return encoded == NO_DISTRICT ? null : encoded;
+    }
+}
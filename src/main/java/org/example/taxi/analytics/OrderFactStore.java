@@ -0,0 +1,456 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.entity.Client.ClientOrderSource;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.ClientRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderFactRow;
+import org.example.taxi.util.AppFees;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Columnar, append-only store of finished (COMPLETED / CANCELED) orders kept in the JVM.
+ * <p>
+ * Every fact is stored as one slot across a set of primitive arrays, so a scan touches a few bytes per order
+ * and never allocates per row. Slices run as parallel chunked scans that aggregate into primitive hash maps.
+ * The store is loaded from the database once the application is ready and appended to after every commit
+ * that finishes an order. Finished orders never change status again, so slots are immutable once published.
+ */
+@Component
+public class OrderFactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderFactStore.class);
+
+    public static final int NO_DISTRICT = -1;
+    public static final byte NO_SOURCE = -1;
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int SCAN_CHUNK_SIZE = 1 << 16;
+    private static final List<OrderStatus> FACT_STATUSES = List.of(OrderStatus.COMPLETED, OrderStatus.CANCELED);
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ClientRepository clientRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Columns columns = Columns.empty(INITIAL_CAPACITY);
+    private volatile boolean loading = true;
+    private final List<OrderFact> pendingDuringLoad = new ArrayList<>();
+
+    /** Dimensions a slice can be grouped by. Keys are returned as longs, see {@link #decodePairFrom(long)}. */
+    public enum Dimension {
+        DAY,
+        HOUR_OF_DAY,
+        DAY_OF_WEEK,
+        FROM_DISTRICT,
+        TO_DISTRICT,
+        DISTRICT_PAIR,
+        ORDER_TYPE,
+        STATUS,
+        SOURCE
+    }
+
+    /** Immutable snapshot of one finished order, as appended to the store. */
+    public record OrderFact(long orderId, LocalDateTime createdAt, Long fromDistrictId, Long toDistrictId,
+                            OrderType orderType, OrderStatus status, int seats, ClientOrderSource source) {
+    }
+
+    /** Aggregated measures for one group of a slice. Money is in minor units (1/100 UZS). */
+    public record Aggregate(long orders, long seats, long appFeeMinor, long companyRevenueMinor) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadFromDatabase() {
+        long startedAt = System.nanoTime();
+        try (Stream<OrderFactRow> rows = orderRepository.streamFactRows(FACT_STATUSES)) {
+            rows.forEach(row -> append(new OrderFact(row.getId(), row.getCreatedAt(), row.getFromDistrictId(),
+                    row.getToDistrictId(), row.getOrderType(), row.getStatus(), row.getSeats(), row.getOrderSource())));
+        } catch (RuntimeException e) {
+            logger.error("Failed to load order facts from the database: {}", e.getMessage(), e);
+        }
+
+        synchronized (writeLock) {
+            int loadedSize = columns.size;
+            for (OrderFact fact : pendingDuringLoad) {
+                if (!containsLoaded(fact.orderId(), loadedSize)) {
+                    append(fact);
+                }
+            }
+            pendingDuringLoad.clear();
+            loading = false;
+        }
+        logger.info("Order fact store loaded {} facts in {} ms.", columns.size, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        OrderStatus newStatus = event.getNewStatus();
+        if (newStatus != OrderStatus.COMPLETED && newStatus != OrderStatus.CANCELED) {
+            return;
+        }
+        OrderEntity order = event.getOrder();
+        ClientOrderSource source = order.getUserId() != null
+                ? clientRepository.findOrderSourceByUserId(order.getUserId()).orElse(null)
+                : null;
+        OrderFact fact = new OrderFact(order.getId(), order.getCreatedAt(), order.getFromDistrictId(), order.getToDistrictId(),
+                order.getOrderType(), newStatus, order.getSeats(), source);
+
+        synchronized (writeLock) {
+            if (loading) {
+                pendingDuringLoad.add(fact);
+                return;
+            }
+            append(fact);
+        }
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Groups all facts matching the filter by one dimension, scanning chunks of the store in parallel.
+     * @param filter Row filter, see {@link FactFilter}.
+     * @param dimension Dimension to group by.
+     * @return Map-like result keyed by the encoded dimension value.
+     */
+    public SliceResult slice(FactFilter filter, Dimension dimension) {
+        Columns snapshot = columns;
+        int size = snapshot.size;
+        int chunks = (size + SCAN_CHUNK_SIZE - 1) / SCAN_CHUNK_SIZE;
+        if (chunks == 0) {
+            return new SliceResult(new LongAggregateMap(4));
+        }
+        LongAggregateMap merged = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> scanChunk(snapshot, filter, dimension,
+                        chunk * SCAN_CHUNK_SIZE, Math.min(size, (chunk + 1) * SCAN_CHUNK_SIZE)))
+                .reduce(LongAggregateMap::mergeInto)
+                .orElseGet(() -> new LongAggregateMap(4));
+        return new SliceResult(merged);
+    }
+
+    public static int decodePairFrom(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int decodePairTo(long key) {
+        return (int) key;
+    }
+
+    public static long appFeeMinor(OrderType orderType, int seats) {
+        return AppFees.PER_PASSENGER_MINOR * seats + (orderType == OrderType.LUGGAGE ? AppFees.LUGGAGE_MINOR : 0);
+    }
+
+    private static LongAggregateMap scanChunk(Columns c, FactFilter filter, Dimension dimension, int from, int to) {
+        LongAggregateMap local = new LongAggregateMap(64);
+        int statusMask = filter.statusMask;
+        int typeMask = filter.typeMask;
+        for (int i = from; i < to; i++) {
+            int day = c.day[i];
+            if (day < filter.fromDay || day >= filter.toDay) continue;
+            if ((statusMask & (1 << c.status[i])) == 0) continue;
+            if ((typeMask & (1 << c.type[i])) == 0) continue;
+            if (filter.fromDistrict != null && c.fromDistrict[i] != filter.fromDistrict) continue;
+            if (filter.toDistrict != null && c.toDistrict[i] != filter.toDistrict) continue;
+            if (filter.source != null && c.source[i] != filter.source) continue;
+            if (filter.hourOfDay != null && c.hour[i] != filter.hourOfDay) continue;
+
+            long key;
+            switch (dimension) {
+                case DAY -> key = day;
+                case HOUR_OF_DAY -> key = c.hour[i];
+                case DAY_OF_WEEK -> key = Math.floorMod(day + 3, 7) + 1; // epoch day 0 was a Thursday; 1 = Monday
+                case FROM_DISTRICT -> key = c.fromDistrict[i];
+                case TO_DISTRICT -> key = c.toDistrict[i];
+                case DISTRICT_PAIR -> key = ((long) c.fromDistrict[i] << 32) | (c.toDistrict[i] & 0xFFFFFFFFL);
+                case ORDER_TYPE -> key = c.type[i];
+                case STATUS -> key = c.status[i];
+                case SOURCE -> key = c.source[i];
+                default -> throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+            }
+            int seats = c.seats[i];
+            long companyMinor = c.status[i] == OrderStatus.COMPLETED.ordinal()
+                    ? AppFees.COMPANY_PASSENGER_SHARE_MINOR * seats + (c.type[i] == OrderType.LUGGAGE.ordinal() ? AppFees.COMPANY_LUGGAGE_SHARE_MINOR : 0)
+                    : 0;
+            local.add(key, seats, c.feeMinor[i], companyMinor);
+        }
+        return local;
+    }
+
+    private boolean containsLoaded(long orderId, int loadedSize) {
+        return Arrays.binarySearch(columns.orderId, 0, loadedSize, orderId) >= 0;
+    }
+
+    private void append(OrderFact fact) {
+        synchronized (writeLock) {
+            Columns c = columns;
+            int index = c.size;
+            if (index == c.orderId.length) {
+                c = c.grow(c.orderId.length * 2);
+            }
+            LocalDateTime createdAt = fact.createdAt() != null ? fact.createdAt() : LocalDateTime.now();
+            OrderType orderType = fact.orderType() != null ? fact.orderType() : OrderType.REGULAR;
+            c.orderId[index] = fact.orderId();
+            c.day[index] = (int) createdAt.toLocalDate().toEpochDay();
+            c.hour[index] = (byte) createdAt.getHour();
+            c.fromDistrict[index] = fact.fromDistrictId() != null ? fact.fromDistrictId().intValue() : NO_DISTRICT;
+            c.toDistrict[index] = fact.toDistrictId() != null ? fact.toDistrictId().intValue() : NO_DISTRICT;
+            c.type[index] = (byte) orderType.ordinal();
+            c.status[index] = (byte) fact.status().ordinal();
+            c.source[index] = fact.source() != null ? (byte) fact.source().ordinal() : NO_SOURCE;
+            c.seats[index] = (short) fact.seats();
+            c.feeMinor[index] = fact.status() == OrderStatus.COMPLETED ? (int) appFeeMinor(orderType, fact.seats()) : 0;
+            // Publishing a new holder makes the slot visible to readers only after it is fully written.
+            columns = c.withSize(index + 1);
+        }
+    }
+
+    /**
+     * Row filter for slices. All criteria are optional; day bounds are [fromDay, toDay).
+     */
+    public static final class FactFilter {
+        private int fromDay = Integer.MIN_VALUE;
+        private int toDay = Integer.MAX_VALUE;
+        private int statusMask = (1 << ORDER_STATUSES.length) - 1;
+        private int typeMask = (1 << ORDER_TYPES.length) - 1;
+        private Integer fromDistrict;
+        private Integer toDistrict;
+        private Byte source;
+        private Byte hourOfDay;
+
+        public static FactFilter all() {
+            return new FactFilter();
+        }
+
+        public FactFilter between(LocalDate startInclusive, LocalDate endExclusive) {
+            if (startInclusive != null) this.fromDay = (int) startInclusive.toEpochDay();
+            if (endExclusive != null) this.toDay = (int) endExclusive.toEpochDay();
+            return this;
+        }
+
+        public FactFilter statuses(Set<OrderStatus> statuses) {
+            if (statuses != null && !statuses.isEmpty()) {
+                int mask = 0;
+                for (OrderStatus status : statuses) mask |= 1 << status.ordinal();
+                this.statusMask = mask;
+            }
+            return this;
+        }
+
+        public FactFilter orderTypes(Set<OrderType> orderTypes) {
+            if (orderTypes != null && !orderTypes.isEmpty()) {
+                int mask = 0;
+                for (OrderType type : orderTypes) mask |= 1 << type.ordinal();
+                this.typeMask = mask;
+            }
+            return this;
+        }
+
+        public FactFilter fromDistrict(Long districtId) {
+            this.fromDistrict = districtId != null ? districtId.intValue() : null;
+            return this;
+        }
+
+        public FactFilter toDistrict(Long districtId) {
+            this.toDistrict = districtId != null ? districtId.intValue() : null;
+            return this;
+        }
+
+        public FactFilter source(ClientOrderSource source) {
+            this.source = source != null ? (byte) source.ordinal() : null;
+            return this;
+        }
+
+        public FactFilter hourOfDay(Integer hourOfDay) {
+            this.hourOfDay = hourOfDay != null ? hourOfDay.byteValue() : null;
+            return this;
+        }
+    }
+
+    /** Result of a slice: encoded dimension keys with their aggregates. */
+    public static final class SliceResult {
+        private final LongAggregateMap map;
+
+        private SliceResult(LongAggregateMap map) {
+            this.map = map;
+        }
+
+        public int size() {
+            return map.size;
+        }
+
+        public List<Long> keys() {
+            List<Long> keys = new ArrayList<>(map.size);
+            for (int slot = 0; slot < map.keys.length; slot++) {
+                if (map.used[slot]) keys.add(map.keys[slot]);
+            }
+            keys.sort(Long::compare);
+            return keys;
+        }
+
+        public Aggregate get(long key) {
+            int slot = map.find(key);
+            if (slot < 0) return new Aggregate(0, 0, 0, 0);
+            return new Aggregate(map.orders[slot], map.seats[slot], map.fee[slot], map.company[slot]);
+        }
+    }
+
+    /** Open-addressing long -> aggregate map, so chunk scans never box keys. */
+    private static final class LongAggregateMap {
+        private long[] keys;
+        private boolean[] used;
+        private long[] orders;
+        private long[] seats;
+        private long[] fee;
+        private long[] company;
+        private int size;
+
+        LongAggregateMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            orders = new long[capacity];
+            seats = new long[capacity];
+            fee = new long[capacity];
+            company = new long[capacity];
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return slot;
+            }
+            return -1;
+        }
+
+        void add(long key, long seatCount, long feeMinor, long companyMinor) {
+            addAll(key, 1, seatCount, feeMinor, companyMinor);
+        }
+
+        private void addAll(long key, long orderCount, long seatCount, long feeMinor, long companyMinor) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            orders[slot] += orderCount;
+            seats[slot] += seatCount;
+            fee[slot] += feeMinor;
+            company[slot] += companyMinor;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldOrders = orders, oldSeats = seats, oldFee = fee, oldCompany = company;
+            allocate(capacity);
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot]) {
+                    addAll(oldKeys[slot], oldOrders[slot], oldSeats[slot], oldFee[slot], oldCompany[slot]);
+                }
+            }
+        }
+
+        static LongAggregateMap mergeInto(LongAggregateMap target, LongAggregateMap other) {
+            LongAggregateMap big = target.size >= other.size ? target : other;
+            LongAggregateMap small = big == target ? other : target;
+            for (int slot = 0; slot < small.keys.length; slot++) {
+                if (small.used[slot]) {
+                    big.addAll(small.keys[slot], small.orders[slot], small.seats[slot], small.fee[slot], small.company[slot]);
+                }
+            }
+            return big;
+        }
+    }
+
+    /** One generation of column arrays plus the number of published slots. */
+    private static final class Columns {
+        final long[] orderId;
+        final int[] day;
+        final byte[] hour;
+        final int[] fromDistrict;
+        final int[] toDistrict;
+        final byte[] type;
+        final byte[] status;
+        final byte[] source;
+        final short[] seats;
+        final int[] feeMinor;
+        final int size;
+
+        private Columns(long[] orderId, int[] day, byte[] hour, int[] fromDistrict, int[] toDistrict, byte[] type,
+                        byte[] status, byte[] source, short[] seats, int[] feeMinor, int size) {
+            this.orderId = orderId;
+            this.day = day;
+            this.hour = hour;
+            this.fromDistrict = fromDistrict;
+            this.toDistrict = toDistrict;
+            this.type = type;
+            this.status = status;
+            this.source = source;
+            this.seats = seats;
+            this.feeMinor = feeMinor;
+            this.size = size;
+        }
+
+        static Columns empty(int capacity) {
+            return new Columns(new long[capacity], new int[capacity], new byte[capacity], new int[capacity], new int[capacity],
+                    new byte[capacity], new byte[capacity], new byte[capacity], new short[capacity], new int[capacity], 0);
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(orderId, capacity), Arrays.copyOf(day, capacity), Arrays.copyOf(hour, capacity),
+                    Arrays.copyOf(fromDistrict, capacity), Arrays.copyOf(toDistrict, capacity), Arrays.copyOf(type, capacity),
+                    Arrays.copyOf(status, capacity), Arrays.copyOf(source, capacity), Arrays.copyOf(seats, capacity),
+                    Arrays.copyOf(feeMinor, capacity), size);
+        }
+
+        Columns withSize(int newSize) {
+            return new Columns(orderId, day, hour, fromDistrict, toDistrict, type, status, source, seats, feeMinor, newSize);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.taxi.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.example.taxi.analytics.QuantileSketchStore.GroupFunction;
+import org.example.taxi.entity.DailyOrderFunnel;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.DailyOrderFunnelRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderQuantileRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Per-day order funnel counters, one cell per (booking day, origin district, order type).
+ * <p>
+ * Each order is counted once per stage it reaches (created, accepted, en route, completed) and, if canceled, once for
+ * the stage it was dropped at. Operators and admins may skip stages (e.g. PENDING straight to COMPLETED); the skipped
+ * stages are counted as reached so conversion never exceeds 100%. They may also move an order back (e.g. ACCEPTED to
+ * PENDING); stages it then reaches again are not counted a second time. Cells are updated from order events, persisted as
+ * {@link DailyOrderFunnel} rows and flushed periodically like the quantile sketches.
+ */
+@Component
+public class OrderFunnelStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderFunnelStore.class);
+
+    // Stage indexes match the ordinals of PENDING..COMPLETED; cancellations follow, offset by the stage left.
+    public static final int CREATED = 0;
+    public static final int ACCEPTED = 1;
+    public static final int EN_ROUTE = 2;
+    public static final int COMPLETED = 3;
+    public static final int CANCELED_PENDING = 4;
+    public static final int CANCELED_ACCEPTED = 5;
+    public static final int CANCELED_EN_ROUTE = 6;
+    public static final int COUNTERS = 7;
+
+    private record Cell(long districtId, OrderType orderType) {
+    }
+
+    @Autowired private DailyOrderFunnelRepository funnelRepository;
+    @Autowired private OrderRepository orderRepository;
+
+    private final Map<LocalDate, Map<Cell, AtomicLongArray>> days = new ConcurrentHashMap<>();
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadFunnels() {
+        List<DailyOrderFunnel> stored = funnelRepository.findAll();
+        if (stored.isEmpty()) {
+            long rows = backfillFromOrders();
+            logger.info("Order funnel table was empty; backfilled {} days from {} orders.", days.size(), rows);
+            dirtyDays.addAll(days.keySet());
+            return;
+        }
+        for (DailyOrderFunnel row : stored) {
+            AtomicLongArray counters = countersFor(row.getDay(), new Cell(row.getDistrictId(), row.getOrderType()));
+            counters.addAndGet(CREATED, row.getCreated());
+            counters.addAndGet(ACCEPTED, row.getAccepted());
+            counters.addAndGet(EN_ROUTE, row.getEnRoute());
+            counters.addAndGet(COMPLETED, row.getCompleted());
+            counters.addAndGet(CANCELED_PENDING, row.getCanceledPending());
+            counters.addAndGet(CANCELED_ACCEPTED, row.getCanceledAccepted());
+            counters.addAndGet(CANCELED_EN_ROUTE, row.getCanceledEnRoute());
+        }
+        logger.info("Loaded {} order funnel cells.", stored.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        OrderEntity order = event.getOrder();
+        if (order.getCreatedAt() == null || order.getOrderType() == null) {
+            return;
+        }
+        AtomicLongArray counters = countersFor(order.getCreatedAt().toLocalDate(), cellOf(order.getFromDistrictId(), order.getOrderType()));
+        if (event.isCreation()) {
+            counters.incrementAndGet(CREATED);
+        } else if (event.getNewStatus() == OrderStatus.CANCELED) {
+            if (event.getPreviousStatus() != OrderStatus.COMPLETED) {
+                counters.incrementAndGet(CANCELED_PENDING + event.getPreviousStatus().ordinal());
+            }
+        } else if (event.isFirstReach()) {
+            // Count every stage past the furthest one reached before, including skipped ones
+            for (int stage = event.getFurthestReached().ordinal() + 1; stage <= event.getNewStatus().ordinal(); stage++) {
+                counters.incrementAndGet(stage);
+            }
+        }
+        dirtyDays.add(order.getCreatedAt().toLocalDate());
+    }
+
+    /**
+     * Sums the counters of every cell in [startInclusive, endInclusive] that matches the filters.
+     * @param districtId Origin district, or null for all.
+     * @param orderType Order type, or null for all.
+     * @param groupOf Maps (booking day, district id, order type) to the result group.
+     * @return {@link #COUNTERS} counters per group, indexed by the stage constants, sorted by group.
+     */
+    public <G extends Comparable<G>> Map<G, long[]> sum(LocalDate startInclusive, LocalDate endInclusive,
+                                                        Long districtId, OrderType orderType, GroupFunction<G> groupOf) {
+        Map<G, long[]> result = new TreeMap<>();
+        for (LocalDate date = startInclusive; !date.isAfter(endInclusive); date = date.plusDays(1)) {
+            Map<Cell, AtomicLongArray> cells = days.get(date);
+            if (cells == null) continue;
+            for (Map.Entry<Cell, AtomicLongArray> entry : cells.entrySet()) {
+                Cell cell = entry.getKey();
+                if ((districtId != null && cell.districtId() != districtId) || (orderType != null && cell.orderType() != orderType)) {
+                    continue;
+                }
+                long[] target = result.computeIfAbsent(groupOf.apply(date, cell.districtId(), cell.orderType()), g -> new long[COUNTERS]);
+                AtomicLongArray counters = entry.getValue();
+                for (int i = 0; i < COUNTERS; i++) {
+                    target[i] += counters.get(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes all days touched since the last flush back to the funnel table.
+     */
+    @Scheduled(fixedDelayString = "${analytics.funnel.flush-interval-ms:60000}")
+    public void flushDirtyDays() {
+        if (dirtyDays.isEmpty()) {
+            return;
+        }
+        List<LocalDate> toFlush = new ArrayList<>(dirtyDays);
+        // Remove before snapshotting: a concurrent update marks the day dirty again and is picked up next time.
+        dirtyDays.removeAll(toFlush);
+
+        Map<LocalDate, Map<Cell, DailyOrderFunnel>> existing = new HashMap<>();
+        funnelRepository.findByDayIn(toFlush).forEach(row -> existing
+                .computeIfAbsent(row.getDay(), d -> new HashMap<>())
+                .put(new Cell(row.getDistrictId(), row.getOrderType()), row));
+        List<DailyOrderFunnel> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate date : toFlush) {
+            Map<Cell, AtomicLongArray> cells = days.get(date);
+            if (cells == null) continue;
+            Map<Cell, DailyOrderFunnel> stored = existing.getOrDefault(date, Map.of());
+            for (Map.Entry<Cell, AtomicLongArray> entry : cells.entrySet()) {
+                Cell cell = entry.getKey();
+                DailyOrderFunnel row = stored.get(cell);
+                if (row == null) {
+                    row = new DailyOrderFunnel();
+                    row.setDay(date);
+                    row.setDistrictId(cell.districtId());
+                    row.setOrderType(cell.orderType());
+                }
+                AtomicLongArray counters = entry.getValue();
+                row.setCreated(counters.get(CREATED));
+                row.setAccepted(counters.get(ACCEPTED));
+                row.setEnRoute(counters.get(EN_ROUTE));
+                row.setCompleted(counters.get(COMPLETED));
+                row.setCanceledPending(counters.get(CANCELED_PENDING));
+                row.setCanceledAccepted(counters.get(CANCELED_ACCEPTED));
+                row.setCanceledEnRoute(counters.get(CANCELED_EN_ROUTE));
+                row.setUpdatedAt(now);
+                rows.add(row);
+            }
+        }
+        try {
+            funnelRepository.saveAll(rows);
+            logger.debug("Flushed {} order funnel cells for {} days.", rows.size(), toFlush.size());
+        } catch (RuntimeException e) {
+            dirtyDays.addAll(toFlush);
+            logger.error("Failed to flush order funnels: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirtyDays();
+    }
+
+    /**
+     * Rebuilds the funnels from the orders' current state. Orders canceled before lifecycle timestamps existed are
+     * attributed to the pending stage unless a driver was assigned.
+     */
+    private long backfillFromOrders() {
+        long[] count = {0};
+        try (Stream<OrderQuantileRow> rows = orderRepository.streamQuantileRows()) {
+            rows.forEach(row -> {
+                if (row.getCreatedAt() == null || row.getOrderType() == null || row.getStatus() == null) {
+                    return;
+                }
+                AtomicLongArray counters = countersFor(row.getCreatedAt().toLocalDate(), cellOf(row.getFromDistrictId(), row.getOrderType()));
+                counters.incrementAndGet(CREATED);
+                if (row.getStatus() == OrderStatus.CANCELED) {
+                    if (row.getEnRouteAt() != null) {
+                        counters.incrementAndGet(ACCEPTED);
+                        counters.incrementAndGet(EN_ROUTE);
+                        counters.incrementAndGet(CANCELED_EN_ROUTE);
+                    } else if (row.getAcceptedAt() != null || row.getDriverId() != null) {
+                        counters.incrementAndGet(ACCEPTED);
+                        counters.incrementAndGet(CANCELED_ACCEPTED);
+                    } else {
+                        counters.incrementAndGet(CANCELED_PENDING);
+                    }
+                } else {
+                    OrderStatus furthest = OrderStatusChangedEvent.furthestReached(row.getStatus(), row.getAcceptedAt(), row.getEnRouteAt(), row.getCompletedAt());
+                    for (int stage = ACCEPTED; stage <= furthest.ordinal(); stage++) {
+                        counters.incrementAndGet(stage);
+                    }
+                }
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    private static Cell cellOf(Long districtId, OrderType orderType) {
+        return new Cell(districtId != null ? districtId : OrderFactStore.NO_DISTRICT, orderType);
+    }
+
+    private AtomicLongArray countersFor(LocalDate day, Cell cell) {
+        return days.computeIfAbsent(day, d -> new ConcurrentHashMap<>()).computeIfAbsent(cell, c -> new AtomicLongArray(COUNTERS));
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.taxi.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.example.taxi.entity.DailyQuantileSketch;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.DailyQuantileSketchRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.projection.OrderQuantileRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Per-day t-digests of order value, booking lead time and acceptance delay, one per origin district and order type.
+ * <p>
+ * Cells are keyed by the day the order was booked and updated from order events; a query merges the digests of the
+ * matching cells, so any range, district or order type costs one merge per cell instead of a scan of the orders.
+ * Digests are persisted as {@link DailyQuantileSketch} rows and flushed periodically like the activity sketches.
+ * <p>
+ * The startup backfill (only when the table is empty) covers order value and lead time, and the stage latencies of
+ * orders that carry lifecycle timestamps; older orders only contribute to those from live events.
+ */
+@Component
+public class QuantileSketchStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantileSketchStore.class);
+
+    public enum QuantileMetric {
+        /** Total cost of completed orders, UZS. */
+        ORDER_VALUE,
+        /** Minutes from booking to requested pickup time, for every booked order. */
+        LEAD_TIME_MINUTES,
+        /** Seconds from booking until a driver accepted (or an operator assigned) the order. */
+        ACCEPTANCE_DELAY_SECONDS,
+        /** Minutes from acceptance until the driver went en route. */
+        ACCEPT_TO_EN_ROUTE_MINUTES,
+        /** Minutes from en route until the order was completed. */
+        RIDE_DURATION_MINUTES
+    }
+
+    private record Cell(long districtId, OrderType orderType, QuantileMetric metric) {
+    }
+
+    @Autowired private DailyQuantileSketchRepository sketchRepository;
+    @Autowired private OrderRepository orderRepository;
+
+    private final Map<LocalDate, Map<Cell, TDigest>> days = new ConcurrentHashMap<>();
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadSketches() {
+        List<DailyQuantileSketch> stored = sketchRepository.findAll();
+        if (stored.isEmpty()) {
+            long rows = backfillFromOrders();
+            logger.info("Quantile sketch table was empty; backfilled {} days from {} orders.", days.size(), rows);
+            dirtyDays.addAll(days.keySet());
+            return;
+        }
+        for (DailyQuantileSketch row : stored) {
+            TDigest digest = digestFor(row.getDay(), new Cell(row.getDistrictId(), row.getOrderType(), row.getMetric()));
+            synchronized (digest) {
+                digest.merge(TDigest.fromBytes(row.getDigest()));
+            }
+        }
+        logger.info("Loaded {} quantile sketches.", stored.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        OrderEntity order = event.getOrder();
+        if (order.getCreatedAt() == null || order.getOrderType() == null) {
+            return;
+        }
+        if (event.isCreation()) {
+            recordLeadTime(order.getCreatedAt(), order.getPickupTime(), order.getFromDistrictId(), order.getOrderType());
+            return;
+        }
+        if (!event.isFirstReach()) {
+            return; // Back at a stage after being moved back; its latencies were recorded the first time
+        }
+        if (event.getNewStatus() == OrderStatus.ACCEPTED) {
+            long seconds = Math.max(0, Duration.between(order.getCreatedAt(), event.getOccurredAt()).toSeconds());
+            record(order.getCreatedAt().toLocalDate(), order.getFromDistrictId(), order.getOrderType(),
+                    QuantileMetric.ACCEPTANCE_DELAY_SECONDS, seconds);
+        } else if (event.getNewStatus() == OrderStatus.EN_ROUTE) {
+            recordStageLatency(order.getCreatedAt(), order.getAcceptedAt(), order.getEnRouteAt(), order.getFromDistrictId(),
+                    order.getOrderType(), QuantileMetric.ACCEPT_TO_EN_ROUTE_MINUTES);
+        } else if (event.getNewStatus() == OrderStatus.COMPLETED) {
+            recordOrderValue(order.getCreatedAt(), order.getTotalCost(), order.getFromDistrictId(), order.getOrderType());
+            recordStageLatency(order.getCreatedAt(), order.getEnRouteAt(), order.getCompletedAt(), order.getFromDistrictId(),
+                    order.getOrderType(), QuantileMetric.RIDE_DURATION_MINUTES);
+        }
+    }
+
+    /**
+     * Merges the digests of every cell in [startInclusive, endInclusive] that matches the filters.
+     * @param districtId Origin district, or null for all.
+     * @param orderType Order type, or null for all.
+     * @param groupOf Maps (booking day, district id, order type) to the result group, e.g. the start of a week.
+     * @return Merged digest per group, sorted by group.
+     */
+    public <G extends Comparable<G>> Map<G, TDigest> merge(QuantileMetric metric, LocalDate startInclusive, LocalDate endInclusive,
+                                                           Long districtId, OrderType orderType, GroupFunction<G> groupOf) {
+        Map<G, TDigest> result = new TreeMap<>();
+        for (LocalDate date = startInclusive; !date.isAfter(endInclusive); date = date.plusDays(1)) {
+            Map<Cell, TDigest> cells = days.get(date);
+            if (cells == null) continue;
+            for (Map.Entry<Cell, TDigest> entry : cells.entrySet()) {
+                Cell cell = entry.getKey();
+                if (cell.metric() != metric
+                        || (districtId != null && cell.districtId() != districtId)
+                        || (orderType != null && cell.orderType() != orderType)) {
+                    continue;
+                }
+                TDigest target = result.computeIfAbsent(groupOf.apply(date, cell.districtId(), cell.orderType()), g -> new TDigest());
+                TDigest digest = entry.getValue();
+                synchronized (digest) {
+                    target.merge(digest);
+                }
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface GroupFunction<G> {
+        G apply(LocalDate day, long districtId, OrderType orderType);
+    }
+
+    /**
+     * Writes all days touched since the last flush back to the sketch table.
+     */
+    @Scheduled(fixedDelayString = "${analytics.quantiles.flush-interval-ms:60000}")
+    public void flushDirtyDays() {
+        if (dirtyDays.isEmpty()) {
+            return;
+        }
+        List<LocalDate> toFlush = new ArrayList<>(dirtyDays);
+        // Remove before snapshotting: a concurrent add marks the day dirty again and is picked up next time.
+        dirtyDays.removeAll(toFlush);
+
+        Map<LocalDate, Map<Cell, DailyQuantileSketch>> existing = new HashMap<>();
+        sketchRepository.findByDayIn(toFlush).forEach(row -> existing
+                .computeIfAbsent(row.getDay(), d -> new HashMap<>())
+                .put(new Cell(row.getDistrictId(), row.getOrderType(), row.getMetric()), row));
+        List<DailyQuantileSketch> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate date : toFlush) {
+            Map<Cell, TDigest> cells = days.get(date);
+            if (cells == null) continue;
+            Map<Cell, DailyQuantileSketch> stored = existing.getOrDefault(date, Map.of());
+            for (Map.Entry<Cell, TDigest> entry : cells.entrySet()) {
+                Cell cell = entry.getKey();
+                DailyQuantileSketch row = stored.get(cell);
+                if (row == null) {
+                    row = new DailyQuantileSketch();
+                    row.setDay(date);
+                    row.setDistrictId(cell.districtId());
+                    row.setOrderType(cell.orderType());
+                    row.setMetric(cell.metric());
+                }
+                TDigest digest = entry.getValue();
+                synchronized (digest) {
+                    row.setDigest(digest.toBytes());
+                    row.setValueCount(digest.count());
+                }
+                row.setUpdatedAt(now);
+                rows.add(row);
+            }
+        }
+        try {
+            sketchRepository.saveAll(rows);
+            logger.debug("Flushed {} quantile sketches for {} days.", rows.size(), toFlush.size());
+        } catch (RuntimeException e) {
+            dirtyDays.addAll(toFlush);
+            logger.error("Failed to flush quantile sketches: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirtyDays();
+    }
+
+    private long backfillFromOrders() {
+        long[] count = {0};
+        try (Stream<OrderQuantileRow> rows = orderRepository.streamQuantileRows()) {
+            rows.forEach(row -> {
+                if (row.getCreatedAt() == null || row.getOrderType() == null) {
+                    return;
+                }
+                recordLeadTime(row.getCreatedAt(), row.getPickupTime(), row.getFromDistrictId(), row.getOrderType());
+                if (row.getStatus() == OrderStatus.COMPLETED) {
+                    recordOrderValue(row.getCreatedAt(), row.getTotalCost(), row.getFromDistrictId(), row.getOrderType());
+                }
+                if (row.getAcceptedAt() != null) {
+                    long seconds = Math.max(0, Duration.between(row.getCreatedAt(), row.getAcceptedAt()).toSeconds());
+                    record(row.getCreatedAt().toLocalDate(), row.getFromDistrictId(), row.getOrderType(),
+                            QuantileMetric.ACCEPTANCE_DELAY_SECONDS, seconds);
+                }
+                recordStageLatency(row.getCreatedAt(), row.getAcceptedAt(), row.getEnRouteAt(), row.getFromDistrictId(),
+                        row.getOrderType(), QuantileMetric.ACCEPT_TO_EN_ROUTE_MINUTES);
+                recordStageLatency(row.getCreatedAt(), row.getEnRouteAt(), row.getCompletedAt(), row.getFromDistrictId(),
+                        row.getOrderType(), QuantileMetric.RIDE_DURATION_MINUTES);
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    private void recordLeadTime(LocalDateTime createdAt, LocalDateTime pickupTime, Long districtId, OrderType orderType) {
+        if (pickupTime == null) {
+            return;
+        }
+        long minutes = Math.max(0, Duration.between(createdAt, pickupTime).toMinutes());
+        record(createdAt.toLocalDate(), districtId, orderType, QuantileMetric.LEAD_TIME_MINUTES, minutes);
+    }
+
+    private void recordStageLatency(LocalDateTime createdAt, LocalDateTime from, LocalDateTime to, Long districtId,
+                                    OrderType orderType, QuantileMetric metric) {
+        if (from == null || to == null) {
+            return;
+        }
+        record(createdAt.toLocalDate(), districtId, orderType, metric, Math.max(0, Duration.between(from, to).toMinutes()));
+    }
+
+    private void recordOrderValue(LocalDateTime createdAt, BigDecimal totalCost, Long districtId, OrderType orderType) {
+        if (totalCost == null) {
+            return;
+        }
+        record(createdAt.toLocalDate(), districtId, orderType, QuantileMetric.ORDER_VALUE, totalCost.doubleValue());
+    }
+
+    private void record(LocalDate day, Long districtId, OrderType orderType, QuantileMetric metric, double value) {
+        long district = districtId != null ? districtId : OrderFactStore.NO_DISTRICT;
+        TDigest digest = digestFor(day, new Cell(district, orderType, metric));
+        synchronized (digest) {
+            digest.add(value);
+        }
+        dirtyDays.add(day);
+    }
+
+    private TDigest digestFor(LocalDate day, Cell cell) {
+        return days.computeIfAbsent(day, d -> new ConcurrentHashMap<>()).computeIfAbsent(cell, c -> new TDigest());
+    }
+}
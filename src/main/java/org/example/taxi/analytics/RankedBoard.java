@@ -0,0 +1,112 @@
+package org.example.taxi.analytics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sorted set of (score, driverId) pairs, highest score first, ties broken by lower driver id.
+ * <p>
+ * Backed by two parallel primitive arrays, so top-N is an array copy and rank is a binary search.
+ * An update is a remove plus an insert, each one {@code System.arraycopy} of the tail; for the few thousand
+ * drivers on a board that is a handful of microseconds. Not thread-safe; {@link DriverLeaderboard} guards it.
+ */
+final class RankedBoard {
+
+    private long[] scores;
+    private long[] driverIds;
+    private int size;
+    private final Map<Long, Long> scoreByDriver = new HashMap<>();
+
+    RankedBoard() {
+        this(16);
+    }
+
+    RankedBoard(int initialCapacity) {
+        this.scores = new long[Math.max(4, initialCapacity)];
+        this.driverIds = new long[scores.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    Long scoreOf(long driverId) {
+        return scoreByDriver.get(driverId);
+    }
+
+    void put(long driverId, long score) {
+        Long previous = scoreByDriver.put(driverId, score);
+        if (previous != null) {
+            if (previous == score) {
+                return;
+            }
+            removeAt(indexOf(previous, driverId));
+        }
+        insertAt(-indexOf(score, driverId) - 1, driverId, score);
+    }
+
+    void remove(long driverId) {
+        Long previous = scoreByDriver.remove(driverId);
+        if (previous != null) {
+            removeAt(indexOf(previous, driverId));
+        }
+    }
+
+    /** 1-based rank of the driver, or -1 if the driver is not on the board. */
+    int rankOf(long driverId) {
+        Long score = scoreByDriver.get(driverId);
+        return score == null ? -1 : indexOf(score, driverId) + 1;
+    }
+
+    long[] topDriverIds(int limit) {
+        return Arrays.copyOf(driverIds, Math.min(limit, size));
+    }
+
+    long[] topScores(int limit) {
+        return Arrays.copyOf(scores, Math.min(limit, size));
+    }
+
+    // Binary search in (score desc, driverId asc) order; same contract as Arrays.binarySearch.
+    private int indexOf(long score, long driverId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(scores[mid], driverIds[mid], score, driverId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(long scoreA, long idA, long scoreB, long idB) {
+        if (scoreA != scoreB) {
+            return scoreA > scoreB ? -1 : 1;
+        }
+        return Long.compare(idA, idB);
+    }
+
+    private void insertAt(int index, long driverId, long score) {
+        if (size == scores.length) {
+            scores = Arrays.copyOf(scores, size * 2);
+            driverIds = Arrays.copyOf(driverIds, size * 2);
+        }
+        System.arraycopy(scores, index, scores, index + 1, size - index);
+        System.arraycopy(driverIds, index, driverIds, index + 1, size - index);
+        scores[index] = score;
+        driverIds[index] = driverId;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+        System.arraycopy(driverIds, index + 1, driverIds, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,200 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.controller.dto.ChartDataPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reduces a daily chart series (point names are ISO dates, sorted ascending) to at most a target number of points.
+ * <ul>
+ *     <li>{@link Mode#BUCKET} rolls days up into the finest calendar bucket (week, month, quarter, year) that fits;
+ *     point names become the first day of each bucket (clipped to the first day of the series).</li>
+ *     <li>{@link Mode#LTTB} keeps original points chosen by Largest-Triangle-Three-Buckets, which preserves peaks and
+ *     the overall shape of the line.</li>
+ * </ul>
+ * Both run in a single pass over the input, so the cost is bounded by the number of days requested.
+ */
+public final class SeriesDownsampler {
+
+    public enum Mode {
+        /** BUCKET for additive series, LTTB for the rest. */
+        AUTO,
+        BUCKET,
+        LTTB
+    }
+
+    public enum Aggregation {
+        /** Counts and amounts: a bucket holds the total of its days. */
+        SUM,
+        /** Gauges such as active drivers: a bucket holds the mean per calendar day (missing days count as 0). */
+        AVERAGE
+    }
+
+    private enum Bucket {
+        DAY, WEEK, MONTH, QUARTER, YEAR;
+
+        LocalDate startOf(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+                case QUARTER -> day.withDayOfMonth(1).withMonth((day.getMonthValue() - 1) / 3 * 3 + 1);
+                case YEAR -> day.withDayOfYear(1);
+            };
+        }
+
+        LocalDate next(LocalDate bucketStart) {
+            return switch (this) {
+                case DAY -> bucketStart.plusDays(1);
+                case WEEK -> bucketStart.plusWeeks(1);
+                case MONTH -> bucketStart.plusMonths(1);
+                case QUARTER -> bucketStart.plusMonths(3);
+                case YEAR -> bucketStart.plusYears(1);
+            };
+        }
+    }
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * @param maxPoints Target point count, at least 3.
+     * @return {@code daily} itself when it already fits.
+     */
+    public static List<ChartDataPoint> downsample(List<ChartDataPoint> daily, int maxPoints, Mode mode, Aggregation aggregation) {
+        if (daily.size() <= maxPoints) {
+            return daily;
+        }
+        Mode resolved = mode == Mode.AUTO ? (aggregation == Aggregation.SUM ? Mode.BUCKET : Mode.LTTB) : mode;
+        return resolved == Mode.LTTB ? lttb(daily, maxPoints) : bucket(daily, maxPoints, aggregation);
+    }
+
+    /**
+     * Rolls the series up into the finest calendar bucket with at most {@code maxPoints} buckets over the series'
+     * date span. If even yearly buckets are too many, the yearly series is further reduced with LTTB.
+     */
+    public static List<ChartDataPoint> bucket(List<ChartDataPoint> daily, int maxPoints, Aggregation aggregation) {
+        if (daily.isEmpty()) {
+            return daily;
+        }
+        LocalDate first = LocalDate.parse(daily.get(0).getName());
+        LocalDate last = LocalDate.parse(daily.get(daily.size() - 1).getName());
+        Bucket bucket = Bucket.YEAR;
+        for (Bucket candidate : Bucket.values()) {
+            if (bucketCount(candidate, first, last) <= maxPoints) {
+                bucket = candidate;
+                break;
+            }
+        }
+
+        Map<LocalDate, BigDecimal> totals = new TreeMap<>();
+        boolean integral = true;
+        for (ChartDataPoint point : daily) {
+            LocalDate start = bucket.startOf(LocalDate.parse(point.getName()));
+            integral &= point.getValue() instanceof Long || point.getValue() instanceof Integer;
+            totals.merge(start, toBigDecimal(point.getValue()), BigDecimal::add);
+        }
+        List<ChartDataPoint> result = new ArrayList<>(totals.size());
+        for (Map.Entry<LocalDate, BigDecimal> entry : totals.entrySet()) {
+            Number value;
+            if (aggregation == Aggregation.AVERAGE) {
+                // Mean over the bucket's calendar days, clipped to the series span
+                LocalDate from = entry.getKey().isBefore(first) ? first : entry.getKey();
+                LocalDate to = bucket.next(entry.getKey()).isAfter(last.plusDays(1)) ? last.plusDays(1) : bucket.next(entry.getKey());
+                long days = Math.max(1, ChronoUnit.DAYS.between(from, to));
+                value = entry.getValue().divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP);
+            } else {
+                value = integral ? entry.getValue().longValue() : entry.getValue();
+            }
+            LocalDate label = entry.getKey().isBefore(first) ? first : entry.getKey();
+            result.add(new ChartDataPoint(label.toString(), value));
+        }
+        return result.size() > maxPoints ? lttb(result, maxPoints) : result;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: keeps the first and last points and, from each of the {@code maxPoints - 2}
+     * buckets in between, the point forming the largest triangle with the previously kept point and the average of
+     * the next bucket. X is the day, so gaps in a sparse series are respected.
+     */
+    public static List<ChartDataPoint> lttb(List<ChartDataPoint> points, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        int size = points.size();
+        if (size <= maxPoints) {
+            return points;
+        }
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = LocalDate.parse(points.get(i).getName()).toEpochDay();
+            y[i] = points.get(i).getValue().doubleValue();
+        }
+
+        List<ChartDataPoint> result = new ArrayList<>(maxPoints);
+        result.add(points.get(0));
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int selected = 0;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            // Average of the next bucket (the last point for the final bucket)
+            int nextStart = end;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+            if (nextStart >= size - 1) {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[selected] - avgX) * (y[i] - y[selected]) - (x[selected] - x[i]) * (avgY - y[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            result.add(points.get(best));
+            selected = best;
+        }
+        result.add(points.get(size - 1));
+        return result;
+    }
+
+    private static long bucketCount(Bucket bucket, LocalDate first, LocalDate last) {
+        long count = 0;
+        for (LocalDate start = bucket.startOf(first); !start.isAfter(last); start = bucket.next(start)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        return BigDecimal.valueOf(value.doubleValue());
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.taxi.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter summary (Metwally, Agrawal &amp; El Abbadi) over a stream of items.
+ * <p>
+ * At most {@code capacity} counters are kept. An unmonitored item takes over the smallest counter and inherits its
+ * count as error, so every reported count over-estimates the true count by at most its {@code error}, and every item
+ * seen more than {@code total / capacity} times is guaranteed to be present. Summaries merge (Agarwal et al.), so
+ * per-hour summaries can be combined into any window at query time.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class SpaceSaving<T> {
+
+    /**
+     * @param count Estimated count; the true count lies in [count - error, count].
+     * @param error Maximum over-estimation.
+     */
+    public record Estimate<T>(T item, long count, long error) {
+    }
+
+    private static final class Counter<T> {
+        final T item;
+        long count;
+        long error;
+        final long sequence; // Tie-breaker so counters with equal counts stay distinct in the sorted set
+
+        Counter(T item, long count, long error, long sequence) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Counter<?>> BY_COUNT = Comparator.<Counter<?>>comparingLong(c -> c.count)
+            .thenComparingLong(c -> c.sequence);
+
+    private final int capacity;
+    private final Map<T, Counter<T>> counters;
+    private final TreeSet<Counter<T>> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+    private long nextSequence;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void offer(T item) {
+        offer(item, 1);
+    }
+
+    public void offer(T item, long increment) {
+        total += increment;
+        Counter<T> counter = counters.get(item);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += increment;
+            byCount.add(counter);
+            return;
+        }
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter<T> smallest = byCount.pollFirst();
+            counters.remove(smallest.item);
+            error = smallest.count;
+        }
+        counter = new Counter<>(item, error + increment, error, nextSequence++);
+        counters.put(item, counter);
+        byCount.add(counter);
+    }
+
+    /** @return Number of items offered (stream length). */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return Upper bound on the count of any item that is not monitored; 0 while fewer than capacity items were seen.
+     */
+    public long minCount() {
+        return counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+
+    /** @return Up to {@code n} items by descending estimated count; ties go to the smaller error. */
+    public List<Estimate<T>> top(int n) {
+        List<Estimate<T>> result = new ArrayList<>(counters.size());
+        for (Counter<T> counter : byCount) {
+            result.add(new Estimate<>(counter.item, counter.count, counter.error));
+        }
+        result.sort(Comparator.<Estimate<T>>comparingLong(e -> -e.count()).thenComparingLong(Estimate::error));
+        return result.subList(0, Math.min(n, result.size()));
+    }
+
+    /**
+     * Adds {@code other} to this summary. Items missing from one side are assumed to have that side's
+     * {@link #minCount()}, which is added to both their count and error; the largest {@link #capacity()} are kept.
+     */
+    public void merge(SpaceSaving<T> other) {
+        long ownMin = minCount();
+        long otherMin = other.minCount();
+        Set<T> items = new HashSet<>(counters.keySet());
+        items.addAll(other.counters.keySet());
+
+        List<Counter<T>> merged = new ArrayList<>(items.size());
+        for (T item : items) {
+            Counter<T> own = counters.get(item);
+            Counter<T> theirs = other.counters.get(item);
+            long count = (own != null ? own.count : ownMin) + (theirs != null ? theirs.count : otherMin);
+            long error = (own != null ? own.error : ownMin) + (theirs != null ? theirs.error : otherMin);
+            merged.add(new Counter<>(item, count, error, nextSequence++));
+        }
+        merged.sort(BY_COUNT.reversed());
+
+        counters.clear();
+        byCount.clear();
+        for (Counter<T> counter : merged.subList(0, Math.min(capacity, merged.size()))) {
+            counters.put(counter.item, counter);
+            byCount.add(counter);
+        }
+        total += other.total;
+    }
+}
@@ -0,0 +1,290 @@
+package org.example.taxi.analytics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest (Dunning &amp; Ertl) for approximate quantiles of a stream of doubles.
+ * <p>
+ * Values are buffered and periodically merged into at most about {@code compression} centroids, sized with the
+ * arcsine scale function so centroids near the tails stay small: p99 is far more accurate than the centroid count
+ * suggests. Digests merge losslessly with respect to their own accuracy, so per-day digests can be combined into
+ * any range at query time.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final double[] EMPTY = new double[0];
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double compression;
+
+    // Grown on demand: most per-day and per-district digests only ever see a handful of values
+    private double[] means = EMPTY;
+    private double[] weights = EMPTY;
+    private int centroidCount;
+    private double mergedWeight;
+
+    private final int bufferLimit; // values buffered before a merge
+    private double[] bufferValues = EMPTY;
+    private double[] bufferWeights = EMPTY;
+    private int bufferCount;
+    private double bufferedWeight;
+
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression must be at least 10");
+        }
+        this.compression = compression;
+        this.bufferLimit = (int) (5 * compression);
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, double weight) {
+        if (Double.isNaN(value) || weight <= 0) {
+            return;
+        }
+        if (bufferCount == bufferLimit) {
+            flush();
+        }
+        if (bufferCount == bufferValues.length) {
+            int capacity = Math.min(bufferLimit, Math.max(INITIAL_CAPACITY, bufferCount * 2));
+            bufferValues = Arrays.copyOf(bufferValues, capacity);
+            bufferWeights = Arrays.copyOf(bufferWeights, capacity);
+        }
+        bufferValues[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        bufferedWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all of {@code other}'s centroids to this digest.
+     */
+    public void merge(TDigest other) {
+        other.flush();
+        for (int i = 0; i < other.centroidCount; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (other.centroidCount > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /** @return Total weight (number of values) added. */
+    public long count() {
+        return Math.round(mergedWeight + bufferedWeight);
+    }
+
+    public double min() {
+        return count() == 0 ? Double.NaN : min;
+    }
+
+    public double max() {
+        return count() == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @param q Quantile in [0, 1].
+     * @return Estimated value at the quantile, or NaN when the digest is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be in [0, 1]");
+        }
+        flush();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1 || q == 0) {
+            return q == 0 ? min : q == 1 ? max : means[0];
+        }
+        double total = mergedWeight;
+        double index = q * total;
+
+        // Left tail: between min and the centre of the first centroid
+        double firstHalf = weights[0] / 2;
+        if (index < firstHalf) {
+            return min + (means[0] - min) * (index / firstHalf);
+        }
+        double weightSoFar = firstHalf;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + gap > index) {
+                double fraction = (index - weightSoFar) / gap;
+                return means[i] + fraction * (means[i + 1] - means[i]);
+            }
+            weightSoFar += gap;
+        }
+        // Right tail: between the centre of the last centroid and max
+        int last = centroidCount - 1;
+        double lastHalf = weights[last] / 2;
+        double fraction = Math.min(1, (index - weightSoFar) / lastHalf);
+        return means[last] + (max - means[last]) * fraction;
+    }
+
+    public byte[] toBytes() {
+        flush();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 3 + 4 + centroidCount * 16);
+        buffer.put(FORMAT_VERSION);
+        buffer.putDouble(compression);
+        buffer.putDouble(min);
+        buffer.putDouble(max);
+        buffer.putInt(centroidCount);
+        for (int i = 0; i < centroidCount; i++) {
+            buffer.putDouble(means[i]);
+            buffer.putDouble(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported t-digest format version " + version);
+        }
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            digest.add(buffer.getDouble(), buffer.getDouble());
+        }
+        if (count > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+
+    /**
+     * Merges the buffer into the centroids: both are sorted, combined in order, and neighbouring points are folded
+     * into one centroid for as long as the centroid spans at most one unit of the scale function.
+     */
+    private void flush() {
+        if (bufferCount == 0) {
+            return;
+        }
+        sort(bufferValues, bufferWeights, 0, bufferCount - 1);
+
+        int inputCount = centroidCount + bufferCount;
+        double[] inputMeans = new double[inputCount];
+        double[] inputWeights = new double[inputCount];
+        int c = 0, b = 0;
+        for (int i = 0; i < inputCount; i++) {
+            if (b >= bufferCount || (c < centroidCount && means[c] <= bufferValues[b])) {
+                inputMeans[i] = means[c];
+                inputWeights[i] = weights[c];
+                c++;
+            } else {
+                inputMeans[i] = bufferValues[b];
+                inputWeights[i] = bufferWeights[b];
+                b++;
+            }
+        }
+
+        double total = mergedWeight + bufferedWeight;
+        int out = 0;
+        double currentMean = inputMeans[0];
+        double currentWeight = inputWeights[0];
+        double weightSoFar = 0;
+        double limit = total * inverseScale(scale(0) + 1);
+        for (int i = 1; i < inputCount; i++) {
+            double proposed = weightSoFar + currentWeight + inputWeights[i];
+            if (proposed <= limit) {
+                currentWeight += inputWeights[i];
+                currentMean += (inputMeans[i] - currentMean) * inputWeights[i] / currentWeight;
+            } else {
+                out = emit(out, currentMean, currentWeight);
+                weightSoFar += currentWeight;
+                limit = total * inverseScale(scale(weightSoFar / total) + 1);
+                currentMean = inputMeans[i];
+                currentWeight = inputWeights[i];
+            }
+        }
+        out = emit(out, currentMean, currentWeight);
+
+        centroidCount = out;
+        mergedWeight = total;
+        bufferCount = 0;
+        bufferedWeight = 0;
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, Math.max(INITIAL_CAPACITY, index * 2));
+            weights = Arrays.copyOf(weights, means.length);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    /** Arcsine scale function k1: k(q) = compression / (2 pi) * asin(2q - 1). */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private double inverseScale(double k) {
+        double maxK = compression / 4;
+        if (k >= maxK) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    /** Sorts values ascending, carrying the matching weights along. */
+    private static void sort(double[] values, double[] weights, int from, int to) {
+        while (to - from > 16) {
+            double pivot = values[(from + to) >>> 1];
+            int i = from, j = to;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    swap(values, weights, i++, j--);
+                }
+            }
+            // Recurse into the smaller half, loop on the larger one
+            if (j - from < to - i) {
+                sort(values, weights, from, j);
+                from = i;
+            } else {
+                sort(values, weights, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && values[j - 1] > values[j]; j--) {
+                swap(values, weights, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(double[] values, double[] weights, int i, int j) {
+        double v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+        double w = weights[i];
+        weights[i] = weights[j];
+        weights[j] = w;
+    }
+}
@@ -2,6 +2,7 @@ package org.example.taxi.bot;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.example.taxi.config.workload.BotUpdateExecutor;
 import org.example.taxi.entity.User;
 import org.example.taxi.repository.UserRepository;
 import org.example.taxi.service.TelegramBotService;
@@ -31,6 +32,7 @@ public class TelegramBot extends TelegramLongPollingBot {
     private final UserSessionService userSessionService;
     private final MessageSender messageSender;
     private final UserRepository userRepository;
+    private final BotUpdateExecutor botUpdateExecutor;
 
     @Value("${telegram.bot.token}")
     private String botToken;
@@ -82,6 +84,16 @@ public class TelegramBot extends TelegramLongPollingBot {
             return;
         }
 
+        // Handle off the polling thread, in the bounded bot pool, so slow handlers never stall update polling.
+        // Updates of one chat run in order, one at a time, since they share the chat's session state.
+        Long finalChatId = chatId;
+        if (!botUpdateExecutor.submit(chatId, () -> handleUpdate(update, finalChatId))) {
+            logger.warn("Bot update queue full, dropping update for chatId {}", chatId);
+            messageSender.sendMessage(chatId, "We are experiencing high load. Please try again in a minute.");
+        }
+    }
+
+    private void handleUpdate(Update update, Long chatId) {
         try {
             if (update.hasMessage()) {
                 if (update.getMessage().hasText()) {
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
@@ -25,6 +26,8 @@ public class UserSessionService {
 
     // Stores transient registration data, keyed by the unique sessionId from the web/app
     private final Map<String, RegistrationCacheEntry> registrationCache = new ConcurrentHashMap<>();
+    // Requests parked until the bot step of a registration session is done, keyed by sessionId
+    private final Map<String, List<CompletableFuture<Boolean>>> phoneLinkWaiters = new ConcurrentHashMap<>();
 
     // --- UserSession (Bot conversation state per chatId) methods ---
     public void setUserState(Long chatId, String state) {
@@ -139,6 +142,9 @@ public class UserSessionService {
     public void updateRegistrationCacheEntry(RegistrationCacheEntry entry) {
         registrationCache.put(entry.getSessionId(), entry);
         logger.debug("Updated registration cache entry for session {}. ChatId: {}, Phone: {}", entry.getSessionId(), entry.getChatId(), entry.getPhoneNumber());
+        if (entry.getPhoneNumber() != null) {
+            signalPhoneLinked(entry.getSessionId(), true);
+        }
     }
 
     public void clearRegistrationSession(String sessionId) {
@@ -146,5 +152,43 @@ public class UserSessionService {
         if (removedEntry != null) {
             logger.info("Cleared registration cache entry for session: {}", sessionId);
         }
+        signalPhoneLinked(sessionId, false);
+    }
+
+    /**
+     * Waits for the bot step of a registration session without holding a thread.
+     *
+     * @param sessionId The registration session ID.
+     * @return Completes with true once the phone number is linked in the bot (at once if it already is), or false
+     * when the session is missing, expired or cleared. Callers apply their own timeout and cancel the future when
+     * they stop waiting.
+     */
+    public CompletableFuture<Boolean> awaitPhoneLinked(String sessionId) {
+        CompletableFuture<Boolean> linked = new CompletableFuture<>();
+        phoneLinkWaiters.compute(sessionId, (id, waiters) -> {
+            List<CompletableFuture<Boolean>> updated = waiters != null ? waiters : new ArrayList<>();
+            updated.add(linked);
+            return updated;
+        });
+        linked.whenComplete((result, error) -> phoneLinkWaiters.computeIfPresent(sessionId, (id, waiters) -> {
+            waiters.remove(linked);
+            return waiters.isEmpty() ? null : waiters;
+        }));
+
+        // Checked after registering, so an update made in between is not missed
+        Optional<RegistrationCacheEntry> entry = getRegistrationCacheEntry(sessionId);
+        if (entry.isEmpty()) {
+            linked.complete(false);
+        } else if (entry.get().getPhoneNumber() != null) {
+            linked.complete(true);
+        }
+        return linked;
+    }
+
+    private void signalPhoneLinked(String sessionId, boolean linked) {
+        List<CompletableFuture<Boolean>> waiters = phoneLinkWaiters.remove(sessionId);
+        if (waiters != null) {
+            waiters.forEach(waiter -> waiter.complete(linked));
+        }
     }
 }
\ No newline at end of file
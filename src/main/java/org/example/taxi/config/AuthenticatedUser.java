@@ -0,0 +1,21 @@
+package org.example.taxi.config;
+
+import java.security.Principal;
+
+/**
+ * Principal of a request authenticated with a bearer token. Controllers receive it with
+ * {@code @AuthenticationPrincipal}, so the caller's ids come from the token rather than a user lookup.
+ *
+ * @param userId      Id of the {@link org.example.taxi.entity.User}.
+ * @param phoneNumber Phone number the token was issued for; also {@link #getName()}.
+ * @param role        Role granted by the token, without the {@code ROLE_} prefix.
+ * @param profileId   Id of the user's {@code Driver} or {@code Client} profile when the role is DRIVER or CLIENT
+ *                    respectively, or null. DriverService and ClientService act on it without looking the profile up.
+ */
+public record AuthenticatedUser(Long userId, String phoneNumber, String role, Long profileId) implements Principal {
+
+    @Override
+    public String getName() {
+        return phoneNumber;
+    }
+}
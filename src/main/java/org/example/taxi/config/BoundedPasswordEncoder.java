@@ -0,0 +1,134 @@
+package org.example.taxi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a CPU-heavy {@link PasswordEncoder} (BCrypt) on a small dedicated pool, so a login storm or a burst of
+ * registrations can use at most {@code maxConcurrent} cores instead of every request thread.
+ * <p>
+ * Callers still wait for the result, but only behind a bounded queue: when it is full, or the hash is not done within
+ * {@code maxWait}, the call fails fast with 503 instead of piling up. {@link #upgradeEncoding} is delegated, so hashes
+ * made with an older cost are rehashed on the next successful login.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+    private final Duration maxWait;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWait;
+    private final Timer encodeDuration;
+    private final Timer matchDuration;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimedOut;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int maxConcurrent, int maxQueued, Duration maxWait, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxWait = maxWait;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxQueued),
+                task -> {
+                    Thread thread = new Thread(task, "password-hasher-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("taxi.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("taxi.password.hash.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+        this.queueWait = Timer.builder("taxi.password.hash.queue.wait").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.encodeDuration = Timer.builder("taxi.password.hash.duration").tag("operation", "encode").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.matchDuration = Timer.builder("taxi.password.hash.duration").tag("operation", "matches").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("taxi.password.hash.rejected").tag("reason", "queue-full").register(meterRegistry);
+        this.rejectedTimedOut = Counter.builder("taxi.password.hash.rejected").tag("reason", "timed-out").register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeDuration, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchDuration, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Cheap (parses the stored hash's cost), so it runs on the caller's thread.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer duration, Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                queueWait.record(start - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return work.call();
+                } finally {
+                    duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            logger.warn("Rejecting password hash: {} hashes already queued", executor.getQueue().size());
+            throw busy();
+        }
+
+        try {
+            return future.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Drops the task if it is still queued; a hash already running finishes and is discarded
+            future.cancel(false);
+            executor.remove((Runnable) future);
+            rejectedTimedOut.increment();
+            logger.warn("Rejecting password hash: not done within {}", maxWait);
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static ResponseStatusException busy() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The server is busy processing sign-ins. Please retry shortly.");
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,6 +1,6 @@
 package org.example.taxi.config;
 
-import io.jsonwebtoken.Jwts;
+import org.example.taxi.service.TokenRevocationService;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,13 +14,25 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
+/**
+ * Authenticates requests carrying a bearer token, with an {@link AuthenticatedUser} built from the token's claims as
+ * the principal. Runs only inside the security filter chain; its automatic servlet registration is disabled in
+ * {@link SecurityConfig}.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
+    private final UserIdentityResolver userIdentityResolver;
+    private final TokenRevocationService tokenRevocationService;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserIdentityResolver userIdentityResolver,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.userIdentityResolver = userIdentityResolver;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -28,20 +40,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         String token = getTokenFromRequest(request);
 
-        if (token != null && jwtTokenProvider.validateToken(token)) {
-            String phoneNumber = jwtTokenProvider.getPhoneNumberFromToken(token);
-            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    phoneNumber,
-                    null,
-                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + jwtTokenProvider.getRoleFromToken(token)))
-            );
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (token != null) {
+            // Refresh tokens are only good for the refresh endpoint, never as bearer credentials
+            jwtTokenProvider.verify(token).filter(verified -> !verified.refresh()).flatMap(this::toPrincipal).ifPresent(principal -> {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        principal,
+                        null,
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + principal.role()))
+                );
+                authentication.setDetails(detailsSource.buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            });
         }
 
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Tokens issued before the id claims existed are resolved through the cached lookup; a token whose user no
+     * longer exists, or that has been revoked, leaves the request unauthenticated.
+     */
+    private Optional<AuthenticatedUser> toPrincipal(JwtTokenProvider.VerifiedToken verified) {
+        Optional<AuthenticatedUser> principal = verified.userId() != null
+                ? Optional.of(new AuthenticatedUser(verified.userId(), verified.phoneNumber(), verified.role(), verified.profileId()))
+                : userIdentityResolver.resolve(verified.phoneNumber())
+                        .map(identity -> new AuthenticatedUser(identity.userId(), verified.phoneNumber(), verified.role(),
+                                identity.userType() != null && identity.userType().name().equals(verified.role()) ? identity.profileId() : null));
+        return principal.filter(user -> !tokenRevocationService.isRevoked(user.userId(), verified.tokenId(), verified.issuedAt()));
+    }
+
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -49,13 +76,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-
-    public String getRoleFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(jwtTokenProvider.getSecretKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
-    }
-}
\ No newline at end of file
+}
@@ -1,66 +1,186 @@
 package org.example.taxi.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
 
+/**
+ * Issues and verifies the HS256 tokens used by the API: short-lived access tokens and longer-lived refresh tokens,
+ * each with a unique id (jti) so it can be revoked. Revocation is checked by
+ * {@link org.example.taxi.service.TokenRevocationService}, not here.
+ * <p>
+ * The signing key and parser are built once. Verified claims are cached by SHA-256 of the token until the token
+ * expires (or {@code jwt.claims-cache.ttl} passes), so a client repeating the same token pays for one signature
+ * check. Invalid tokens are never cached.
+ */
 @Component
 public class JwtTokenProvider {
     @Value("${jwt.secret}")
     private String secretKey;
 
-    private final long validityInMilliseconds = 604800000; // 1 week
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
 
-    public String generateToken(String phoneNumber, String role) {
+    @Value("${jwt.claims-cache.ttl:10m}")
+    private Duration claimsCacheTtl;
+
+    @Value("${jwt.access-token.ttl:15m}")
+    private Duration accessTokenTtl;
+
+    @Value("${jwt.refresh-token.ttl:30d}")
+    private Duration refreshTokenTtl;
+
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String PROFILE_ID_CLAIM = "pid";
+    private static final String TYPE_CLAIM = "typ";
+    private static final String REFRESH_TYPE = "refresh";
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Claims of a token whose signature and expiry have been checked. {@code userId} and {@code tokenId} are null
+     * for tokens issued before those claims existed; {@code profileId} is also null for users without a driver or
+     * client profile. {@code refresh} marks refresh tokens, which are only accepted by the refresh endpoint.
+     */
+    public record VerifiedToken(String phoneNumber, String role, Long userId, Long profileId, String tokenId,
+                                boolean refresh, Instant issuedAt, Instant expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        Duration untilExpiry = Duration.between(Instant.now(), token.expiresAt());
+                        return Math.max(0, Math.min(untilExpiry.toNanos(), claimsCacheTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Issues a short-lived access token ({@code jwt.access-token.ttl}).
+     * @param userId    Id of the user, embedded so requests do not have to look it up.
+     * @param profileId Id of the user's driver or client profile, or null.
+     */
+    public String generateToken(String phoneNumber, String role, Long userId, Long profileId) {
+        return build(phoneNumber, role, userId, profileId, null, accessTokenTtl);
+    }
+
+    /**
+     * Issues a refresh token ({@code jwt.refresh-token.ttl}), exchanged once for a new access and refresh token.
+     */
+    public String generateRefreshToken(String phoneNumber, String role, Long userId, Long profileId) {
+        return build(phoneNumber, role, userId, profileId, REFRESH_TYPE, refreshTokenTtl);
+    }
+
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    private String build(String phoneNumber, String role, Long userId, Long profileId, String type, Duration ttl) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + validityInMilliseconds);
+        Date expiryDate = new Date(now.getTime() + ttl.toMillis());
 
         return Jwts.builder()
                 .setSubject(phoneNumber)
+                .setId(UUID.randomUUID().toString())
                 .claim("role", role)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(PROFILE_ID_CLAIM, profileId)
+                .claim(TYPE_CLAIM, type)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSecretKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String getPhoneNumberFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSecretKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
-
-    public String getRoleFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSecretKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
+    /**
+     * Verifies the token (signature and expiry) and returns its claims, from the cache when the same token was
+     * verified before.
+     * @return The verified claims, or empty if the token is malformed, forged or expired.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String key = hash(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            // Eviction is lazy, so an entry can outlive its token by a moment; the expiry itself is checked here
+            return cached.expiresAt().isAfter(Instant.now()) ? Optional.of(cached) : Optional.empty();
+        }
+        Optional<VerifiedToken> verified = parse(token);
+        verified.ifPresent(value -> verifiedTokens.put(key, value));
+        return verified;
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Parses and verifies the token without consulting the cache.
+     */
+    Optional<VerifiedToken> parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSecretKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return Optional.empty();
+            }
+            Date issuedAt = claims.getIssuedAt();
+            return Optional.of(new VerifiedToken(claims.getSubject(), claims.get("role", String.class),
+                    longClaim(claims, USER_ID_CLAIM), longClaim(claims, PROFILE_ID_CLAIM), claims.getId(),
+                    REFRESH_TYPE.equals(claims.get(TYPE_CLAIM, String.class)),
+                    issuedAt != null ? issuedAt.toInstant() : null, expiration.toInstant()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
         }
     }
 
-    public SecretKey getSecretKey() {
-        return Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+    private static Long longClaim(Claims claims, String name) {
+        // Numeric claims deserialize as Integer or Long depending on their size
+        Object value = claims.get(name);
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
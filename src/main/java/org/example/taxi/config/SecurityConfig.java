@@ -1,7 +1,12 @@
 package org.example.taxi.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.example.taxi.repository.UserRepository;
 import org.example.taxi.service.CustomUserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,6 +25,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,29 +33,56 @@ import java.util.List;
 @EnableWebSecurity
 public class SecurityConfig {
 
-    private final JwtTokenProvider jwtTokenProvider;
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
-    public SecurityConfig(JwtTokenProvider jwtTokenProvider) {
-        this.jwtTokenProvider = jwtTokenProvider;
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+        this.jwtAuthenticationFilter = jwtAuthenticationFilter;
     }
 
+    /**
+     * The JWT filter is a bean so it can be injected, which would also make Boot register it as a servlet filter
+     * and run it a second time outside the security chain.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration() {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(jwtAuthenticationFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
+    /**
+     * BCrypt on a bounded pool sized by {@code security.password.*}. Raising {@code bcrypt-strength} is safe:
+     * existing hashes keep verifying and are rehashed with the new cost on the user's next login.
+     */
     @Bean
-    public CustomUserDetailsService userDetailsService(UserRepository userRepository) {
-        return new CustomUserDetailsService(userRepository);
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                           @Value("${security.password.max-concurrent:0}") int maxConcurrent,
+                                           @Value("${security.password.max-queued:64}") int maxQueued,
+                                           @Value("${security.password.max-wait:3s}") Duration maxWait,
+                                           MeterRegistry meterRegistry) {
+        int threads = maxConcurrent > 0 ? maxConcurrent : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, maxQueued, maxWait, meterRegistry);
     }
 
+    @Bean
+    public CustomUserDetailsService userDetailsService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
+        return new CustomUserDetailsService(userRepository, eventPublisher);
+    }
+
+    /**
+     * Logins read the user from {@link UserDetailsCache} first; a password that does not match the cached hash is
+     * checked once more against the database before the login fails.
+     */
     @Bean
     public DaoAuthenticationProvider authenticationProvider(
             CustomUserDetailsService userDetailsService,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            UserDetailsCache userDetailsCache) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userDetailsService);
+        authProvider.setUserCache(userDetailsCache);
         return authProvider;
     }
 
@@ -77,9 +110,12 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Streaming responses complete on an async dispatch; the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Publicly accessible endpoints
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**",
-                                "/api/public/register-session", "/api/public/get-credentials/**", "/api/public/login").permitAll()
+                                "/api/public/register-session", "/api/public/get-credentials/**", "/api/public/wait-credentials/**", "/api/public/login",
+                                "/api/public/refresh").permitAll()
                         // File upload endpoints (all require DRIVER role)
                         .requestMatchers("/api/uploads/driver/**").hasRole("DRIVER")
                         .requestMatchers("/api/client/uploads/profile-picture").hasRole("CLIENT")
@@ -94,10 +130,13 @@ public class SecurityConfig {
                         .requestMatchers("/api/analytics/**").hasAnyRole("ADMIN", "ETAMIN")
                         // Admin-specific endpoints
                         .requestMatchers("/api/admin/**").hasAnyRole("ADMIN", "ETAMIN")
+                        // Actuator: health is public, metrics are admin-only
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "ETAMIN")
                         // All other requests require authentication
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
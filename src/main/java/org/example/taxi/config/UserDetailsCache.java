@@ -0,0 +1,145 @@
+package org.example.taxi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.example.taxi.event.UserCredentialsChangedEvent;
+import org.example.taxi.service.CustomUserDetailsService;
+import org.example.taxi.service.TokenRevocationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Login user details (phone number, password hash, role) cached by the authentication provider, so a re-login after
+ * token expiry costs the hash check but no query.
+ * <p>
+ * A login whose password does not match the cached hash is retried once against the database by the provider, so a
+ * password changed on another node is accepted right away. The node that changes a password evicts the entry once the
+ * change has committed ({@link UserCredentialsChangedEvent}). Other nodes drop an entry cached before the user's tokens
+ * were last revoked with {@link TokenRevocationService#revokeAllForUser}, as a password reset does, so there the old
+ * password stops working within {@code jwt.revocation.sync-interval-ms}; other changes reach them when the entry
+ * expires after {@code security.user-details-cache.ttl}.
+ * <p>
+ * Entries are immutable snapshots and every lookup returns a new {@link UserDetails}: the authentication manager
+ * erases the credentials of the instance it returns, which must not clear the cached hash.
+ */
+@Component
+public class UserDetailsCache implements UserCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    @Autowired private MeterRegistry meterRegistry;
+    @Autowired private TokenRevocationService tokenRevocationService;
+
+    @Value("${security.user-details-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.user-details-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${security.user-details-cache.ttl:5m}")
+    private Duration ttl;
+
+    private Cache<String, Snapshot> snapshots;
+    private Counter hits;
+    private Counter misses;
+    private Counter revoked;
+
+    /**
+     * @param userId   Null for user details that do not carry one; such entries are not checked for revocations.
+     * @param cachedAt Truncated to seconds like revocation checks on token iat, so a revocation in the same second
+     *                 drops the entry.
+     */
+    private record Snapshot(Long userId, String username, String password, List<GrantedAuthority> authorities,
+                            boolean enabled, boolean accountNonExpired, boolean credentialsNonExpired,
+                            boolean accountNonLocked, Instant cachedAt) {
+
+        static Snapshot of(UserDetails user) {
+            Long userId = user instanceof CustomUserDetailsService.Account account ? account.getUserId() : null;
+            return new Snapshot(userId, user.getUsername(), user.getPassword(), List.copyOf(user.getAuthorities()),
+                    user.isEnabled(), user.isAccountNonExpired(), user.isCredentialsNonExpired(), user.isAccountNonLocked(),
+                    Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        }
+
+        UserDetails toUserDetails() {
+            if (userId != null) {
+                return new CustomUserDetailsService.Account(userId, username, password, enabled, accountNonExpired,
+                        credentialsNonExpired, accountNonLocked, authorities);
+            }
+            return new User(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        hits = Counter.builder("taxi.user-details.cache.lookups").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("taxi.user-details.cache.lookups").tag("result", "miss").register(meterRegistry);
+        revoked = Counter.builder("taxi.user-details.cache.lookups").tag("result", "revoked").register(meterRegistry);
+        Gauge.builder("taxi.user-details.cache.size", snapshots, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Snapshot snapshot = enabled ? snapshots.getIfPresent(username) : null;
+        if (snapshot == null) {
+            misses.increment();
+            return null;
+        }
+        // A bloom filter check for nearly every user; the entry predates a revocation made on any node
+        if (snapshot.userId() != null && tokenRevocationService.isRevoked(snapshot.userId(), null, snapshot.cachedAt())) {
+            snapshots.asMap().remove(username, snapshot);
+            revoked.increment();
+            return null;
+        }
+        hits.increment();
+        return snapshot.toUserDetails();
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        // A user whose credentials were already erased cannot be checked against a password
+        if (enabled && user.getPassword() != null) {
+            snapshots.put(user.getUsername(), Snapshot.of(user));
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        snapshots.invalidate(username);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        removeUserFromCache(event.getPhoneNumber());
+    }
+
+    /**
+     * Drops every entry, e.g. after changing users directly in the database.
+     */
+    public void clear() {
+        long size = snapshots.estimatedSize();
+        snapshots.invalidateAll();
+        logger.info("User details cache cleared ({} entries).", size);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.taxi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.example.taxi.entity.User;
+import org.example.taxi.repository.UserRepository;
+import org.example.taxi.service.UserExistenceFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Phone number directory: user id, type and driver/client profile id. Used when issuing tokens, for tokens issued
+ * before those ids were embedded as claims, and by operator order intake to find the client behind a phone number.
+ * Cached lookups cost one query per phone number per {@code jwt.identity-cache.ttl}; unknown phone numbers are not
+ * cached, so a guest created right after a miss is found on the next lookup.
+ */
+@Component
+public class UserIdentityResolver {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private UserExistenceFilter userExistenceFilter;
+
+    @Value("${jwt.identity-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.identity-cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    private Cache<String, Identity> identities;
+
+    public record Identity(Long userId, User.UserType userType, Long profileId) {
+    }
+
+    @PostConstruct
+    void init() {
+        identities = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Reads the identity from the database, bypassing the cache. Phone numbers the existence filter rules out cost
+     * no query.
+     */
+    public Optional<Identity> load(String phoneNumber) {
+        if (!userExistenceFilter.mightContainPhoneNumber(phoneNumber)) {
+            return Optional.empty();
+        }
+        return userRepository.findIdentityByPhoneNumber(phoneNumber)
+                .map(row -> new Identity(row.getUserId(), row.getUserType(), row.getProfileId()));
+    }
+
+    /**
+     * @return The identity for the phone number, from the cache when it was resolved recently.
+     */
+    public Optional<Identity> resolve(String phoneNumber) {
+        Identity cached = identities.getIfPresent(phoneNumber);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Identity> loaded = load(phoneNumber);
+        loaded.ifPresent(identity -> identities.put(phoneNumber, identity));
+        return loaded;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.taxi.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.taxi.config.workload.WorkloadClass;
+import org.example.taxi.config.workload.WorkloadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source.
+ * <p>
+ * The primary database gets one Hikari pool per {@link WorkloadClass}. Every pool starts from the
+ * {@code spring.datasource.hikari.*} settings; only its size comes from {@code app.workload.*.pool-size}.
+ * When {@code app.datasource.routing.enabled=true} (see application-replica.properties) read-only transactions
+ * are additionally routed to the configured replicas.
+ */
+@Configuration
+@EnableConfigurationProperties({DataSourceRoutingProperties.class, WorkloadProperties.class})
+public class DataSourceRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    /**
+     * The {@code spring.datasource.hikari.*} settings, copied onto every primary pool.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig primaryHikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, HikariConfig primaryHikariConfig,
+                                 DataSourceRoutingProperties routingProperties, WorkloadProperties workloadProperties,
+                                 MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        Map<WorkloadClass, DataSource> pools = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            HikariDataSource pool = new HikariDataSource(); // starts on first use, like the auto-configured pool
+            primaryHikariConfig.copyStateTo(pool);
+            pool.setJdbcUrl(dataSourceProperties.determineUrl());
+            pool.setUsername(dataSourceProperties.determineUsername());
+            pool.setPassword(dataSourceProperties.determinePassword());
+            pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            pool.setPoolName("primary-" + workloadClass.name().toLowerCase());
+            pool.setMaximumPoolSize(workloadProperties.limits(workloadClass).getPoolSize());
+            pool.setMetricsTrackerFactory(metricsTrackerFactory);
+            pools.put(workloadClass, pool);
+        }
+        DataSource primary = new WorkloadRoutingDataSource(pools);
+
+        if (!routingProperties.isEnabled()) {
+            return new LazyConnectionDataSourceProxy(primary);
+        }
+
+        List<ReplicaRoutingDataSource.NamedDataSource> replicas = new ArrayList<>();
+        int index = 0;
+        for (DataSourceRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+            String name = replica.getName() != null ? replica.getName() : "replica-" + index;
+            HikariDataSource replicaDataSource = new HikariDataSource();
+            replicaDataSource.setPoolName(name);
+            replicaDataSource.setJdbcUrl(replica.getUrl());
+            replicaDataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.getUsername());
+            replicaDataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.getPassword());
+            replicaDataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            replicaDataSource.setReadOnly(true);
+            replicaDataSource.setMetricsTrackerFactory(metricsTrackerFactory);
+            // Do not fail startup when a replica is down; the router falls back to the primary.
+            replicaDataSource.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaRoutingDataSource.NamedDataSource(name, replicaDataSource));
+            index++;
+        }
+        logger.info("Read-only transactions will be routed across {} replica(s) with primary fallback.", replicas.size());
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicas, routingProperties.getFailureCooldown(), meterRegistry));
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.taxi.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replica routing settings. The primary is configured with the usual {@code spring.datasource.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    /** Route read-only transactions to replicas. When false the application uses the primary only. */
+    private boolean enabled = false;
+
+    /** How long a replica that failed to hand out a connection is skipped before it is tried again. */
+    private Duration failureCooldown = Duration.ofSeconds(30);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
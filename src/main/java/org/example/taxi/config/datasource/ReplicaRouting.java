@@ -0,0 +1,24 @@
+package org.example.taxi.config.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Controls where a read-only transaction is routed when replica routing is enabled.
+ * <p>
+ * Without this annotation every {@code @Transactional(readOnly = true)} method may be served by a replica.
+ * Methods that must see writes made moments ago (read-your-writes, e.g. a client polling the order it has just
+ * created) declare {@code @ReplicaRouting(stalenessTolerant = false)} and always read from the primary.
+ * Read-write transactions always go to the primary, whatever this annotation says.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRouting {
+
+    /** Whether the method accepts data that lags the primary by the replication delay. */
+    boolean stalenessTolerant() default true;
+}
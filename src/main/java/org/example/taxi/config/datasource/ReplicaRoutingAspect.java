@@ -0,0 +1,37 @@
+package org.example.taxi.config.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the {@link ReplicaRouting} hint of the called method for the duration of the call.
+ * Runs before the transaction interceptor so the hint is in place when the transaction starts.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaRoutingAspect {
+
+    @Around("@annotation(replicaRouting)")
+    public Object aroundMethod(ProceedingJoinPoint joinPoint, ReplicaRouting replicaRouting) throws Throwable {
+        return proceedWithHint(joinPoint, replicaRouting);
+    }
+
+    @Around("@within(replicaRouting) && !@annotation(org.example.taxi.config.datasource.ReplicaRouting)")
+    public Object aroundType(ProceedingJoinPoint joinPoint, ReplicaRouting replicaRouting) throws Throwable {
+        return proceedWithHint(joinPoint, replicaRouting);
+    }
+
+    private Object proceedWithHint(ProceedingJoinPoint joinPoint, ReplicaRouting replicaRouting) throws Throwable {
+        Boolean previous = ReplicaRoutingContext.set(replicaRouting.stalenessTolerant());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingContext.set(previous);
+        }
+    }
+}
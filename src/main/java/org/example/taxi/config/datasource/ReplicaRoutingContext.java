@@ -0,0 +1,27 @@
+package org.example.taxi.config.datasource;
+
+/**
+ * Thread-bound routing hint set by {@link ReplicaRoutingAspect} and read when a connection is checked out.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> STALENESS_TOLERANT = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    /** @return The hint of the innermost annotated method, or null when none is active. */
+    public static Boolean getStalenessTolerant() {
+        return STALENESS_TOLERANT.get();
+    }
+
+    static Boolean set(Boolean stalenessTolerant) {
+        Boolean previous = STALENESS_TOLERANT.get();
+        if (stalenessTolerant == null) {
+            STALENESS_TOLERANT.remove();
+        } else {
+            STALENESS_TOLERANT.set(stalenessTolerant);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.taxi.config.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out primary connections for read-write work and replica connections for read-only transactions.
+ * <p>
+ * Replicas are picked round-robin. A replica that fails to produce a connection is skipped for the configured
+ * cooldown and the next one is tried; when none is available the primary serves the read. Every checkout is
+ * counted under {@code taxi.datasource.connections} tagged with the target, so the primary/replica split can be
+ * read from {@code /actuator/metrics}.
+ * <p>
+ * Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the read-only flag
+ * of the transaction is only known once the transaction has begun, after Hibernate asks for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<ReplicaTarget> replicas;
+    private final long failureCooldownNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Counter primaryWrites;
+    private final Counter primaryPinnedReads;
+    private final Counter primaryFallbackReads;
+
+    private static final class ReplicaTarget {
+        final String name;
+        final DataSource dataSource;
+        final Counter reads;
+        final Counter failures;
+        final AtomicLong downUntilNanos = new AtomicLong();
+
+        ReplicaTarget(String name, DataSource dataSource, Counter reads, Counter failures) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.reads = reads;
+            this.failures = failures;
+        }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, List<NamedDataSource> replicas, Duration failureCooldown, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.failureCooldownNanos = failureCooldown.toNanos();
+        this.primaryWrites = connectionCounter(meterRegistry, "primary", "primary", "read-write");
+        this.primaryPinnedReads = connectionCounter(meterRegistry, "primary", "primary", "read-only-pinned");
+        this.primaryFallbackReads = connectionCounter(meterRegistry, "primary", "primary", "read-only-fallback");
+        this.replicas = replicas.stream()
+                .map(replica -> new ReplicaTarget(replica.name(), replica.dataSource(),
+                        connectionCounter(meterRegistry, "replica", replica.name(), "read-only"),
+                        Counter.builder("taxi.datasource.replica.failures")
+                                .description("Connection checkouts that failed on a replica and were retried elsewhere")
+                                .tag("name", replica.name())
+                                .register(meterRegistry)))
+                .toList();
+    }
+
+    /** A replica data source with the name used in logs and metric tags. */
+    public record NamedDataSource(String name, DataSource dataSource) {
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryWrites.increment();
+            return primary.getConnection();
+        }
+        if (Boolean.FALSE.equals(ReplicaRoutingContext.getStalenessTolerant())) {
+            primaryPinnedReads.increment();
+            return primary.getConnection();
+        }
+        Connection replicaConnection = replicaConnection();
+        if (replicaConnection != null) {
+            return replicaConnection;
+        }
+        primaryFallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Not supported: the pools behind this data source connect with their configured credentials only (Hikari throws
+     * for per-call credentials as well), so this fails up front instead of after choosing a target.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ReplicaRoutingDataSource does not support per-call credentials; "
+                + "use getConnection() and configure credentials on the pools.");
+    }
+
+    private Connection replicaConnection() {
+        int count = replicas.size();
+        if (count == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ReplicaTarget replica = replicas.get((start + i) % count);
+            if (now - replica.downUntilNanos.get() < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                replica.failures.increment();
+                replica.downUntilNanos.set(now + failureCooldownNanos);
+                logger.warn("Replica '{}' unavailable, skipping it for {} ms: {}", replica.name, failureCooldownNanos / 1_000_000, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static Counter connectionCounter(MeterRegistry meterRegistry, String target, String name, String mode) {
+        return Counter.builder("taxi.datasource.connections")
+                .description("Connections handed out by the routing data source, one per transaction")
+                .tag("target", target)
+                .tag("name", name)
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.taxi.config.datasource;
+
+import org.example.taxi.config.workload.WorkloadClass;
+import org.example.taxi.config.workload.WorkloadContext;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Primary data source split into one connection pool per {@link WorkloadClass}, so a reporting burst
+ * can exhaust the analytics pool without touching the connections bookings depend on.
+ */
+public class WorkloadRoutingDataSource extends AbstractDataSource {
+
+    private final Map<WorkloadClass, DataSource> pools;
+
+    public WorkloadRoutingDataSource(Map<WorkloadClass, DataSource> pools) {
+        this.pools = pools;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pools.get(WorkloadContext.current()).getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return pools.get(WorkloadContext.current()).getConnection(username, password);
+    }
+}
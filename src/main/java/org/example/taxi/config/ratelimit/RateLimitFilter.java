@@ -0,0 +1,68 @@
+package org.example.taxi.config.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Applies the per-IP {@link RateLimitProperties} rules ahead of Spring Security, so a flood of public requests is
+ * answered with 429 before a session is created or a password is hashed. The client address is the remote address;
+ * behind a proxy, {@code server.forward-headers-strategy} makes it the forwarded client address.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimiter rateLimiter, RateLimitProperties properties) {
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Map.Entry<String, RateLimitProperties.Rule> entry : properties.getRules().entrySet()) {
+            RateLimitProperties.Rule rule = entry.getValue();
+            if (rule.getKey() != RateLimitProperties.KeyType.IP || rule.getPath() == null || !pathMatcher.match(rule.getPath(), path)) {
+                continue;
+            }
+            Duration wait = rateLimiter.tryAcquire(entry.getKey(), request.getRemoteAddr());
+            if (!wait.isZero()) {
+                logger.warn("Rate limit '{}' exceeded by {} on {} {}", entry.getKey(), request.getRemoteAddr(), request.getMethod(), path);
+                reject(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, Duration wait) throws IOException {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(RateLimiter.retryAfterSeconds(wait)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase()
+                + "\",\"message\":\"Too many requests. Please retry later.\"}");
+    }
+}
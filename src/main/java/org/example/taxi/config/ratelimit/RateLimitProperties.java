@@ -0,0 +1,58 @@
+package org.example.taxi.config.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket rules under {@code app.rate-limit.rules.<name>.*}. Rules keyed by {@link KeyType#IP} are applied by
+ * {@link RateLimitFilter} to requests matching their path; {@link KeyType#PHONE} rules are checked by the endpoint
+ * once it has read the phone number.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    public static final String LOGIN_PHONE = "login-phone";
+
+    private boolean enabled = true;
+    /** Upper bound on buckets kept in memory; idle buckets are dropped once they would be full again anyway. */
+    private long maxBuckets = 100_000;
+    private Map<String, Rule> rules = new LinkedHashMap<>(Map.of(
+            "register-session", new Rule("/api/public/register-session", KeyType.IP, 5, Duration.ofMinutes(1)),
+            "get-credentials", new Rule("/api/public/get-credentials/**", KeyType.IP, 20, Duration.ofMinutes(1)),
+            "wait-credentials", new Rule("/api/public/wait-credentials/**", KeyType.IP, 10, Duration.ofMinutes(1)),
+            "login", new Rule("/api/public/login", KeyType.IP, 20, Duration.ofMinutes(1)),
+            "refresh", new Rule("/api/public/refresh", KeyType.IP, 30, Duration.ofMinutes(1)),
+            LOGIN_PHONE, new Rule("/api/public/login", KeyType.PHONE, 5, Duration.ofMinutes(5))
+    ));
+
+    public enum KeyType {
+        IP,
+        PHONE
+    }
+
+    @Data
+    public static class Rule {
+        /** Ant-style path pattern the rule applies to. */
+        private String path;
+        private KeyType key = KeyType.IP;
+        /** Requests allowed in a burst. */
+        private int capacity;
+        /** Time to refill {@code capacity} tokens. */
+        private Duration period;
+
+        public Rule() {
+        }
+
+        public Rule(String path, KeyType key, int capacity, Duration period) {
+            this.path = path;
+            this.key = key;
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+}
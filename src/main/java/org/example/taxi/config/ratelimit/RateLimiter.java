@@ -0,0 +1,79 @@
+package org.example.taxi.config.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory token buckets per rule and key (client IP or phone number), configured by {@link RateLimitProperties}.
+ * Checks touch neither the database nor the password encoder. A bucket is evicted once it has been idle for its
+ * refill period, when it would be full again anyway.
+ */
+public class RateLimiter {
+
+    private final RateLimitProperties properties;
+    private final Cache<String, TokenBucket> buckets;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfter(new Expiry<String, TokenBucket>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenBucket bucket, long currentTime) {
+                        return bucket.periodNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+                        return bucket.periodNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+                        return bucket.periodNanos();
+                    }
+                })
+                .build();
+        Gauge.builder("taxi.rate-limit.buckets", buckets, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    /**
+     * Takes a token from the bucket of {@code key} under the named rule.
+     * @return {@link Duration#ZERO} if the request may proceed, otherwise how long until it may be retried.
+     *         Unknown or incomplete rules and a disabled limiter always allow.
+     */
+    public Duration tryAcquire(String ruleName, String key) {
+        RateLimitProperties.Rule rule = properties.getRules().get(ruleName);
+        if (!properties.isEnabled() || rule == null || rule.getCapacity() <= 0 || rule.getPeriod() == null || key == null) {
+            return Duration.ZERO;
+        }
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(ruleName + '|' + key,
+                ignored -> new TokenBucket(rule.getCapacity(), rule.getPeriod().toNanos(), now));
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            return Duration.ZERO;
+        }
+        rejections.computeIfAbsent(ruleName, name -> Counter.builder("taxi.rate-limit.rejected").tag("rule", name).register(meterRegistry))
+                .increment();
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * Value for a Retry-After header: whole seconds, rounded up.
+     */
+    public static long retryAfterSeconds(Duration wait) {
+        return Math.max(1, (wait.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.taxi.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to {@code capacity} tokens, refilled at {@code capacity} per {@code period}.
+ * <p>
+ * Kept in the GCRA form: the whole state is the time at which the bucket will be full again, updated with one CAS,
+ * so concurrent requests for the same key never block each other.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long periodNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(int capacity, long periodNanos, long nowNanos) {
+        this.intervalNanos = Math.max(1, periodNanos / capacity);
+        this.periodNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token.
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long overdraft = next - nowNanos - periodNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Time after which an untouched bucket is full again, so dropping it loses nothing. */
+    long periodNanos() {
+        return periodNanos;
+    }
+}
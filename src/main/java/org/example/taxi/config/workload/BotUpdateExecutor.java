@@ -0,0 +1,130 @@
+package org.example.taxi.config.workload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for Telegram bot updates, sized by {@code app.workload.bot.*}.
+ * Updates run as {@link WorkloadClass#BOT} work and report the same meters as the HTTP bulkheads.
+ * <p>
+ * Tasks are queued in lanes, one per key (the chat id): a lane runs its tasks one at a time in submission order, so
+ * two messages from the same chat never race, while different chats run in parallel. A lane gives up its worker
+ * after each task, so a busy chat cannot hold a thread while other chats wait.
+ */
+@Component
+public class BotUpdateExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int maxQueued;
+    private final AtomicInteger queued = new AtomicInteger();
+    // A key is present while its lane has a task scheduled or running; lanes are only touched inside compute
+    private final Map<Object, ArrayDeque<Runnable>> lanes = new ConcurrentHashMap<>();
+    private final Timer queueWait;
+    private final Timer duration;
+    private final Counter rejected;
+
+    @Autowired
+    public BotUpdateExecutor(WorkloadProperties properties, MeterRegistry meterRegistry) {
+        WorkloadProperties.Limits limits = properties.limits(WorkloadClass.BOT);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.maxQueued = limits.getMaxQueued();
+        // Holds at most one entry per lane; the number of waiting tasks is bounded by maxQueued in submit
+        this.executor = new ThreadPoolExecutor(limits.getMaxConcurrent(), limits.getMaxConcurrent(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "bot-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("taxi.workload.active", executor, ThreadPoolExecutor::getActiveCount).tag("class", "bot").register(meterRegistry);
+        Gauge.builder("taxi.workload.queued", queued, AtomicInteger::get).tag("class", "bot").register(meterRegistry);
+        this.queueWait = Timer.builder("taxi.workload.queue.wait").tag("class", "bot").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.duration = Timer.builder("taxi.workload.duration").tag("class", "bot").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.rejected = Counter.builder("taxi.workload.rejected").tag("class", "bot").tag("reason", "queue-full").register(meterRegistry);
+    }
+
+    /**
+     * Queues the task behind earlier tasks with the same key.
+     * @param laneKey Tasks with equal keys run one at a time, in submission order.
+     * @return false when the queue is full and the task was dropped.
+     */
+    public boolean submit(Object laneKey, Runnable task) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        long submittedAt = System.nanoTime();
+        Runnable timed = () -> {
+            long start = System.nanoTime();
+            queueWait.record(start - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                WorkloadContext.run(WorkloadClass.BOT, task);
+            } finally {
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+        boolean[] idle = new boolean[1];
+        lanes.compute(laneKey, (key, lane) -> {
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            lane.add(timed);
+            return lane;
+        });
+        if (idle[0]) {
+            try {
+                executor.execute(() -> runNext(laneKey));
+            } catch (RejectedExecutionException e) { // shutting down
+                lanes.remove(laneKey);
+                queued.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void runNext(Object laneKey) {
+        Runnable[] next = new Runnable[1];
+        lanes.computeIfPresent(laneKey, (key, lane) -> {
+            next[0] = lane.poll();
+            return lane;
+        });
+        if (next[0] == null) {
+            return;
+        }
+        queued.decrementAndGet();
+        try {
+            next[0].run();
+        } finally {
+            boolean more = lanes.computeIfPresent(laneKey, (key, lane) -> lane.isEmpty() ? null : lane) != null;
+            if (more) {
+                executor.execute(() -> runNext(laneKey));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.taxi.config.workload;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control in front of the controllers: classifies each request, takes a slot in that class's
+ * {@link WorkloadBulkhead} and binds the class to the thread so the matching connection pool is used.
+ * <p>
+ * A saturated class is answered with 429 (wait queue full) or 503 (waited too long), both with Retry-After.
+ * Async requests (streaming exports) keep their slot until the async processing completes. The live KPI
+ * server-sent event stream ({@link #LIVE_KPI_STREAM_PATH}) is not admitted at all: it stays open for minutes without
+ * holding a connection, and would otherwise pin the slots of its class for as long as a dashboard is open. The
+ * registration long poll ({@code /api/public/wait-credentials}) is skipped for the same reason. The exemption goes by
+ * path only; an {@code Accept} header never takes a request out of admission control.
+ */
+public class WorkloadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadAdmissionFilter.class);
+
+    static final String LIVE_KPI_STREAM_PATH = "/api/etamin/market-control/live-kpis/stream";
+    static final String WAIT_CREDENTIALS_PREFIX = "/api/public/wait-credentials/";
+
+    private final Map<WorkloadClass, WorkloadBulkhead> bulkheads;
+
+    public WorkloadAdmissionFilter(Map<WorkloadClass, WorkloadBulkhead> bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    static WorkloadClass classify(String path) {
+        if (path.startsWith("/api/analytics/") || path.startsWith("/api/admin/exports/") || path.startsWith("/api/etamin/")) {
+            return WorkloadClass.ANALYTICS;
+        }
+        return WorkloadClass.OLTP;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/") || path.equals(LIVE_KPI_STREAM_PATH) || path.startsWith(WAIT_CREDENTIALS_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        WorkloadClass workloadClass = classify(request.getRequestURI().substring(request.getContextPath().length()));
+        WorkloadBulkhead bulkhead = bulkheads.get(workloadClass);
+
+        WorkloadBulkhead.Admission admission;
+        try {
+            admission = bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, bulkhead, HttpStatus.SERVICE_UNAVAILABLE, "Request interrupted while waiting for capacity.");
+            return;
+        }
+        if (admission == WorkloadBulkhead.Admission.QUEUE_FULL) {
+            logger.warn("Rejecting {} {} ({}): queue full", request.getMethod(), request.getRequestURI(), workloadClass);
+            reject(response, bulkhead, HttpStatus.TOO_MANY_REQUESTS, "Too many " + workloadClass.name().toLowerCase() + " requests in progress. Please retry later.");
+            return;
+        }
+        if (admission == WorkloadBulkhead.Admission.TIMED_OUT) {
+            logger.warn("Rejecting {} {} ({}): no capacity within {}", request.getMethod(), request.getRequestURI(), workloadClass, bulkhead.getLimits().getMaxWait());
+            reject(response, bulkhead, HttpStatus.SERVICE_UNAVAILABLE, "The server is busy with " + workloadClass.name().toLowerCase() + " requests. Please retry later.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release(start);
+            }
+        };
+        WorkloadClass previous = WorkloadContext.set(workloadClass);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            WorkloadContext.set(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private static void reject(HttpServletResponse response, WorkloadBulkhead bulkhead, HttpStatus status, String message) throws IOException {
+        long retryAfterSeconds = Math.max(1, bulkhead.getLimits().getRetryAfter().toSeconds());
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase()
+                + "\",\"message\":\"" + message + "\"}");
+    }
+
+    private record ReleasingAsyncListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.taxi.config.workload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit with a short bounded wait queue for one {@link WorkloadClass}.
+ * <p>
+ * Meters (all tagged {@code class}): {@code taxi.workload.active}, {@code taxi.workload.queued},
+ * {@code taxi.workload.queue.wait}, {@code taxi.workload.duration} and {@code taxi.workload.rejected{reason}}.
+ */
+public class WorkloadBulkhead {
+
+    public enum Admission {
+        ADMITTED,
+        /** The wait queue is full; answered with 429. */
+        QUEUE_FULL,
+        /** Waited {@code maxWait} without getting a slot; answered with 503. */
+        TIMED_OUT
+    }
+
+    private final WorkloadClass workloadClass;
+    private final WorkloadProperties.Limits limits;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer queueWait;
+    private final Timer duration;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimedOut;
+
+    public WorkloadBulkhead(WorkloadClass workloadClass, WorkloadProperties.Limits limits, MeterRegistry meterRegistry) {
+        this.workloadClass = workloadClass;
+        this.limits = limits;
+        this.permits = new Semaphore(limits.getMaxConcurrent(), true);
+        String tag = workloadClass.name().toLowerCase();
+        Gauge.builder("taxi.workload.active", active, AtomicInteger::get).tag("class", tag).register(meterRegistry);
+        Gauge.builder("taxi.workload.queued", queued, AtomicInteger::get).tag("class", tag).register(meterRegistry);
+        this.queueWait = Timer.builder("taxi.workload.queue.wait").tag("class", tag)
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.duration = Timer.builder("taxi.workload.duration").tag("class", tag)
+                .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("taxi.workload.rejected").tag("class", tag).tag("reason", "queue-full").register(meterRegistry);
+        this.rejectedTimedOut = Counter.builder("taxi.workload.rejected").tag("class", tag).tag("reason", "timed-out").register(meterRegistry);
+    }
+
+    public WorkloadClass getWorkloadClass() {
+        return workloadClass;
+    }
+
+    public WorkloadProperties.Limits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Takes a slot, waiting at most {@code maxWait}. On {@link Admission#ADMITTED} the caller must call
+     * {@link #release(long)} exactly once, passing the {@link System#nanoTime()} at which its work started.
+     */
+    public Admission acquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            queueWait.record(0, TimeUnit.NANOSECONDS);
+            active.incrementAndGet();
+            return Admission.ADMITTED;
+        }
+        if (queued.incrementAndGet() > limits.getMaxQueued()) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            return Admission.QUEUE_FULL;
+        }
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(limits.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+        queueWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejectedTimedOut.increment();
+            return Admission.TIMED_OUT;
+        }
+        active.incrementAndGet();
+        return Admission.ADMITTED;
+    }
+
+    public void release(long startNanos) {
+        duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        active.decrementAndGet();
+        permits.release();
+    }
+}
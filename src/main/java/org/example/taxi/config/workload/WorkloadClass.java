@@ -0,0 +1,14 @@
+package org.example.taxi.config.workload;
+
+/**
+ * Traffic classes that get their own connection pool and admission limits, so a burst in one class
+ * cannot starve the others.
+ */
+public enum WorkloadClass {
+    /** Booking, accepting and status changes: the latency-sensitive core. Also the default. */
+    OLTP,
+    /** Reports, exports, dashboards and scheduled analytics maintenance. */
+    ANALYTICS,
+    /** Telegram bot updates, run on {@link BotUpdateExecutor}. */
+    BOT
+}
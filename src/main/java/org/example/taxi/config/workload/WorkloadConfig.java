@@ -0,0 +1,58 @@
+package org.example.taxi.config.workload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(WorkloadProperties.class)
+public class WorkloadConfig {
+
+    @Bean
+    public Map<WorkloadClass, WorkloadBulkhead> workloadBulkheads(WorkloadProperties properties, MeterRegistry meterRegistry) {
+        Map<WorkloadClass, WorkloadBulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+        // Bot updates do not arrive over HTTP; they are bounded by BotUpdateExecutor instead.
+        for (WorkloadClass workloadClass : new WorkloadClass[]{WorkloadClass.OLTP, WorkloadClass.ANALYTICS}) {
+            bulkheads.put(workloadClass, new WorkloadBulkhead(workloadClass, properties.limits(workloadClass), meterRegistry));
+        }
+        return bulkheads;
+    }
+
+    /**
+     * Runs right after Spring Security so unauthenticated requests never take a slot.
+     */
+    @Bean
+    public FilterRegistrationBean<WorkloadAdmissionFilter> workloadAdmissionFilter(Map<WorkloadClass, WorkloadBulkhead> workloadBulkheads) {
+        FilterRegistrationBean<WorkloadAdmissionFilter> registration = new FilterRegistrationBean<>(new WorkloadAdmissionFilter(workloadBulkheads));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    /**
+     * Picked up by the application task executor: streaming exports and other async MVC work keep the
+     * workload class (and connection pool) of the request that started them.
+     */
+    @Bean
+    public TaskDecorator workloadPropagatingTaskDecorator() {
+        return task -> {
+            WorkloadClass workloadClass = WorkloadContext.current();
+            return () -> WorkloadContext.run(workloadClass, task);
+        };
+    }
+
+    /**
+     * Scheduled jobs (sketch flushes, leaderboard rebuilds, counter maintenance) are analytics work.
+     */
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer analyticsSchedulerCustomizer() {
+        return scheduler -> scheduler.setTaskDecorator(task -> () -> WorkloadContext.run(WorkloadClass.ANALYTICS, task));
+    }
+}
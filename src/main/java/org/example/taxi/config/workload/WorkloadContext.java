@@ -0,0 +1,46 @@
+package org.example.taxi.config.workload;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound workload class, set on admission and read when a database connection is checked out.
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /** @return The class of the work running on this thread, {@link WorkloadClass#OLTP} when none was set. */
+    public static WorkloadClass current() {
+        WorkloadClass workloadClass = CURRENT.get();
+        return workloadClass != null ? workloadClass : WorkloadClass.OLTP;
+    }
+
+    public static void run(WorkloadClass workloadClass, Runnable task) {
+        call(workloadClass, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(WorkloadClass workloadClass, Supplier<T> task) {
+        WorkloadClass previous = set(workloadClass);
+        try {
+            return task.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    static WorkloadClass set(WorkloadClass workloadClass) {
+        WorkloadClass previous = CURRENT.get();
+        if (workloadClass == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(workloadClass);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.taxi.config.workload;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-class bulkhead limits under {@code app.workload.<class>.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.workload")
+public class WorkloadProperties {
+
+    private Limits oltp = new Limits(150, 100, Duration.ofSeconds(2), 12, Duration.ofSeconds(1));
+    private Limits analytics = new Limits(8, 16, Duration.ofMillis(500), 4, Duration.ofSeconds(10));
+    private Limits bot = new Limits(4, 200, Duration.ofSeconds(5), 3, Duration.ofSeconds(5));
+
+    public Limits limits(WorkloadClass workloadClass) {
+        return switch (workloadClass) {
+            case OLTP -> oltp;
+            case ANALYTICS -> analytics;
+            case BOT -> bot;
+        };
+    }
+
+    @Data
+    public static class Limits {
+        /** Requests (or bot updates) of this class processed at the same time. */
+        private int maxConcurrent;
+        /** Callers allowed to wait for a slot; beyond this the request is rejected with 429 right away. */
+        private int maxQueued;
+        /** How long a queued request waits for a slot before it is rejected with 503. */
+        private Duration maxWait;
+        /** Size of this class's database connection pool. */
+        private int poolSize;
+        /** Value of the Retry-After header sent with a rejection. */
+        private Duration retryAfter;
+
+        public Limits() {
+        }
+
+        public Limits(int maxConcurrent, int maxQueued, Duration maxWait, int poolSize, Duration retryAfter) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWait = maxWait;
+            this.poolSize = poolSize;
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.config.AuthenticatedUser;
+import org.example.taxi.config.UserDetailsCache;
 import org.example.taxi.controller.dto.*;
 import org.example.taxi.entity.District;
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.Price;
 import org.example.taxi.entity.User;
-import org.example.taxi.repository.UserRepository;
 import org.example.taxi.service.AdminService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,8 +16,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -33,24 +33,13 @@ public class AdminController {
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
     @Autowired private AdminService adminService;
-    @Autowired private UserRepository userRepository;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
+    @Autowired private UserDetailsCache userDetailsCache;
 
     // --- Operator Management (Admin Exclusive) ---
 
     @PostMapping("/operators")
-    public ResponseEntity<OperatorResponse> createOperator(@Valid @RequestBody OperatorCreationRequest request) {
-        logger.info("Admin (User ID: {}) attempting to create new operator with phone: {}.", getAuthenticatedUserId(), request.getPhoneNumber());
+    public ResponseEntity<OperatorResponse> createOperator(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody OperatorCreationRequest request) {
+        logger.info("Admin (User ID: {}) attempting to create new operator with phone: {}.", currentUser.userId(), request.getPhoneNumber());
         User createdOperator = adminService.createOperator(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(new OperatorResponse(
                 createdOperator.getId(),
@@ -63,23 +52,23 @@ public class AdminController {
     }
 
     @GetMapping("/operators")
-    public ResponseEntity<Page<OperatorResponse>> getAllOperators(@PageableDefault(size = 10, sort = "id,asc") Pageable pageable) {
-        logger.info("Admin (User ID: {}) requesting all operators with pagination: {}.", getAuthenticatedUserId(), pageable);
+    public ResponseEntity<Page<OperatorResponse>> getAllOperators(@AuthenticationPrincipal AuthenticatedUser currentUser, @PageableDefault(size = 10, sort = "id,asc") Pageable pageable) {
+        logger.info("Admin (User ID: {}) requesting all operators with pagination: {}.", currentUser.userId(), pageable);
         return ResponseEntity.ok(adminService.getAllOperators(pageable));
     }
 
     // --- Pricing Configuration (Admin Exclusive) ---
 
     @PostMapping("/prices")
-    public ResponseEntity<PriceResponse> createOrUpdatePriceConfig(@Valid @RequestBody PriceConfigUpdate request) {
-        logger.info("Admin (User ID: {}) setting price config for from {} to {}.", getAuthenticatedUserId(), request.getFromDistrictId(), request.getToDistrictId());
+    public ResponseEntity<PriceResponse> createOrUpdatePriceConfig(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody PriceConfigUpdate request) {
+        logger.info("Admin (User ID: {}) setting price config for from {} to {}.", currentUser.userId(), request.getFromDistrictId(), request.getToDistrictId());
         Price price = adminService.createOrUpdatePriceConfig(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(PriceResponse.fromEntity(price));
     }
 
     @GetMapping("/prices")
-    public ResponseEntity<List<PriceResponse>> getAllPriceConfigs() {
-        logger.info("Admin (User ID: {}) retrieving all price configurations.", getAuthenticatedUserId());
+    public ResponseEntity<List<PriceResponse>> getAllPriceConfigs(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("Admin (User ID: {}) retrieving all price configurations.", currentUser.userId());
         List<PriceResponse> prices = adminService.getAllPriceConfigs().stream()
                 .map(PriceResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -90,8 +79,8 @@ public class AdminController {
     }
 
     @GetMapping("/prices/{priceId}")
-    public ResponseEntity<PriceResponse> getPriceConfigById(@PathVariable Long priceId) {
-        logger.info("Admin (User ID: {}) retrieving price configuration with ID: {}.", getAuthenticatedUserId(), priceId);
+    public ResponseEntity<PriceResponse> getPriceConfigById(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long priceId) {
+        logger.info("Admin (User ID: {}) retrieving price configuration with ID: {}.", currentUser.userId(), priceId);
         return adminService.getPriceConfigById(priceId)
                 .map(PriceResponse::fromEntity)
                 .map(ResponseEntity::ok)
@@ -99,8 +88,8 @@ public class AdminController {
     }
 
     @DeleteMapping("/prices/{priceId}")
-    public ResponseEntity<Void> deletePriceConfig(@PathVariable Long priceId) {
-        logger.info("Admin (User ID: {}) deleting price configuration with ID: {}.", getAuthenticatedUserId(), priceId);
+    public ResponseEntity<Void> deletePriceConfig(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long priceId) {
+        logger.info("Admin (User ID: {}) deleting price configuration with ID: {}.", currentUser.userId(), priceId);
         adminService.deletePriceConfig(priceId);
         return ResponseEntity.noContent().build();
     }
@@ -109,17 +98,35 @@ public class AdminController {
 
     @GetMapping("/orders")
     public ResponseEntity<Page<DetailedOrderResponse>> getOrders(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Valid OrderFilterRequest filter,
             @PageableDefault(size = 10, sort = "createdAt,desc") Pageable pageable) {
-        logger.info("Admin (User ID: {}) requesting orders with filter: {} and pagination: {}.", getAuthenticatedUserId(), filter, pageable);
+        logger.info("Admin (User ID: {}) requesting orders with filter: {} and pagination: {}.", currentUser.userId(), filter, pageable);
         return ResponseEntity.ok(adminService.getOrders(filter, pageable));
     }
 
     @PutMapping("/orders/{orderId}/status")
     public ResponseEntity<DetailedOrderResponse> updateOrderStatusByAdmin(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long orderId,
             @RequestParam OrderEntity.OrderStatus newStatus) {
-        logger.info("Admin (User ID: {}) manually updating status of order {} to {}.", getAuthenticatedUserId(), orderId, newStatus);
-        return ResponseEntity.ok(adminService.updateOrderStatusByAdmin(orderId, newStatus));
+        logger.info("Admin (User ID: {}) manually updating status of order {} to {}.", currentUser.userId(), orderId, newStatus);
+        return ResponseEntity.ok(adminService.updateOrderStatusByAdmin(orderId, newStatus, currentUser.userId()));
+    }
+
+    // --- Login Cache (Admin Exclusive) ---
+
+    @DeleteMapping("/user-details-cache")
+    public ResponseEntity<Void> clearUserDetailsCache(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("Admin (User ID: {}) clearing the user details cache.", currentUser.userId());
+        userDetailsCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/user-details-cache/{phoneNumber}")
+    public ResponseEntity<Void> evictUserDetails(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable String phoneNumber) {
+        logger.info("Admin (User ID: {}) evicting cached user details of {}.", currentUser.userId(), phoneNumber);
+        userDetailsCache.removeUserFromCache(phoneNumber);
+        return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
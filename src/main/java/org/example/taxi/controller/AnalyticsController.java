@@ -1,18 +1,25 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.analytics.DriverLeaderboard.Metric;
+import org.example.taxi.analytics.QuantileSketchStore.QuantileMetric;
+import org.example.taxi.analytics.SeriesDownsampler;
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.*;
 import org.example.taxi.entity.District;
-import org.example.taxi.repository.UserRepository;
+import org.example.taxi.entity.OrderEntity.OrderType;
 import org.example.taxi.service.AdminService;
 import org.example.taxi.service.MarketControlService;
+import org.example.taxi.service.MarketControlService.ActivityPeriod;
+import org.example.taxi.service.MarketControlService.QuantileGroupBy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -25,113 +32,157 @@ public class AnalyticsController {
 
     @Autowired private AdminService adminService;
     @Autowired private MarketControlService marketControlService;
-    @Autowired private UserRepository userRepository;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new org.springframework.web.server.ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
 
     // --- General Dashboard Summary (Shared) ---
     @GetMapping("/dashboard-summary")
-    public ResponseEntity<DashboardSummaryResponse> getDashboardSummary() {
-        logger.info("User (ID: {}) requesting dashboard summary.", getAuthenticatedUserId());
+    public ResponseEntity<DashboardSummaryResponse> getDashboardSummary(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting dashboard summary.", currentUser.userId());
         return ResponseEntity.ok(adminService.getDashboardSummary());
     }
 
     // --- Revenue Analytics (Shared) ---
     @GetMapping("/daily-app-earnings")
-    public ResponseEntity<List<ChartDataPoint>> getDailyAppEarnings(@RequestParam Optional<Integer> days) {
-        logger.info("User (ID: {}) requesting daily app earnings for last {} days.", getAuthenticatedUserId(), days.orElse(30));
-        return ResponseEntity.ok(adminService.getDailyAppEarnings(days));
+    public ResponseEntity<List<ChartDataPoint>> getDailyAppEarnings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Optional<Integer> days,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("User (ID: {}) requesting daily app earnings for last {} days.", currentUser.userId(), days.orElse(30));
+        return ResponseEntity.ok(adminService.getDailyAppEarnings(days, maxPoints, downsample));
     }
 
     @GetMapping("/daily-company-revenue")
-    public ResponseEntity<List<ChartDataPoint>> getDailyCompanyRevenue(@RequestParam Optional<Integer> days) {
-        logger.info("User (ID: {}) requesting daily company revenue for last {} days.", getAuthenticatedUserId(), days.orElse(30));
-        return ResponseEntity.ok(adminService.getDailyCompanyRevenue(days));
+    public ResponseEntity<List<ChartDataPoint>> getDailyCompanyRevenue(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Optional<Integer> days,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("User (ID: {}) requesting daily company revenue for last {} days.", currentUser.userId(), days.orElse(30));
+        return ResponseEntity.ok(adminService.getDailyCompanyRevenue(days, maxPoints, downsample));
     }
 
     @GetMapping("/reports/revenue")
-    public ResponseEntity<RevenueReportResponse> getRevenueReport() {
-        logger.info("User (ID: {}) requesting revenue report.", getAuthenticatedUserId());
+    public ResponseEntity<RevenueReportResponse> getRevenueReport(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting revenue report.", currentUser.userId());
         return ResponseEntity.ok(adminService.getRevenueReport());
     }
 
     // --- Ride Analytics (Shared) ---
     @GetMapping("/order-status-distribution")
-    public ResponseEntity<List<ChartDataPoint>> getOrderStatusDistribution() {
-        logger.info("User (ID: {}) requesting order status distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getOrderStatusDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting order status distribution.", currentUser.userId());
         return ResponseEntity.ok(adminService.getOrderStatusDistribution());
     }
 
     @GetMapping("/stats/rides")
-    public ResponseEntity<RideStatsResponse> getRideStatistics() {
-        logger.info("User (ID: {}) requesting ride statistics.", getAuthenticatedUserId());
+    public ResponseEntity<RideStatsResponse> getRideStatistics(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting ride statistics.", currentUser.userId());
         return ResponseEntity.ok(adminService.getRideStatistics());
     }
 
     // --- User Analytics (Shared) ---
     @GetMapping("/daily-new-users")
-    public ResponseEntity<List<ChartDataPoint>> getDailyNewUsers(@RequestParam Optional<Integer> days) {
-        logger.info("User (ID: {}) requesting daily new users for last {} days.", getAuthenticatedUserId(), days.orElse(30));
-        return ResponseEntity.ok(adminService.getDailyNewUsers(days));
+    public ResponseEntity<List<ChartDataPoint>> getDailyNewUsers(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Optional<Integer> days,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("User (ID: {}) requesting daily new users for last {} days.", currentUser.userId(), days.orElse(30));
+        return ResponseEntity.ok(adminService.getDailyNewUsers(days, maxPoints, downsample));
     }
 
     @GetMapping("/daily-new-clients")
-    public ResponseEntity<List<ChartDataPoint>> getDailyNewClients(@RequestParam Optional<Integer> days) {
-        logger.info("User (ID: {}) requesting daily new clients for last {} days.", getAuthenticatedUserId(), days.orElse(30));
-        return ResponseEntity.ok(adminService.getDailyNewClients(days));
+    public ResponseEntity<List<ChartDataPoint>> getDailyNewClients(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Optional<Integer> days,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("User (ID: {}) requesting daily new clients for last {} days.", currentUser.userId(), days.orElse(30));
+        return ResponseEntity.ok(adminService.getDailyNewClients(days, maxPoints, downsample));
     }
 
     @GetMapping("/daily-new-drivers")
-    public ResponseEntity<List<ChartDataPoint>> getDailyNewDrivers(@RequestParam Optional<Integer> days) {
-        logger.info("User (ID: {}) requesting daily new drivers for last {} days.", getAuthenticatedUserId(), days.orElse(30));
-        return ResponseEntity.ok(adminService.getDailyNewDrivers(days));
+    public ResponseEntity<List<ChartDataPoint>> getDailyNewDrivers(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Optional<Integer> days,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("User (ID: {}) requesting daily new drivers for last {} days.", currentUser.userId(), days.orElse(30));
+        return ResponseEntity.ok(adminService.getDailyNewDrivers(days, maxPoints, downsample));
     }
 
     @GetMapping("/stats/users")
-    public ResponseEntity<UserStatsResponse> getUserStatistics() {
-        logger.info("User (ID: {}) requesting user statistics.", getAuthenticatedUserId());
+    public ResponseEntity<UserStatsResponse> getUserStatistics(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting user statistics.", currentUser.userId());
         return ResponseEntity.ok(adminService.getUserStatistics());
     }
 
     // --- Driver Performance Analytics (Shared) ---
     @GetMapping("/drivers/performance")
-    public ResponseEntity<DriverPerformanceResponse> getDriverPerformance() {
-        logger.info("User (ID: {}) requesting driver performance report.", getAuthenticatedUserId());
+    public ResponseEntity<DriverPerformanceResponse> getDriverPerformance(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting driver performance report.", currentUser.userId());
         return ResponseEntity.ok(adminService.getDriverPerformance());
     }
 
+    @GetMapping("/drivers/leaderboard/{metric}")
+    public ResponseEntity<List<LeaderboardEntry>> getDriverLeaderboard(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable Metric metric,
+            @RequestParam(required = false) Long districtId,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.info("User (ID: {}) requesting {} driver leaderboard (district: {}, limit: {}).", currentUser.userId(), metric, districtId, limit);
+        return ResponseEntity.ok(adminService.getLeaderboard(metric, districtId, limit));
+    }
+
+    @GetMapping("/drivers/leaderboard/{metric}/rank/{driverId}")
+    public ResponseEntity<LeaderboardEntry> getDriverRank(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable Metric metric,
+            @PathVariable Long driverId,
+            @RequestParam(required = false) Long districtId) {
+        logger.info("User (ID: {}) requesting {} rank of driver {} (district: {}).", currentUser.userId(), metric, driverId, districtId);
+        return ResponseEntity.ok(adminService.getDriverRank(metric, districtId, driverId));
+    }
+
+    // --- Order Metric Percentiles (Shared) ---
+    @GetMapping("/percentiles/{metric}")
+    public ResponseEntity<List<QuantilePoint>> getPercentiles(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable QuantileMetric metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "DAY") ActivityPeriod period,
+            @RequestParam(required = false) Long districtId,
+            @RequestParam(required = false) OrderType orderType,
+            @RequestParam(defaultValue = "NONE") QuantileGroupBy groupBy) {
+        logger.info("User (ID: {}) requesting {} percentiles from {} to {} ({}, district: {}, type: {}, groupBy: {}).",
+                currentUser.userId(), metric, startDate, endDate, period, districtId, orderType, groupBy);
+        return ResponseEntity.ok(marketControlService.getQuantiles(metric, startDate, endDate, period, districtId, orderType, groupBy));
+    }
+
     // --- District Distribution Analytics (Shared) ---
     @GetMapping("/users-by-district")
-    public ResponseEntity<List<ChartDataPoint>> getUsersByDistrictDistribution() {
-        logger.info("User (ID: {}) requesting users by district distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getUsersByDistrictDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting users by district distribution.", currentUser.userId());
         return ResponseEntity.ok(adminService.getUsersByDistrictDistribution());
     }
 
     @GetMapping("/clients-by-district")
-    public ResponseEntity<List<ChartDataPoint>> getClientsByDistrictDistribution() {
-        logger.info("User (ID: {}) requesting clients by district distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getClientsByDistrictDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting clients by district distribution.", currentUser.userId());
         return ResponseEntity.ok(adminService.getClientsByDistrictDistribution());
     }
 
     @GetMapping("/drivers-by-district")
-    public ResponseEntity<List<ChartDataPoint>> getDriversByDistrictDistribution() {
-        logger.info("User (ID: {}) requesting drivers by district distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getDriversByDistrictDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting drivers by district distribution.", currentUser.userId());
         return ResponseEntity.ok(adminService.getDriversByDistrictDistribution());
     }
 
     // --- Utility Endpoints (Shared) ---
     @GetMapping("/districts")
-    public ResponseEntity<List<District>> getAllDistricts() {
-        logger.info("User (ID: {}) requesting all districts.", getAuthenticatedUserId());
+    public ResponseEntity<List<District>> getAllDistricts(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("User (ID: {}) requesting all districts.", currentUser.userId());
         return ResponseEntity.ok(adminService.getAllDistricts());
     }
 }
\ No newline at end of file
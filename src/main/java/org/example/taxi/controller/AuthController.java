@@ -1,13 +1,26 @@
 package org.example.taxi.controller;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.example.taxi.bot.UserSessionService;
 import org.example.taxi.config.JwtTokenProvider;
+import org.example.taxi.config.UserIdentityResolver;
+import org.example.taxi.config.ratelimit.RateLimitProperties;
+import org.example.taxi.config.ratelimit.RateLimiter;
+import org.example.taxi.config.workload.WorkloadClass;
+import org.example.taxi.config.workload.WorkloadContext;
 import org.example.taxi.entity.User;
 import org.example.taxi.repository.UserRepository;
+import org.example.taxi.service.CustomUserDetailsService;
 import org.example.taxi.service.TelegramBotService;
+import org.example.taxi.service.TokenRevocationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,15 +28,22 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.server.ResponseStatusException;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 record LoginRequest(String phoneNumber, String password) {}
 
+record RefreshRequest(String refreshToken) {}
+
 @RestController
 @RequestMapping("/api/public")
 public class AuthController {
@@ -38,9 +58,61 @@ public class AuthController {
     private AuthenticationManager authenticationManager;
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
+    @Autowired
+    private UserIdentityResolver userIdentityResolver;
+    @Autowired
+    private RateLimiter rateLimiter;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
 
     @Autowired
     private  UserRepository userRepository;
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    @Value("${app.registration.credentials-wait.default:30s}")
+    private Duration credentialsWaitDefault;
+
+    @Value("${app.registration.credentials-wait.max:60s}")
+    private Duration credentialsWaitMax;
+
+    @Value("${app.registration.credentials-wait.undelivered-ttl:2m}")
+    private Duration undeliveredCredentialsTtl;
+
+    /**
+     * Credentials finalized for a wait whose request had already timed out or gone away. The registration session is
+     * cleared by then, so the next {@code /get-credentials} or {@code /wait-credentials} for it takes them from here,
+     * once.
+     */
+    private Cache<String, ResponseEntity<?>> undeliveredCredentials;
+
+    @PostConstruct
+    void init() {
+        undeliveredCredentials = Caffeine.newBuilder()
+                .expireAfterWrite(undeliveredCredentialsTtl)
+                .build();
+    }
+
+    private Map<String, String> issueTokens(User user, String role) {
+        return issueTokens(user.getPhoneNumber(), role, user.getId(), profileIdFor(userIdentityResolver.load(user.getPhoneNumber()), role));
+    }
+
+    // The profile id is the driver or client id that the role's endpoints act on, so it is only set when they match
+    private static Long profileIdFor(Optional<UserIdentityResolver.Identity> identity, String role) {
+        return identity
+                .filter(found -> found.userType() != null && found.userType().name().equals(role))
+                .map(UserIdentityResolver.Identity::profileId)
+                .orElse(null);
+    }
+
+    private Map<String, String> issueTokens(String phoneNumber, String role, Long userId, Long profileId) {
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("token", jwtTokenProvider.generateToken(phoneNumber, role, userId, profileId));
+        tokens.put("refreshToken", jwtTokenProvider.generateRefreshToken(phoneNumber, role, userId, profileId));
+        tokens.put("expiresIn", Long.toString(jwtTokenProvider.getAccessTokenTtl().toSeconds()));
+        return tokens;
+    }
 
     @GetMapping("/register-session")
     public ResponseEntity<?> generateRegistrationSession(@RequestParam String userType) {
@@ -64,6 +136,10 @@ public class AuthController {
 
     @GetMapping("/get-credentials/{sessionId}")
     public ResponseEntity<?> getCredentials(@PathVariable String sessionId) {
+        ResponseEntity<?> undelivered = undeliveredCredentials.asMap().remove(sessionId);
+        if (undelivered != null) {
+            return undelivered;
+        }
         try {
             Map<String, String> credentials = telegramBotService.finalizeRegistrationAndGetCredentials(sessionId);
             String phoneNumber = credentials.get("phoneNumber");
@@ -71,12 +147,10 @@ public class AuthController {
             User user = userRepository.findByPhoneNumber(phoneNumber).orElseThrow();
 
             String role = credentials.getOrDefault("role", user.getUserType().name());
-            String token = jwtTokenProvider.generateToken(phoneNumber, role);
 
-            Map<String, String> response = new HashMap<>();
+            Map<String, String> response = new HashMap<>(issueTokens(user, role));
             response.put("phoneNumber", phoneNumber);
             response.put("password", password);
-            response.put("token", token);
             response.put("message", "Registration completed. Use the JWT token for authentication.");
 
             return ResponseEntity.ok(response);
@@ -89,8 +163,53 @@ public class AuthController {
         }
     }
 
+    /**
+     * Long-poll alternative to polling {@code /get-credentials}: the request is parked, without a thread, until the
+     * user has shared the phone number in the bot, and then answered exactly like {@code /get-credentials}.
+     * When nothing happens within {@code timeoutSeconds} (capped by {@code app.registration.credentials-wait.max}),
+     * the answer is 202 and the app waits again; credentials finalized just after that are handed to the next request.
+     */
+    @GetMapping("/wait-credentials/{sessionId}")
+    public DeferredResult<ResponseEntity<?>> waitForCredentials(@PathVariable String sessionId,
+                                                                @RequestParam(required = false) Long timeoutSeconds) {
+        Duration timeout = timeoutSeconds != null && timeoutSeconds > 0 ? Duration.ofSeconds(timeoutSeconds) : credentialsWaitDefault;
+        if (timeout.compareTo(credentialsWaitMax) > 0) {
+            timeout = credentialsWaitMax;
+        }
+        ResponseEntity<?> pending = ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("status", "PENDING", "message", "Waiting for the phone number to be shared in Telegram."));
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeout.toMillis(), pending);
+
+        CompletableFuture<Boolean> phoneLinked = userSessionService.awaitPhoneLinked(sessionId);
+        // Timed out, failed or the client went away: stop waiting
+        result.onCompletion(() -> phoneLinked.cancel(false));
+        // Signalled on a bot thread; finalizing (hash, inserts) runs on the task executor as regular request work
+        phoneLinked.thenAccept(linked -> taskExecutor.execute(() -> WorkloadContext.run(WorkloadClass.OLTP, () -> {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            ResponseEntity<?> response = linked || undeliveredCredentials.getIfPresent(sessionId) != null
+                    ? getCredentials(sessionId)
+                    : ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Session invalid or expired."));
+            // The wait may have timed out while finalizing, which cleared the session: keep what it produced
+            if (!result.setResult(response) && response.getStatusCode().is2xxSuccessful()) {
+                undeliveredCredentials.put(sessionId, response);
+                logger.info("Credentials for session {} finalized after the wait ended; kept for the next request.", sessionId);
+            }
+        })));
+        return result;
+    }
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
+        // Per-phone limit on top of the per-IP one in RateLimitFilter: guessing one account's password from many addresses
+        Duration wait = rateLimiter.tryAcquire(RateLimitProperties.LOGIN_PHONE, loginRequest.phoneNumber());
+        if (!wait.isZero()) {
+            logger.warn("Login attempts for user {} rate limited.", loginRequest.phoneNumber());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", Long.toString(RateLimiter.retryAfterSeconds(wait)))
+                    .body(Map.of("error", "Too many login attempts. Please retry later."));
+        }
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(loginRequest.phoneNumber(), loginRequest.password())
@@ -98,27 +217,64 @@ public class AuthController {
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
             String phoneNumber = loginRequest.phoneNumber();
-            User user = userRepository.findByPhoneNumber(phoneNumber).orElseThrow();
+            // User id and role come with the authenticated account (from the login cache), the profile id from the
+            // identity cache: a repeat login within their ttl issues tokens without a query
+            Optional<UserIdentityResolver.Identity> identity = userIdentityResolver.resolve(phoneNumber);
+            Long userId = authentication.getPrincipal() instanceof CustomUserDetailsService.Account account
+                    ? account.getUserId()
+                    : identity.map(UserIdentityResolver.Identity::userId).orElseThrow();
             String role = authentication.getAuthorities().stream()
                     .map(Object::toString)
                     .map(auth -> auth.replace("ROLE_", ""))
                     .findFirst()
-                    .orElse(user.getUserType().name()); // Default to CLIENT if no role found
-            String token = jwtTokenProvider.generateToken(phoneNumber, role);
+                    .orElseGet(() -> identity.map(found -> found.userType().name()).orElseThrow());
 
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>(issueTokens(phoneNumber, role, userId, profileIdFor(identity, role)));
             response.put("message", "Login successful.");
             response.put("phoneNumber", phoneNumber);
-            response.put("token", token);
             response.put("roles", authentication.getAuthorities().stream()
                     .map(Object::toString)
                     .collect(Collectors.toList()));
 
             logger.info("User {} successfully logged in with roles: {}", phoneNumber, authentication.getAuthorities());
             return ResponseEntity.ok(response);
+        } catch (ResponseStatusException e) {
+            // Password hashing is saturated: not a wrong password, so the client should retry
+            logger.warn("Login for user {} rejected: {}", loginRequest.phoneNumber(), e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).header("Retry-After", "1").body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             logger.error("Login failed for user {}: {}", loginRequest.phoneNumber(), e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid phone number or password."));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exchanges a refresh token for a new access and refresh token. Each refresh token works once: it is revoked on
+     * use, and the unique token id makes a concurrent second use fail. The new tokens are issued from the user as
+     * stored now, so a role or profile change reaches the client at its next refresh.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest refreshRequest) {
+        Optional<JwtTokenProvider.VerifiedToken> verified = Optional.ofNullable(refreshRequest.refreshToken())
+                .flatMap(jwtTokenProvider::verify)
+                .filter(JwtTokenProvider.VerifiedToken::refresh)
+                .filter(token -> token.userId() != null && token.tokenId() != null)
+                .filter(token -> !tokenRevocationService.isRevoked(token.userId(), token.tokenId(), token.issuedAt()));
+        if (verified.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid or expired refresh token."));
+        }
+        JwtTokenProvider.VerifiedToken token = verified.get();
+        try {
+            tokenRevocationService.revokeToken(token.userId(), token.tokenId(), token.expiresAt());
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Refresh token of user {} used twice.", token.userId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid or expired refresh token."));
+        }
+        Optional<User> user = userRepository.findById(token.userId());
+        if (user.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid or expired refresh token."));
+        }
+        logger.debug("Refreshed tokens of user {}.", token.userId());
+        return ResponseEntity.ok(issueTokens(user.get(), user.get().getUserType().name()));
+    }
+}
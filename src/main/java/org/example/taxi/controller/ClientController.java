@@ -1,21 +1,21 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.ClientProfileRequest;
 import org.example.taxi.controller.dto.ClientProfileResponse;
 import org.example.taxi.controller.dto.OrderBookingRequest;
 import org.example.taxi.controller.dto.OrderBookingResponse;
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
-import org.example.taxi.repository.UserRepository;
 import org.example.taxi.s3.S3Service;
 import org.example.taxi.service.ClientService;
+import org.example.taxi.service.OrderFieldQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
@@ -33,46 +33,26 @@ public class ClientController {
     private static final Logger logger = LoggerFactory.getLogger(ClientController.class);
 
     @Autowired private ClientService clientService;
-    @Autowired private UserRepository userRepository;
     @Autowired private S3Service s3Service;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
-
-    private String getAuthenticatedUserPhoneNumber() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()) {
-            return authentication.getName(); // JWT sets phoneNumber as the principal
-        }
-        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-    }
+    @Autowired private OrderFieldQuery orderFieldQuery;
 
     @GetMapping("/profile")
-    public ResponseEntity<ClientProfileResponse> getProfile() {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<ClientProfileResponse> getProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching profile for authenticated client (User ID: {}).", authenticatedUserId);
-        return ResponseEntity.ok(ClientProfileResponse.fromEntity(clientService.getClientProfile(authenticatedUserId)));
+        return ResponseEntity.ok(ClientProfileResponse.fromEntity(clientService.getClientProfile(currentUser)));
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<ClientProfileResponse> updateProfile(@Valid @RequestBody ClientProfileRequest request) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<ClientProfileResponse> updateProfile(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody ClientProfileRequest request) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Updating profile (text-only) for authenticated client (User ID: {}).", authenticatedUserId);
-        return ResponseEntity.ok(ClientProfileResponse.fromEntity(clientService.updateClientProfile(authenticatedUserId, request)));
+        return ResponseEntity.ok(ClientProfileResponse.fromEntity(clientService.updateClientProfile(currentUser, request)));
     }
 
     @PostMapping("/uploads/profile-picture")
-    public ResponseEntity<?> uploadProfilePicture(@RequestParam("file") MultipartFile file) {
-        Long authenticatedUserId = getAuthenticatedUserId();
-        String phoneNumber = getAuthenticatedUserPhoneNumber();
+    public ResponseEntity<?> uploadProfilePicture(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam("file") MultipartFile file) {
+        String phoneNumber = currentUser.phoneNumber();
         String subDirectory = "clients/" + phoneNumber + "/profile-pictures";
 
         if (file.isEmpty()) {
@@ -82,7 +62,7 @@ public class ClientController {
         logger.info("Attempting to upload profile picture for client '{}' to S3.", phoneNumber);
         try {
             String fileUrl = s3Service.uploadFile(file, subDirectory);
-            clientService.updateClientProfilePictureUrl(authenticatedUserId, fileUrl);
+            clientService.updateClientProfilePictureUrl(currentUser, fileUrl);
 
             return ResponseEntity.ok(Map.of("message", "Profile picture uploaded and profile updated successfully", "url", fileUrl));
         } catch (IOException e) {
@@ -95,8 +75,8 @@ public class ClientController {
     }
 
     @PostMapping("/orders")
-    public ResponseEntity<OrderBookingResponse> bookRide(@Valid @RequestBody OrderBookingRequest request) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<OrderBookingResponse> bookRide(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody OrderBookingRequest request) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Client (User ID: {}) attempting to book a ride from District {} ({}) to District {} ({}).",
                 authenticatedUserId, request.getFromDistrictId(), request.getFromLocation(),
                 request.getToDistrictId(), request.getToLocation());
@@ -106,10 +86,14 @@ public class ClientController {
     }
 
     @GetMapping("/orders/history")
-    public ResponseEntity<List<OrderEntity>> getClientHistory(@RequestParam Optional<OrderStatus> status) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<List<?>> getClientHistory(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam Optional<OrderStatus> status,
+                                                    @RequestParam(required = false) String fields) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching client (User ID: {}) history with status filter: {}.", authenticatedUserId, status.map(Enum::name).orElse("N/A"));
-        List<OrderEntity> history = clientService.getClientRideHistory(authenticatedUserId, status);
+        List<String> selectedFields = orderFieldQuery.resolve(fields);
+        List<?> history = selectedFields != null
+                ? clientService.getClientRideHistory(authenticatedUserId, status, selectedFields)
+                : clientService.getClientRideHistory(authenticatedUserId, status);
         if (history.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -117,8 +101,8 @@ public class ClientController {
     }
 
     @GetMapping("/orders/active")
-    public ResponseEntity<OrderEntity> getClientActiveOrder() {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<OrderEntity> getClientActiveOrder(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching active order for client (User ID: {}).", authenticatedUserId);
         return clientService.getClientActiveOrder(authenticatedUserId)
                 .map(ResponseEntity::ok)
@@ -126,8 +110,8 @@ public class ClientController {
     }
 
     @GetMapping("/orders/{orderId}")
-    public ResponseEntity<OrderEntity> getClientOrderDetails(@PathVariable Long orderId) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<OrderEntity> getClientOrderDetails(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long orderId) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Client (User ID: {}) requesting details for order {}.", authenticatedUserId, orderId);
         return ResponseEntity.ok(clientService.getClientOrderDetails(authenticatedUserId, orderId));
     }
@@ -1,21 +1,21 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.DriverProfileRequest;
 import org.example.taxi.controller.dto.DriverProfileResponse;
 import org.example.taxi.controller.dto.OrderStatusUpdateRequest;
 import org.example.taxi.entity.Driver;
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
-import org.example.taxi.repository.UserRepository;
 import org.example.taxi.service.DriverService;
+import org.example.taxi.service.OrderFieldQuery;
 import org.example.taxi.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -31,49 +31,40 @@ public class DriverController {
     private static final Logger logger = LoggerFactory.getLogger(DriverController.class);
 
     @Autowired private DriverService driverService;
-    @Autowired private UserRepository userRepository;
     @Autowired private OrderService orderService;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
+    @Autowired private OrderFieldQuery orderFieldQuery;
 
     @GetMapping("/profile")
-    public ResponseEntity<DriverProfileResponse> getProfile() {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<DriverProfileResponse> getProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching profile for authenticated driver (User ID: {}).", authenticatedUserId);
-        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.getDriverProfile(authenticatedUserId)));
+        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.getDriverProfile(currentUser)));
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<DriverProfileResponse> updateProfile(@Valid @RequestBody DriverProfileRequest request) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<DriverProfileResponse> updateProfile(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody DriverProfileRequest request) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Updating profile (text/district) for authenticated driver (User ID: {}).", authenticatedUserId);
-        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.updateDriverProfile(authenticatedUserId, request)));
+        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.updateDriverProfile(currentUser, request)));
     }
 
     @PostMapping("/submit-for-approval")
-    public ResponseEntity<DriverProfileResponse> submitProfileForApproval() {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<DriverProfileResponse> submitProfileForApproval(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Driver (User ID: {}) submitting profile for approval.", authenticatedUserId);
-        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.submitProfileForApproval(authenticatedUserId)));
+        return ResponseEntity.ok(DriverProfileResponse.fromEntity(driverService.submitProfileForApproval(currentUser)));
     }
 
     @GetMapping("/orders/feed")
-    public ResponseEntity<List<OrderEntity>> getOrdersFeed(
+    public ResponseEntity<List<?>> getOrdersFeed(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
-            @RequestParam int maxSeats) {
+            @RequestParam int maxSeats,
+            @RequestParam(required = false) String fields) {
 
-        Long authenticatedUserId = getAuthenticatedUserId();
-        Driver driver = driverService.getDriverProfile(authenticatedUserId);
+        Long authenticatedUserId = currentUser.userId();
+        Driver driver = driverService.getDriverProfile(currentUser);
         if (driver.getDistrict() == null || driver.getDistrict().getRegion() == null) {
             throw new ResponseStatusException(org.springframework.http.HttpStatus.BAD_REQUEST, "Driver's district or region not set. Please complete profile.");
         }
@@ -81,7 +72,10 @@ public class DriverController {
         Long driverRegionId = driver.getDistrict().getRegion().getId();
 
         logger.info("Fetching order feed for driver (User ID: {}) in District ID {} (Region ID {}), from {} to {}.", authenticatedUserId, driverDistrictId, driverRegionId, start, end);
-        List<OrderEntity> orders = driverService.getAvailableOrders(authenticatedUserId, driverDistrictId, driverRegionId, start, end, maxSeats);
+        List<String> selectedFields = orderFieldQuery.resolve(fields);
+        List<?> orders = selectedFields != null
+                ? driverService.getAvailableOrders(authenticatedUserId, driverDistrictId, driverRegionId, start, end, maxSeats, selectedFields)
+                : driverService.getAvailableOrders(authenticatedUserId, driverDistrictId, driverRegionId, start, end, maxSeats);
         if (orders.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -89,24 +83,28 @@ public class DriverController {
     }
 
     @PostMapping("/orders/{orderId}/accept")
-    public ResponseEntity<OrderEntity> acceptOrder(@PathVariable Long orderId) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<OrderEntity> acceptOrder(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long orderId) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Driver (User ID: {}) attempting to accept order {}.", authenticatedUserId, orderId);
-        return ResponseEntity.ok(driverService.acceptOrder(authenticatedUserId, orderId));
+        return ResponseEntity.ok(driverService.acceptOrder(currentUser, orderId));
     }
 
     @PutMapping("/orders/{orderId}/status")
-    public ResponseEntity<OrderEntity> updateOrderStatus(@PathVariable Long orderId, @Valid @RequestBody OrderStatusUpdateRequest request) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<OrderEntity> updateOrderStatus(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long orderId, @Valid @RequestBody OrderStatusUpdateRequest request) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Driver (User ID: {}) attempting to update status of order {} to {}.", authenticatedUserId, orderId, request.getNewStatus().name());
-        return ResponseEntity.ok(driverService.updateOrderStatus(authenticatedUserId, orderId, request.getNewStatus().name()));
+        return ResponseEntity.ok(driverService.updateOrderStatus(currentUser, orderId, request.getNewStatus().name()));
     }
 
     @GetMapping("/history")
-    public ResponseEntity<List<OrderEntity>> getDriverHistory(@RequestParam Optional<OrderStatus> status) {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<List<?>> getDriverHistory(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam Optional<OrderStatus> status,
+                                                    @RequestParam(required = false) String fields) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching driver (User ID: {}) history with status filter: {}.", authenticatedUserId, status.map(Enum::name).orElse("N/A"));
-        List<OrderEntity> history = driverService.getDriverRideHistory(authenticatedUserId, status);
+        List<String> selectedFields = orderFieldQuery.resolve(fields);
+        List<?> history = selectedFields != null
+                ? driverService.getDriverRideHistory(currentUser, status, selectedFields)
+                : driverService.getDriverRideHistory(currentUser, status);
         if (history.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -114,10 +112,13 @@ public class DriverController {
     }
 
     @GetMapping("/active-order")
-    public ResponseEntity<List<OrderEntity>> getDriverActiveOrders() {
-        Long authenticatedUserId = getAuthenticatedUserId();
+    public ResponseEntity<List<?>> getDriverActiveOrders(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam(required = false) String fields) {
+        Long authenticatedUserId = currentUser.userId();
         logger.info("Fetching active orders for driver (User ID: {}).", authenticatedUserId);
-        List<OrderEntity> activeOrders = driverService.getDriverActiveOrders(authenticatedUserId);
+        List<String> selectedFields = orderFieldQuery.resolve(fields);
+        List<?> activeOrders = selectedFields != null
+                ? driverService.getDriverActiveOrders(currentUser, selectedFields)
+                : driverService.getDriverActiveOrders(currentUser);
         if (activeOrders.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
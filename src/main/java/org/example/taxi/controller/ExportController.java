@@ -0,0 +1,86 @@
+package org.example.taxi.controller;
+
+import org.example.taxi.config.AuthenticatedUser;
+import org.example.taxi.controller.dto.OrderFilterRequest;
+import org.example.taxi.export.ExportFormat;
+import org.example.taxi.export.OrderExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming exports for finance. Rows go from the database cursor straight to the response body,
+ * so there is no page size and no upper bound on the number of rows.
+ */
+@RestController
+@RequestMapping("/api/admin/exports")
+public class ExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
+
+    @Autowired private OrderExportService orderExportService;
+
+    @FunctionalInterface
+    private interface ExportBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @Valid OrderFilterRequest filter,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        logger.info("Admin (User ID: {}) exporting orders as {} (gzip={}) with filter: {}.", currentUser.userId(), format, gzip, filter);
+        return streaming("orders", format, gzip, out -> orderExportService.exportOrders(filter, format, out));
+    }
+
+    @GetMapping("/fees")
+    public ResponseEntity<StreamingResponseBody> exportCompletedOrderFees(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @Valid OrderFilterRequest filter,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        logger.info("Admin (User ID: {}) exporting completed-order fees as {} (gzip={}) with filter: {}.", currentUser.userId(), format, gzip, filter);
+        return streaming("fees", format, gzip, out -> orderExportService.exportCompletedOrderFees(filter, format, out));
+    }
+
+    @GetMapping("/driver-earnings")
+    public ResponseEntity<StreamingResponseBody> exportDriverEarnings(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @Valid OrderFilterRequest filter,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        logger.info("Admin (User ID: {}) exporting driver earnings as {} (gzip={}) with filter: {}.", currentUser.userId(), format, gzip, filter);
+        return streaming("driver-earnings", format, gzip, out -> orderExportService.exportDriverEarnings(filter, format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streaming(String name, ExportFormat format, boolean gzip, ExportBody body) {
+        String fileName = name + "-" + LocalDate.now() + "." + format.getFileExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody stream = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                body.writeTo(gzipOut); // Row writers close the stream they write to, which finishes the gzip trailer
+            } else {
+                body.writeTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(stream);
+    }
+}
@@ -1,15 +1,14 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.s3.S3Service;
-import org.example.taxi.repository.UserRepository;
 import org.example.taxi.service.DriverService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
@@ -31,32 +30,10 @@ public class FileStorageController {
     @Autowired
     private S3Service s3Service;
     @Autowired
-    private UserRepository userRepository;
-    @Autowired
     private DriverService driverService;
 
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
-
-    private String getAuthenticatedUserPhoneNumber() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()) {
-            return authentication.getName(); // JWT sets phoneNumber as the principal
-        }
-        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-    }
-
-    private ResponseEntity<?> handleFileUploadAndProfileUpdate(MultipartFile file, String fileType, String s3Directory) {
-        Long authenticatedUserId = getAuthenticatedUserId();
-        String phoneNumber = getAuthenticatedUserPhoneNumber();
+    private ResponseEntity<?> handleFileUploadAndProfileUpdate(AuthenticatedUser currentUser, MultipartFile file, String fileType, String s3Directory) {
+        String phoneNumber = currentUser.phoneNumber();
         String subDirectory = "drivers/" + phoneNumber + "/" + s3Directory;
 
         if (file.isEmpty()) {
@@ -66,7 +43,7 @@ public class FileStorageController {
         logger.info("Attempting to upload file '{}' of type '{}' for user '{}' to S3.", file.getOriginalFilename(), fileType, phoneNumber);
         try {
             String fileUrl = s3Service.uploadFile(file, subDirectory);
-            driverService.updateDriverFileUrl(authenticatedUserId, fileType, fileUrl);
+            driverService.updateDriverFileUrl(currentUser, fileType, fileUrl);
 
             return ResponseEntity.ok(Map.of("message", fileType + " uploaded and profile updated successfully", "url", fileUrl));
         } catch (IOException e) {
@@ -82,35 +59,39 @@ public class FileStorageController {
             description = "Uploads an image file to S3 and updates the driver's profilePictureUrl in the database.")
     @PostMapping(value = "/profile-picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadProfilePicture(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Parameter(description = "The profile picture file to upload (e.g., JPEG, PNG)", required = true, schema = @Schema(type = "string", format = "binary"))
             @RequestParam("file") MultipartFile file) {
-        return handleFileUploadAndProfileUpdate(file, "profilePicture", "profile-pictures");
+        return handleFileUploadAndProfileUpdate(currentUser, file, "profilePicture", "profile-pictures");
     }
 
     @Operation(summary = "Uploads driver's license picture",
             description = "Uploads an image file of the driver's license to S3 and updates driverLicensePictureUrl.")
     @PostMapping(value = "/license-picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadDriverLicensePicture(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Parameter(description = "The driver license file to upload", required = true, schema = @Schema(type = "string", format = "binary"))
             @RequestParam("file") MultipartFile file) {
-        return handleFileUploadAndProfileUpdate(file, "driverLicensePicture", "licenses");
+        return handleFileUploadAndProfileUpdate(currentUser, file, "driverLicensePicture", "licenses");
     }
 
     @Operation(summary = "Uploads driver's car picture",
             description = "Uploads an image file of the driver's car to S3 and updates carPictureUrl.")
     @PostMapping(value = "/car-picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadCarPicture(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Parameter(description = "The car picture file to upload", required = true, schema = @Schema(type = "string", format = "binary"))
             @RequestParam("file") MultipartFile file) {
-        return handleFileUploadAndProfileUpdate(file, "carPicture", "cars");
+        return handleFileUploadAndProfileUpdate(currentUser, file, "carPicture", "cars");
     }
 
     @Operation(summary = "Uploads driver's passport picture",
             description = "Uploads an image file of the driver's passport to S3 and updates passportPictureUrl.")
     @PostMapping(value = "/passport-picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadPassportPicture(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Parameter(description = "The passport file to upload", required = true, schema = @Schema(type = "string", format = "binary"))
             @RequestParam("file") MultipartFile file) {
-        return handleFileUploadAndProfileUpdate(file, "passportPicture", "passports");
+        return handleFileUploadAndProfileUpdate(currentUser, file, "passportPicture", "passports");
     }
 }
\ No newline at end of file
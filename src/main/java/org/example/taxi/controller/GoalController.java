@@ -1,11 +1,12 @@
 package org.example.taxi.controller;
 
 import org.example.taxi.controller.dto.GoalCalculatorRequest;
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.GoalCalculatorResponse;
 import org.example.taxi.controller.dto.GoalProgressionResponse;
 import org.example.taxi.controller.dto.GoalRequest;
 import org.example.taxi.controller.dto.GoalResponse;
-import org.example.taxi.repository.UserRepository;
+import org.example.taxi.service.GoalProgressCounterService;
 import org.example.taxi.service.GoalService;
 import org.example.taxi.service.MarketControlService;
 import org.slf4j.Logger;
@@ -14,8 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -23,6 +23,7 @@ import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -32,29 +33,18 @@ public class GoalController {
     private static final Logger logger = LoggerFactory.getLogger(GoalController.class);
 
     @Autowired private GoalService goalService;
-    @Autowired private UserRepository userRepository;
     @Autowired private MarketControlService marketControlService;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
+    @Autowired private GoalProgressCounterService goalProgressCounterService;
 
     @PostMapping("/")
-    public ResponseEntity<GoalResponse> createOrUpdateGoal(@Valid @RequestBody GoalRequest request) {
-        logger.info("ETAMIN (User ID: {}) creating/updating goal for month {}.", getAuthenticatedUserId(), request.getMonth());
+    public ResponseEntity<GoalResponse> createOrUpdateGoal(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody GoalRequest request) {
+        logger.info("ETAMIN (User ID: {}) creating/updating goal for month {}.", currentUser.userId(), request.getMonth());
         return ResponseEntity.status(HttpStatus.CREATED).body(goalService.createOrUpdateGoal(request));
     }
 
     @GetMapping("/")
-    public ResponseEntity<List<GoalResponse>> getAllGoals() {
-        logger.info("ETAMIN (User ID: {}) requesting all goals.", getAuthenticatedUserId());
+    public ResponseEntity<List<GoalResponse>> getAllGoals(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("ETAMIN (User ID: {}) requesting all goals.", currentUser.userId());
         List<GoalResponse> goals = goalService.getAllGoals();
         if (goals.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -63,34 +53,52 @@ public class GoalController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<GoalResponse> getGoalById(@PathVariable Long id) {
-        logger.info("ETAMIN (User ID: {}) requesting goal by ID: {}.", getAuthenticatedUserId(), id);
+    public ResponseEntity<GoalResponse> getGoalById(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long id) {
+        logger.info("ETAMIN (User ID: {}) requesting goal by ID: {}.", currentUser.userId(), id);
         return goalService.getGoalById(id)
                 .map(ResponseEntity::ok)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Goal not found with ID: " + id));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteGoal(@PathVariable Long id) {
-        logger.info("ETAMIN (User ID: {}) deleting goal with ID: {}.", getAuthenticatedUserId(), id);
+    public ResponseEntity<Void> deleteGoal(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable Long id) {
+        logger.info("ETAMIN (User ID: {}) deleting goal with ID: {}.", currentUser.userId(), id);
         goalService.deleteGoal(id);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/progression")
     public ResponseEntity<GoalProgressionResponse> getGoalProgression(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
-        logger.info("ETAMIN (User ID: {}) requesting goal progression for month {}.", getAuthenticatedUserId(), month);
+        logger.info("ETAMIN (User ID: {}) requesting goal progression for month {}.", currentUser.userId(), month);
         return ResponseEntity.ok(goalService.getGoalProgression(month));
     }
 
+    @GetMapping("/progression/year")
+    public ResponseEntity<List<GoalProgressionResponse>> getYearProgression(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam int year) {
+        logger.info("ETAMIN (User ID: {}) requesting goal progression for year {}.", currentUser.userId(), year);
+        return ResponseEntity.ok(goalService.getYearProgression(year));
+    }
+
+    @PostMapping("/progress-counters/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildProgressCounters(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        logger.info("ETAMIN (User ID: {}) rebuilding goal progress counters from {} to {}.", currentUser.userId(), from, to);
+        int months = goalProgressCounterService.rebuild(from, to);
+        return ResponseEntity.ok(Map.of("monthsRebuilt", months, "from", from.toString(), "to", to.toString()));
+    }
+
     @GetMapping("/calculator")
     public ResponseEntity<GoalCalculatorResponse> calculateGoal(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam BigDecimal targetRevenue,
             @RequestParam Optional<BigDecimal> avgClientRevenue,
             @RequestParam Optional<Long> avgRidesPerDriverPerMonth) {
 
-        logger.info("ETAMIN (User ID: {}) requesting goal calculation for target revenue {}.", getAuthenticatedUserId(), targetRevenue);
+        logger.info("ETAMIN (User ID: {}) requesting goal calculation for target revenue {}.", currentUser.userId(), targetRevenue);
 
         BigDecimal actualAvgClientRevenue = avgClientRevenue.orElse(MarketControlService.AVG_REVENUE_PER_CLIENT);
         Long actualAvgRidesPerDriverPerMonth = avgRidesPerDriverPerMonth.orElse(MarketControlService.AVG_RIDES_PER_DRIVER_PER_MONTH);
@@ -1,22 +1,43 @@
 package org.example.taxi.controller;
 
+import org.example.taxi.analytics.HeavyHitterStore.HitterKind;
+import org.example.taxi.analytics.HeavyHitterStore.TopWindow;
+import org.example.taxi.analytics.OrderFactStore.Dimension;
+import org.example.taxi.analytics.SeriesDownsampler;
+import org.example.taxi.config.AuthenticatedUser;
+import org.example.taxi.controller.dto.ActiveUsersPoint;
 import org.example.taxi.controller.dto.ChartDataPoint;
+import org.example.taxi.controller.dto.DemandHeatmapCell;
 import org.example.taxi.controller.dto.GoalCalculatorResponse;
-import org.example.taxi.repository.UserRepository;
+import org.example.taxi.controller.dto.LiveKpiSnapshot;
+import org.example.taxi.controller.dto.OdMatrixCell;
+import org.example.taxi.controller.dto.OrderFunnelRow;
+import org.example.taxi.controller.dto.OrderSliceRow;
+import org.example.taxi.controller.dto.TopItemsResponse;
+import org.example.taxi.entity.Client.ClientOrderSource;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.service.LiveKpiStreamService;
 import org.example.taxi.service.MarketControlService;
+import org.example.taxi.service.MarketControlService.ActivityCountMode;
+import org.example.taxi.service.MarketControlService.ActivityPeriod;
+import org.example.taxi.service.MarketControlService.QuantileGroupBy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/etamin/market-control")
@@ -25,68 +46,163 @@ public class MarketControlController {
     private static final Logger logger = LoggerFactory.getLogger(MarketControlController.class);
 
     @Autowired private MarketControlService marketControlService;
-    @Autowired private UserRepository userRepository;
-
-    private Long getAuthenticatedUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new org.springframework.web.server.ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "User not authenticated.");
-        }
-        String phoneNumber = authentication.getName(); // JWT sets phoneNumber as the principal
-        return userRepository.findByPhoneNumber(phoneNumber)
-                .map(org.example.taxi.entity.User::getId)
-                .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(org.springframework.http.HttpStatus.UNAUTHORIZED, "Authenticated user not found in database."));
-    }
+    @Autowired private LiveKpiStreamService liveKpiStreamService;
 
     // --- Market Control Specific Analytics (ETAMIN) ---
 
     @GetMapping("/daily-active-drivers")
     public ResponseEntity<List<ChartDataPoint>> getDailyActiveDrivers(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        logger.info("ETAMIN (User ID: {}) requesting daily active drivers from {} to {}.", getAuthenticatedUserId(), start, end);
-        return ResponseEntity.ok(marketControlService.getDailyActiveDrivers(start, end));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("ETAMIN (User ID: {}) requesting daily active drivers from {} to {}.", currentUser.userId(), start, end);
+        return ResponseEntity.ok(marketControlService.getDailyActiveDrivers(start, end, maxPoints, downsample));
     }
 
     @GetMapping("/daily-new-clients-by-source")
     public ResponseEntity<List<Map<String, Object>>> getDailyNewClientsBySource(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        logger.info("ETAMIN (User ID: {}) requesting daily new clients by source from {} to {}.", getAuthenticatedUserId(), start, end);
+        logger.info("ETAMIN (User ID: {}) requesting daily new clients by source from {} to {}.", currentUser.userId(), start, end);
         return ResponseEntity.ok(marketControlService.getDailyNewClientsBySource(start, end));
     }
 
     @GetMapping("/clients-by-district")
-    public ResponseEntity<List<ChartDataPoint>> getClientsByDistrictDistribution() {
-        logger.info("ETAMIN (User ID: {}) requesting clients by district distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getClientsByDistrictDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("ETAMIN (User ID: {}) requesting clients by district distribution.", currentUser.userId());
         return ResponseEntity.ok(marketControlService.getClientsByDistrictDistribution());
     }
 
     @GetMapping("/order-status-distribution")
-    public ResponseEntity<List<ChartDataPoint>> getOrderStatusDistribution() {
-        logger.info("ETAMIN (User ID: {}) requesting order status distribution.", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getOrderStatusDistribution(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("ETAMIN (User ID: {}) requesting order status distribution.", currentUser.userId());
         return ResponseEntity.ok(marketControlService.getOrderStatusDistribution());
     }
 
     @GetMapping("/daily-new-clients")
     public ResponseEntity<List<ChartDataPoint>> getDailyNewClients(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        logger.info("ETAMIN (User ID: {}) requesting daily new clients from {} to {}.", getAuthenticatedUserId(), start, end);
-        return ResponseEntity.ok(marketControlService.getDailyNewClients(start, end));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam Optional<Integer> maxPoints,
+            @RequestParam(defaultValue = "AUTO") SeriesDownsampler.Mode downsample) {
+        logger.info("ETAMIN (User ID: {}) requesting daily new clients from {} to {}.", currentUser.userId(), start, end);
+        return ResponseEntity.ok(marketControlService.getDailyNewClients(start, end, maxPoints, downsample));
     }
 
     @GetMapping("/clients-by-order-source")
     public ResponseEntity<List<ChartDataPoint>> getClientsByOrderSource(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        logger.info("ETAMIN (User ID: {}) requesting clients by order source from {} to {}.", getAuthenticatedUserId(), start, end);
+        logger.info("ETAMIN (User ID: {}) requesting clients by order source from {} to {}.", currentUser.userId(), start, end);
         return ResponseEntity.ok(marketControlService.getClientsByOrderSource(start, end));
     }
 
     @GetMapping("/clients-by-order-source-all-time")
-    public ResponseEntity<List<ChartDataPoint>> getClientsByOrderSourceAllTime() {
-        logger.info("ETAMIN (User ID: {}) requesting clients by order source (all time).", getAuthenticatedUserId());
+    public ResponseEntity<List<ChartDataPoint>> getClientsByOrderSourceAllTime(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        logger.info("ETAMIN (User ID: {}) requesting clients by order source (all time).", currentUser.userId());
         return ResponseEntity.ok(marketControlService.getClientsByOrderSourceAllTime());
     }
-}
\ No newline at end of file
+
+    @GetMapping("/order-slices")
+    public ResponseEntity<List<OrderSliceRow>> getOrderSlices(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam Dimension groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Set<OrderStatus> statuses,
+            @RequestParam(required = false) Set<OrderType> orderTypes,
+            @RequestParam(required = false) Long fromDistrictId,
+            @RequestParam(required = false) Long toDistrictId,
+            @RequestParam(required = false) ClientOrderSource source) {
+        logger.info("ETAMIN (User ID: {}) requesting order slices grouped by {}.", currentUser.userId(), groupBy);
+        return ResponseEntity.ok(marketControlService.sliceOrders(groupBy, startDate, endDate, statuses, orderTypes,
+                fromDistrictId, toDistrictId, source));
+    }
+
+    @GetMapping("/active-users")
+    public ResponseEntity<List<ActiveUsersPoint>> getActiveUsers(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "DAY") ActivityPeriod period,
+            @RequestParam(defaultValue = "AUTO") ActivityCountMode mode) {
+        logger.info("ETAMIN (User ID: {}) requesting {} active users from {} to {} ({}).", currentUser.userId(), period, startDate, endDate, mode);
+        return ResponseEntity.ok(marketControlService.getActiveUsers(startDate, endDate, period, mode));
+    }
+
+    @GetMapping("/od-matrix")
+    public ResponseEntity<List<OdMatrixCell>> getOdMatrix(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long fromDistrictId,
+            @RequestParam(required = false) Long toDistrictId,
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.info("ETAMIN (User ID: {}) requesting OD matrix from {} to {}.", currentUser.userId(), startDate, endDate);
+        return ResponseEntity.ok(marketControlService.getOdMatrix(startDate, endDate, fromDistrictId, toDistrictId, limit));
+    }
+
+    @GetMapping("/demand-heatmap")
+    public ResponseEntity<List<DemandHeatmapCell>> getDemandHeatmap(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long fromDistrictId,
+            @RequestParam(required = false) Long toDistrictId) {
+        logger.info("ETAMIN (User ID: {}) requesting demand heatmap from {} to {}.", currentUser.userId(), startDate, endDate);
+        return ResponseEntity.ok(marketControlService.getDemandHeatmap(startDate, endDate, fromDistrictId, toDistrictId));
+    }
+
+    @GetMapping("/funnel")
+    public ResponseEntity<List<OrderFunnelRow>> getOrderFunnel(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long districtId,
+            @RequestParam(required = false) OrderType orderType,
+            @RequestParam(defaultValue = "NONE") QuantileGroupBy groupBy) {
+        logger.info("ETAMIN (User ID: {}) requesting order funnel from {} to {} grouped by {}.", currentUser.userId(), startDate, endDate, groupBy);
+        return ResponseEntity.ok(marketControlService.getOrderFunnel(startDate, endDate, districtId, orderType, groupBy));
+    }
+
+    @GetMapping("/top-routes")
+    public ResponseEntity<TopItemsResponse> getTopRoutes(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "TODAY") TopWindow window,
+            @RequestParam(required = false) Long regionId,
+            @RequestParam(defaultValue = "20") int limit) {
+        logger.info("ETAMIN (User ID: {}) requesting top routes ({}, region: {}).", currentUser.userId(), window, regionId);
+        return ResponseEntity.ok(marketControlService.getTopItems(HitterKind.ROUTE, window, regionId, limit));
+    }
+
+    @GetMapping("/top-locations")
+    public ResponseEntity<TopItemsResponse> getTopLocations(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = "PICKUP_LOCATION") HitterKind kind,
+            @RequestParam(defaultValue = "TODAY") TopWindow window,
+            @RequestParam(required = false) Long regionId,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (kind == HitterKind.ROUTE) {
+            throw new org.springframework.web.server.ResponseStatusException(org.springframework.http.HttpStatus.BAD_REQUEST, "Use /top-routes for routes.");
+        }
+        logger.info("ETAMIN (User ID: {}) requesting top {} ({}, region: {}).", currentUser.userId(), kind, window, regionId);
+        return ResponseEntity.ok(marketControlService.getTopItems(kind, window, regionId, limit));
+    }
+
+    @GetMapping("/live-kpis")
+    public ResponseEntity<LiveKpiSnapshot> getLiveKpis(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam(required = false) Long regionId) {
+        logger.info("ETAMIN (User ID: {}) requesting live KPIs (region: {}).", currentUser.userId(), regionId);
+        return ResponseEntity.ok(marketControlService.getLiveKpis(regionId));
+    }
+
+    @GetMapping(value = "/live-kpis/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveKpis(@AuthenticationPrincipal AuthenticatedUser currentUser, @RequestParam(required = false) Long regionId) {
+        logger.info("ETAMIN (User ID: {}) subscribing to live KPIs (region: {}).", currentUser.userId(), regionId);
+        return liveKpiStreamService.subscribe(regionId);
+    }
+}
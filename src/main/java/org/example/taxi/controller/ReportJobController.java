@@ -0,0 +1,92 @@
+package org.example.taxi.controller;
+
+import jakarta.validation.Valid;
+import org.example.taxi.config.AuthenticatedUser;
+import org.example.taxi.controller.dto.ReportJobRequest;
+import org.example.taxi.controller.dto.ReportJobResponse;
+import org.example.taxi.report.ReportJob;
+import org.example.taxi.report.ReportJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Background report jobs: submit, poll, then download the result once the job has succeeded.
+ */
+@RestController
+@RequestMapping("/api/analytics/report-jobs")
+public class ReportJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobController.class);
+
+    @Autowired private ReportJobService reportJobService;
+
+    @PostMapping
+    public ResponseEntity<ReportJobResponse> submitJob(@AuthenticationPrincipal AuthenticatedUser currentUser, @Valid @RequestBody ReportJobRequest request) {
+        logger.info("User (ID: {}) submitting {} report job with parameters {}.", currentUser.userId(), request.getType(), request.getParameters());
+        ReportJob job = reportJobService.submit(request.getType(), request.getParameters());
+        return ResponseEntity.status(job.isFinished() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(toResponse(job));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ReportJobResponse> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(toResponse(reportJobService.getJob(jobId)));
+    }
+
+    /**
+     * Sends the stored gzip file as-is to clients that accept gzip and decompresses it on the fly otherwise.
+     */
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getResult(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable String jobId,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.info("User (ID: {}) downloading result of report job {}.", currentUser.userId(), jobId);
+        Path result = reportJobService.getResult(jobId);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(new FileSystemResource(result));
+        }
+        StreamingResponseBody body = out -> {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(result), 64 * 1024)) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(body);
+    }
+
+    private ReportJobResponse toResponse(ReportJob job) {
+        return ReportJobResponse.builder()
+                .jobId(job.getId())
+                .type(job.getType())
+                .parameters(job.getParameters())
+                .status(job.getStatus())
+                .queuePosition(reportJobService.queuePosition(job))
+                .phase(job.getPhase())
+                .rowsProcessed(job.getRowsProcessed())
+                .reusedResult(job.isReusedResult())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .error(job.getError())
+                .resultUrl(job.getStatus() == ReportJob.Status.SUCCEEDED ? "/api/analytics/report-jobs/" + job.getId() + "/result" : null)
+                .build();
+    }
+}
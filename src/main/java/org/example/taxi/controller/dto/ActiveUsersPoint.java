@@ -0,0 +1,17 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class ActiveUsersPoint {
+    private LocalDate periodStart; // First day of the day/week/month bucket (clipped to the requested range)
+    private LocalDate periodEnd; // Last day of the bucket, inclusive
+    private long activeDrivers;
+    private long activeClients;
+    private boolean exact; // false when estimated from HyperLogLog sketches
+    private double relativeStandardError; // 0 for exact counts, ~0.016 for sketch estimates
+}
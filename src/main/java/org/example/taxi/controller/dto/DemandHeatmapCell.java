@@ -0,0 +1,17 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.DayOfWeek;
+
+@Data
+@Builder
+public class DemandHeatmapCell {
+    private DayOfWeek dayOfWeek;
+    private int hour; // 0-23
+    private long orders;
+    private long seats;
+    private double fillRatio;
+    private double cancellationRate;
+}
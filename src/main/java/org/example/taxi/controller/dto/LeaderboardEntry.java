@@ -0,0 +1,17 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LeaderboardEntry {
+    private int rank; // 1-based
+    private Long driverId;
+    private String firstName;
+    private String lastName;
+    private String phoneNumber;
+    private String districtName;
+    private Number value; // Rating, completed rides or net earnings (UZS), depending on the metric
+    private int boardSize; // Number of drivers on the board
+}
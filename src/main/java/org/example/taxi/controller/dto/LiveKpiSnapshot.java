@@ -0,0 +1,35 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class LiveKpiSnapshot {
+    private LocalDateTime asOf;
+    private RegionKpis total; // All regions combined
+    private List<RegionKpis> regions; // Sorted by open pending orders, busiest first
+
+    @Data
+    @Builder
+    public static class RegionKpis {
+        private Long regionId; // null for the total; -1 for orders without a mapped origin district
+        private String regionName;
+        private long openPending; // Orders currently waiting for a driver
+        private List<WindowKpis> windows;
+    }
+
+    @Data
+    @Builder
+    public static class WindowKpis {
+        private int minutes; // Window length, ending with the current minute
+        private long ordersCreated;
+        private double ordersPerMinute;
+        private long accepts;
+        private double acceptsPerMinute;
+        private Double avgTimeToAcceptSeconds; // null when nothing was accepted in the window
+    }
+}
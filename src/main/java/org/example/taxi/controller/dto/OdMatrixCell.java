@@ -0,0 +1,19 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OdMatrixCell {
+    private Long fromDistrictId;
+    private String fromDistrictName;
+    private Long toDistrictId;
+    private String toDistrictName;
+    private long orders;
+    private long seats;
+    private long completedOrders;
+    private long canceledOrders;
+    private double fillRatio; // Booked seats / (passenger orders * 4)
+    private double cancellationRate; // Canceled / all orders
+}
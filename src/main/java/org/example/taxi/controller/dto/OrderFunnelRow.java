@@ -0,0 +1,38 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+@Data
+@Builder
+public class OrderFunnelRow {
+    private Long districtId; // Set when grouped by district
+    private String districtName;
+    private OrderType orderType; // Set when grouped by order type
+
+    private long created;
+    private long accepted;
+    private long enRoute;
+    private long completed;
+    private long canceledPending; // Dropped before a driver accepted
+    private long canceledAccepted; // Dropped after acceptance, before pickup
+    private long canceledEnRoute; // Dropped during the ride
+
+    private double acceptRate; // accepted / created
+    private double pickupRate; // enRoute / accepted
+    private double completionRate; // completed / created
+
+    private LatencySummary timeToAcceptSeconds;
+    private LatencySummary acceptToEnRouteMinutes;
+    private LatencySummary rideDurationMinutes;
+
+    @Data
+    @Builder
+    public static class LatencySummary {
+        private long count;
+        private Double p50; // null when there are no values
+        private Double p90;
+        private Double p99;
+    }
+}
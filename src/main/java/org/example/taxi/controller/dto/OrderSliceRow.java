@@ -0,0 +1,16 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class OrderSliceRow {
+    private String key; // e.g., "2025-06-01", "14", "Yunusabad -> Chilonzor", "LUGGAGE"
+    private long orders;
+    private long seats;
+    private BigDecimal appEarnings; // Total app fees, UZS
+    private BigDecimal companyRevenue; // Company's share, UZS
+}
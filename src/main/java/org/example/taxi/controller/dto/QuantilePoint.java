@@ -0,0 +1,23 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class QuantilePoint {
+    private LocalDate periodStart; // First day of the bucket (clipped to the requested range)
+    private LocalDate periodEnd; // Last day of the bucket, inclusive
+    private Long districtId; // Set when grouped by district
+    private String districtName;
+    private OrderType orderType; // Set when grouped by order type
+    private long count;
+    private Double p50; // null when the bucket has no values
+    private Double p90;
+    private Double p99;
+    private Double min;
+    private Double max;
+}
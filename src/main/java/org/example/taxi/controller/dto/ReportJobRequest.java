@@ -0,0 +1,15 @@
+package org.example.taxi.controller.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.example.taxi.report.ReportType;
+
+import java.util.Map;
+
+@Data
+public class ReportJobRequest {
+    @NotNull(message = "Report type is required.")
+    private ReportType type;
+
+    private Map<String, String> parameters; // e.g. {"days": "90"} for the daily series
+}
@@ -0,0 +1,27 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import org.example.taxi.report.ReportJob;
+import org.example.taxi.report.ReportType;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+public class ReportJobResponse {
+    private String jobId;
+    private ReportType type;
+    private Map<String, String> parameters;
+    private ReportJob.Status status;
+    private Integer queuePosition; // While QUEUED: 1 = next to start
+    private ReportJob.Phase phase; // While RUNNING: COMPUTING, then WRITING the result
+    private long rowsProcessed; // Source rows processed by the computation so far
+    private boolean reusedResult; // Answered from a fresh stored result without recomputing
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private String resultUrl; // Set once the job has succeeded
+}
@@ -0,0 +1,32 @@
+package org.example.taxi.controller.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import org.example.taxi.analytics.HeavyHitterStore.HitterKind;
+import org.example.taxi.analytics.HeavyHitterStore.TopWindow;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TopItemsResponse {
+    private HitterKind kind;
+    private TopWindow window;
+    private Long regionId; // null for all regions
+    private long totalOrders; // Orders counted in the window (with a route or location of this kind)
+    private long maxUnlistedCount; // Upper bound on the count of any item not listed
+    private List<TopItem> items;
+
+    @Data
+    @Builder
+    public static class TopItem {
+        private int rank;
+        private Long fromDistrictId; // Routes only
+        private String fromDistrictName;
+        private Long toDistrictId;
+        private String toDistrictName;
+        private String location; // Locations only, normalized (lower case, single spaces)
+        private long count; // Estimated; the true count lies in [count - maxError, count]
+        private long maxError;
+    }
+}
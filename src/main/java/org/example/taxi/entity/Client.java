@@ -8,6 +8,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_client_created_at", columnList = "createdAt"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Client {
@@ -0,0 +1,34 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily rollup of distinct active drivers and clients, stored as serialized HyperLogLog registers.
+ * Active means at least one completed order picked up on that day.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyActivitySketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private byte[] driverSketch;
+
+    @Column(nullable = false)
+    private byte[] clientSketch;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,46 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Funnel counters of the orders booked on one day from one origin district with one order type:
+ * how many reached each stage and at which stage the canceled ones were dropped.
+ */
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_daily_order_funnel_cell",
+        columnNames = {"day", "districtId", "orderType"}))
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyOrderFunnel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private Long districtId; // -1 when the order has no origin district
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderType orderType;
+
+    private long created;
+    private long accepted;
+    private long enRoute;
+    private long completed;
+    private long canceledPending; // Canceled before a driver accepted
+    private long canceledAccepted; // Canceled after acceptance, before pickup
+    private long canceledEnRoute; // Canceled during the ride
+
+    private LocalDateTime updatedAt;
+}
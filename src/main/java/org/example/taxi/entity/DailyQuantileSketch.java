@@ -0,0 +1,47 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.taxi.analytics.QuantileSketchStore.QuantileMetric;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized t-digest of one order metric for one (booking day, origin district, order type) cell.
+ */
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_daily_quantile_sketch_cell",
+        columnNames = {"day", "districtId", "orderType", "metric"}))
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyQuantileSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private Long districtId; // -1 when the order has no origin district
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderType orderType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private QuantileMetric metric;
+
+    @Column(nullable = false)
+    private byte[] digest;
+
+    private long valueCount;
+
+    private LocalDateTime updatedAt;
+}
@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_driver_created_at", columnList = "createdAt"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Driver {
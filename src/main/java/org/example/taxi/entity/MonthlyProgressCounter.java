@@ -0,0 +1,39 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Running totals used for goal progression, one row per calendar month.
+ * Incremented in the same transaction as client/driver registration and order completion;
+ * can be recomputed from source tables with GoalProgressCounterService#rebuild.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyProgressCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private LocalDate monthStart; // First day of the month
+
+    @Column(nullable = false)
+    private long newClients;
+
+    @Column(nullable = false)
+    private long newDrivers;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal companyRevenue = BigDecimal.ZERO;
+
+    private LocalDateTime updatedAt;
+}
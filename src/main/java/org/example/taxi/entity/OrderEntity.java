@@ -44,6 +44,15 @@ public class OrderEntity {
 
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Lifecycle timestamps, stamped by OrderService.changeStatus; null until the order reaches that status
+    private LocalDateTime acceptedAt;
+    private LocalDateTime enRouteAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime canceledAt;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatusTransition.ActorType canceledBy;
+
     public enum OrderType {
         REGULAR,
         WOMEN_DRIVER,
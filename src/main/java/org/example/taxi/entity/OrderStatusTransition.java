@@ -0,0 +1,50 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * One status change of an order, appended by OrderService in the same transaction as the change itself.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(name = "idx_order_status_transition_order", columnList = "orderId"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTransition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus toStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ActorType actorType;
+
+    private Long actorId; // User ID of the driver, operator or admin who made the change; null for the system
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    public enum ActorType {
+        CLIENT,
+        DRIVER,
+        OPERATOR,
+        ADMIN,
+        SYSTEM
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.taxi.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A revoked token, or with no {@code tokenId} every token of the user issued up to {@code revokedAt}. Rows are only
+ * needed until the tokens they cover have expired and are then deleted.
+ */
+@Data
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_token_revocation_revoked_at", columnList = "revokedAt"),
+        @Index(name = "idx_token_revocation_user", columnList = "userId")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(unique = true)
+    private String tokenId; // jti of a single revoked token; null revokes all of the user's tokens
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
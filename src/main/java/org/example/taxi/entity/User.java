@@ -8,10 +8,19 @@ import java.time.LocalDateTime; // Added for User createdAt
 
 @Data
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at", columnList = "createdAt"),
+        @Index(name = "idx_users_updated_at", columnList = "updatedAt")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
+    /**
+     * Stored in place of a hash for guest clients created by operators. It never matches a password; the account is
+     * activated when the client registers or resets the password through the bot.
+     */
+    public static final String UNUSABLE_PASSWORD = "!guest";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -19,7 +28,7 @@ public class User {
     private String phoneNumber;
     @Column(nullable = false)
     private String password;
-    private Long chatId;
+    private Long chatId; // One user per Telegram chat: unique index created by ChatIdUniqueIndexMigration
 
     @Column(nullable = true)
     private String firstName;
@@ -31,6 +40,7 @@ public class User {
     private UserType userType;
 
     private LocalDateTime createdAt = LocalDateTime.now(); // Ensure createdAt is present for analytics
+    private LocalDateTime updatedAt = LocalDateTime.now(); // Moves on every change; UserExistenceFilter syncs on it
 
     public enum UserType {
         CLIENT,
@@ -39,4 +49,13 @@ public class User {
         ADMIN,
         ETAMIN // NEW
     }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public boolean hasUsablePassword() {
+        return password != null && !UNUSABLE_PASSWORD.equals(password);
+    }
 }
\ No newline at end of file
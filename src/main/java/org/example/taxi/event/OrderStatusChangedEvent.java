@@ -0,0 +1,56 @@
+package org.example.taxi.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by OrderService whenever an order is created or changes status.
+ * In-memory analytics listen to it after commit, so they only ever see persisted state.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+    private final OrderEntity order;
+    private final OrderStatus previousStatus; // null when the order has just been created
+    private final OrderStatus furthestReached; // furthest of PENDING..COMPLETED reached before the change; null on creation
+    private final LocalDateTime occurredAt;
+
+    public OrderStatus getNewStatus() {
+        return order.getStatus();
+    }
+
+    public boolean isCreation() {
+        return previousStatus == null;
+    }
+
+    /**
+     * @return Whether the order reached the new stage for the first time, i.e. it is not a cancellation and not a
+     * return to a stage the order had already been at (e.g. accepted again after an operator reset it to PENDING).
+     */
+    public boolean isFirstReach() {
+        return getNewStatus() != OrderStatus.CANCELED
+                && (furthestReached == null || getNewStatus().ordinal() > furthestReached.ordinal());
+    }
+
+    /**
+     * @return The furthest of PENDING..COMPLETED an order in {@code status} with these lifecycle timestamps has
+     * reached. Stages skipped by an operator or admin carry no timestamp and count as reached by the later ones.
+     */
+    public static OrderStatus furthestReached(OrderStatus status, LocalDateTime acceptedAt, LocalDateTime enRouteAt, LocalDateTime completedAt) {
+        OrderStatus furthest = status == null || status == OrderStatus.CANCELED ? OrderStatus.PENDING : status;
+        if (completedAt != null) {
+            return OrderStatus.COMPLETED;
+        }
+        if (enRouteAt != null && furthest.ordinal() < OrderStatus.EN_ROUTE.ordinal()) {
+            return OrderStatus.EN_ROUTE;
+        }
+        if (acceptedAt != null && furthest.ordinal() < OrderStatus.ACCEPTED.ordinal()) {
+            return OrderStatus.ACCEPTED;
+        }
+        return furthest;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.taxi.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a user's password hash changes (a reset, or a rehash at login).
+ * UserDetailsCache evicts the user after commit, so a login in between cannot cache the old hash again.
+ */
+@Getter
+@AllArgsConstructor
+public class UserCredentialsChangedEvent {
+    private final Long userId;
+    private final String phoneNumber;
+}
@@ -0,0 +1,73 @@
+package org.example.taxi.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV: values containing a comma, quote or line break are quoted, quotes are doubled.
+ */
+public class CsvExportRowWriter implements ExportRowWriter {
+
+    private final Writer writer;
+
+    public CsvExportRowWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void writeHeader(String[] columns) throws IOException {
+        writeRow(columns);
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value != null) {
+                writeEscaped(value.toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        boolean needsQuoting = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuoting = true;
+                break;
+            }
+        }
+        if (!needsQuoting) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
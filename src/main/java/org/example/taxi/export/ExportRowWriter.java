@@ -0,0 +1,29 @@
+package org.example.taxi.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes one export row at a time to an output stream. Implementations buffer internally and never hold
+ * more than the current row, so exports run in constant memory regardless of row count.
+ */
+public interface ExportRowWriter extends AutoCloseable {
+
+    void writeHeader(String[] columns) throws IOException;
+
+    void writeRow(Object[] values) throws IOException;
+
+    void flush() throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    static ExportRowWriter create(ExportFormat format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvExportRowWriter(out);
+            case NDJSON -> new NdjsonExportRowWriter(out, objectMapper);
+        };
+    }
+}
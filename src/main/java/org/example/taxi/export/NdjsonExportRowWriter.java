@@ -0,0 +1,51 @@
+package org.example.taxi.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Newline-delimited JSON: one object per row, keyed by the header columns.
+ * Values are serialized with the application's ObjectMapper, so dates match the REST API.
+ */
+public class NdjsonExportRowWriter implements ExportRowWriter {
+
+    private final JsonGenerator generator;
+    private String[] columns;
+
+    public NdjsonExportRowWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // Root values are separated by the pretty printer; "\n" gives one JSON document per line.
+        this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    }
+
+    @Override
+    public void writeHeader(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            generator.writeFieldName(columns[i]);
+            generator.writeObject(values[i]);
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.writeRaw('\n');
+        generator.close();
+    }
+}
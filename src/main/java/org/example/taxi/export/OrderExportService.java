@@ -0,0 +1,230 @@
+package org.example.taxi.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.example.taxi.controller.dto.OrderFilterRequest;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.util.AppFees;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders, completed-order fees and per-driver earnings straight from a forward-only JDBC cursor
+ * to an output stream. Each query selects scalar columns with all joins done in SQL, so nothing is put in
+ * the persistence context and memory stays flat regardless of row count.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final int FETCH_SIZE = 2000;
+    private static final int FLUSH_EVERY_ROWS = 5000;
+
+
+    private static final String ORDER_JOINS =
+            "FROM OrderEntity o " +
+            "LEFT JOIN User cu ON cu.id = o.userId " +
+            "LEFT JOIN Driver d ON d.id = o.driverId " +
+            "LEFT JOIN d.user du " +
+            "LEFT JOIN District fd ON fd.id = o.fromDistrictId " +
+            "LEFT JOIN District td ON td.id = o.toDistrictId ";
+
+    private static final String[] ORDER_COLUMNS = {
+            "id", "createdAt", "pickupTime", "status", "orderType", "seats", "totalCost",
+            "clientUserId", "clientPhoneNumber", "clientFirstName", "clientLastName",
+            "driverId", "driverPhoneNumber", "driverFirstName", "driverLastName",
+            "fromDistrictId", "fromDistrictName", "fromLocation", "toDistrictId", "toDistrictName", "toLocation",
+            "luggageContactInfo", "extraInfo"
+    };
+
+    private static final String[] FEE_COLUMNS = {
+            "orderId", "createdAt", "pickupTime", "driverId", "orderType", "seats", "totalCost",
+            "appPassengerFee", "appLuggageFee", "appFee", "companyRevenue", "driverNetEarnings"
+    };
+
+    private static final String[] DRIVER_EARNINGS_COLUMNS = {
+            "driverId", "driverPhoneNumber", "driverFirstName", "driverLastName", "completedOrders", "seats",
+            "totalCost", "appFee", "companyRevenue", "driverNetEarnings"
+    };
+
+    @PersistenceContext private EntityManager entityManager;
+    @Autowired private ObjectMapper objectMapper;
+
+    /**
+     * Exports every order matching the filter, enriched with client, driver and district names.
+     * @return Number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(OrderFilterRequest filter, ExportFormat format, OutputStream out) throws IOException {
+        String select = "SELECT o.id, o.createdAt, o.pickupTime, o.status, o.orderType, o.seats, o.totalCost, " +
+                "o.userId, cu.phoneNumber, cu.firstName, cu.lastName, " +
+                "o.driverId, du.phoneNumber, d.firstName, d.lastName, " +
+                "o.fromDistrictId, fd.name, o.fromLocation, o.toDistrictId, td.name, o.toLocation, " +
+                "o.luggageContactInfo, o.extraInfo ";
+        return export("orders", select, filter, null, "ORDER BY o.id", ORDER_COLUMNS, format, out, tuple -> {
+            Object[] row = new Object[ORDER_COLUMNS.length];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = tuple.get(i);
+            }
+            return row;
+        });
+    }
+
+    /**
+     * Exports the fee breakdown of every completed order matching the filter (the status filter is ignored).
+     * @return Number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long exportCompletedOrderFees(OrderFilterRequest filter, ExportFormat format, OutputStream out) throws IOException {
+        String select = "SELECT o.id, o.createdAt, o.pickupTime, o.driverId, o.orderType, o.seats, o.totalCost ";
+        return export("fees", select, withCompletedOnly(filter), null, "ORDER BY o.id", FEE_COLUMNS, format, out, tuple -> {
+            OrderType orderType = tuple.get(4, OrderType.class);
+            int seats = tuple.get(5, Integer.class);
+            BigDecimal totalCost = tuple.get(6, BigDecimal.class);
+            BigDecimal passengerFee = AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(seats));
+            BigDecimal luggageFee = orderType == OrderType.LUGGAGE ? AppFees.LUGGAGE : BigDecimal.ZERO;
+            BigDecimal appFee = passengerFee.add(luggageFee);
+            BigDecimal companyRevenue = passengerFee.multiply(AppFees.COMPANY_PASSENGER_SHARE)
+                    .add(luggageFee.multiply(AppFees.COMPANY_LUGGAGE_SHARE));
+            return new Object[]{
+                    tuple.get(0), tuple.get(1), tuple.get(2), tuple.get(3), orderType, seats, totalCost,
+                    passengerFee, luggageFee, appFee, companyRevenue,
+                    totalCost != null ? totalCost.subtract(appFee) : null
+            };
+        });
+    }
+
+    /**
+     * Exports completed-order earnings aggregated per driver, one row per driver.
+     * @return Number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long exportDriverEarnings(OrderFilterRequest filter, ExportFormat format, OutputStream out) throws IOException {
+        String select = "SELECT o.driverId, du.phoneNumber, d.firstName, d.lastName, COUNT(o), COALESCE(SUM(o.seats), 0), " +
+                "COALESCE(SUM(o.totalCost), 0), SUM(CASE WHEN o.orderType = :luggageType THEN 1 ELSE 0 END) ";
+        String groupBy = "GROUP BY o.driverId, du.phoneNumber, d.firstName, d.lastName ";
+        Map<String, Object> extraParams = Map.of("luggageType", OrderType.LUGGAGE);
+        return export("driver-earnings", select, withCompletedOnly(filter), extraParams, groupBy + "ORDER BY o.driverId",
+                DRIVER_EARNINGS_COLUMNS, format, out, tuple -> {
+                    long seats = ((Number) tuple.get(5)).longValue();
+                    BigDecimal totalCost = tuple.get(6, BigDecimal.class);
+                    long luggageOrders = ((Number) tuple.get(7)).longValue();
+                    BigDecimal passengerFee = AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(seats));
+                    BigDecimal luggageFee = AppFees.LUGGAGE.multiply(BigDecimal.valueOf(luggageOrders));
+                    BigDecimal appFee = passengerFee.add(luggageFee);
+                    BigDecimal companyRevenue = passengerFee.multiply(AppFees.COMPANY_PASSENGER_SHARE)
+                            .add(luggageFee.multiply(AppFees.COMPANY_LUGGAGE_SHARE));
+                    return new Object[]{
+                            tuple.get(0), tuple.get(1), tuple.get(2), tuple.get(3), tuple.get(4), seats,
+                            totalCost, appFee, companyRevenue, totalCost.subtract(appFee)
+                    };
+                });
+    }
+
+    private interface RowMapper {
+        Object[] map(Tuple tuple);
+    }
+
+    private long export(String name, String select, OrderFilterRequest filter, Map<String, Object> extraParams, String tail,
+                        String[] columns, ExportFormat format, OutputStream out, RowMapper mapper) throws IOException {
+        Map<String, Object> params = new HashMap<>();
+        if (extraParams != null) {
+            params.putAll(extraParams);
+        }
+        String jpql = select + ORDER_JOINS + buildWhereClause(filter, params) + tail;
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        params.forEach(query::setParameter);
+
+        long startedAt = System.nanoTime();
+        long rows = 0;
+        try (ExportRowWriter writer = ExportRowWriter.create(format, out, objectMapper);
+             Stream<Tuple> results = query.getResultStream()) {
+            writer.writeHeader(columns);
+            Iterator<Tuple> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                writer.writeRow(mapper.map(iterator.next()));
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        logger.info("Exported {} {} rows as {} in {} ms.", rows, name, format, (System.nanoTime() - startedAt) / 1_000_000);
+        return rows;
+    }
+
+    private static String buildWhereClause(OrderFilterRequest filter, Map<String, Object> params) {
+        List<String> predicates = new ArrayList<>();
+        if (filter.getStatuses() != null && !filter.getStatuses().isEmpty()) {
+            predicates.add("o.status IN :statuses");
+            params.put("statuses", filter.getStatuses());
+        }
+        if (filter.getClientId() != null) {
+            predicates.add("o.userId = :clientId");
+            params.put("clientId", filter.getClientId());
+        }
+        if (filter.getDriverId() != null) {
+            predicates.add("o.driverId = :driverId");
+            params.put("driverId", filter.getDriverId());
+        }
+        if (filter.getFromDistrictId() != null) {
+            predicates.add("o.fromDistrictId = :fromDistrictId");
+            params.put("fromDistrictId", filter.getFromDistrictId());
+        }
+        if (filter.getToDistrictId() != null) {
+            predicates.add("o.toDistrictId = :toDistrictId");
+            params.put("toDistrictId", filter.getToDistrictId());
+        }
+        if (filter.getPickupTimeStart() != null) {
+            predicates.add("o.pickupTime >= :pickupTimeStart");
+            params.put("pickupTimeStart", filter.getPickupTimeStart());
+        }
+        if (filter.getPickupTimeEnd() != null) {
+            predicates.add("o.pickupTime <= :pickupTimeEnd");
+            params.put("pickupTimeEnd", filter.getPickupTimeEnd());
+        }
+        if (filter.getClientPhoneNumber() != null && !filter.getClientPhoneNumber().isBlank()) {
+            predicates.add("cu.phoneNumber = :clientPhoneNumber");
+            params.put("clientPhoneNumber", filter.getClientPhoneNumber());
+        }
+        if (filter.getDriverPhoneNumber() != null && !filter.getDriverPhoneNumber().isBlank()) {
+            predicates.add("du.phoneNumber = :driverPhoneNumber");
+            params.put("driverPhoneNumber", filter.getDriverPhoneNumber());
+        }
+        return predicates.isEmpty() ? "" : "WHERE " + String.join(" AND ", predicates) + " ";
+    }
+
+    private static OrderFilterRequest withCompletedOnly(OrderFilterRequest filter) {
+        OrderFilterRequest copy = new OrderFilterRequest();
+        copy.setStatuses(List.of(OrderStatus.COMPLETED));
+        copy.setClientId(filter.getClientId());
+        copy.setDriverId(filter.getDriverId());
+        copy.setFromDistrictId(filter.getFromDistrictId());
+        copy.setToDistrictId(filter.getToDistrictId());
+        copy.setPickupTimeStart(filter.getPickupTimeStart());
+        copy.setPickupTimeEnd(filter.getPickupTimeEnd());
+        copy.setClientPhoneNumber(filter.getClientPhoneNumber());
+        copy.setDriverPhoneNumber(filter.getDriverPhoneNumber());
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.taxi.report;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory state of one report job. The result itself lives in the {@link ReportResultStore}.
+ */
+@Getter
+public class ReportJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    /** What a running job is doing: computing the report, then writing the result to the store. */
+    public enum Phase { COMPUTING, WRITING }
+
+    private final String id;
+    private final ReportType type;
+    private final Map<String, String> parameters;
+    private final String resultKey;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    /** True when the job was answered from an existing result without computing anything. */
+    private final boolean reusedResult;
+
+    private volatile Status status;
+    private volatile Phase phase; // null unless RUNNING
+    /** Source rows the computation has processed so far. */
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    /** Submission order among queued jobs; see ReportJobService#queuePosition. */
+    private volatile long queueTicket;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    ReportJob(String id, ReportType type, Map<String, String> parameters, String resultKey, boolean reusedResult) {
+        this.id = id;
+        this.type = type;
+        this.parameters = parameters;
+        this.resultKey = resultKey;
+        this.reusedResult = reusedResult;
+        if (reusedResult) {
+            this.status = Status.SUCCEEDED;
+            this.finishedAt = createdAt;
+        } else {
+            this.status = Status.QUEUED;
+        }
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    AtomicLong rowsProcessedCounter() {
+        return rowsProcessed;
+    }
+
+    void queued(long ticket) {
+        queueTicket = ticket;
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        phase = Phase.COMPUTING;
+        status = Status.RUNNING;
+    }
+
+    void writing() {
+        phase = Phase.WRITING;
+    }
+
+    void succeeded() {
+        finishedAt = LocalDateTime.now();
+        status = Status.SUCCEEDED;
+        phase = null;
+    }
+
+    void failed(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+        phase = null;
+    }
+}
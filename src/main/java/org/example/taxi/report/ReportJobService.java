@@ -0,0 +1,217 @@
+package org.example.taxi.report;
+
+import jakarta.annotation.PreDestroy;
+import org.example.taxi.analytics.SeriesDownsampler;
+import org.example.taxi.config.workload.WorkloadClass;
+import org.example.taxi.config.workload.WorkloadContext;
+import org.example.taxi.service.AdminService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs slow reports in the background.
+ * <p>
+ * A submission first looks for a fresh stored result with the same type and parameters, then for an identical
+ * job that is still queued or running; only when neither exists is a new job queued on the bounded worker pool.
+ * <p>
+ * Progress: a queued job has a position in the queue, a running one counts the source rows it has processed
+ * ({@link ReportProgress}) and then moves to writing its result.
+ */
+@Service
+@EnableConfigurationProperties(ReportProperties.class)
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    private final AdminService adminService;
+    private final ReportResultStore resultStore;
+    private final ReportProperties properties;
+    private final ThreadPoolExecutor workers;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> activeJobsByResultKey = new ConcurrentHashMap<>();
+    /** Jobs waiting for a worker by queue ticket; the pool's queue is FIFO, so this is the order they start in. */
+    private final ConcurrentSkipListMap<Long, ReportJob> queuedJobs = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextQueueTicket = new AtomicLong();
+
+    @Autowired
+    public ReportJobService(AdminService adminService, ReportResultStore resultStore, ReportProperties properties) {
+        this.adminService = adminService;
+        this.resultStore = resultStore;
+        this.properties = properties;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "report-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public ReportJob submit(ReportType type, Map<String, String> requestParameters) {
+        SortedMap<String, String> parameters = normalizeParameters(type, requestParameters);
+        String resultKey = resultStore.key(type, parameters);
+
+        if (resultStore.findFresh(resultKey, properties.getFreshFor()).isPresent()) {
+            ReportJob job = register(new ReportJob(UUID.randomUUID().toString(), type, parameters, resultKey, true));
+            logger.info("Report job {} ({} {}) answered from stored result {}.", job.getId(), type, parameters, resultKey);
+            return job;
+        }
+
+        ReportJob[] created = new ReportJob[1];
+        ReportJob job = activeJobsByResultKey.computeIfAbsent(resultKey, key -> {
+            created[0] = new ReportJob(UUID.randomUUID().toString(), type, parameters, key, false);
+            return created[0];
+        });
+        if (created[0] == null) {
+            logger.info("Report job {} ({} {}) is already in progress; reusing it.", job.getId(), type, parameters);
+            return job;
+        }
+
+        register(job);
+        long ticket = nextQueueTicket.incrementAndGet();
+        job.queued(ticket);
+        queuedJobs.put(ticket, job);
+        try {
+            workers.execute(() -> WorkloadContext.run(WorkloadClass.ANALYTICS, () -> run(job)));
+        } catch (RejectedExecutionException e) {
+            queuedJobs.remove(ticket);
+            activeJobsByResultKey.remove(resultKey, job);
+            jobs.remove(job.getId());
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many report jobs queued. Please retry later.");
+        }
+        logger.info("Report job {} ({} {}) queued.", job.getId(), type, parameters);
+        return job;
+    }
+
+    public ReportJob getJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Report job not found with ID: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * @return 1 for the next job to start, 2 for the one after it, ...; null when the job is not queued.
+     */
+    public Integer queuePosition(ReportJob job) {
+        if (job.getStatus() != ReportJob.Status.QUEUED || !queuedJobs.containsKey(job.getQueueTicket())) {
+            return null;
+        }
+        return queuedJobs.headMap(job.getQueueTicket()).size() + 1; // bounded by app.reports.queue-capacity
+    }
+
+    /**
+     * @return The gzip-compressed JSON result of a succeeded job.
+     */
+    public Path getResult(String jobId) {
+        ReportJob job = getJob(jobId);
+        if (job.getStatus() != ReportJob.Status.SUCCEEDED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Report job " + jobId + " is " + job.getStatus() + ".");
+        }
+        Path path = resultStore.path(job.getResultKey());
+        if (!path.toFile().isFile()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "The result of report job " + jobId + " has been evicted. Please submit it again.");
+        }
+        return path;
+    }
+
+    private void run(ReportJob job) {
+        queuedJobs.remove(job.getQueueTicket());
+        job.started();
+        try {
+            Object result = ReportProgress.call(job.rowsProcessedCounter(), () -> compute(job.getType(), job.getParameters()));
+            job.writing();
+            resultStore.write(job.getResultKey(), result);
+            job.succeeded();
+            logger.info("Report job {} ({}) finished in {} ms ({} rows).", job.getId(), job.getType(),
+                    Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis(), job.getRowsProcessed());
+        } catch (Exception e) {
+            logger.error("Report job {} ({}) failed: {}", job.getId(), job.getType(), e.getMessage(), e);
+            job.failed(e.getMessage());
+        } finally {
+            activeJobsByResultKey.remove(job.getResultKey(), job);
+        }
+    }
+
+    private Object compute(ReportType type, Map<String, String> parameters) {
+        return switch (type) {
+            case REVENUE -> adminService.getRevenueReport();
+            case RIDE_STATISTICS -> adminService.getRideStatistics();
+            case USER_STATISTICS -> adminService.getUserStatistics();
+            case DRIVER_PERFORMANCE -> adminService.getDriverPerformance();
+            case DAILY_APP_EARNINGS -> adminService.getDailyAppEarnings(intParameter(parameters, "days"), intParameter(parameters, "maxPoints"), SeriesDownsampler.Mode.AUTO);
+            case DAILY_COMPANY_REVENUE -> adminService.getDailyCompanyRevenue(intParameter(parameters, "days"), intParameter(parameters, "maxPoints"), SeriesDownsampler.Mode.AUTO);
+        };
+    }
+
+    private static Optional<Integer> intParameter(Map<String, String> parameters, String name) {
+        return Optional.ofNullable(parameters.get(name)).map(Integer::valueOf);
+    }
+
+    private static SortedMap<String, String> normalizeParameters(ReportType type, Map<String, String> requestParameters) {
+        SortedMap<String, String> parameters = new TreeMap<>();
+        if (requestParameters != null) {
+            requestParameters.forEach((name, value) -> {
+                if (!type.getParameterNames().contains(name)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Report " + type + " does not accept parameter '" + name + "'. Accepted: " + type.getParameterNames());
+                }
+                if (value != null && !value.isBlank()) {
+                    parameters.put(name, value.trim());
+                }
+            });
+        }
+        String days = parameters.get("days");
+        if (days != null && !days.matches("[1-9]\\d{0,3}")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Parameter 'days' must be a number between 1 and 9999.");
+        }
+        return Collections.unmodifiableSortedMap(parameters);
+    }
+
+    /**
+     * Forgets finished jobs after {@code app.reports.job-retention}; their results stay on disk until evicted.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.eviction-interval-ms:600000}")
+    public void forgetOldJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getJobRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private ReportJob register(ReportJob job) {
+        jobs.put(job.getId(), job);
+        return job;
+    }
+}
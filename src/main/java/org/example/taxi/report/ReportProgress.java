@@ -0,0 +1,37 @@
+package org.example.taxi.report;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound row counter of the report job running on a worker. Report computations call
+ * {@link #rowsProcessed} as they go; outside a report job the calls do nothing.
+ */
+public final class ReportProgress {
+
+    private static final ThreadLocal<AtomicLong> CURRENT = new ThreadLocal<>();
+
+    private ReportProgress() {
+    }
+
+    public static void rowsProcessed(long rows) {
+        AtomicLong counter = CURRENT.get();
+        if (counter != null) {
+            counter.addAndGet(rows);
+        }
+    }
+
+    static <T> T call(AtomicLong counter, Supplier<T> task) {
+        AtomicLong previous = CURRENT.get();
+        CURRENT.set(counter);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.taxi.report;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.reports")
+public class ReportProperties {
+
+    /** Directory holding the gzip-compressed results. */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "taxi-reports");
+
+    /** Jobs computed at the same time. */
+    private int workers = 2;
+
+    /** Jobs waiting for a worker; further submissions are rejected with 429. */
+    private int queueCapacity = 20;
+
+    /** A stored result younger than this answers an identical request without recomputing. */
+    private Duration freshFor = Duration.ofMinutes(15);
+
+    /** Results older than this are deleted. */
+    private Duration maxAge = Duration.ofDays(7);
+
+    /** Oldest results are deleted while the directory is larger than this. */
+    private DataSize maxTotalSize = DataSize.ofMegabytes(512);
+
+    /** Finished jobs are forgotten (their results stay on disk) after this long. */
+    private Duration jobRetention = Duration.ofHours(24);
+}
@@ -0,0 +1,143 @@
+package org.example.taxi.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Report results on local disk as gzip-compressed JSON, one file per (report type, parameters).
+ * Files are written to a temporary name and moved into place, so readers never see a partial result.
+ */
+@Component
+public class ReportResultStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportResultStore.class);
+    private static final String SUFFIX = ".json.gz";
+
+    @Autowired private ReportProperties properties;
+    @Autowired private ObjectMapper objectMapper;
+
+    /**
+     * @return A file-name-safe key that is equal for equal type and parameters.
+     */
+    public String key(ReportType type, SortedMap<String, String> parameters) {
+        String canonical = type.name() + "?" + parameters.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining("&"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return type.name().toLowerCase() + "-" + HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Path path(String key) {
+        return properties.getDirectory().resolve(key + SUFFIX);
+    }
+
+    /**
+     * @return The stored result for the key if it was written less than {@code maxAge} ago.
+     */
+    public Optional<Path> findFresh(String key, Duration maxAge) {
+        Path path = path(key);
+        try {
+            Instant written = Files.getLastModifiedTime(path).toInstant();
+            return written.isAfter(Instant.now().minus(maxAge)) ? Optional.of(path) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Could not stat report result {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void write(String key, Object result) throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        Path temp = Files.createTempFile(properties.getDirectory(), key + "-", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                objectMapper.writeValue(out, result);
+            }
+            Files.move(temp, path(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes results older than {@code app.reports.max-age}, then the oldest ones until the directory
+     * is within {@code app.reports.max-total-size}.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.eviction-interval-ms:600000}")
+    public void evict() {
+        Path directory = properties.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<StoredFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).forEach(p -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(p, BasicFileAttributes.class);
+                    files.add(new StoredFile(p, attributes.lastModifiedTime().toInstant(), attributes.size()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not list report results in {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        files.sort(Comparator.comparing(StoredFile::modified));
+        Instant oldestAllowed = Instant.now().minus(properties.getMaxAge());
+        long totalBytes = files.stream().mapToLong(StoredFile::size).sum();
+        long maxBytes = properties.getMaxTotalSize().toBytes();
+        int deleted = 0;
+        for (StoredFile file : files) {
+            if (!file.modified().isBefore(oldestAllowed) && totalBytes <= maxBytes) {
+                break; // sorted oldest first: everything after this is newer and fits
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                totalBytes -= file.size();
+                deleted++;
+            } catch (IOException e) {
+                logger.warn("Could not delete report result {}: {}", file.path(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Evicted {} report result(s); {} bytes remain in {}.", deleted, totalBytes, directory);
+        }
+    }
+
+    private record StoredFile(Path path, Instant modified, long size) {
+    }
+}
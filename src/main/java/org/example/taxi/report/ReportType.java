@@ -0,0 +1,25 @@
+package org.example.taxi.report;
+
+import java.util.Set;
+
+/**
+ * Reports that can be computed as background jobs, with the parameters each one accepts.
+ */
+public enum ReportType {
+    REVENUE(Set.of()),
+    RIDE_STATISTICS(Set.of()),
+    USER_STATISTICS(Set.of()),
+    DRIVER_PERFORMANCE(Set.of()),
+    DAILY_APP_EARNINGS(Set.of("days", "maxPoints")),
+    DAILY_COMPANY_REVENUE(Set.of("days", "maxPoints"));
+
+    private final Set<String> parameterNames;
+
+    ReportType(Set<String> parameterNames) {
+        this.parameterNames = parameterNames;
+    }
+
+    public Set<String> getParameterNames() {
+        return parameterNames;
+    }
+}
@@ -3,8 +3,12 @@ package org.example.taxi.repository;
 import org.example.taxi.entity.Client;
 import org.example.taxi.entity.Client.ClientOrderSource;
 import org.example.taxi.entity.District;
+import org.example.taxi.repository.projection.DailyCountRow;
+import org.example.taxi.repository.projection.DailySourceCountRow;
+import org.example.taxi.repository.projection.SourceCountRow;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -21,6 +25,23 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     List<Client> findByDistrict(District district);
     long countByDistrict(District district);
 
-    List<Client> findByCreatedAtAfter(LocalDateTime createdAt);
-    List<Client> findByOrderSourceAndCreatedAtAfter(ClientOrderSource orderSource, LocalDateTime createdAt);
-}
\ No newline at end of file
+    long countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(LocalDateTime start, LocalDateTime end);
+    @Query("SELECT MIN(c.createdAt) FROM Client c")
+    LocalDateTime findMinCreatedAt(); // null when there are no clients
+
+    // --- Bounded [start, end) windows, aggregated in the database (served by idx_client_created_at) ---
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS day, COUNT(c) AS total FROM Client c " +
+            "WHERE c.createdAt >= ?1 AND c.createdAt < ?2 GROUP BY CAST(c.createdAt AS LocalDate)")
+    List<DailyCountRow> countDailyByCreatedAtInRange(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS day, c.orderSource AS source, COUNT(c) AS total FROM Client c " +
+            "WHERE c.createdAt >= ?1 AND c.createdAt < ?2 GROUP BY CAST(c.createdAt AS LocalDate), c.orderSource")
+    List<DailySourceCountRow> countDailyBySourceInRange(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT c.orderSource AS source, COUNT(c) AS total FROM Client c " +
+            "WHERE c.createdAt >= ?1 AND c.createdAt < ?2 GROUP BY c.orderSource")
+    List<SourceCountRow> countBySourceInRange(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT c.orderSource FROM Client c WHERE c.user.id = ?1")
+    Optional<ClientOrderSource> findOrderSourceByUserId(Long userId);
+}
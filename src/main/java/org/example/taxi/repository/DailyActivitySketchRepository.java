@@ -0,0 +1,14 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.DailyActivitySketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyActivitySketchRepository extends JpaRepository<DailyActivitySketch, Long> {
+    List<DailyActivitySketch> findByDayIn(Collection<LocalDate> days);
+}
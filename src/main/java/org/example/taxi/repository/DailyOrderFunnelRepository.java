@@ -0,0 +1,14 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.DailyOrderFunnel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyOrderFunnelRepository extends JpaRepository<DailyOrderFunnel, Long> {
+    List<DailyOrderFunnel> findByDayIn(Collection<LocalDate> days);
+}
@@ -0,0 +1,14 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.DailyQuantileSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyQuantileSketchRepository extends JpaRepository<DailyQuantileSketch, Long> {
+    List<DailyQuantileSketch> findByDayIn(Collection<LocalDate> days);
+}
@@ -2,7 +2,9 @@ package org.example.taxi.repository;
 
 import org.example.taxi.entity.District;
 import org.example.taxi.entity.Region;
+import org.example.taxi.repository.projection.DistrictRegionRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +16,7 @@ public interface DistrictRepository extends JpaRepository<District, Long> {
     Optional<District> findByNameAndRegion_Id(String name, Long regionId);
     List<District> findByRegion(Region region);
     List<District> findByRegion_Name(String regionName);
+
+    @Query("SELECT d.id AS districtId, r.id AS regionId, r.name AS regionName FROM District d JOIN d.region r")
+    List<DistrictRegionRow> findAllRegionMappings();
 }
\ No newline at end of file
@@ -2,11 +2,15 @@ package org.example.taxi.repository;
 
 import org.example.taxi.entity.Driver;
 import org.example.taxi.entity.Driver.ApprovalStatus;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.repository.projection.DistrictAverageRow;
+import org.example.taxi.repository.projection.DriverRankingRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime; // Added for findByCreatedAtAfter
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +36,19 @@ public interface DriverRepository extends JpaRepository<Driver, Long> {
 
     List<Driver> findByApprovalStatus(ApprovalStatus approvalStatus);
 
-    // NEW: Find drivers created after a specific time (for GoalService)
-    List<Driver> findByCreatedAtAfter(LocalDateTime createdAt);
-}
\ No newline at end of file
+    long countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(LocalDateTime start, LocalDateTime end);
+    @Query("SELECT MIN(d.createdAt) FROM Driver d")
+    LocalDateTime findMinCreatedAt(); // null when there are no drivers
+
+    // --- Leaderboards ---
+    @Query("SELECT d.id AS driverId, dist.id AS districtId, d.ratings AS ratings FROM Driver d LEFT JOIN d.district dist")
+    List<DriverRankingRow> findRankingRows();
+
+    @Query("SELECT d FROM Driver d LEFT JOIN FETCH d.user LEFT JOIN FETCH d.district WHERE d.id IN ?1")
+    List<Driver> findAllWithUserAndDistrictByIdIn(Collection<Long> ids);
+
+    // Drivers count once they have an order in the given status (COMPLETED), like the leaderboard's rating board
+    @Query("SELECT dist.id AS districtId, dist.name AS districtName, AVG(d.ratings) AS average FROM Driver d JOIN d.district dist " +
+            "WHERE EXISTS (SELECT 1 FROM OrderEntity o WHERE o.driverId = d.id AND o.status = ?1) GROUP BY dist.id, dist.name")
+    List<DistrictAverageRow> averageRatingByDistrict(OrderEntity.OrderStatus status);
+}
@@ -14,4 +14,5 @@ public interface GoalRepository extends JpaRepository<Goal, Long> {
     List<Goal> findByMonthGreaterThanEqualOrderByMonthAsc(YearMonth month);
     List<Goal> findByMonthLessThanEqualOrderByMonthDesc(YearMonth month);
     List<Goal> findAllByOrderByMonthAsc();
+    List<Goal> findByMonthBetweenOrderByMonthAsc(YearMonth from, YearMonth to);
 }
\ No newline at end of file
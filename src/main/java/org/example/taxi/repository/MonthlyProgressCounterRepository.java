@@ -0,0 +1,38 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.MonthlyProgressCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MonthlyProgressCounterRepository extends JpaRepository<MonthlyProgressCounter, Long> {
+    Optional<MonthlyProgressCounter> findByMonthStart(LocalDate monthStart);
+    boolean existsByMonthStart(LocalDate monthStart);
+    List<MonthlyProgressCounter> findByMonthStartBetweenOrderByMonthStartAsc(LocalDate from, LocalDate to);
+
+    // Single-statement upsert so concurrent registrations/completions never lose an increment
+    // and never race on creating the month's row.
+    @Modifying
+    @Query(value = "INSERT INTO monthly_progress_counter (month_start, new_clients, new_drivers, company_revenue, updated_at) " +
+            "VALUES (?1, ?2, ?3, ?4, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (month_start) DO UPDATE SET " +
+            "new_clients = monthly_progress_counter.new_clients + EXCLUDED.new_clients, " +
+            "new_drivers = monthly_progress_counter.new_drivers + EXCLUDED.new_drivers, " +
+            "company_revenue = monthly_progress_counter.company_revenue + EXCLUDED.company_revenue, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int increment(LocalDate monthStart, long newClients, long newDrivers, BigDecimal companyRevenue);
+
+    // Creates the month's row with totals computed from the source tables; a no-op (0 rows) if another transaction
+    // created it first.
+    @Modifying
+    @Query(value = "INSERT INTO monthly_progress_counter (month_start, new_clients, new_drivers, company_revenue, updated_at) " +
+            "VALUES (?1, ?2, ?3, ?4, CURRENT_TIMESTAMP) ON CONFLICT (month_start) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(LocalDate monthStart, long newClients, long newDrivers, BigDecimal companyRevenue);
+}
@@ -2,13 +2,27 @@ package org.example.taxi.repository;
 
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.repository.projection.DailyFeeRow;
+import org.example.taxi.repository.projection.DistrictCountRow;
+import org.example.taxi.repository.projection.DriverCompletedOrdersRow;
+import org.example.taxi.repository.projection.OrderActivityRow;
+import org.example.taxi.repository.projection.OrderDemandRow;
+import org.example.taxi.repository.projection.OrderFactRow;
+import org.example.taxi.repository.projection.OrderQuantileRow;
+import org.example.taxi.repository.projection.OrderRouteRow;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, Long>, org.springframework.data.jpa.repository.JpaSpecificationExecutor<OrderEntity> { // IMPORTANT: Implement JpaSpecificationExecutor
@@ -47,5 +61,60 @@ public interface OrderRepository extends JpaRepository<OrderEntity, Long>, org.s
     long countByStatus(OrderStatus status);
     long countByStatusIn(List<OrderStatus> statuses);
     List<OrderEntity> findByStatus(OrderStatus status); // To fetch all completed orders for aggregation
-    List<OrderEntity> findByStatusAndCreatedAtAfter(OrderStatus status, LocalDateTime createdAt);
-}
\ No newline at end of file
+    @Query("SELECT COALESCE(SUM(o.seats), 0) FROM OrderEntity o WHERE o.status = ?1 AND o.createdAt >= ?2 AND o.createdAt < ?3")
+    long sumSeatsByStatusAndCreatedAtBetween(OrderStatus status, LocalDateTime start, LocalDateTime end);
+    @Query("SELECT MIN(o.createdAt) FROM OrderEntity o WHERE o.status = ?1")
+    LocalDateTime findMinCreatedAtByStatus(OrderStatus status); // null when there is no such order
+
+    @Query("SELECT CAST(o.createdAt AS LocalDate) AS day, COALESCE(SUM(o.seats), 0) AS seats, " +
+            "SUM(CASE WHEN o.orderType = ?2 THEN 1 ELSE 0 END) AS luggageOrders FROM OrderEntity o " +
+            "WHERE o.status = ?1 AND o.createdAt >= ?3 AND o.createdAt < ?4 GROUP BY CAST(o.createdAt AS LocalDate)")
+    List<DailyFeeRow> sumDailyFeeUnitsByStatusInRange(OrderStatus status, OrderType luggageType, LocalDateTime start, LocalDateTime end);
+
+    // --- In-memory analytics loading (must be consumed inside a read-only transaction) ---
+    @Query("SELECT o.id AS id, o.createdAt AS createdAt, o.fromDistrictId AS fromDistrictId, o.toDistrictId AS toDistrictId, " +
+            "o.orderType AS orderType, o.status AS status, o.seats AS seats, c.orderSource AS orderSource " +
+            "FROM OrderEntity o LEFT JOIN Client c ON c.user.id = o.userId " +
+            "WHERE o.status IN ?1 ORDER BY o.id ASC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<OrderFactRow> streamFactRows(List<OrderStatus> statuses);
+
+    @Query("SELECT o.pickupTime AS pickupTime, o.driverId AS driverId, o.userId AS userId " +
+            "FROM OrderEntity o WHERE o.status = ?1 AND o.pickupTime >= ?2 AND o.pickupTime < ?3")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<OrderActivityRow> streamActivityRows(OrderStatus status, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT o.id AS id, o.pickupTime AS pickupTime, o.createdAt AS createdAt, o.fromDistrictId AS fromDistrictId, " +
+            "o.toDistrictId AS toDistrictId, o.orderType AS orderType, o.status AS status, o.seats AS seats " +
+            "FROM OrderEntity o ORDER BY o.id ASC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<OrderDemandRow> streamDemandRows();
+
+    @Query("SELECT o.createdAt AS createdAt, o.pickupTime AS pickupTime, o.fromDistrictId AS fromDistrictId, " +
+            "o.driverId AS driverId, o.orderType AS orderType, o.status AS status, o.totalCost AS totalCost, " +
+            "o.acceptedAt AS acceptedAt, o.enRouteAt AS enRouteAt, o.completedAt AS completedAt FROM OrderEntity o")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<OrderQuantileRow> streamQuantileRows();
+
+    @Query("SELECT o.createdAt AS createdAt, o.fromDistrictId AS fromDistrictId, o.toDistrictId AS toDistrictId, " +
+            "o.fromLocation AS fromLocation, o.toLocation AS toLocation FROM OrderEntity o WHERE o.createdAt >= ?1")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<OrderRouteRow> streamRouteRowsCreatedSince(LocalDateTime since);
+
+    // --- Leaderboards / driver performance ---
+    @Query("SELECT o.driverId AS driverId, COUNT(o) AS rides, COALESCE(SUM(o.seats), 0) AS seats, " +
+            "SUM(CASE WHEN o.orderType = ?2 THEN 1 ELSE 0 END) AS luggageOrders, COALESCE(SUM(o.totalCost), 0) AS totalCost " +
+            "FROM OrderEntity o WHERE o.status = ?1 AND o.driverId IS NOT NULL GROUP BY o.driverId")
+    List<DriverCompletedOrdersRow> sumOrdersByDriver(OrderStatus status, OrderType luggageType);
+
+    @Query("SELECT o.id FROM OrderEntity o WHERE o.id IN ?1 AND o.status = ?2")
+    List<Long> findIdsByIdInAndStatus(Collection<Long> ids, OrderStatus status);
+
+    @Query("SELECT o.toDistrictId AS districtId, COUNT(o) AS total FROM OrderEntity o " +
+            "WHERE o.status = ?1 AND o.driverId IS NOT NULL AND o.toDistrictId IS NOT NULL GROUP BY o.toDistrictId")
+    List<DistrictCountRow> countDriverOrdersByToDistrict(OrderStatus status);
+
+    @Query("SELECT o.fromDistrictId AS districtId, COUNT(o) AS total FROM OrderEntity o " +
+            "WHERE o.status = ?1 GROUP BY o.fromDistrictId")
+    List<DistrictCountRow> countByStatusGroupByFromDistrict(OrderStatus status);
+}
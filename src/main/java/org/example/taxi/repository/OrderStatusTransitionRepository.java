@@ -0,0 +1,12 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.OrderStatusTransition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderStatusTransitionRepository extends JpaRepository<OrderStatusTransition, Long> {
+    List<OrderStatusTransition> findByOrderIdOrderByOccurredAtAsc(Long orderId);
+}
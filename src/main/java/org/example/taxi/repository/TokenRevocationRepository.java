@@ -0,0 +1,25 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+    List<TokenRevocation> findByExpiresAtAfter(LocalDateTime now);
+    List<TokenRevocation> findByRevokedAtGreaterThanEqual(LocalDateTime since);
+    boolean existsByTokenId(String tokenId);
+
+    @Query("SELECT MAX(r.revokedAt) FROM TokenRevocation r WHERE r.userId = ?1 AND r.tokenId IS NULL")
+    Optional<LocalDateTime> findLatestUserRevocation(Long userId);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.expiresAt < ?1")
+    int deleteExpired(LocalDateTime now);
+}
@@ -2,14 +2,23 @@ package org.example.taxi.repository;
 
 import org.example.taxi.entity.User;
 import org.example.taxi.entity.User.UserType;
+import org.example.taxi.repository.projection.DailyCountRow;
+import org.example.taxi.repository.projection.UserIdentityRow;
+import org.example.taxi.repository.projection.UserKeyRow;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -18,11 +27,39 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByChatId(Long chatId);
     boolean existsByPhoneNumber(String phoneNumber);
 
+    @Query("SELECT u.id AS userId, u.userType AS userType, COALESCE(d.id, c.id) AS profileId FROM User u " +
+            "LEFT JOIN Driver d ON d.user.id = u.id LEFT JOIN Client c ON c.user.id = u.id WHERE u.phoneNumber = ?1")
+    Optional<UserIdentityRow> findIdentityByPhoneNumber(String phoneNumber);
+
+    // --- User existence filter loading (the stream must be consumed inside a read-only transaction) ---
+    @Query("SELECT u.phoneNumber AS phoneNumber FROM User u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    Stream<UserKeyRow> streamUserKeys();
+
+    @Query("SELECT u.phoneNumber AS phoneNumber FROM User u WHERE u.updatedAt >= ?1")
+    List<UserKeyRow> findUserKeysUpdatedSince(LocalDateTime since);
+
+    // --- users.chat_id uniqueness (ChatIdUniqueIndexMigration) ---
+    @Query("SELECT u.chatId FROM User u WHERE u.chatId IS NOT NULL GROUP BY u.chatId HAVING COUNT(u) > 1")
+    List<Long> findDuplicateChatIds();
+
+    List<User> findByChatIdOrderByUpdatedAtDescIdDesc(Long chatId);
+
+    @Modifying
+    @Query(value = "CREATE UNIQUE INDEX IF NOT EXISTS uk_users_chat_id ON users (chat_id)", nativeQuery = true)
+    void createChatIdUniqueIndex();
+
     long countByUserType(UserType userType);
     long count();
 
-    List<User> findByCreatedAtAfter(LocalDateTime createdAt);
-    List<User> findByUserTypeAndCreatedAtAfter(UserType userType, LocalDateTime createdAt);
+    // --- Bounded [start, end) windows, aggregated in the database (served by idx_users_created_at) ---
+    @Query("SELECT CAST(u.createdAt AS LocalDate) AS day, COUNT(u) AS total FROM User u " +
+            "WHERE u.createdAt >= ?1 AND u.createdAt < ?2 GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<DailyCountRow> countDailyByCreatedAtInRange(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT CAST(u.createdAt AS LocalDate) AS day, COUNT(u) AS total FROM User u " +
+            "WHERE u.userType = ?1 AND u.createdAt >= ?2 AND u.createdAt < ?3 GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<DailyCountRow> countDailyByUserTypeAndCreatedAtInRange(UserType userType, LocalDateTime start, LocalDateTime end);
 
     Page<User> findByUserType(UserType userType, Pageable pageable);
 }
\ No newline at end of file
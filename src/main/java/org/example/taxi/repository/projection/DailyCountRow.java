@@ -0,0 +1,11 @@
+package org.example.taxi.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Generic (day, count) row for GROUP BY day queries.
+ */
+public interface DailyCountRow {
+    LocalDate getDay();
+    long getTotal();
+}
@@ -0,0 +1,12 @@
+package org.example.taxi.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Per-day totals that the app fee and company revenue are derived from.
+ */
+public interface DailyFeeRow {
+    LocalDate getDay();
+    long getSeats();
+    long getLuggageOrders();
+}
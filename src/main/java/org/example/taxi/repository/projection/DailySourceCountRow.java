@@ -0,0 +1,14 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.Client.ClientOrderSource;
+
+import java.time.LocalDate;
+
+/**
+ * New clients per (day, order source).
+ */
+public interface DailySourceCountRow {
+    LocalDate getDay();
+    ClientOrderSource getSource();
+    long getTotal();
+}
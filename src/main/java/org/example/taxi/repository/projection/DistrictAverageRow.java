@@ -0,0 +1,10 @@
+package org.example.taxi.repository.projection;
+
+/**
+ * Generic (district, average) row for GROUP BY district queries.
+ */
+public interface DistrictAverageRow {
+    Long getDistrictId();
+    String getDistrictName();
+    Double getAverage();
+}
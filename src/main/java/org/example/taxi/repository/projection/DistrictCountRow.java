@@ -0,0 +1,9 @@
+package org.example.taxi.repository.projection;
+
+/**
+ * Generic (district id, count) row for GROUP BY district queries.
+ */
+public interface DistrictCountRow {
+    Long getDistrictId();
+    long getTotal();
+}
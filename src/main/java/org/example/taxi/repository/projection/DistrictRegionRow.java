@@ -0,0 +1,10 @@
+package org.example.taxi.repository.projection;
+
+/**
+ * District to region mapping used by the live market metrics.
+ */
+public interface DistrictRegionRow {
+    Long getDistrictId();
+    Long getRegionId();
+    String getRegionName();
+}
@@ -0,0 +1,14 @@
+package org.example.taxi.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Completed-order totals for one driver, as needed to derive ride count and net earnings.
+ */
+public interface DriverCompletedOrdersRow {
+    Long getDriverId();
+    long getRides();
+    long getSeats();
+    long getLuggageOrders();
+    BigDecimal getTotalCost();
+}
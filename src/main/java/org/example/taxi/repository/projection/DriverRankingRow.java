@@ -0,0 +1,10 @@
+package org.example.taxi.repository.projection;
+
+/**
+ * Driver attributes that place a driver on the leaderboards.
+ */
+public interface DriverRankingRow {
+    Long getDriverId();
+    Long getDistrictId();
+    double getRatings();
+}
@@ -0,0 +1,12 @@
+package org.example.taxi.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Who was active on a completed order, and when. Used for active-user metrics.
+ */
+public interface OrderActivityRow {
+    LocalDateTime getPickupTime();
+    Long getDriverId();
+    Long getUserId();
+}
@@ -0,0 +1,20 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns needed to place an order in the origin-destination demand matrix.
+ */
+public interface OrderDemandRow {
+    Long getId();
+    LocalDateTime getPickupTime();
+    LocalDateTime getCreatedAt();
+    Long getFromDistrictId();
+    Long getToDistrictId();
+    OrderType getOrderType();
+    OrderStatus getStatus();
+    int getSeats();
+}
@@ -0,0 +1,21 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.Client.ClientOrderSource;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Minimal column set used to (re)build the in-memory order fact store.
+ */
+public interface OrderFactRow {
+    Long getId();
+    LocalDateTime getCreatedAt();
+    Long getFromDistrictId();
+    Long getToDistrictId();
+    OrderType getOrderType();
+    OrderStatus getStatus();
+    int getSeats();
+    ClientOrderSource getOrderSource();
+}
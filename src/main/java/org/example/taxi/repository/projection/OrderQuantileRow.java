@@ -0,0 +1,23 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Columns needed to backfill the per-day quantile sketches and order funnels.
+ */
+public interface OrderQuantileRow {
+    LocalDateTime getCreatedAt();
+    LocalDateTime getPickupTime();
+    Long getFromDistrictId();
+    Long getDriverId();
+    OrderType getOrderType();
+    OrderStatus getStatus();
+    BigDecimal getTotalCost();
+    LocalDateTime getAcceptedAt();
+    LocalDateTime getEnRouteAt();
+    LocalDateTime getCompletedAt();
+}
@@ -0,0 +1,14 @@
+package org.example.taxi.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns needed to rebuild the heavy-hitter sketches of recent routes and locations.
+ */
+public interface OrderRouteRow {
+    LocalDateTime getCreatedAt();
+    Long getFromDistrictId();
+    Long getToDistrictId();
+    String getFromLocation();
+    String getToLocation();
+}
@@ -0,0 +1,11 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.Client.ClientOrderSource;
+
+/**
+ * Clients per order source.
+ */
+public interface SourceCountRow {
+    ClientOrderSource getSource();
+    long getTotal();
+}
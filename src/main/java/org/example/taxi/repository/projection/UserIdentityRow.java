@@ -0,0 +1,12 @@
+package org.example.taxi.repository.projection;
+
+import org.example.taxi.entity.User.UserType;
+
+/**
+ * User id, type and driver/client profile id of a phone number.
+ */
+public interface UserIdentityRow {
+    Long getUserId();
+    UserType getUserType();
+    Long getProfileId();
+}
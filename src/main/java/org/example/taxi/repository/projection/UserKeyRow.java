@@ -0,0 +1,8 @@
+package org.example.taxi.repository.projection;
+
+/**
+ * Phone number of a user, loaded into the user existence filter.
+ */
+public interface UserKeyRow {
+    String getPhoneNumber();
+}
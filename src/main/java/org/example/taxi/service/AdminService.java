@@ -1,13 +1,23 @@
 package org.example.taxi.service;
 
+import org.example.taxi.analytics.DriverLeaderboard;
+import org.example.taxi.analytics.DriverLeaderboard.Metric;
+import org.example.taxi.analytics.DriverLeaderboard.Position;
+import org.example.taxi.analytics.SeriesDownsampler;
 import org.example.taxi.controller.dto.*;
 import org.example.taxi.controller.dto.DriverPerformanceResponse.DriverOverview;
 import org.example.taxi.entity.*;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.report.ReportProgress;
 import org.example.taxi.repository.*;
+import org.example.taxi.repository.projection.DailyCountRow;
+import org.example.taxi.repository.projection.DailyFeeRow;
+import org.example.taxi.repository.projection.DistrictCountRow;
+import org.example.taxi.util.AppFees;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -32,6 +42,7 @@ public class AdminService {
     private static final Logger logger = LoggerFactory.getLogger(AdminService.class);
 
     @Autowired private UserRepository userRepository;
+    @Autowired private UserExistenceFilter userExistenceFilter;
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private PriceRepository priceRepository;
     @Autowired private DistrictRepository districtRepository;
@@ -40,15 +51,18 @@ public class AdminService {
     @Autowired private OrderRepository orderRepository;
     @Autowired private OperatorService operatorService;
     @Autowired private OrderService orderService;
+    @Autowired private DriverLeaderboard driverLeaderboard;
 
-    private static final BigDecimal APP_FEE_PER_PASSENGER = BigDecimal.valueOf(20);
-    private static final BigDecimal APP_FEE_LUGGAGE = BigDecimal.valueOf(10);
-    private static final BigDecimal COMPANY_PASSENGER_SHARE_PERCENT = BigDecimal.valueOf(0.15); // 15%
-    private static final BigDecimal COMPANY_LUGGAGE_SHARE_PERCENT = BigDecimal.valueOf(1.00); // 100%
+
+    // Daily chart series: longest range accepted, and point count returned when the caller does not ask for one
+    @Value("${analytics.charts.max-days:3660}")
+    private int chartMaxDays;
+    @Value("${analytics.charts.default-max-points:400}")
+    private int chartDefaultMaxPoints;
 
     @Transactional
     public User createOperator(OperatorCreationRequest request) {
-        if (userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
+        if (userExistenceFilter.existsByPhoneNumber(request.getPhoneNumber())) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "User with phone number " + request.getPhoneNumber() + " already exists.");
         }
 
@@ -60,6 +74,7 @@ public class AdminService {
         operatorUser.setUserType(User.UserType.OPERATOR);
 
         User savedOperator = userRepository.save(operatorUser);
+        userExistenceFilter.record(savedOperator);
         logger.info("New OPERATOR user created with ID: {} and phone number: {}", savedOperator.getId(), savedOperator.getPhoneNumber());
 
         return savedOperator;
@@ -143,14 +158,14 @@ public class AdminService {
         BigDecimal totalClientSpending = BigDecimal.ZERO;
 
         for (OrderEntity order : allCompletedOrders) {
-            BigDecimal appPassengerFee = APP_FEE_PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
-            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? APP_FEE_LUGGAGE : BigDecimal.ZERO;
+            BigDecimal appPassengerFee = AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
+            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? AppFees.LUGGAGE : BigDecimal.ZERO;
 
             BigDecimal orderAppFee = appPassengerFee.add(appLuggageFee);
             totalAppFeesCollected = totalAppFeesCollected.add(orderAppFee);
 
-            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(COMPANY_PASSENGER_SHARE_PERCENT);
-            BigDecimal companyLuggageRevenue = appLuggageFee.multiply(COMPANY_LUGGAGE_SHARE_PERCENT);
+            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(AppFees.COMPANY_PASSENGER_SHARE);
+            BigDecimal companyLuggageRevenue = appLuggageFee.multiply(AppFees.COMPANY_LUGGAGE_SHARE);
             totalCompanyRevenue = totalCompanyRevenue.add(companyPassengerRevenue).add(companyLuggageRevenue);
 
             totalClientSpending = totalClientSpending.add(order.getTotalCost());
@@ -173,46 +188,47 @@ public class AdminService {
                 .build();
     }
 
+    /**
+     * App fee per booking day of completed orders, rolled up in the database.
+     * @param days Range ending now; at most analytics.charts.max-days.
+     * @param maxPoints Optional target point count; longer series are downsampled (see {@link SeriesDownsampler}).
+     */
     @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyAppEarnings(Optional<Integer> days) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(days.orElse(30));
-        List<OrderEntity> completedOrders = orderRepository.findByStatusAndCreatedAtAfter(OrderStatus.COMPLETED, cutoff);
-
-        Map<LocalDate, BigDecimal> dailyEarnings = new HashMap<>();
-        for (OrderEntity order : completedOrders) {
-            BigDecimal appPassengerFee = APP_FEE_PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
-            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? APP_FEE_LUGGAGE : BigDecimal.ZERO;
-            BigDecimal orderAppFee = appPassengerFee.add(appLuggageFee);
-            dailyEarnings.merge(order.getCreatedAt().toLocalDate(), orderAppFee, BigDecimal::add);
-        }
-
-        return dailyEarnings.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
-                .sorted(Comparator.comparing(ChartDataPoint::getName))
+    public List<ChartDataPoint> getDailyAppEarnings(Optional<Integer> days, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        List<ChartDataPoint> daily = dailyFeeUnits(days).stream()
+                .map(row -> new ChartDataPoint(row.getDay().toString(), appPassengerFee(row).add(appLuggageFee(row))))
                 .collect(Collectors.toList());
+        return downsample(daily, maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
     }
 
+    /**
+     * Company share of the app fee per booking day of completed orders, rolled up in the database.
+     */
     @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyCompanyRevenue(Optional<Integer> days) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(days.orElse(30));
-        List<OrderEntity> completedOrders = orderRepository.findByStatusAndCreatedAtAfter(OrderStatus.COMPLETED, cutoff);
-
-        Map<LocalDate, BigDecimal> dailyRevenue = new HashMap<>();
-        for (OrderEntity order : completedOrders) {
-            BigDecimal appPassengerFee = APP_FEE_PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
-            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? APP_FEE_LUGGAGE : BigDecimal.ZERO;
+    public List<ChartDataPoint> getDailyCompanyRevenue(Optional<Integer> days, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        List<ChartDataPoint> daily = dailyFeeUnits(days).stream()
+                .map(row -> new ChartDataPoint(row.getDay().toString(), appPassengerFee(row).multiply(AppFees.COMPANY_PASSENGER_SHARE)
+                        .add(appLuggageFee(row).multiply(AppFees.COMPANY_LUGGAGE_SHARE))))
+                .collect(Collectors.toList());
+        return downsample(daily, maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
+    }
 
-            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(COMPANY_PASSENGER_SHARE_PERCENT);
-            BigDecimal companyLuggageRevenue = appLuggageFee.multiply(COMPANY_LUGGAGE_SHARE_PERCENT);
-            BigDecimal orderCompanyRevenue = companyPassengerRevenue.add(companyLuggageRevenue);
+    private List<DailyFeeRow> dailyFeeUnits(Optional<Integer> days) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DailyFeeRow> rows = orderRepository.sumDailyFeeUnitsByStatusInRange(OrderStatus.COMPLETED, OrderEntity.OrderType.LUGGAGE,
+                now.minusDays(chartDays(days)), now);
+        ReportProgress.rowsProcessed(rows.size());
+        return rows.stream()
+                .sorted(Comparator.comparing(DailyFeeRow::getDay))
+                .collect(Collectors.toList());
+    }
 
-            dailyRevenue.merge(order.getCreatedAt().toLocalDate(), orderCompanyRevenue, BigDecimal::add);
-        }
+    private static BigDecimal appPassengerFee(DailyFeeRow row) {
+        return AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(row.getSeats()));
+    }
 
-        return dailyRevenue.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
-                .sorted(Comparator.comparing(ChartDataPoint::getName))
-                .collect(Collectors.toList());
+    private static BigDecimal appLuggageFee(DailyFeeRow row) {
+        return AppFees.LUGGAGE.multiply(BigDecimal.valueOf(row.getLuggageOrders()));
     }
 
     @Transactional(readOnly = true)
@@ -227,46 +243,48 @@ public class AdminService {
     }
 
     @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyNewUsers(Optional<Integer> days) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(days.orElse(30));
-        List<User> newUsers = userRepository.findByCreatedAtAfter(cutoff);
+    public List<ChartDataPoint> getDailyNewUsers(Optional<Integer> days, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        LocalDateTime now = LocalDateTime.now();
+        return downsample(toDailyChart(userRepository.countDailyByCreatedAtInRange(now.minusDays(chartDays(days)), now)),
+                maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ChartDataPoint> getDailyNewClients(Optional<Integer> days, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        LocalDateTime now = LocalDateTime.now();
+        return downsample(toDailyChart(userRepository.countDailyByUserTypeAndCreatedAtInRange(User.UserType.CLIENT, now.minusDays(chartDays(days)), now)),
+                maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
+    }
 
-        Map<LocalDate, Long> dailyUserCounts = new HashMap<>();
-        for (User user : newUsers) {
-            dailyUserCounts.merge(user.getCreatedAt().toLocalDate(), 1L, Long::sum);
-        }
-        return dailyUserCounts.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
+    @Transactional(readOnly = true)
+    public List<ChartDataPoint> getDailyNewDrivers(Optional<Integer> days, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        LocalDateTime now = LocalDateTime.now();
+        return downsample(toDailyChart(userRepository.countDailyByUserTypeAndCreatedAtInRange(User.UserType.DRIVER, now.minusDays(chartDays(days)), now)),
+                maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
+    }
+
+    private static List<ChartDataPoint> toDailyChart(List<DailyCountRow> rows) {
+        return rows.stream()
+                .map(row -> new ChartDataPoint(row.getDay().toString(), row.getTotal()))
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyNewClients(Optional<Integer> days) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(days.orElse(30));
-        List<User> newClients = userRepository.findByUserTypeAndCreatedAtAfter(User.UserType.CLIENT, cutoff);
-        Map<LocalDate, Long> dailyClientCounts = new HashMap<>();
-        for (User user : newClients) {
-            dailyClientCounts.merge(user.getCreatedAt().toLocalDate(), 1L, Long::sum);
+    private int chartDays(Optional<Integer> days) {
+        int value = days.orElse(30);
+        if (value < 1 || value > chartMaxDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days must be between 1 and " + chartMaxDays + ".");
         }
-        return dailyClientCounts.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
-                .sorted(Comparator.comparing(ChartDataPoint::getName))
-                .collect(Collectors.toList());
+        return value;
     }
 
-    @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyNewDrivers(Optional<Integer> days) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(days.orElse(30));
-        List<User> newDrivers = userRepository.findByUserTypeAndCreatedAtAfter(User.UserType.DRIVER, cutoff);
-        Map<LocalDate, Long> dailyDriverCounts = new HashMap<>();
-        for (User user : newDrivers) {
-            dailyDriverCounts.merge(user.getCreatedAt().toLocalDate(), 1L, Long::sum);
+    private List<ChartDataPoint> downsample(List<ChartDataPoint> daily, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode,
+                                            SeriesDownsampler.Aggregation aggregation) {
+        int target = maxPoints.orElse(chartDefaultMaxPoints);
+        if (target < 3) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxPoints must be at least 3.");
         }
-        return dailyDriverCounts.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
-                .sorted(Comparator.comparing(ChartDataPoint::getName))
-                .collect(Collectors.toList());
+        return SeriesDownsampler.downsample(daily, target, mode, aggregation);
     }
 
     @Transactional(readOnly = true)
@@ -358,12 +376,13 @@ public class AdminService {
         Map<Long, Long> ordersByRegionCount = new HashMap<>();
 
         for (OrderEntity order : allCompletedOrders) {
-            BigDecimal appPassengerFee = APP_FEE_PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
-            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? APP_FEE_LUGGAGE : BigDecimal.ZERO;
+            ReportProgress.rowsProcessed(1);
+            BigDecimal appPassengerFee = AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
+            BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? AppFees.LUGGAGE : BigDecimal.ZERO;
             BigDecimal orderAppFee = appPassengerFee.add(appLuggageFee);
 
-            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(COMPANY_PASSENGER_SHARE_PERCENT);
-            BigDecimal companyLuggageRevenue = appLuggageFee.multiply(COMPANY_LUGGAGE_SHARE_PERCENT);
+            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(AppFees.COMPANY_PASSENGER_SHARE);
+            BigDecimal companyLuggageRevenue = appLuggageFee.multiply(AppFees.COMPANY_LUGGAGE_SHARE);
             BigDecimal orderCompanyRevenue = companyPassengerRevenue.add(companyLuggageRevenue);
 
             totalAppFeesCollectedAllTime = totalAppFeesCollectedAllTime.add(orderAppFee);
@@ -424,6 +443,7 @@ public class AdminService {
     @Transactional(readOnly = true)
     public RideStatsResponse getRideStatistics() {
         List<OrderEntity> allOrders = orderRepository.findAll();
+        ReportProgress.rowsProcessed(allOrders.size());
 
         long totalOrdersCount = allOrders.size();
         Map<OrderStatus, Long> countsByStatus = allOrders.stream()
@@ -499,6 +519,7 @@ public class AdminService {
 
         Map<Long, Long> usersByDistrictCount = new HashMap<>();
         for (User user : allUsers) {
+            ReportProgress.rowsProcessed(1);
             Long districtId = null;
             if (user.getUserType() == User.UserType.CLIENT) {
                 districtId = clientRepository.findByUser_Id(user.getId()).map(Client::getDistrictId).orElse(null);
@@ -560,79 +581,53 @@ public class AdminService {
 
     @Transactional(readOnly = true)
     public DriverPerformanceResponse getDriverPerformance() {
-        List<Driver> allDrivers = driverRepository.findAll();
-        List<OrderEntity> completedOrders = orderRepository.findByStatus(OrderStatus.COMPLETED);
-
-        long totalApprovedDrivers = allDrivers.stream().filter(d -> d.getApprovalStatus() == Driver.ApprovalStatus.ACCEPTED).count();
-        long totalPendingDrivers = allDrivers.stream().filter(d -> d.getApprovalStatus() == Driver.ApprovalStatus.PENDING).count();
-        long totalRejectedDrivers = allDrivers.stream().filter(d -> d.getApprovalStatus() == Driver.ApprovalStatus.REJECTED).count();
-
-        Map<Long, BigDecimal> totalEarningsByDriverIdMap = new HashMap<>();
-        Map<Long, Long> totalRidesByDistrictMap = new HashMap<>();
-
-        for (OrderEntity order : completedOrders) {
-            if (order.getDriverId() != null) {
-                BigDecimal appPassengerFee = APP_FEE_PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats()));
-                BigDecimal appLuggageFee = order.getOrderType() == OrderEntity.OrderType.LUGGAGE ? APP_FEE_LUGGAGE : BigDecimal.ZERO;
-                BigDecimal orderAppFee = appPassengerFee.add(appLuggageFee);
-
-                BigDecimal driverNetEarningForOrder = order.getTotalCost().subtract(orderAppFee);
-                totalEarningsByDriverIdMap.merge(order.getDriverId(), driverNetEarningForOrder, BigDecimal::add);
-
-                if (order.getToDistrictId() != null) {
-                    totalRidesByDistrictMap.merge(order.getToDistrictId(), 1L, Long::sum);
-                }
-            }
-        }
-
-        List<DriverOverview> driverOverviews = allDrivers.stream()
-                .map(driver -> DriverOverview.builder()
-                        .driverId(driver.getId())
-                        .phoneNumber(driver.getUser() != null ? driver.getUser().getPhoneNumber() : "N/A")
-                        .firstName(driver.getFirstName())
-                        .lastName(driver.getLastName())
-                        .ratings(driver.getRatings())
-                        .rideCount(driver.getRideCount())
-                        .walletBalance(driver.getWalletBalance())
-                        .approvalStatus(driver.getApprovalStatus().name())
-                        .districtName(driver.getDistrict() != null ? driver.getDistrict().getName() : "N/A")
-                        .build())
-                .collect(Collectors.toList());
-
-        List<DriverOverview> topRatedDrivers = driverOverviews.stream()
-                .filter(d -> d.getRideCount() > 0)
-                .sorted(Comparator.comparingDouble(DriverOverview::getRatings).reversed())
-                .limit(5)
+        long totalApprovedDrivers = driverRepository.countByApprovalStatus(Driver.ApprovalStatus.ACCEPTED);
+        long totalPendingDrivers = driverRepository.countByApprovalStatus(Driver.ApprovalStatus.PENDING);
+        long totalRejectedDrivers = driverRepository.countByApprovalStatus(Driver.ApprovalStatus.REJECTED);
+
+        // Top lists and per-driver earnings come from the in-memory leaderboards; only the drivers shown are loaded.
+        List<Position> topRated = driverLeaderboard.top(Metric.RATING, null, 5);
+        List<Position> mostRides = driverLeaderboard.top(Metric.RIDES, null, 5);
+        List<Position> earnings = driverLeaderboard.top(Metric.EARNINGS, null, Integer.MAX_VALUE);
+
+        Set<Long> driverIds = new HashSet<>();
+        topRated.forEach(p -> driverIds.add(p.driverId()));
+        mostRides.forEach(p -> driverIds.add(p.driverId()));
+        earnings.forEach(p -> driverIds.add(p.driverId()));
+        Map<Long, Driver> driversById = loadDriversWithUserAndDistrict(driverIds);
+
+        List<DriverOverview> topRatedDrivers = topRated.stream()
+                .map(p -> driversById.get(p.driverId()))
+                .filter(Objects::nonNull)
+                .map(driver -> toDriverOverview(driver, driverLeaderboard.rankOf(Metric.RIDES, null, driver.getId())))
                 .collect(Collectors.toList());
-
-        List<DriverOverview> mostRidesDrivers = driverOverviews.stream()
-                .sorted(Comparator.comparingInt(DriverOverview::getRideCount).reversed())
-                .limit(5)
+        List<DriverOverview> mostRidesDrivers = mostRides.stream()
+                .filter(p -> driversById.containsKey(p.driverId()))
+                .map(p -> toDriverOverview(driversById.get(p.driverId()), p))
                 .collect(Collectors.toList());
 
-        Map<Long, Double> calculatedAverageRatingByDistrictMap = allDrivers.stream()
-                .filter(driver -> driver.getDistrict() != null && driver.getRideCount() > 0)
-                .collect(Collectors.groupingBy(
-                        driver -> driver.getDistrict().getId(),
-                        Collectors.averagingDouble(Driver::getRatings)
-                ));
-
-        List<ChartDataPoint> averageRatingByDistrict = calculatedAverageRatingByDistrictMap.entrySet().stream()
-                .map(entry -> new ChartDataPoint(districtRepository.findById(entry.getKey()).map(District::getName).orElse("Unknown"), entry.getValue()))
+        List<ChartDataPoint> averageRatingByDistrict = driverRepository.averageRatingByDistrict(OrderStatus.COMPLETED).stream()
+                .map(row -> new ChartDataPoint(row.getDistrictName(), row.getAverage()))
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
                 .collect(Collectors.toList());
 
-        List<ChartDataPoint> totalRidesByDistrict = totalRidesByDistrictMap.entrySet().stream()
-                .map(entry -> new ChartDataPoint(districtRepository.findById(entry.getKey()).map(District::getName).orElse("Unknown"), entry.getValue()))
+        List<DistrictCountRow> ridesByDistrictRows = orderRepository.countDriverOrdersByToDistrict(OrderStatus.COMPLETED);
+        ReportProgress.rowsProcessed(averageRatingByDistrict.size() + ridesByDistrictRows.size() + driverIds.size());
+        Map<Long, String> districtNames = new HashMap<>();
+        districtRepository.findAllById(ridesByDistrictRows.stream().map(DistrictCountRow::getDistrictId).collect(Collectors.toSet()))
+                .forEach(district -> districtNames.put(district.getId(), district.getName()));
+        List<ChartDataPoint> totalRidesByDistrict = ridesByDistrictRows.stream()
+                .map(row -> new ChartDataPoint(districtNames.getOrDefault(row.getDistrictId(), "Unknown"), row.getTotal()))
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
                 .collect(Collectors.toList());
 
-        List<ChartDataPoint> totalEarningsByDriver = totalEarningsByDriverIdMap.entrySet().stream()
-                .map(entry -> {
-                    String driverInfo = driverRepository.findById(entry.getKey())
-                            .map(d -> d.getFirstName() + " " + d.getLastName() + " (" + d.getUser().getPhoneNumber() + ")")
-                            .orElse("Driver ID: " + entry.getKey());
-                    return new ChartDataPoint(driverInfo, entry.getValue());
+        List<ChartDataPoint> totalEarningsByDriver = earnings.stream()
+                .map(p -> {
+                    Driver d = driversById.get(p.driverId());
+                    String driverInfo = d != null
+                            ? d.getFirstName() + " " + d.getLastName() + " (" + (d.getUser() != null ? d.getUser().getPhoneNumber() : "N/A") + ")"
+                            : "Driver ID: " + p.driverId();
+                    return new ChartDataPoint(driverInfo, p.value());
                 })
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
                 .collect(Collectors.toList());
@@ -649,6 +644,76 @@ public class AdminService {
                 .build();
     }
 
+    /**
+     * Top drivers by a leaderboard metric, globally or among drivers of one home district.
+     * @param metric RATING, RIDES or EARNINGS.
+     * @param districtId Optional home district filter.
+     * @param limit Maximum number of entries (1-100).
+     * @return Ranked entries, best first.
+     */
+    @Transactional(readOnly = true)
+    public List<LeaderboardEntry> getLeaderboard(Metric metric, Long districtId, int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 100.");
+        }
+        List<Position> positions = driverLeaderboard.top(metric, districtId, limit);
+        int boardSize = driverLeaderboard.boardSize(metric, districtId);
+        Map<Long, Driver> driversById = loadDriversWithUserAndDistrict(
+                positions.stream().map(Position::driverId).collect(Collectors.toSet()));
+        return positions.stream()
+                .map(p -> toLeaderboardEntry(p, driversById.get(p.driverId()), boardSize))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A single driver's rank on a leaderboard.
+     * @throws ResponseStatusException if the driver is not on the board.
+     */
+    @Transactional(readOnly = true)
+    public LeaderboardEntry getDriverRank(Metric metric, Long districtId, Long driverId) {
+        Position position = driverLeaderboard.rankOf(metric, districtId, driverId);
+        if (position == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Driver " + driverId + " is not ranked on the " + metric + " leaderboard.");
+        }
+        Map<Long, Driver> driversById = loadDriversWithUserAndDistrict(Set.of(driverId));
+        return toLeaderboardEntry(position, driversById.get(driverId), driverLeaderboard.boardSize(metric, districtId));
+    }
+
+    private Map<Long, Driver> loadDriversWithUserAndDistrict(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return Map.of();
+        }
+        return driverRepository.findAllWithUserAndDistrictByIdIn(driverIds).stream()
+                .collect(Collectors.toMap(Driver::getId, d -> d));
+    }
+
+    private DriverOverview toDriverOverview(Driver driver, Position ridesPosition) {
+        return DriverOverview.builder()
+                .driverId(driver.getId())
+                .phoneNumber(driver.getUser() != null ? driver.getUser().getPhoneNumber() : "N/A")
+                .firstName(driver.getFirstName())
+                .lastName(driver.getLastName())
+                .ratings(driver.getRatings())
+                .rideCount(ridesPosition != null ? ridesPosition.value().intValue() : driver.getRideCount())
+                .walletBalance(driver.getWalletBalance())
+                .approvalStatus(driver.getApprovalStatus().name())
+                .districtName(driver.getDistrict() != null ? driver.getDistrict().getName() : "N/A")
+                .build();
+    }
+
+    private LeaderboardEntry toLeaderboardEntry(Position position, Driver driver, int boardSize) {
+        return LeaderboardEntry.builder()
+                .rank(position.rank())
+                .driverId(position.driverId())
+                .firstName(driver != null ? driver.getFirstName() : null)
+                .lastName(driver != null ? driver.getLastName() : null)
+                .phoneNumber(driver != null && driver.getUser() != null ? driver.getUser().getPhoneNumber() : "N/A")
+                .districtName(driver != null && driver.getDistrict() != null ? driver.getDistrict().getName() : "N/A")
+                .value(position.value())
+                .boardSize(boardSize)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public Page<DetailedOrderResponse> getOrders(OrderFilterRequest filter, Pageable pageable) {
         Specification<OrderEntity> spec = (root, query, criteriaBuilder) -> {
@@ -753,8 +818,11 @@ public class AdminService {
         return dto;
     }
 
+    /**
+     * @param adminUserId User ID of the admin, recorded as the actor of the transition.
+     */
     @Transactional
-    public DetailedOrderResponse updateOrderStatusByAdmin(Long orderId, OrderEntity.OrderStatus newStatus) {
+    public DetailedOrderResponse updateOrderStatusByAdmin(Long orderId, OrderEntity.OrderStatus newStatus, Long adminUserId) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + orderId));
 
@@ -764,13 +832,14 @@ public class AdminService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot update a completed or canceled order. Current status: " + currentStatus.name());
         }
 
-        order.setStatus(newStatus);
+        OrderService.StatusChange change = orderService.changeStatus(order, newStatus, OrderStatusTransition.ActorType.ADMIN, adminUserId);
         OrderEntity updatedOrder = orderRepository.save(order);
 
         if (newStatus == OrderStatus.COMPLETED) {
             orderService.deductAppFee(orderId);
         }
         logger.info("Admin updated order {} status to {}. Previously: {}.", orderId, newStatus.name(), currentStatus.name());
+        orderService.publishStatusChange(updatedOrder, change);
         return mapToDetailedOrderResponse(updatedOrder);
     }
 
@@ -0,0 +1,58 @@
+package org.example.taxi.service;
+
+import org.example.taxi.entity.User;
+import org.example.taxi.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Makes {@code users.chat_id} unique (one user per Telegram chat) with an explicit index, instead of leaving it to
+ * {@code ddl-auto}, which cannot add the constraint while duplicates exist and only logs that it failed.
+ * <p>
+ * Runs at startup and is idempotent. Chat ids linked to more than one user are reported first. With
+ * {@code app.chat-id-migration.resolve-duplicates=true} the most recently updated user keeps the chat and every other
+ * one is unlinked and logged; they can link the chat again through the bot's login or password reset. Otherwise the
+ * index is not created until the duplicates are cleaned up by hand.
+ */
+@Component
+public class ChatIdUniqueIndexMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatIdUniqueIndexMigration.class);
+
+    @Autowired private UserRepository userRepository;
+
+    @Value("${app.chat-id-migration.resolve-duplicates:true}")
+    private boolean resolveDuplicates;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrate() {
+        List<Long> duplicates = userRepository.findDuplicateChatIds();
+        if (!duplicates.isEmpty()) {
+            logger.warn("{} Telegram chat ids are linked to more than one user: {}", duplicates.size(), duplicates);
+            if (!resolveDuplicates) {
+                logger.warn("Unique index on users.chat_id not created; unlink the duplicates or set app.chat-id-migration.resolve-duplicates=true.");
+                return;
+            }
+            for (Long chatId : duplicates) {
+                List<User> users = userRepository.findByChatIdOrderByUpdatedAtDescIdDesc(chatId);
+                User keeper = users.get(0);
+                for (User user : users.subList(1, users.size())) {
+                    user.setChatId(null);
+                    logger.warn("Telegram chat {} unlinked from user {}; it stays with user {}, the most recently updated.", chatId, user.getId(), keeper.getId());
+                }
+            }
+            userRepository.flush();
+        }
+        userRepository.createChatIdUniqueIndex();
+        logger.info("Unique index on users.chat_id is in place.");
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.taxi.service;
 
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.ClientProfileRequest;
 import org.example.taxi.controller.dto.OrderBookingRequest;
 import org.example.taxi.entity.Client;
@@ -17,32 +18,40 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClientService.class);
+    private static final String CLIENT_ROLE = "CLIENT";
 
     @Autowired private ClientRepository clientRepository;
     @Autowired private UserRepository userRepository;
     @Autowired private OrderService orderService;
 
-    private Client getClientByAuthenticatedUserId(Long authenticatedUserId) {
-        return clientRepository.findByUser_Id(authenticatedUserId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Client profile not found for authenticated user."));
+    /**
+     * Client tokens carry the client id as their profile id, so the profile is loaded by primary key; other callers
+     * (admins) and tokens without it are resolved by user id.
+     */
+    private Client getClient(AuthenticatedUser currentUser) {
+        Optional<Client> client = CLIENT_ROLE.equals(currentUser.role()) && currentUser.profileId() != null
+                ? clientRepository.findById(currentUser.profileId())
+                : clientRepository.findByUser_Id(currentUser.userId());
+        return client.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Client profile not found for authenticated user."));
     }
 
     @Transactional(readOnly = true)
-    public Client getClientProfile(Long authenticatedUserId) {
-        logger.debug("Fetching client profile for user ID: {}", authenticatedUserId);
-        return getClientByAuthenticatedUserId(authenticatedUserId);
+    public Client getClientProfile(AuthenticatedUser currentUser) {
+        logger.debug("Fetching client profile for user ID: {}", currentUser.userId());
+        return getClient(currentUser);
     }
 
     @Transactional
-    public Client updateClientProfile(Long authenticatedUserId, ClientProfileRequest request) {
-        Client client = getClientByAuthenticatedUserId(authenticatedUserId);
-        logger.info("Updating profile (text-only) for client {} (User ID: {}).", client.getId(), authenticatedUserId);
+    public Client updateClientProfile(AuthenticatedUser currentUser, ClientProfileRequest request) {
+        Client client = getClient(currentUser);
+        logger.info("Updating profile (text-only) for client {} (User ID: {}).", client.getId(), currentUser.userId());
 
         Optional.ofNullable(request.getFirstName()).ifPresent(client::setFirstName);
         Optional.ofNullable(request.getLastName()).ifPresent(client::setLastName);
@@ -52,9 +61,9 @@ public class ClientService {
     }
 
     @Transactional
-    public Client updateClientProfilePictureUrl(Long authenticatedUserId, String fileUrl) {
-        Client client = getClientByAuthenticatedUserId(authenticatedUserId);
-        logger.info("Updating profile picture URL for client {} (User ID: {}).", client.getId(), authenticatedUserId);
+    public Client updateClientProfilePictureUrl(AuthenticatedUser currentUser, String fileUrl) {
+        Client client = getClient(currentUser);
+        logger.info("Updating profile picture URL for client {} (User ID: {}).", client.getId(), currentUser.userId());
         client.setProfilePictureUrl(fileUrl);
         return clientRepository.save(client);
     }
@@ -107,6 +116,12 @@ public class ClientService {
         return orderService.getClientOrderHistory(authenticatedUserId, status);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getClientRideHistory(Long authenticatedUserId, Optional<OrderStatus> status, List<String> fields) {
+        logger.info("Fetching ride history fields {} for client (User ID: {}) with status filter: {}.", fields, authenticatedUserId, status.map(Enum::name).orElse("N/A"));
+        return orderService.getClientOrderHistory(authenticatedUserId, status, fields);
+    }
+
     @Transactional(readOnly = true)
     public Optional<OrderEntity> getClientActiveOrder(Long authenticatedUserId) {
         logger.info("Fetching active order for client (User ID: {}).", authenticatedUserId);
@@ -1,24 +1,49 @@
 package org.example.taxi.service;
 
+import org.example.taxi.config.UserDetailsCache;
 import org.example.taxi.entity.User;
+import org.example.taxi.event.UserCredentialsChangedEvent;
 import org.example.taxi.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import java.util.Collection;
 import java.util.Collections;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Login user details that also carry the user's id, which {@link UserDetailsCache} checks for revocations.
+     */
+    public static class Account extends org.springframework.security.core.userdetails.User {
+        private final Long userId;
+
+        public Account(Long userId, String username, String password, boolean enabled, boolean accountNonExpired,
+                       boolean credentialsNonExpired, boolean accountNonLocked, Collection<? extends GrantedAuthority> authorities) {
+            super(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+            this.userId = userId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
     }
 
     @Override
@@ -30,12 +55,37 @@ public class CustomUserDetailsService implements UserDetailsService {
             logger.error("User {} found but has no assigned UserType. Denying login.", phoneNumber);
             throw new UsernameNotFoundException("User " + phoneNumber + " has an invalid account setup.");
         }
+        if (!user.hasUsablePassword()) {
+            // Guest created by an operator; the login fails like one for an unknown phone number
+            logger.debug("User {} has not activated the account yet. Denying login.", phoneNumber);
+            throw new UsernameNotFoundException("User " + phoneNumber + " has not activated the account.");
+        }
 
         String role = "ROLE_" + user.getUserType().name(); // Correctly get the role from UserType
         logger.debug("Loading user: {}, Roles: {}", phoneNumber, role);
-        return new org.springframework.security.core.userdetails.User(
+        return new Account(
+                user.getId(),
                 user.getPhoneNumber(),
                 user.getPassword(), // This is the HASHED password from the database
+                true, true, true, true,
                 Collections.singletonList(new SimpleGrantedAuthority(role)));
     }
+
+    /**
+     * Called after a successful login whose stored hash used an outdated BCrypt cost.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        userRepository.findByPhoneNumber(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newEncodedPassword);
+            userRepository.save(user);
+            // The cached entry still holds the old hash, which would be rehashed again on every login
+            eventPublisher.publishEvent(new UserCredentialsChangedEvent(user.getId(), user.getPhoneNumber()));
+            logger.info("Rehashed password of user {} with the current BCrypt cost.", userDetails.getUsername());
+        });
+        Long userId = userDetails instanceof Account account ? account.getUserId() : null;
+        return new Account(userId, userDetails.getUsername(), newEncodedPassword, userDetails.isEnabled(),
+                userDetails.isAccountNonExpired(), userDetails.isCredentialsNonExpired(), userDetails.isAccountNonLocked(),
+                userDetails.getAuthorities());
+    }
 }
\ No newline at end of file
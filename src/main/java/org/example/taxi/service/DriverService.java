@@ -1,5 +1,6 @@
 package org.example.taxi.service;
 
+import org.example.taxi.config.AuthenticatedUser;
 import org.example.taxi.controller.dto.DriverProfileRequest;
 import org.example.taxi.entity.District;
 import org.example.taxi.entity.Driver;
@@ -18,12 +19,14 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class DriverService {
 
     private static final Logger logger = LoggerFactory.getLogger(DriverService.class);
+    private static final String DRIVER_ROLE = "DRIVER";
 
     @Autowired private DriverRepository driverRepository;
     @Autowired private UserRepository userRepository;
@@ -35,15 +38,35 @@ public class DriverService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Driver profile not found for authenticated user."));
     }
 
+    /**
+     * Driver tokens carry the driver id as their profile id; only other callers (admins) and tokens without it are
+     * resolved by user id.
+     */
+    private Long driverIdOf(AuthenticatedUser currentUser) {
+        if (DRIVER_ROLE.equals(currentUser.role()) && currentUser.profileId() != null) {
+            return currentUser.profileId();
+        }
+        return getDriverByAuthenticatedUserId(currentUser.userId()).getId();
+    }
+
+    private Driver getDriver(AuthenticatedUser currentUser) {
+        if (DRIVER_ROLE.equals(currentUser.role()) && currentUser.profileId() != null) {
+            return driverRepository.findById(currentUser.profileId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Driver profile not found for authenticated user."));
+        }
+        return getDriverByAuthenticatedUserId(currentUser.userId());
+    }
+
     @Transactional(readOnly = true)
-    public Driver getDriverProfile(Long authenticatedUserId) {
-        logger.debug("Fetching driver profile for user ID: {}", authenticatedUserId);
-        return getDriverByAuthenticatedUserId(authenticatedUserId);
+    public Driver getDriverProfile(AuthenticatedUser currentUser) {
+        logger.debug("Fetching driver profile for user ID: {}", currentUser.userId());
+        return getDriver(currentUser);
     }
 
     @Transactional
-    public Driver updateDriverProfile(Long authenticatedUserId, DriverProfileRequest request) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
+    public Driver updateDriverProfile(AuthenticatedUser currentUser, DriverProfileRequest request) {
+        Long authenticatedUserId = currentUser.userId();
+        Driver driver = getDriver(currentUser);
         logger.info("Updating profile (text/district) for driver {} (User ID: {}).", driver.getId(), authenticatedUserId);
 
         Optional.ofNullable(request.getFirstName()).ifPresent(driver::setFirstName);
@@ -75,8 +98,9 @@ public class DriverService {
     }
 
     @Transactional
-    public Driver updateDriverFileUrl(Long authenticatedUserId, String fileType, String fileUrl) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
+    public Driver updateDriverFileUrl(AuthenticatedUser currentUser, String fileType, String fileUrl) {
+        Long authenticatedUserId = currentUser.userId();
+        Driver driver = getDriver(currentUser);
         logger.info("Updating {} URL for driver {} (User ID: {}).", fileType, driver.getId(), authenticatedUserId);
 
         switch (fileType) {
@@ -109,8 +133,9 @@ public class DriverService {
     }
 
     @Transactional
-    public Driver submitProfileForApproval(Long authenticatedUserId) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
+    public Driver submitProfileForApproval(AuthenticatedUser currentUser) {
+        Long authenticatedUserId = currentUser.userId();
+        Driver driver = getDriver(currentUser);
 
         if (!checkDriverProfileCompleteness(driver)) {
             logger.warn("Driver {} (User ID: {}) attempted to submit profile for approval but profile is incomplete.", driver.getId(), authenticatedUserId);
@@ -146,41 +171,62 @@ public class DriverService {
 
     @Transactional(readOnly = true)
     public List<OrderEntity> getAvailableOrders(Long authenticatedUserId, Long driverDistrictId, Long driverRegionId, LocalDateTime start, LocalDateTime end, int maxSeats) {
+        requireApprovedForFeed(authenticatedUserId);
+        logger.info("Driver (User ID: {}) is approved and has a complete profile. Fetching available orders for district ID: {} (Region ID: {}).", authenticatedUserId, driverDistrictId, driverRegionId);
+        return orderService.findPendingOrdersForDriverFeed(driverDistrictId, driverRegionId, start, end, maxSeats);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAvailableOrders(Long authenticatedUserId, Long driverDistrictId, Long driverRegionId, LocalDateTime start, LocalDateTime end, int maxSeats, List<String> fields) {
+        requireApprovedForFeed(authenticatedUserId);
+        logger.info("Driver (User ID: {}) is approved and has a complete profile. Fetching available order fields {} for district ID: {} (Region ID: {}).", authenticatedUserId, fields, driverDistrictId, driverRegionId);
+        return orderService.findPendingOrdersForDriverFeed(driverDistrictId, driverRegionId, start, end, maxSeats, fields);
+    }
+
+    private void requireApprovedForFeed(Long authenticatedUserId) {
         boolean isApprovedAndComplete = driverRepository.isFullyCredentialed(authenticatedUserId, Driver.ApprovalStatus.ACCEPTED);
 
         if (!isApprovedAndComplete) {
             logger.warn("Driver (User ID: {}) is not approved or has an incomplete profile. Denying access to order feed.", authenticatedUserId);
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Driver must be approved with a complete profile to view orders.");
         }
-
-        logger.info("Driver (User ID: {}) is approved and has a complete profile. Fetching available orders for district ID: {} (Region ID: {}).", authenticatedUserId, driverDistrictId, driverRegionId);
-        return orderService.findPendingOrdersForDriverFeed(driverDistrictId, driverRegionId, start, end, maxSeats);
     }
 
     @Transactional
-    public OrderEntity acceptOrder(Long authenticatedUserId, Long orderId) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
-        logger.info("Driver {} (User ID: {}) attempting to accept order {}.", driver.getId(), authenticatedUserId, orderId);
-        return orderService.acceptOrder(orderId, driver.getId());
+    public OrderEntity acceptOrder(AuthenticatedUser currentUser, Long orderId) {
+        Long driverId = driverIdOf(currentUser);
+        logger.info("Driver {} (User ID: {}) attempting to accept order {}.", driverId, currentUser.userId(), orderId);
+        return orderService.acceptOrder(orderId, driverId, currentUser.userId());
     }
 
     @Transactional
-    public OrderEntity updateOrderStatus(Long authenticatedUserId, Long orderId, String newStatus) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
-        logger.info("Driver {} (User ID: {}) attempting to update status of order {} to {}.", authenticatedUserId, orderId, newStatus);
-        return orderService.updateOrderStatus(orderId, OrderStatus.valueOf(newStatus), driver.getId());
+    public OrderEntity updateOrderStatus(AuthenticatedUser currentUser, Long orderId, String newStatus) {
+        Long driverId = driverIdOf(currentUser);
+        logger.info("Driver {} (User ID: {}) attempting to update status of order {} to {}.", driverId, currentUser.userId(), orderId, newStatus);
+        return orderService.updateOrderStatus(orderId, OrderStatus.valueOf(newStatus), driverId, currentUser.userId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderEntity> getDriverRideHistory(AuthenticatedUser currentUser, Optional<OrderStatus> status) {
+        return orderService.getDriverOrderHistory(driverIdOf(currentUser), status);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getDriverRideHistory(AuthenticatedUser currentUser, Optional<OrderStatus> status, List<String> fields) {
+        return orderService.getDriverOrderHistory(driverIdOf(currentUser), status, fields);
     }
 
     @Transactional(readOnly = true)
-    public List<OrderEntity> getDriverRideHistory(Long authenticatedUserId, Optional<OrderStatus> status) {
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
-        return orderService.getDriverOrderHistory(driver.getId(), status);
+    public List<OrderEntity> getDriverActiveOrders(AuthenticatedUser currentUser) { // CRITICAL FIX: Changed return type to List
+        Long driverId = driverIdOf(currentUser);
+        logger.info("Fetching active orders for driver (User ID: {}).", currentUser.userId());
+        return orderService.getDriverActiveOrder(driverId); // orderService.getDriverActiveOrder now returns List
     }
 
     @Transactional(readOnly = true)
-    public List<OrderEntity> getDriverActiveOrders(Long authenticatedUserId) { // CRITICAL FIX: Changed return type to List
-        Driver driver = getDriverByAuthenticatedUserId(authenticatedUserId);
-        logger.info("Fetching active orders for driver (User ID: {}).", authenticatedUserId);
-        return orderService.getDriverActiveOrder(driver.getId()); // orderService.getDriverActiveOrder now returns List
+    public List<Map<String, Object>> getDriverActiveOrders(AuthenticatedUser currentUser, List<String> fields) {
+        Long driverId = driverIdOf(currentUser);
+        logger.info("Fetching active order fields {} for driver (User ID: {}).", fields, currentUser.userId());
+        return orderService.getDriverActiveOrder(driverId, fields);
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package org.example.taxi.service;
+
+import org.example.taxi.entity.MonthlyProgressCounter;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.ClientRepository;
+import org.example.taxi.repository.DriverRepository;
+import org.example.taxi.repository.MonthlyProgressCounterRepository;
+import org.example.taxi.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Maintains {@link MonthlyProgressCounter} rows so goal progression never has to scan clients, drivers or orders.
+ * Clients and drivers count towards the month they were created in; company revenue counts towards the month the
+ * completed order was created in, using the passenger share only (same rule GoalService always used).
+ * <p>
+ * A month's row is created from the source tables the first time anything is recorded for it (or a goal is set for
+ * it), so it never holds only the increments made after it appeared.
+ */
+@Service
+public class GoalProgressCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoalProgressCounterService.class);
+
+    // Company share of the passenger app fee: 20 UZS per seat * 15% (must match GoalService)
+    private static final BigDecimal COMPANY_REVENUE_PER_SEAT = BigDecimal.valueOf(3);
+
+    @Autowired private MonthlyProgressCounterRepository counterRepository;
+    @Autowired private ClientRepository clientRepository;
+    @Autowired private DriverRepository driverRepository;
+    @Autowired private OrderRepository orderRepository;
+
+    @Transactional
+    public void recordNewClient(LocalDateTime createdAt) {
+        add(YearMonth.from(createdAt), 1, 0, BigDecimal.ZERO);
+    }
+
+    @Transactional
+    public void recordNewDriver(LocalDateTime createdAt) {
+        add(YearMonth.from(createdAt), 0, 1, BigDecimal.ZERO);
+    }
+
+    /**
+     * Adds the company revenue of a completed order. Runs synchronously inside the transaction that completes
+     * the order, so the counter and the order status commit or roll back together.
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getNewStatus() != OrderStatus.COMPLETED) {
+            return;
+        }
+        OrderEntity order = event.getOrder();
+        BigDecimal companyRevenue = COMPANY_REVENUE_PER_SEAT.multiply(BigDecimal.valueOf(order.getSeats()));
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : event.getOccurredAt();
+        add(YearMonth.from(createdAt), 0, 0, companyRevenue);
+    }
+
+    /**
+     * Adds to the month's counter. The first write to a month creates its row from the source tables instead: they
+     * already hold the client, driver or order being recorded (the counting queries flush it first), so the write is
+     * not added on top. If another transaction created the row meanwhile, the write is added as usual.
+     */
+    private void add(YearMonth month, long newClients, long newDrivers, BigDecimal companyRevenue) {
+        if (!counterRepository.existsByMonthStart(month.atDay(1)) && createFromSourceTables(month)) {
+            return;
+        }
+        counterRepository.increment(month.atDay(1), newClients, newDrivers, companyRevenue);
+    }
+
+    /**
+     * @return False if the month's row already existed (nothing was written).
+     */
+    private boolean createFromSourceTables(YearMonth month) {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        return counterRepository.insertIfAbsent(month.atDay(1),
+                clientRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(start, end),
+                driverRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(start, end),
+                companyRevenue(start, end)) > 0;
+    }
+
+    private BigDecimal companyRevenue(LocalDateTime start, LocalDateTime end) {
+        return COMPANY_REVENUE_PER_SEAT.multiply(BigDecimal.valueOf(
+                orderRepository.sumSeatsByStatusAndCreatedAtBetween(OrderStatus.COMPLETED, start, end)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<MonthlyProgressCounter> getCounter(YearMonth month) {
+        return counterRepository.findByMonthStart(month.atDay(1));
+    }
+
+    @Transactional(readOnly = true)
+    public List<MonthlyProgressCounter> getCounters(YearMonth from, YearMonth to) {
+        return counterRepository.findByMonthStartBetweenOrderByMonthStartAsc(from.atDay(1), to.atDay(1));
+    }
+
+    /**
+     * Recomputes counters for every month in [from, to] from the source tables, overwriting current values.
+     * Increments that commit while a month is being recomputed may be lost; run it during quiet hours.
+     * @param from First month (inclusive).
+     * @param to Last month (inclusive).
+     * @return Number of months rebuilt.
+     */
+    @Transactional
+    public int rebuild(YearMonth from, YearMonth to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'to' month must not be before 'from' month.");
+        }
+        int months = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+
+            MonthlyProgressCounter counter = counterRepository.findByMonthStart(month.atDay(1))
+                    .orElseGet(MonthlyProgressCounter::new);
+            counter.setMonthStart(month.atDay(1));
+            counter.setNewClients(clientRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(start, end));
+            counter.setNewDrivers(driverRepository.countByCreatedAtGreaterThanEqualAndCreatedAtLessThan(start, end));
+            counter.setCompanyRevenue(companyRevenue(start, end));
+            counter.setUpdatedAt(LocalDateTime.now());
+            counterRepository.save(counter);
+            months++;
+        }
+        logger.info("Rebuilt goal progress counters for {} months ({} to {}).", months, from, to);
+        return months;
+    }
+
+    /**
+     * Builds the counter for a month that does not have one yet, e.g. when a goal is set for a past month.
+     */
+    @Transactional
+    public void ensureCounter(YearMonth month) {
+        if (!month.isAfter(YearMonth.now()) && !counterRepository.existsByMonthStart(month.atDay(1))) {
+            createFromSourceTables(month);
+        }
+    }
+
+    /**
+     * First start on a database without counters: rebuild every month from the earliest client, driver or completed
+     * order up to now.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (counterRepository.count() > 0) {
+            return;
+        }
+        Optional<LocalDateTime> earliest = Stream.of(clientRepository.findMinCreatedAt(), driverRepository.findMinCreatedAt(),
+                        orderRepository.findMinCreatedAtByStatus(OrderStatus.COMPLETED))
+                .filter(Objects::nonNull)
+                .min(LocalDateTime::compareTo);
+        YearMonth now = YearMonth.now();
+        if (earliest.isEmpty() || YearMonth.from(earliest.get()).isAfter(now)) {
+            return;
+        }
+        rebuild(YearMonth.from(earliest.get()), now);
+    }
+}
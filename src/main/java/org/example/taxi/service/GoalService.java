@@ -4,11 +4,8 @@ import org.example.taxi.controller.dto.GoalProgressionResponse;
 import org.example.taxi.controller.dto.GoalRequest;
 import org.example.taxi.controller.dto.GoalResponse;
 import org.example.taxi.entity.Goal;
-import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.MonthlyProgressCounter;
 import org.example.taxi.repository.GoalRepository;
-import org.example.taxi.repository.OrderRepository;
-import org.example.taxi.repository.ClientRepository;
-import org.example.taxi.repository.DriverRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,12 +16,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,9 +30,7 @@ public class GoalService {
     private static final Logger logger = LoggerFactory.getLogger(GoalService.class);
 
     @Autowired private GoalRepository goalRepository;
-    @Autowired private OrderRepository orderRepository;
-    @Autowired private ClientRepository clientRepository;
-    @Autowired private DriverRepository driverRepository;
+    @Autowired private GoalProgressCounterService goalProgressCounterService;
     @Autowired private AdminService adminService; // For revenue calculation helper
 
     private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
@@ -70,7 +65,9 @@ public class GoalService {
             goal.setTargetCompanyRevenue(request.getTargetCompanyRevenue());
             logger.info("Created new goal for month {}.", request.getMonth());
         }
-        return GoalResponse.fromEntity(goalRepository.save(goal));
+        Goal savedGoal = goalRepository.save(goal);
+        goalProgressCounterService.ensureCounter(savedGoal.getMonth());
+        return GoalResponse.fromEntity(savedGoal);
     }
 
     /**
@@ -109,6 +106,7 @@ public class GoalService {
 
     /**
      * Calculates the progression of a specific goal (actual vs. target).
+     * Actuals come from the month's progress counter, so this is a constant number of lookups for any month.
      * @param month The YearMonth for which to calculate progression.
      * @return GoalProgressionResponse.
      * @throws ResponseStatusException if no goal is set for the given month.
@@ -117,26 +115,33 @@ public class GoalService {
     public GoalProgressionResponse getGoalProgression(YearMonth month) {
         Goal goal = goalRepository.findByMonth(month)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No goal set for " + month));
+        return buildProgression(goal, goalProgressCounterService.getCounter(month).orElse(null));
+    }
 
-        LocalDate monthStart = month.atDay(1);
-        LocalDate monthEnd = month.atEndOfMonth();
-        LocalDateTime periodStart = monthStart.atStartOfDay();
-        LocalDateTime periodEnd = monthEnd.atTime(LocalTime.MAX);
-
-        // Fetch actual data for the month
-        long actualNewClients = clientRepository.findByCreatedAtAfter(periodStart).stream()
-                .filter(c -> c.getCreatedAt().isBefore(periodEnd)) // Filter by periodEnd, not monthEnd.plusDays(1)
-                .count();
-        long actualNewDrivers = driverRepository.findByCreatedAtAfter(periodStart).stream()
-                .filter(d -> d.getCreatedAt().isBefore(periodEnd)) // Filter by periodEnd
-                .count();
-
-        // Calculate actual company revenue for the month
-        List<OrderEntity> completedOrdersInMonth = orderRepository.findByStatusAndCreatedAtAfter(OrderEntity.OrderStatus.COMPLETED, periodStart).stream()
-                .filter(o -> o.getCreatedAt().isBefore(periodEnd)) // Filter by periodEnd
-                .collect(Collectors.toList());
+    /**
+     * Calculates goal progression for every month of a year that has a goal, using two queries in total.
+     * @param year The calendar year.
+     * @return List of GoalProgressionResponse ordered by month; months without a goal are omitted.
+     */
+    @Transactional(readOnly = true)
+    public List<GoalProgressionResponse> getYearProgression(int year) {
+        YearMonth from = YearMonth.of(year, 1);
+        YearMonth to = YearMonth.of(year, 12);
+        List<Goal> goals = goalRepository.findByMonthBetweenOrderByMonthAsc(from, to);
+        Map<YearMonth, MonthlyProgressCounter> countersByMonth = goalProgressCounterService.getCounters(from, to).stream()
+                .collect(Collectors.toMap(c -> YearMonth.from(c.getMonthStart()), Function.identity()));
+
+        List<GoalProgressionResponse> progression = new ArrayList<>(goals.size());
+        for (Goal goal : goals) {
+            progression.add(buildProgression(goal, countersByMonth.get(goal.getMonth())));
+        }
+        return progression;
+    }
 
-        BigDecimal actualCompanyRevenue = calculateCompanyRevenueFromOrders(completedOrdersInMonth);
+    private GoalProgressionResponse buildProgression(Goal goal, MonthlyProgressCounter counter) {
+        long actualNewClients = counter != null ? counter.getNewClients() : 0L;
+        long actualNewDrivers = counter != null ? counter.getNewDrivers() : 0L;
+        BigDecimal actualCompanyRevenue = counter != null ? counter.getCompanyRevenue() : BigDecimal.ZERO;
 
         // Calculate percentages
         BigDecimal clientProgressPercent = calculateProgress(actualNewClients, goal.getTargetNewClients());
@@ -172,20 +177,10 @@ public class GoalService {
                 .remainingDriversNeeded(remainingDriversNeeded)
                 .remainingRevenueNeeded(remainingRevenueNeeded)
                 .isAchieved(isAchieved)
-                .isActiveMonth(YearMonth.now().equals(month))
+                .isActiveMonth(YearMonth.now().equals(goal.getMonth()))
                 .build();
     }
 
-    private BigDecimal calculateCompanyRevenueFromOrders(List<OrderEntity> orders) {
-        BigDecimal totalCompanyRevenue = BigDecimal.ZERO;
-        for (OrderEntity order : orders) {
-            BigDecimal appPassengerFee = BigDecimal.valueOf(20).multiply(BigDecimal.valueOf(order.getSeats())); // Re-use constant
-
-            BigDecimal companyPassengerRevenue = appPassengerFee.multiply(BigDecimal.valueOf(0.15)); // Re-use constant
-            totalCompanyRevenue = totalCompanyRevenue.add(companyPassengerRevenue);
-        }
-        return totalCompanyRevenue;
-    }
     private BigDecimal calculateProgress(Long actual, Long target) {
         if (target == null || target == 0) return BigDecimal.ZERO;
         return BigDecimal.valueOf(actual).divide(BigDecimal.valueOf(target), 4, RoundingMode.HALF_UP).multiply(HUNDRED);
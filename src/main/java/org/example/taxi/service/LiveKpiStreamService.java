@@ -0,0 +1,88 @@
+package org.example.taxi.service;
+
+import org.example.taxi.controller.dto.LiveKpiSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes live market KPIs to subscribed dashboards as server-sent events.
+ * <p>
+ * One snapshot is built per push interval and per distinct region filter, however many dashboards are open, so the
+ * cost of the stream does not grow with the number of viewers. Subscribers are dropped on completion, timeout or a
+ * failed send.
+ */
+@Service
+public class LiveKpiStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveKpiStreamService.class);
+
+    private record Subscriber(SseEmitter emitter, Long regionId) {
+    }
+
+    @Autowired private MarketControlService marketControlService;
+
+    @Value("${analytics.live.max-subscribers:50}")
+    private int maxSubscribers;
+
+    @Value("${analytics.live.stream-timeout:30m}")
+    private Duration streamTimeout;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registers a new subscriber and sends it the current snapshot right away.
+     * @param regionId Optional region filter.
+     */
+    public SseEmitter subscribe(Long regionId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many live KPI streams are open. Please retry later.");
+        }
+        LiveKpiSnapshot initial = marketControlService.getLiveKpis(regionId); // Validates the region before subscribing
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, regionId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        send(subscriber, initial);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.live.push-interval-ms:5000}")
+    public void pushSnapshots() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<Optional<Long>, LiveKpiSnapshot> snapshots = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            LiveKpiSnapshot snapshot = snapshots.computeIfAbsent(Optional.ofNullable(subscriber.regionId()),
+                    region -> marketControlService.getLiveKpis(region.orElse(null)));
+            send(subscriber, snapshot);
+        }
+    }
+
+    private void send(Subscriber subscriber, LiveKpiSnapshot snapshot) {
+        try {
+            subscriber.emitter().send(SseEmitter.event().name("kpis").data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping live KPI subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter().completeWithError(e);
+        }
+    }
+}
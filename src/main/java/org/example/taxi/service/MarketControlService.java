@@ -1,29 +1,64 @@
 package org.example.taxi.service;
 
+import org.example.taxi.analytics.ActivitySketchStore;
+import org.example.taxi.analytics.ActivitySketchStore.ActiveCounts;
+import org.example.taxi.analytics.HeavyHitterStore;
+import org.example.taxi.analytics.HeavyHitterStore.HitterKind;
+import org.example.taxi.analytics.HeavyHitterStore.TopWindow;
+import org.example.taxi.analytics.HyperLogLog;
+import org.example.taxi.analytics.LiveMarketMetrics;
+import org.example.taxi.analytics.OdDemandMatrix;
+import org.example.taxi.analytics.OrderFactStore;
+import org.example.taxi.analytics.OrderFactStore.Dimension;
+import org.example.taxi.analytics.OrderFactStore.FactFilter;
+import org.example.taxi.analytics.OrderFactStore.SliceResult;
+import org.example.taxi.analytics.OrderFunnelStore;
+import org.example.taxi.analytics.QuantileSketchStore;
+import org.example.taxi.analytics.QuantileSketchStore.QuantileMetric;
+import org.example.taxi.analytics.SeriesDownsampler;
+import org.example.taxi.analytics.SpaceSaving;
+import org.example.taxi.analytics.TDigest;
+import org.example.taxi.controller.dto.ActiveUsersPoint;
 import org.example.taxi.controller.dto.ChartDataPoint;
+import org.example.taxi.controller.dto.DemandHeatmapCell;
 import org.example.taxi.controller.dto.GoalCalculatorResponse; // Import GoalCalculatorResponse
+import org.example.taxi.controller.dto.LiveKpiSnapshot;
+import org.example.taxi.controller.dto.OdMatrixCell;
+import org.example.taxi.controller.dto.OrderFunnelRow;
+import org.example.taxi.controller.dto.OrderSliceRow;
+import org.example.taxi.controller.dto.QuantilePoint;
+import org.example.taxi.controller.dto.TopItemsResponse;
 import org.example.taxi.entity.Client;
 import org.example.taxi.entity.Client.ClientOrderSource;
 import org.example.taxi.entity.District;
 import org.example.taxi.entity.Driver;
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
 import org.example.taxi.entity.User;
 import org.example.taxi.repository.ClientRepository;
 import org.example.taxi.repository.DistrictRepository;
 import org.example.taxi.repository.DriverRepository;
 import org.example.taxi.repository.OrderRepository;
 import org.example.taxi.repository.UserRepository;
+import org.example.taxi.repository.projection.DailySourceCountRow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode; // For RoundingMode
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +67,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -44,18 +80,29 @@ public class MarketControlService {
     @Autowired private DriverRepository driverRepository;
     @Autowired private OrderRepository orderRepository;
     @Autowired private DistrictRepository districtRepository;
+    @Autowired private OrderFactStore orderFactStore;
+    @Autowired private QuantileSketchStore quantileSketchStore;
+    @Autowired private OrderFunnelStore orderFunnelStore;
+    @Autowired private ActivitySketchStore activitySketchStore;
+    @Autowired private OdDemandMatrix odDemandMatrix;
+    @Autowired private LiveMarketMetrics liveMarketMetrics;
+    @Autowired private HeavyHitterStore heavyHitterStore;
+
+    /** Windows reported by the live KPI endpoint and stream, in minutes. */
+    public static final List<Integer> LIVE_KPI_WINDOWS = List.of(5, 15, 60);
+
+    // Ranges up to this many days are counted exactly from the orders table; longer ones use HyperLogLog sketches.
+    @Value("${analytics.activity.exact-max-days:31}")
+    private int exactActivityMaxDays;
+
+    @Value("${analytics.charts.default-max-points:400}")
+    private int chartDefaultMaxPoints;
 
     // Constants for average calculations (These would ideally be dynamic or configurable by Admin)
     // These are *company's share* revenue averages, not total client spend.
     public static final BigDecimal AVG_REVENUE_PER_CLIENT = BigDecimal.valueOf(180000); // Example average UZS per client/order (company's share)
     public static final long AVG_RIDES_PER_DRIVER_PER_MONTH = 30; // Example average (total rides per driver per month)
 
-    // Constants for app fees (must match AdminService and OrderService)
-    private static final BigDecimal APP_FEE_PER_PASSENGER = BigDecimal.valueOf(20);
-    private static final BigDecimal APP_FEE_LONE_LUGGAGE = BigDecimal.valueOf(10);
-    private static final BigDecimal COMPANY_PASSENGER_SHARE_PERCENT = BigDecimal.valueOf(0.15); // 15%
-    private static final BigDecimal COMPANY_LUGGAGE_SHARE_PERCENT = BigDecimal.valueOf(1.00); // 100%
-
 
     /**
      * Calculates active drivers per day within a given time range.
@@ -65,7 +112,14 @@ public class MarketControlService {
      * @return List of ChartDataPoint (date, count of active drivers).
      */
     @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyActiveDrivers(LocalDateTime start, LocalDateTime end) {
+    public List<ChartDataPoint> getDailyActiveDrivers(LocalDateTime start, LocalDateTime end, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        if (ChronoUnit.DAYS.between(start.toLocalDate(), end.toLocalDate()) + 1 > exactActivityMaxDays) {
+            // Long ranges: one sketch estimate per day instead of loading every completed order.
+            return downsample(getActiveUsers(start.toLocalDate(), end.toLocalDate(), ActivityPeriod.DAY, ActivityCountMode.APPROXIMATE).stream()
+                    .filter(point -> point.getActiveDrivers() > 0)
+                    .map(point -> new ChartDataPoint(point.getPeriodStart().toString(), point.getActiveDrivers()))
+                    .collect(Collectors.toList()), maxPoints, mode, SeriesDownsampler.Aggregation.AVERAGE);
+        }
         List<OrderEntity> completedOrders = orderRepository.findByStatusAndPickupTimeBetween(OrderStatus.COMPLETED, start, end);
 
         Map<LocalDate, Set<Long>> dailyActiveDriversMap = new HashMap<>();
@@ -77,10 +131,83 @@ public class MarketControlService {
             }
         }
 
-        return dailyActiveDriversMap.entrySet().stream()
+        return downsample(dailyActiveDriversMap.entrySet().stream()
                 .map(entry -> new ChartDataPoint(entry.getKey().toString(), (long) entry.getValue().size()))
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), maxPoints, mode, SeriesDownsampler.Aggregation.AVERAGE);
+    }
+
+    private List<ChartDataPoint> downsample(List<ChartDataPoint> daily, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode,
+                                            SeriesDownsampler.Aggregation aggregation) {
+        int target = maxPoints.orElse(chartDefaultMaxPoints);
+        if (target < 3) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxPoints must be at least 3.");
+        }
+        return SeriesDownsampler.downsample(daily, target, mode, aggregation);
+    }
+
+
+    public enum ActivityPeriod { DAY, WEEK, MONTH }
+
+    public enum ActivityCountMode { AUTO, EXACT, APPROXIMATE }
+
+    /**
+     * Distinct active drivers and clients (at least one completed order picked up) per day, ISO week or month,
+     * i.e. DAU / WAU / MAU. Short ranges are counted exactly; longer ranges merge daily HyperLogLog sketches,
+     * whose relative standard error is 1.04 / sqrt(4096) ~= 1.6% (within ~3.2% for 95% of estimates).
+     * @param startDate First day (inclusive).
+     * @param endDate Last day (inclusive).
+     * @param period Bucket size.
+     * @param mode AUTO picks EXACT when the range is at most {@code analytics.activity.exact-max-days} days.
+     * @return List of ActiveUsersPoint, one per bucket, in chronological order.
+     */
+    @Transactional(readOnly = true)
+    public List<ActiveUsersPoint> getActiveUsers(LocalDate startDate, LocalDate endDate, ActivityPeriod period, ActivityCountMode mode) {
+        if (endDate.isBefore(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "End date must not be before start date.");
+        }
+        long rangeDays = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        boolean exact = mode == ActivityCountMode.EXACT || (mode == ActivityCountMode.AUTO && rangeDays <= exactActivityMaxDays);
+        if (exact && rangeDays > exactActivityMaxDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Exact counts are limited to " + exactActivityMaxDays + " days. Use AUTO or APPROXIMATE mode for longer ranges.");
+        }
+
+        Function<LocalDate, LocalDate> periodOf = day -> {
+            LocalDate bucketStart = switch (period) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+            return bucketStart.isBefore(startDate) ? startDate : bucketStart;
+        };
+        Map<LocalDate, ActiveCounts> exactCounts = exact
+                ? activitySketchStore.exactCounts(startDate, endDate, periodOf)
+                : Map.of();
+
+        List<ActiveUsersPoint> points = new ArrayList<>();
+        LocalDate bucketStart = startDate;
+        while (!bucketStart.isAfter(endDate)) {
+            LocalDate nextBucket = switch (period) {
+                case DAY -> bucketStart.plusDays(1);
+                case WEEK -> bucketStart.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+                case MONTH -> bucketStart.withDayOfMonth(1).plusMonths(1);
+            };
+            LocalDate bucketEnd = nextBucket.minusDays(1).isAfter(endDate) ? endDate : nextBucket.minusDays(1);
+            ActiveCounts counts = exact
+                    ? exactCounts.getOrDefault(bucketStart, new ActiveCounts(0, 0, true))
+                    : activitySketchStore.estimate(bucketStart, bucketEnd);
+            points.add(ActiveUsersPoint.builder()
+                    .periodStart(bucketStart)
+                    .periodEnd(bucketEnd)
+                    .activeDrivers(counts.drivers())
+                    .activeClients(counts.clients())
+                    .exact(counts.exact())
+                    .relativeStandardError(counts.exact() ? 0.0 : HyperLogLog.RELATIVE_STANDARD_ERROR)
+                    .build());
+            bucketStart = nextBucket;
+        }
+        return points;
     }
 
     /**
@@ -91,16 +218,11 @@ public class MarketControlService {
      */
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getDailyNewClientsBySource(LocalDateTime start, LocalDateTime end) {
-        List<Client> newClients = clientRepository.findByCreatedAtAfter(start).stream()
-                .filter(c -> c.getCreatedAt().isBefore(end))
-                .collect(Collectors.toList());
-
         Map<LocalDate, Map<Client.ClientOrderSource, Long>> dailyNewClientsMap = new HashMap<>();
-        for (Client client : newClients) {
-            LocalDate creationDate = client.getCreatedAt().toLocalDate();
+        for (DailySourceCountRow row : clientRepository.countDailyBySourceInRange(start, end)) {
             dailyNewClientsMap
-                    .computeIfAbsent(creationDate, k -> new HashMap<>())
-                    .merge(client.getOrderSource(), 1L, Long::sum);
+                    .computeIfAbsent(row.getDay(), k -> new HashMap<>())
+                    .merge(row.getSource(), row.getTotal(), Long::sum);
         }
 
         return dailyNewClientsMap.entrySet().stream()
@@ -162,20 +284,11 @@ public class MarketControlService {
      * @return List of ChartDataPoint (date, count of new clients).
      */
     @Transactional(readOnly = true)
-    public List<ChartDataPoint> getDailyNewClients(LocalDateTime start, LocalDateTime end) {
-        List<Client> newClients = clientRepository.findByCreatedAtAfter(start).stream()
-                .filter(c -> c.getCreatedAt().isBefore(end))
-                .collect(Collectors.toList());
-
-        Map<LocalDate, Long> dailyNewClientsMap = new HashMap<>();
-        for (Client client : newClients) {
-            dailyNewClientsMap.merge(client.getCreatedAt().toLocalDate(), 1L, Long::sum);
-        }
-
-        return dailyNewClientsMap.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().toString(), entry.getValue()))
+    public List<ChartDataPoint> getDailyNewClients(LocalDateTime start, LocalDateTime end, Optional<Integer> maxPoints, SeriesDownsampler.Mode mode) {
+        return downsample(clientRepository.countDailyByCreatedAtInRange(start, end).stream()
+                .map(row -> new ChartDataPoint(row.getDay().toString(), row.getTotal()))
                 .sorted(Comparator.comparing(ChartDataPoint::getName))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), maxPoints, mode, SeriesDownsampler.Aggregation.SUM);
     }
 
     /**
@@ -186,15 +299,8 @@ public class MarketControlService {
      */
     @Transactional(readOnly = true)
     public List<ChartDataPoint> getClientsByOrderSource(LocalDateTime start, LocalDateTime end) {
-        List<Client> clients = clientRepository.findByCreatedAtAfter(start).stream()
-                .filter(c -> c.getCreatedAt().isBefore(end))
-                .collect(Collectors.toList());
-
-        Map<Client.ClientOrderSource, Long> countsBySource = clients.stream()
-                .collect(Collectors.groupingBy(Client::getOrderSource, Collectors.counting()));
-
-        return countsBySource.entrySet().stream()
-                .map(entry -> new ChartDataPoint(entry.getKey().name(), entry.getValue()))
+        return clientRepository.countBySourceInRange(start, end).stream()
+                .map(row -> new ChartDataPoint(row.getSource().name(), row.getTotal()))
                 .collect(Collectors.toList());
     }
 
@@ -216,6 +322,403 @@ public class MarketControlService {
     }
 
 
+
+    /**
+     * Ad-hoc slice of completed and canceled orders, served from the in-memory {@link OrderFactStore}.
+     * Does not query the orders table; only district names are resolved from the database.
+     * @param dimension Dimension to group by.
+     * @param startDate Start date (inclusive) of order creation, or null for no lower bound.
+     * @param endDate End date (inclusive) of order creation, or null for no upper bound.
+     * @param statuses Statuses to include (COMPLETED / CANCELED); empty means both.
+     * @param orderTypes Order types to include; empty means all.
+     * @param fromDistrictId Optional origin district filter.
+     * @param toDistrictId Optional destination district filter.
+     * @param source Optional client source filter.
+     * @return List of OrderSliceRow sorted by key.
+     */
+    public List<OrderSliceRow> sliceOrders(Dimension dimension, LocalDate startDate, LocalDate endDate,
+                                           Set<OrderStatus> statuses, Set<OrderType> orderTypes,
+                                           Long fromDistrictId, Long toDistrictId, ClientOrderSource source) {
+        FactFilter filter = FactFilter.all()
+                .between(startDate, endDate != null ? endDate.plusDays(1) : null)
+                .statuses(statuses)
+                .orderTypes(orderTypes)
+                .fromDistrict(fromDistrictId)
+                .toDistrict(toDistrictId)
+                .source(source);
+        SliceResult result = orderFactStore.slice(filter, dimension);
+        List<Long> keys = result.keys();
+
+        Map<Long, String> districtNames = new HashMap<>();
+        if (dimension == Dimension.FROM_DISTRICT || dimension == Dimension.TO_DISTRICT || dimension == Dimension.DISTRICT_PAIR) {
+            Set<Long> districtIds = new HashSet<>();
+            for (Long key : keys) {
+                if (dimension == Dimension.DISTRICT_PAIR) {
+                    districtIds.add((long) OrderFactStore.decodePairFrom(key));
+                    districtIds.add((long) OrderFactStore.decodePairTo(key));
+                } else {
+                    districtIds.add(key);
+                }
+            }
+            districtRepository.findAllById(districtIds).forEach(d -> districtNames.put(d.getId(), d.getName()));
+        }
+
+        List<OrderSliceRow> rows = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            OrderFactStore.Aggregate aggregate = result.get(key);
+            rows.add(OrderSliceRow.builder()
+                    .key(formatSliceKey(dimension, key, districtNames))
+                    .orders(aggregate.orders())
+                    .seats(aggregate.seats())
+                    .appEarnings(BigDecimal.valueOf(aggregate.appFeeMinor(), 2))
+                    .companyRevenue(BigDecimal.valueOf(aggregate.companyRevenueMinor(), 2))
+                    .build());
+        }
+        return rows;
+    }
+
+    private String formatSliceKey(Dimension dimension, long key, Map<Long, String> districtNames) {
+        switch (dimension) {
+            case DAY:
+                return LocalDate.ofEpochDay(key).toString();
+            case HOUR_OF_DAY:
+                return String.valueOf(key);
+            case DAY_OF_WEEK:
+                return DayOfWeek.of((int) key).name();
+            case FROM_DISTRICT:
+            case TO_DISTRICT:
+                return districtLabel(key, districtNames);
+            case DISTRICT_PAIR:
+                return districtLabel(OrderFactStore.decodePairFrom(key), districtNames) + " -> "
+                        + districtLabel(OrderFactStore.decodePairTo(key), districtNames);
+            case ORDER_TYPE:
+                return OrderType.values()[(int) key].name();
+            case STATUS:
+                return OrderStatus.values()[(int) key].name();
+            case SOURCE:
+                return key == OrderFactStore.NO_SOURCE ? "UNKNOWN" : ClientOrderSource.values()[(int) key].name();
+            default:
+                return String.valueOf(key);
+        }
+    }
+
+    private String districtLabel(long districtId, Map<Long, String> districtNames) {
+        if (districtId == OrderFactStore.NO_DISTRICT) {
+            return "Unknown";
+        }
+        return districtNames.getOrDefault(districtId, "District " + districtId);
+    }
+
+
+    /**
+     * Origin-destination demand for pickups in a date range, merged from precomputed weekly cells.
+     * @param startDate First pickup day (inclusive).
+     * @param endDate Last pickup day (inclusive).
+     * @param fromDistrictId Optional origin filter.
+     * @param toDistrictId Optional destination filter.
+     * @param limit Maximum number of pairs, busiest first.
+     * @return List of OdMatrixCell sorted by order count descending.
+     */
+    @Transactional(readOnly = true)
+    public List<OdMatrixCell> getOdMatrix(LocalDate startDate, LocalDate endDate, Long fromDistrictId, Long toDistrictId, int limit) {
+        validateDemandRange(startDate, endDate);
+        List<OdDemandMatrix.OdPair> pairs = odDemandMatrix.matrix(startDate, endDate, fromDistrictId, toDistrictId).stream()
+                .sorted(Comparator.comparingLong((OdDemandMatrix.OdPair p) -> p.totals().orders()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        Set<Long> districtIds = new HashSet<>();
+        pairs.forEach(p -> {
+            if (p.fromDistrictId() != null) districtIds.add(p.fromDistrictId());
+            if (p.toDistrictId() != null) districtIds.add(p.toDistrictId());
+        });
+        Map<Long, String> districtNames = new HashMap<>();
+        districtRepository.findAllById(districtIds).forEach(d -> districtNames.put(d.getId(), d.getName()));
+
+        return pairs.stream()
+                .map(p -> OdMatrixCell.builder()
+                        .fromDistrictId(p.fromDistrictId())
+                        .fromDistrictName(p.fromDistrictId() != null ? districtNames.getOrDefault(p.fromDistrictId(), "Unknown") : "Unknown")
+                        .toDistrictId(p.toDistrictId())
+                        .toDistrictName(p.toDistrictId() != null ? districtNames.getOrDefault(p.toDistrictId(), "Unknown") : "Unknown")
+                        .orders(p.totals().orders())
+                        .seats(p.totals().seats())
+                        .completedOrders(p.totals().completed())
+                        .canceledOrders(p.totals().canceled())
+                        .fillRatio(p.totals().fillRatio())
+                        .cancellationRate(p.totals().cancellationRate())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    public enum QuantileGroupBy { NONE, DISTRICT, ORDER_TYPE }
+
+    private record QuantileGroup(LocalDate period, long districtId, OrderType orderType) implements Comparable<QuantileGroup> {
+        private static final Comparator<QuantileGroup> ORDER = Comparator.comparing(QuantileGroup::period)
+                .thenComparingLong(QuantileGroup::districtId)
+                .thenComparing(QuantileGroup::orderType, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        @Override
+        public int compareTo(QuantileGroup other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * p50 / p90 / p99 of an order metric per day, ISO week or month, merged from the per-day t-digests.
+     * Cost depends on the number of days and districts in range, not on the number of orders.
+     * Quantile estimates are typically within 0.1% of rank (tighter towards p99).
+     * @param metric Order value (UZS), booking lead time (minutes), acceptance delay (seconds) or a later stage latency (minutes).
+     * @param startDate First booking day (inclusive).
+     * @param endDate Last booking day (inclusive).
+     * @param period Bucket size.
+     * @param districtId Optional origin district filter.
+     * @param orderType Optional order type filter.
+     * @param groupBy Additionally split each bucket by origin district or order type.
+     * @return List of QuantilePoint in chronological order; buckets without values are omitted.
+     */
+    @Transactional(readOnly = true)
+    public List<QuantilePoint> getQuantiles(QuantileMetric metric, LocalDate startDate, LocalDate endDate, ActivityPeriod period,
+                                            Long districtId, OrderType orderType, QuantileGroupBy groupBy) {
+        if (endDate.isBefore(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "End date must not be before start date.");
+        }
+        Map<QuantileGroup, TDigest> digests = quantileSketchStore.merge(metric, startDate, endDate, districtId, orderType,
+                (day, district, type) -> {
+                    LocalDate bucketStart = switch (period) {
+                        case DAY -> day;
+                        case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                        case MONTH -> day.withDayOfMonth(1);
+                    };
+                    return new QuantileGroup(bucketStart.isBefore(startDate) ? startDate : bucketStart,
+                            groupBy == QuantileGroupBy.DISTRICT ? district : OrderFactStore.NO_DISTRICT,
+                            groupBy == QuantileGroupBy.ORDER_TYPE ? type : null);
+                });
+
+        Map<Long, String> districtNames = groupBy == QuantileGroupBy.DISTRICT
+                ? districtRepository.findAll().stream().collect(Collectors.toMap(District::getId, District::getName))
+                : Map.of();
+        return digests.entrySet().stream()
+                .map(entry -> {
+                    QuantileGroup group = entry.getKey();
+                    TDigest digest = entry.getValue();
+                    LocalDate nextBucket = switch (period) {
+                        case DAY -> group.period().plusDays(1);
+                        case WEEK -> group.period().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+                        case MONTH -> group.period().withDayOfMonth(1).plusMonths(1);
+                    };
+                    boolean byDistrict = groupBy == QuantileGroupBy.DISTRICT && group.districtId() != OrderFactStore.NO_DISTRICT;
+                    return QuantilePoint.builder()
+                            .periodStart(group.period())
+                            .periodEnd(nextBucket.minusDays(1).isAfter(endDate) ? endDate : nextBucket.minusDays(1))
+                            .districtId(byDistrict ? group.districtId() : null)
+                            .districtName(byDistrict ? districtNames.getOrDefault(group.districtId(), "Unknown District") : null)
+                            .orderType(group.orderType())
+                            .count(digest.count())
+                            .p50(digest.quantile(0.5))
+                            .p90(digest.quantile(0.9))
+                            .p99(digest.quantile(0.99))
+                            .min(digest.min())
+                            .max(digest.max())
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Order funnel for orders booked in a date range: how many reached each stage, where canceled orders were dropped,
+     * conversion rates and the latency distribution of each stage. Served from the per-day funnel counters and
+     * t-digests, so cost depends on the number of days and districts in range, not on the number of orders.
+     * @param startDate First booking day (inclusive).
+     * @param endDate Last booking day (inclusive).
+     * @param districtId Optional origin district filter.
+     * @param orderType Optional order type filter.
+     * @param groupBy Split the funnel by origin district or order type.
+     * @return List of OrderFunnelRow; groups without orders are omitted.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderFunnelRow> getOrderFunnel(LocalDate startDate, LocalDate endDate, Long districtId, OrderType orderType,
+                                               QuantileGroupBy groupBy) {
+        if (endDate.isBefore(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "End date must not be before start date.");
+        }
+        QuantileSketchStore.GroupFunction<QuantileGroup> groupOf = (day, district, type) -> new QuantileGroup(startDate,
+                groupBy == QuantileGroupBy.DISTRICT ? district : OrderFactStore.NO_DISTRICT,
+                groupBy == QuantileGroupBy.ORDER_TYPE ? type : null);
+        Map<QuantileGroup, long[]> funnels = orderFunnelStore.sum(startDate, endDate, districtId, orderType, groupOf);
+        Map<QuantileGroup, TDigest> toAccept = quantileSketchStore.merge(QuantileMetric.ACCEPTANCE_DELAY_SECONDS,
+                startDate, endDate, districtId, orderType, groupOf);
+        Map<QuantileGroup, TDigest> toEnRoute = quantileSketchStore.merge(QuantileMetric.ACCEPT_TO_EN_ROUTE_MINUTES,
+                startDate, endDate, districtId, orderType, groupOf);
+        Map<QuantileGroup, TDigest> rides = quantileSketchStore.merge(QuantileMetric.RIDE_DURATION_MINUTES,
+                startDate, endDate, districtId, orderType, groupOf);
+
+        Map<Long, String> districtNames = groupBy == QuantileGroupBy.DISTRICT
+                ? districtRepository.findAll().stream().collect(Collectors.toMap(District::getId, District::getName))
+                : Map.of();
+        return funnels.entrySet().stream()
+                .filter(entry -> entry.getValue()[OrderFunnelStore.CREATED] > 0)
+                .map(entry -> {
+                    QuantileGroup group = entry.getKey();
+                    long[] counts = entry.getValue();
+                    boolean byDistrict = groupBy == QuantileGroupBy.DISTRICT && group.districtId() != OrderFactStore.NO_DISTRICT;
+                    return OrderFunnelRow.builder()
+                            .districtId(byDistrict ? group.districtId() : null)
+                            .districtName(byDistrict ? districtNames.getOrDefault(group.districtId(), "Unknown District") : null)
+                            .orderType(group.orderType())
+                            .created(counts[OrderFunnelStore.CREATED])
+                            .accepted(counts[OrderFunnelStore.ACCEPTED])
+                            .enRoute(counts[OrderFunnelStore.EN_ROUTE])
+                            .completed(counts[OrderFunnelStore.COMPLETED])
+                            .canceledPending(counts[OrderFunnelStore.CANCELED_PENDING])
+                            .canceledAccepted(counts[OrderFunnelStore.CANCELED_ACCEPTED])
+                            .canceledEnRoute(counts[OrderFunnelStore.CANCELED_EN_ROUTE])
+                            .acceptRate(ratio(counts[OrderFunnelStore.ACCEPTED], counts[OrderFunnelStore.CREATED]))
+                            .pickupRate(ratio(counts[OrderFunnelStore.EN_ROUTE], counts[OrderFunnelStore.ACCEPTED]))
+                            .completionRate(ratio(counts[OrderFunnelStore.COMPLETED], counts[OrderFunnelStore.CREATED]))
+                            .timeToAcceptSeconds(latencySummary(toAccept.get(group)))
+                            .acceptToEnRouteMinutes(latencySummary(toEnRoute.get(group)))
+                            .rideDurationMinutes(latencySummary(rides.get(group)))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0.0 : (double) part / whole;
+    }
+
+    private static OrderFunnelRow.LatencySummary latencySummary(TDigest digest) {
+        if (digest == null || digest.count() == 0) {
+            return OrderFunnelRow.LatencySummary.builder().count(0).build();
+        }
+        return OrderFunnelRow.LatencySummary.builder()
+                .count(digest.count())
+                .p50(digest.quantile(0.5))
+                .p90(digest.quantile(0.9))
+                .p99(digest.quantile(0.99))
+                .build();
+    }
+
+    /**
+     * Most booked routes or pickup / drop-off locations in a recent window, from the heavy-hitter sketches.
+     * Counts are estimates with a per-item error bound; any item booked more often than maxUnlistedCount is listed.
+     * @param kind Routes (district pairs) or free-text locations.
+     * @param regionId Optional origin region filter.
+     * @param limit Maximum number of items.
+     * @return TopItemsResponse with items by descending count.
+     */
+    @Transactional(readOnly = true)
+    public TopItemsResponse getTopItems(HitterKind kind, TopWindow window, Long regionId, int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive.");
+        }
+        SpaceSaving<Object> summary = heavyHitterStore.top(kind, window, regionId);
+        List<SpaceSaving.Estimate<Object>> estimates = summary.top(limit);
+        Map<Long, String> districtNames = kind == HitterKind.ROUTE
+                ? districtRepository.findAll().stream().collect(Collectors.toMap(District::getId, District::getName))
+                : Map.of();
+
+        List<TopItemsResponse.TopItem> items = new ArrayList<>(estimates.size());
+        for (SpaceSaving.Estimate<Object> estimate : estimates) {
+            TopItemsResponse.TopItem.TopItemBuilder item = TopItemsResponse.TopItem.builder()
+                    .rank(items.size() + 1)
+                    .count(estimate.count())
+                    .maxError(estimate.error());
+            if (estimate.item() instanceof HeavyHitterStore.Route route) {
+                item.fromDistrictId(route.fromDistrictId())
+                        .fromDistrictName(districtNames.getOrDefault(route.fromDistrictId(), "Unknown District"))
+                        .toDistrictId(route.toDistrictId())
+                        .toDistrictName(districtNames.getOrDefault(route.toDistrictId(), "Unknown District"));
+            } else {
+                item.location((String) estimate.item());
+            }
+            items.add(item.build());
+        }
+        return TopItemsResponse.builder()
+                .kind(kind)
+                .window(window)
+                .regionId(regionId)
+                .totalOrders(summary.total())
+                .maxUnlistedCount(estimates.size() < limit ? summary.minCount() : estimates.get(estimates.size() - 1).count())
+                .items(items)
+                .build();
+    }
+
+    /**
+     * Hour-of-week demand heatmap (7 x 24 cells, Monday first) for pickups in a date range.
+     * @param fromDistrictId Optional origin filter.
+     * @param toDistrictId Optional destination filter.
+     * @return List of 168 DemandHeatmapCell.
+     */
+    public List<DemandHeatmapCell> getDemandHeatmap(LocalDate startDate, LocalDate endDate, Long fromDistrictId, Long toDistrictId) {
+        validateDemandRange(startDate, endDate);
+        OdDemandMatrix.Totals[] byHour = odDemandMatrix.hourOfWeek(startDate, endDate, fromDistrictId, toDistrictId);
+        List<DemandHeatmapCell> cells = new ArrayList<>(byHour.length);
+        for (int hourOfWeek = 0; hourOfWeek < byHour.length; hourOfWeek++) {
+            OdDemandMatrix.Totals totals = byHour[hourOfWeek];
+            cells.add(DemandHeatmapCell.builder()
+                    .dayOfWeek(DayOfWeek.of(hourOfWeek / 24 + 1))
+                    .hour(hourOfWeek % 24)
+                    .orders(totals.orders())
+                    .seats(totals.seats())
+                    .fillRatio(totals.fillRatio())
+                    .cancellationRate(totals.cancellationRate())
+                    .build());
+        }
+        return cells;
+    }
+
+    /**
+     * Live order KPIs over the last 5, 15 and 60 minutes, served from in-memory counters.
+     * @param regionId Optional region filter; when set, only that region is listed.
+     * @return LiveKpiSnapshot with the combined total and one entry per region.
+     */
+    public LiveKpiSnapshot getLiveKpis(Long regionId) {
+        Map<Long, String> regionNames = liveMarketMetrics.regions();
+        if (regionId != null && !regionNames.containsKey(regionId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Region not found.");
+        }
+        List<LiveKpiSnapshot.RegionKpis> regions = regionNames.entrySet().stream()
+                .filter(entry -> regionId == null || entry.getKey().equals(regionId))
+                .map(entry -> liveRegionKpis(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(LiveKpiSnapshot.RegionKpis::getOpenPending).reversed()
+                        .thenComparing(LiveKpiSnapshot.RegionKpis::getRegionName))
+                .collect(Collectors.toList());
+        return LiveKpiSnapshot.builder()
+                .asOf(LocalDateTime.now())
+                .total(liveRegionKpis(null, "All regions"))
+                .regions(regions)
+                .build();
+    }
+
+    private LiveKpiSnapshot.RegionKpis liveRegionKpis(Long regionId, String regionName) {
+        List<LiveKpiSnapshot.WindowKpis> windows = new ArrayList<>(LIVE_KPI_WINDOWS.size());
+        for (int minutes : LIVE_KPI_WINDOWS) {
+            LiveMarketMetrics.WindowTotals totals = liveMarketMetrics.totals(regionId, minutes);
+            windows.add(LiveKpiSnapshot.WindowKpis.builder()
+                    .minutes(minutes)
+                    .ordersCreated(totals.created())
+                    .ordersPerMinute((double) totals.created() / minutes)
+                    .accepts(totals.accepted())
+                    .acceptsPerMinute((double) totals.accepted() / minutes)
+                    .avgTimeToAcceptSeconds(totals.accepted() == 0 ? null : totals.acceptDelayMillis() / 1000.0 / totals.accepted())
+                    .build());
+        }
+        return LiveKpiSnapshot.RegionKpis.builder()
+                .regionId(regionId)
+                .regionName(regionName)
+                .openPending(liveMarketMetrics.openPending(regionId))
+                .windows(windows)
+                .build();
+    }
+
+    private void validateDemandRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "End date must not be before start date.");
+        }
+    }
+
     /**
      * Goal Calculator: Calculates clients and drivers needed for a target revenue.
      * @param targetRevenue The desired company revenue for a month.
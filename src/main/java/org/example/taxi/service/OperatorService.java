@@ -1,5 +1,6 @@
 package org.example.taxi.service;
 
+import org.example.taxi.config.UserIdentityResolver;
 import org.example.taxi.controller.dto.DriverCreationRequest;
 import org.example.taxi.controller.dto.OperatorOrderCreationRequest;
 import org.example.taxi.entity.*;
@@ -21,6 +22,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,9 +36,12 @@ public class OperatorService {
     @Autowired private ClientRepository clientRepository;
     @Autowired private DistrictRepository districtRepository;
     @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private UserIdentityResolver userIdentityResolver;
+    @Autowired private UserExistenceFilter userExistenceFilter;
     @Autowired private S3Service s3Service;
     @Autowired private OrderService orderService;
     @Autowired private OrderRepository orderRepository;
+    @Autowired private GoalProgressCounterService goalProgressCounterService;
 
     @Transactional(readOnly = true)
     public Page<Driver> getAllDrivers(Pageable pageable) {
@@ -44,8 +49,11 @@ public class OperatorService {
         return driverRepository.findAll(pageable);
     }
 
+    /**
+     * @param operatorUserId User ID of the operator, recorded as the actor of the transition.
+     */
     @Transactional
-    public OrderEntity operatorUpdateOrderStatus(Long orderId, OrderStatus newStatusEnum) {
+    public OrderEntity operatorUpdateOrderStatus(Long orderId, OrderStatus newStatusEnum, Long operatorUserId) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + orderId));
 
@@ -55,13 +63,14 @@ public class OperatorService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot update a completed or canceled order. Current status: " + currentStatus.name());
         }
 
-        order.setStatus(newStatusEnum);
+        OrderService.StatusChange change = orderService.changeStatus(order, newStatusEnum, OrderStatusTransition.ActorType.OPERATOR, operatorUserId);
         OrderEntity updatedOrder = orderRepository.save(order);
 
         if (newStatusEnum == OrderStatus.COMPLETED) {
             orderService.deductAppFee(orderId);
         }
         logger.info("Operator manually updated order {} status to {}. Previously: {}.", orderId, newStatusEnum.name(), currentStatus.name());
+        orderService.publishStatusChange(updatedOrder, change);
         return updatedOrder;
     }
 
@@ -104,7 +113,7 @@ public class OperatorService {
 
     @Transactional
     public Driver createDriver(DriverCreationRequest request) {
-        if (userRepository.existsByPhoneNumber(request.getPhoneNumber())) {
+        if (userExistenceFilter.existsByPhoneNumber(request.getPhoneNumber())) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "A user with this phone number already exists.");
         }
         if (driverRepository.findByCarNumber(request.getCarNumber()).isPresent()) {
@@ -140,6 +149,7 @@ public class OperatorService {
         newUser.setLastName(request.getLastName());
         newUser.setUserType(User.UserType.DRIVER);
         newUser = userRepository.save(newUser);
+        userExistenceFilter.record(newUser);
 
         Driver newDriver = new Driver();
         newDriver.setUser(newUser);
@@ -156,42 +166,51 @@ public class OperatorService {
         newDriver.setApprovalStatus(Driver.ApprovalStatus.ACCEPTED);
 
         newDriver = driverRepository.save(newDriver);
+        goalProgressCounterService.recordNewDriver(newDriver.getCreatedAt());
         logger.info("New DRIVER user and profile created by operator: userId={}, driverId={}, phoneNumber={}", newUser.getId(), newDriver.getId(), request.getPhoneNumber());
 
         return newDriver;
     }
 
+    /**
+     * @param operatorUserId User ID of the operator, recorded as the actor if the order is assigned right away.
+     */
     @Transactional
-    public OrderEntity createOrderByOperator(OperatorOrderCreationRequest request) {
+    public OrderEntity createOrderByOperator(OperatorOrderCreationRequest request, Long operatorUserId) {
         Long clientId = null;
         String clientPhoneNumber = request.getClientPhoneNumber();
 
-        Optional<User> existingUserOpt = userRepository.findByPhoneNumber(clientPhoneNumber);
+        // Cached phone directory: repeat callers cost no query, and numbers the existence filter rejects none
+        Optional<UserIdentityResolver.Identity> existingIdentity = userIdentityResolver.resolve(clientPhoneNumber);
 
-        if (existingUserOpt.isPresent()) {
-            User existingUser = existingUserOpt.get();
-            if (existingUser.getUserType() != User.UserType.CLIENT) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User with phone number " + clientPhoneNumber + " is not a CLIENT. User type: " + existingUser.getUserType());
+        if (existingIdentity.isPresent()) {
+            UserIdentityResolver.Identity identity = existingIdentity.get();
+            if (identity.userType() != User.UserType.CLIENT) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User with phone number " + clientPhoneNumber + " is not a CLIENT. User type: " + identity.userType());
             }
-            Client client = clientRepository.findByUser_Id(existingUser.getId())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Client profile not found for user " + existingUser.getPhoneNumber()));
-            clientId = client.getUser().getId();
+            if (identity.profileId() == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Client profile not found for user " + clientPhoneNumber);
+            }
+            clientId = identity.userId();
             logger.info("Operator creating order for existing client: {} (User ID: {})", clientPhoneNumber, clientId);
         } else {
             logger.info("Operator creating order for new/guest client: {}", clientPhoneNumber);
+            // No password hash: the guest activates the account through the bot
             User newClientUser = new User();
             newClientUser.setPhoneNumber(clientPhoneNumber);
-            newClientUser.setPassword(passwordEncoder.encode("guest_password_" + LocalDateTime.now().getNano()));
+            newClientUser.setPassword(User.UNUSABLE_PASSWORD);
             newClientUser.setFirstName(request.getClientFirstName() != null ? request.getClientFirstName() : "Guest");
             newClientUser.setLastName(request.getClientLastName() != null ? request.getClientLastName() : "User");
             newClientUser.setUserType(User.UserType.CLIENT);
             newClientUser = userRepository.save(newClientUser);
+            userExistenceFilter.record(newClientUser);
 
             Client newClient = new Client();
             newClient.setUser(newClientUser);
             newClient.setFirstName(newClientUser.getFirstName());
             newClient.setLastName(newClientUser.getLastName());
             newClient = clientRepository.save(newClient);
+            goalProgressCounterService.recordNewClient(newClient.getCreatedAt());
             clientId = newClient.getUser().getId();
             logger.info("Created new client (User ID: {}) for order: {}", clientId, clientPhoneNumber);
         }
@@ -231,7 +250,7 @@ public class OperatorService {
         OrderEntity createdOrder = orderService.createOrder(newOrder, clientId);
 
         if (request.getDriverId() != null) {
-            createdOrder = orderService.manualAssignOrder(createdOrder.getId(), request.getDriverId());
+            createdOrder = orderService.manualAssignOrder(createdOrder.getId(), request.getDriverId(), operatorUserId);
             logger.info("Operator manually assigned newly created order {} to driver {}.", createdOrder.getId(), request.getDriverId());
         }
 
@@ -245,6 +264,12 @@ public class OperatorService {
         return orderService.getAllOrdersByStatus(activeOrderStatuses);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getOperatorActiveOrders(List<String> fields) {
+        List<OrderStatus> activeOrderStatuses = List.of(OrderStatus.PENDING, OrderStatus.ACCEPTED, OrderStatus.EN_ROUTE);
+        return orderService.getAllOrdersByStatus(activeOrderStatuses, fields);
+    }
+
     @Transactional(readOnly = true)
     public List<OrderEntity> getStuckOrders(int hoursAgo) {
         LocalDateTime timeThreshold = LocalDateTime.now().minusHours(hoursAgo);
@@ -252,9 +277,15 @@ public class OperatorService {
         return orderService.getIncompleteOrdersOlderThan(timeThreshold);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getStuckOrders(int hoursAgo, List<String> fields) {
+        LocalDateTime timeThreshold = LocalDateTime.now().minusHours(hoursAgo);
+        return orderService.getIncompleteOrdersOlderThan(timeThreshold, fields);
+    }
+
     @Transactional
-    public OrderEntity manualAssignOrder(Long orderId, Long driverId) {
+    public OrderEntity manualAssignOrder(Long orderId, Long driverId, Long operatorUserId) {
         logger.info("Operator service initiating manual assignment of order {} to driver {}.", orderId, driverId);
-        return orderService.manualAssignOrder(orderId, driverId);
+        return orderService.manualAssignOrder(orderId, driverId, operatorUserId);
     }
 }
\ No newline at end of file
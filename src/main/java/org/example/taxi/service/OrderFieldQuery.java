@@ -0,0 +1,164 @@
+package org.example.taxi.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets for order list endpoints: selects only the requested columns of {@code orders}, and answers one
+ * map per order holding just those fields, instead of loading and serializing whole {@code OrderEntity} rows.
+ * <p>
+ * A {@code fields} parameter is a comma-separated list of order field names and/or named views, e.g.
+ * {@code fields=card} or {@code fields=summary,totalCost}. {@code selectedSeats} is a collection table and is only
+ * part of full responses (no {@code fields} parameter).
+ */
+@Service
+public class OrderFieldQuery {
+
+    /** Selectable fields and their JPQL paths, in response order. */
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+
+    static {
+        for (String field : List.of("id", "userId", "driverId", "status", "orderType", "seats", "totalCost",
+                "fromDistrictId", "fromLocation", "toDistrictId", "toLocation", "pickupTime", "createdAt",
+                "acceptedAt", "enRouteAt", "completedAt", "canceledAt", "canceledBy", "luggageContactInfo", "extraInfo")) {
+            FIELDS.put(field, "o." + field);
+        }
+    }
+
+    /** Named compact projections for the common screens. */
+    private static final Map<String, List<String>> VIEWS = Map.of(
+            // Order lists on the phone: enough to render a row
+            "summary", List.of("id", "status", "pickupTime", "fromDistrictId", "toDistrictId"),
+            // Driver feed cards: what a driver decides on before accepting
+            "card", List.of("id", "status", "orderType", "pickupTime", "fromDistrictId", "fromLocation",
+                    "toDistrictId", "toLocation", "seats", "totalCost"),
+            // Ride history rows
+            "history", List.of("id", "status", "orderType", "pickupTime", "fromDistrictId", "toDistrictId",
+                    "seats", "totalCost", "completedAt", "canceledAt")
+    );
+
+    @PersistenceContext private EntityManager entityManager;
+
+    /**
+     * @param fields The {@code fields} request parameter.
+     * @return The requested field names in response order, or null when the full entity was asked for.
+     */
+    public List<String> resolve(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String token : fields.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (VIEWS.containsKey(name)) {
+                requested.addAll(VIEWS.get(name));
+            } else if (FIELDS.containsKey(name)) {
+                requested.add(name);
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field or view '" + name + "'. Fields: "
+                        + String.join(", ", FIELDS.keySet()) + ". Views: " + String.join(", ", VIEWS.keySet()) + ".");
+            }
+        }
+        if (requested.isEmpty()) {
+            return null;
+        }
+        return new ArrayList<>(requested);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findPendingForDriverFeed(List<String> fields, List<Long> toDistrictIdsInRegion, Long driverDistrictId,
+                                                              LocalDateTime start, LocalDateTime end, int maxSeats) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", OrderStatus.PENDING);
+        params.put("toDistrictIds", toDistrictIdsInRegion);
+        params.put("driverDistrictId", driverDistrictId);
+        params.put("start", start);
+        params.put("end", end);
+        params.put("maxSeats", maxSeats);
+        return select(fields, "o.status = :status AND o.driverId IS NULL " +
+                "AND (o.toDistrictId IN :toDistrictIds OR o.fromDistrictId = :driverDistrictId) " +
+                "AND o.pickupTime BETWEEN :start AND :end AND o.seats <= :maxSeats", params, "o.pickupTime ASC");
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByUserId(List<String> fields, Long userId, Optional<OrderStatus> status) {
+        return findByOwner(fields, "o.userId", userId, status);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByDriverId(List<String> fields, Long driverId, Optional<OrderStatus> status) {
+        return findByOwner(fields, "o.driverId", driverId, status);
+    }
+
+    private List<Map<String, Object>> findByOwner(List<String> fields, String ownerPath, Long ownerId, Optional<OrderStatus> status) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ownerId", ownerId);
+        String where = ownerPath + " = :ownerId";
+        if (status.isPresent()) {
+            where += " AND o.status = :status";
+            params.put("status", status.get());
+        }
+        return select(fields, where, params, "o.pickupTime DESC");
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByDriverIdAndStatusIn(List<String> fields, Long driverId, List<OrderStatus> statuses) {
+        return select(fields, "o.driverId = :driverId AND o.status IN :statuses",
+                Map.of("driverId", driverId, "statuses", statuses), null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByStatusIn(List<String> fields, List<OrderStatus> statuses) {
+        return select(fields, "o.status IN :statuses", Map.of("statuses", statuses), null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findIncompleteCreatedBefore(List<String> fields, LocalDateTime time) {
+        return select(fields, "o.status <> :completed AND o.createdAt < :time",
+                Map.of("completed", OrderStatus.COMPLETED, "time", time), null);
+    }
+
+    private List<Map<String, Object>> select(List<String> fields, String where, Map<String, Object> params, String orderBy) {
+        List<String> columns = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            columns.add(FIELDS.get(field));
+        }
+        String jpql = "SELECT " + String.join(", ", columns) + " FROM OrderEntity o WHERE " + where
+                + (orderBy != null ? " ORDER BY " + orderBy : "");
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        params.forEach(query::setParameter);
+
+        List<Tuple> rows = query.getResultList();
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> order = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                order.put(fields.get(i), row.get(i));
+            }
+            result.add(order);
+        }
+        return result;
+    }
+}
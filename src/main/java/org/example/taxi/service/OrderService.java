@@ -1,17 +1,24 @@
 package org.example.taxi.service;
 
+import org.example.taxi.config.datasource.ReplicaRouting;
 import org.example.taxi.entity.District;
 import org.example.taxi.entity.Driver;
 import org.example.taxi.entity.OrderEntity;
 import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderStatusTransition;
+import org.example.taxi.entity.OrderStatusTransition.ActorType;
 import org.example.taxi.entity.Price;
+import org.example.taxi.event.OrderStatusChangedEvent;
 import org.example.taxi.repository.DistrictRepository;
 import org.example.taxi.repository.DriverRepository;
 import org.example.taxi.repository.OrderRepository;
+import org.example.taxi.repository.OrderStatusTransitionRepository;
 import org.example.taxi.repository.PriceRepository;
+import org.example.taxi.util.AppFees;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +27,7 @@ import org.springframework.web.server.ResponseStatusException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,9 +39,18 @@ public class OrderService {
     @Autowired private DriverRepository driverRepository;
     @Autowired private PriceRepository priceRepository;
     @Autowired private DistrictRepository districtRepository;
+    @Autowired private OrderStatusTransitionRepository transitionRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private OrderFieldQuery orderFieldQuery;
+
+    /**
+     * Outcome of {@link #changeStatus}, handed to {@link #publishStatusChange} once the order is saved.
+     * @param previousStatus Status before the change.
+     * @param furthestReached Furthest stage (PENDING..COMPLETED) the order had reached before the change.
+     */
+    public record StatusChange(OrderStatus previousStatus, OrderStatus furthestReached) {
+    }
 
-    private static final BigDecimal APP_FEE_PER_PERSON = BigDecimal.valueOf(20);
-    private static final BigDecimal APP_FEE_LUGGAGE = BigDecimal.valueOf(10);
     private static final Price DEFAULT_PRICE_CONFIG = new Price(
             0L, null, null,
             BigDecimal.valueOf(150000), BigDecimal.valueOf(150000), BigDecimal.valueOf(200000),
@@ -71,9 +88,48 @@ public class OrderService {
                 order.getFromDistrictId(), order.getFromLocation(),
                 order.getToDistrictId(), order.getToLocation(),
                 order.getTotalCost());
+        publishStatusChange(savedOrder, null);
         return savedOrder;
     }
 
+    /**
+     * Publishes an {@link OrderStatusChangedEvent} for the given order. Listeners that keep in-memory state
+     * receive it after the surrounding transaction commits.
+     * @param order The order in its new state.
+     * @param change What {@link #changeStatus} returned, or null if the order has just been created.
+     */
+    public void publishStatusChange(OrderEntity order, StatusChange change) {
+        eventPublisher.publishEvent(change == null
+                ? new OrderStatusChangedEvent(order, null, null, LocalDateTime.now())
+                : new OrderStatusChangedEvent(order, change.previousStatus(), change.furthestReached(), LocalDateTime.now()));
+    }
+
+    /**
+     * Moves an order to a new status, stamps the matching lifecycle timestamp and appends the change to the
+     * transition log. Must run inside the caller's transaction; the caller saves the order and publishes the change.
+     * @param actorType Who made the change.
+     * @param actorId User ID of the actor, if known.
+     * @return The status before the change and the furthest stage reached before it.
+     */
+    public StatusChange changeStatus(OrderEntity order, OrderStatus newStatus, ActorType actorType, Long actorId) {
+        OrderStatus previousStatus = order.getStatus();
+        OrderStatus furthestReached = OrderStatusChangedEvent.furthestReached(previousStatus, order.getAcceptedAt(), order.getEnRouteAt(), order.getCompletedAt());
+        LocalDateTime now = LocalDateTime.now();
+        order.setStatus(newStatus);
+        switch (newStatus) {
+            case ACCEPTED -> order.setAcceptedAt(now);
+            case EN_ROUTE -> order.setEnRouteAt(now);
+            case COMPLETED -> order.setCompletedAt(now);
+            case CANCELED -> {
+                order.setCanceledAt(now);
+                order.setCanceledBy(actorType);
+            }
+            default -> { }
+        }
+        transitionRepository.save(new OrderStatusTransition(null, order.getId(), previousStatus, newStatus, actorType, actorId, now));
+        return new StatusChange(previousStatus, furthestReached);
+    }
+
     private Price getPriceForRoute(Long fromDistrictId, Long toDistrictId) {
         District fromDistrict = districtRepository.findById(fromDistrictId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid From District ID: " + fromDistrictId));
@@ -125,10 +181,10 @@ public class OrderService {
 
         BigDecimal fee = BigDecimal.ZERO;
 
-        fee = fee.add(APP_FEE_PER_PERSON.multiply(BigDecimal.valueOf(order.getSeats())));
+        fee = fee.add(AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(order.getSeats())));
 
         if (order.getOrderType() == OrderEntity.OrderType.LUGGAGE) {
-            fee = fee.add(APP_FEE_LUGGAGE);
+            fee = fee.add(AppFees.LUGGAGE);
         }
 
         if (driver.getWalletBalance().compareTo(fee) < 0) {
@@ -147,21 +203,35 @@ public class OrderService {
     @Transactional(readOnly = true)
     public List<OrderEntity> findPendingOrdersForDriverFeed(Long driverDistrictId, Long driverRegionId, LocalDateTime start, LocalDateTime end, int maxSeats) {
         logger.debug("Searching for pending orders for driver feed: driverDistrictId={}, driverRegionId={}, start={}, end={}, maxSeats={}", driverDistrictId, driverRegionId, start, end, maxSeats);
+        return orderRepository.findPendingOrdersForDriverFeed(
+                OrderStatus.PENDING, districtIdsInRegionOf(driverDistrictId), driverDistrictId, start, end, maxSeats);
+    }
+
+    /**
+     * Same feed with only the requested fields selected (see {@link OrderFieldQuery}).
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findPendingOrdersForDriverFeed(Long driverDistrictId, Long driverRegionId, LocalDateTime start, LocalDateTime end, int maxSeats, List<String> fields) {
+        logger.debug("Searching for pending orders for driver feed: driverDistrictId={}, driverRegionId={}, start={}, end={}, maxSeats={}, fields={}", driverDistrictId, driverRegionId, start, end, maxSeats, fields);
+        return orderFieldQuery.findPendingForDriverFeed(fields, districtIdsInRegionOf(driverDistrictId), driverDistrictId, start, end, maxSeats);
+    }
 
+    private List<Long> districtIdsInRegionOf(Long driverDistrictId) {
         District driverDistrict = districtRepository.findById(driverDistrictId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Driver's district not found."));
 
         List<District> districtsInDriverRegion = districtRepository.findByRegion(driverDistrict.getRegion());
-        List<Long> districtIdsInDriverRegion = districtsInDriverRegion.stream()
+        return districtsInDriverRegion.stream()
                 .map(District::getId)
                 .collect(Collectors.toList());
-
-        return orderRepository.findPendingOrdersForDriverFeed(
-                OrderStatus.PENDING, districtIdsInDriverRegion, driverDistrictId, start, end, maxSeats);
     }
 
+    /**
+     * @param driverId Driver ID assigned to the order.
+     * @param driverUserId User ID of that driver, recorded as the actor of the transition.
+     */
     @Transactional
-    public OrderEntity acceptOrder(Long orderId, Long driverId) {
+    public OrderEntity acceptOrder(Long orderId, Long driverId, Long driverUserId) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
@@ -173,13 +243,19 @@ public class OrderService {
         }
 
         order.setDriverId(driverId);
-        order.setStatus(OrderStatus.ACCEPTED);
+        StatusChange change = changeStatus(order, OrderStatus.ACCEPTED, ActorType.DRIVER, driverUserId);
         logger.info("Driver {} accepted order {}. Order status changed to ACCEPTED.", driverId, orderId);
-        return orderRepository.save(order);
+        OrderEntity acceptedOrder = orderRepository.save(order);
+        publishStatusChange(acceptedOrder, change);
+        return acceptedOrder;
     }
 
+    /**
+     * @param driverId Driver ID the order must be assigned to.
+     * @param driverUserId User ID of that driver, recorded as the actor of the transition.
+     */
     @Transactional
-    public OrderEntity updateOrderStatus(Long orderId, OrderStatus newStatus, Long driverId) {
+    public OrderEntity updateOrderStatus(Long orderId, OrderStatus newStatus, Long driverId, Long driverUserId) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found."));
 
@@ -212,17 +288,19 @@ public class OrderService {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid or unsupported status transition to: " + newStatus + " from " + currentStatus);
         }
 
-        order.setStatus(newStatus);
+        StatusChange change = changeStatus(order, newStatus, ActorType.DRIVER, driverUserId);
         OrderEntity updatedOrder = orderRepository.save(order);
 
         if (newStatus == OrderStatus.COMPLETED) {
             deductAppFee(orderId);
         }
         logger.info("Order {} status updated to {} by driver {}.", orderId, newStatus, driverId);
+        publishStatusChange(updatedOrder, change);
         return updatedOrder;
     }
 
     @Transactional(readOnly = true)
+    @ReplicaRouting(stalenessTolerant = false) // polled right after writes; replica lag would show stale status
     public OrderEntity getOrderDetails(Long orderId, Long userId, boolean isDriver) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + orderId));
@@ -248,6 +326,12 @@ public class OrderService {
     }
 
     @Transactional(readOnly = true)
+    public List<Map<String, Object>> getClientOrderHistory(Long clientId, Optional<OrderStatus> status, List<String> fields) {
+        return orderFieldQuery.findByUserId(fields, clientId, status);
+    }
+
+    @Transactional(readOnly = true)
+    @ReplicaRouting(stalenessTolerant = false) // polled right after writes; replica lag would show stale status
     public Optional<OrderEntity> getClientActiveOrder(Long clientId) {
         List<OrderStatus> activeStatuses = List.of(OrderStatus.ACCEPTED, OrderStatus.EN_ROUTE);
         return orderRepository.findByUserIdAndStatusIn(clientId, activeStatuses);
@@ -262,22 +346,46 @@ public class OrderService {
     }
 
     @Transactional(readOnly = true)
+    public List<Map<String, Object>> getDriverOrderHistory(Long driverId, Optional<OrderStatus> status, List<String> fields) {
+        return orderFieldQuery.findByDriverId(fields, driverId, status);
+    }
+
+    @Transactional(readOnly = true)
+    @ReplicaRouting(stalenessTolerant = false) // polled right after writes; replica lag would show stale status
     public List<OrderEntity> getDriverActiveOrder(Long driverId) {
         List<OrderStatus> activeStatuses = List.of(OrderStatus.ACCEPTED, OrderStatus.EN_ROUTE);
         return orderRepository.findByDriverIdAndStatusIn(driverId, activeStatuses);
     }
 
+    @Transactional(readOnly = true)
+    @ReplicaRouting(stalenessTolerant = false) // polled right after writes; replica lag would show stale status
+    public List<Map<String, Object>> getDriverActiveOrder(Long driverId, List<String> fields) {
+        List<OrderStatus> activeStatuses = List.of(OrderStatus.ACCEPTED, OrderStatus.EN_ROUTE);
+        return orderFieldQuery.findByDriverIdAndStatusIn(fields, driverId, activeStatuses);
+    }
+
     @Transactional(readOnly = true)
     public List<OrderEntity> getAllOrdersByStatus(List<OrderStatus> statuses) {
         logger.debug("Operator requesting all orders with statuses: {}", statuses);
         return orderRepository.findByStatusIn(statuses);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllOrdersByStatus(List<OrderStatus> statuses, List<String> fields) {
+        logger.debug("Operator requesting orders with statuses: {}, fields: {}", statuses, fields);
+        return orderFieldQuery.findByStatusIn(fields, statuses);
+    }
+
     @Transactional(readOnly = true)
     public List<OrderEntity> getIncompleteOrdersOlderThan(LocalDateTime timeThreshold) {
         return orderRepository.findIncompleteAfter7Hours(timeThreshold);
     }
 
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getIncompleteOrdersOlderThan(LocalDateTime timeThreshold, List<String> fields) {
+        return orderFieldQuery.findIncompleteCreatedBefore(fields, timeThreshold);
+    }
+
     @Transactional(readOnly = true)
     public List<OrderEntity> getUnassignedPendingOrders(Optional<Long> fromDistrictId, Optional<String> fromLocation, Optional<LocalDateTime> start, Optional<LocalDateTime> end) {
         String locationFilter = fromLocation.orElse("");
@@ -287,8 +395,11 @@ public class OrderService {
         return orderRepository.findByStatusAndDriverIdIsNull(OrderStatus.PENDING);
     }
 
+    /**
+     * @param operatorUserId User ID of the operator, recorded as the actor of the transition.
+     */
     @Transactional
-    public OrderEntity manualAssignOrder(Long orderId, Long driverId) {
+    public OrderEntity manualAssignOrder(Long orderId, Long driverId, Long operatorUserId) {
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + orderId));
 
@@ -302,8 +413,10 @@ public class OrderService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Driver with ID " + driverId + " not found."));
 
         order.setDriverId(driverId);
-        order.setStatus(OrderStatus.ACCEPTED);
+        StatusChange change = changeStatus(order, OrderStatus.ACCEPTED, ActorType.OPERATOR, operatorUserId);
         logger.info("Operator manually assigned order {} to driver {}. Status changed to ACCEPTED.", orderId, driverId);
-        return orderRepository.save(order);
+        OrderEntity assignedOrder = orderRepository.save(order);
+        publishStatusChange(assignedOrder, change);
+        return assignedOrder;
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.example.taxi.entity.Payment;
 import org.example.taxi.repository.DriverRepository;
 import org.example.taxi.repository.UserRepository;
 import org.example.taxi.repository.PaymentRepository;
+import org.example.taxi.util.AppFees;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
@@ -21,9 +22,9 @@ public class PaymentService {
     private DriverRepository driverRepository;
 
     public void deductAppFee(Long driverId, Long orderId, int persons, String luggageType) {
-        BigDecimal fee = BigDecimal.valueOf(persons * 20);
+        BigDecimal fee = AppFees.PER_PASSENGER.multiply(BigDecimal.valueOf(persons));
         if ("SEND_ALONE".equals(luggageType)) {
-            fee = fee.add(BigDecimal.valueOf(10));
+            fee = fee.add(AppFees.LUGGAGE);
         }
 
         Payment payment = new Payment();
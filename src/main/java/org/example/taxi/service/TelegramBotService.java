@@ -4,6 +4,7 @@ import org.example.taxi.bot.UserSessionService;
 import org.example.taxi.entity.Client;
 import org.example.taxi.entity.Driver;
 import org.example.taxi.entity.User;
+import org.example.taxi.event.UserCredentialsChangedEvent;
 import org.example.taxi.repository.ClientRepository;
 import org.example.taxi.repository.DriverRepository;
 import org.example.taxi.repository.UserRepository;
@@ -11,6 +12,7 @@ import org.example.taxi.service.cache.RegistrationCacheEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -36,6 +38,14 @@ public class TelegramBotService {
     private UserSessionService userSessionService;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private GoalProgressCounterService goalProgressCounterService;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public static final String STATE_AWAITING_PHONE = "AWAITING_PHONE";
     public static final String STATE_FORGOT_PASSWORD_AWAITING_PHONE = "FORGOT_PASSWORD_AWAITING_PHONE";
@@ -67,6 +77,7 @@ public class TelegramBotService {
         return "Please provide your phone number to register or log in as a *" + entry.getUserType().name() + "*.";
     }
 
+    @Transactional
     public String processPhoneNumberForSessionId(String sessionId, String phoneNumber, Long chatId) {
         Optional<RegistrationCacheEntry> entryOpt = userSessionService.getRegistrationCacheEntry(sessionId);
 
@@ -77,10 +88,10 @@ public class TelegramBotService {
         RegistrationCacheEntry entry = entryOpt.get();
         String normalizedPhoneNumber = normalizePhoneNumber(phoneNumber);
 
-        Optional<User> existingUserOpt = userRepository.findByPhoneNumber(normalizedPhoneNumber);
-        if (existingUserOpt.isPresent()) {
+        Optional<User> existingUserOpt = userExistenceFilter.findByPhoneNumber(normalizedPhoneNumber);
+        if (existingUserOpt.isPresent() && existingUserOpt.get().hasUsablePassword()) {
             User user = existingUserOpt.get();
-            user.setChatId(chatId);
+            linkChat(user, chatId, "login");
             userRepository.save(user);
             entry.setPhoneNumber(normalizedPhoneNumber);
             // Do not generate or store a new password for existing users
@@ -113,7 +124,11 @@ public class TelegramBotService {
         }
 
         String normalizedPhoneNumber = entry.getPhoneNumber();
-        Optional<User> existingUserOpt = userRepository.findByPhoneNumber(normalizedPhoneNumber);
+        Optional<User> existingUserOpt = userExistenceFilter.findByPhoneNumber(normalizedPhoneNumber);
+
+        if (existingUserOpt.isPresent() && !existingUserOpt.get().hasUsablePassword() && entry.getGeneratedPassword() != null) {
+            return activateGuest(existingUserOpt.get(), entry, sessionId);
+        }
 
         if (existingUserOpt.isPresent()) {
             Map<String, String> credentials = new HashMap<>();
@@ -143,16 +158,19 @@ public class TelegramBotService {
         newUser.setPassword(encodedPassword);
         newUser.setUserType(entry.getUserType());
         newUser = userRepository.save(newUser);
+        userExistenceFilter.record(newUser);
 
         if (User.UserType.DRIVER.equals(entry.getUserType())) {
             Driver driver = new Driver();
             driver.setUser(newUser);
             driverRepository.save(driver);
+            goalProgressCounterService.recordNewDriver(driver.getCreatedAt());
             logger.info("New DRIVER registered: userId={}, phoneNumber={}", newUser.getId(), normalizedPhoneNumber);
         } else if (User.UserType.CLIENT.equals(entry.getUserType())) {
             Client client = new Client();
             client.setUser(newUser);
             clientRepository.save(client);
+            goalProgressCounterService.recordNewClient(client.getCreatedAt());
             logger.info("New CLIENT registered: userId={}, phoneNumber={}", newUser.getId(), normalizedPhoneNumber);
         } else {
             logger.error("UserType {} not supported during bot registration for userId={}", entry.getUserType(), newUser.getId());
@@ -169,11 +187,35 @@ public class TelegramBotService {
         return credentials;
     }
 
+    /**
+     * Gives a guest client created by an operator the password generated in the bot; the user and client rows stay
+     * as they are, so earlier orders remain on the account.
+     */
+    private Map<String, String> activateGuest(User guest, RegistrationCacheEntry entry, String sessionId) {
+        if (userRepository.findByChatId(entry.getChatId()).filter(user -> !user.getId().equals(guest.getId())).isPresent()) {
+            userSessionService.clearRegistrationSession(sessionId);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Telegram account already linked to another user. Use forgot password or contact support.");
+        }
+        String generatedRawPassword = entry.getGeneratedPassword();
+        guest.setPassword(passwordEncoder.encode(generatedRawPassword));
+        guest.setChatId(entry.getChatId());
+        userRepository.save(guest);
+        logger.info("Guest CLIENT activated: userId={}, phoneNumber={}", guest.getId(), guest.getPhoneNumber());
+
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("phoneNumber", guest.getPhoneNumber());
+        credentials.put("password", generatedRawPassword);
+
+        userSessionService.clearRegistrationSession(sessionId);
+        userSessionService.clearSession(entry.getChatId());
+        return credentials;
+    }
+
     @Transactional
     public String resetPassword(Long chatId, String phoneNumber) {
         String normalizedPhoneNumber = normalizePhoneNumber(phoneNumber);
 
-        Optional<User> existingUserOpt = userRepository.findByPhoneNumber(normalizedPhoneNumber);
+        Optional<User> existingUserOpt = userExistenceFilter.findByPhoneNumber(normalizedPhoneNumber);
         if (existingUserOpt.isEmpty()) {
             userSessionService.clearSession(chatId);
             return "No account found with this phone number. Please register first using /start register_client or /start register_driver.";
@@ -185,15 +227,55 @@ public class TelegramBotService {
         }
 
         String newRawPassword = generateRandomPassword();
-        String newEncodedPassword = passwordEncoder.encode(newRawPassword);
+        String newEncodedPassword;
+        try {
+            newEncodedPassword = passwordEncoder.encode(newRawPassword);
+        } catch (ResponseStatusException e) {
+            logger.warn("Password reset for phoneNumber {} deferred: {}", normalizedPhoneNumber, e.getReason());
+            userSessionService.clearSession(chatId);
+            return "We are handling many requests right now. Please try again in a minute with /start forgot_password.";
+        }
         user.setPassword(newEncodedPassword);
-        user.setChatId(chatId);
+        linkChat(user, chatId, "password reset");
         userRepository.save(user);
+        // The old password must stop working at login, not only for issued tokens: evicted here after commit, and on
+        // other nodes by the revocation below
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(user.getId(), user.getPhoneNumber()));
+        // Sessions opened with the old password (possibly stolen) end with the reset
+        tokenRevocationService.revokeAllForUser(user.getId());
         logger.info("Password reset for user: phoneNumber={}", normalizedPhoneNumber);
         userSessionService.clearSession(chatId);
         return "Your new password is: *" + newRawPassword + "*\n\nPlease keep it safe.";
     }
 
+    /**
+     * Links the chat to the user, who has just shared the account's phone number from it in the given bot flow.
+     * A chat still linked to another user is moved with {@link #reassignChat}; nothing else ever unlinks a chat.
+     */
+    private void linkChat(User user, Long chatId, String flow) {
+        if (chatId.equals(user.getChatId())) {
+            return;
+        }
+        Optional<User> currentOwner = userRepository.findByChatId(chatId);
+        if (currentOwner.isPresent()) {
+            reassignChat(currentOwner.get(), user, chatId, flow);
+        } else {
+            logger.info("Telegram chat {} linked to user {} ({}).", chatId, user.getId(), flow);
+        }
+        user.setChatId(chatId);
+    }
+
+    /**
+     * Moves a chat from one user to another: one Telegram account now signs in to a different user (a shared phone, or
+     * a number that changed hands). users.chat_id is unique, so the previous owner is unlinked and flushed first; the
+     * move is logged as a warning so support can trace it. Must run in the caller's transaction.
+     */
+    private void reassignChat(User from, User to, Long chatId, String flow) {
+        from.setChatId(null);
+        userRepository.saveAndFlush(from);
+        logger.warn("Telegram chat {} reassigned from user {} to user {} during {}.", chatId, from.getId(), to.getId(), flow);
+    }
+
     private String generateRandomPassword() {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
         Random random = new Random();
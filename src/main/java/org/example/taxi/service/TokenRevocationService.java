@@ -0,0 +1,186 @@
+package org.example.taxi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.example.taxi.util.BloomFilter;
+import org.example.taxi.config.datasource.ReplicaRouting;
+import org.example.taxi.entity.TokenRevocation;
+import org.example.taxi.repository.TokenRevocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Token revocation without a query per request.
+ * <p>
+ * Revocations live in the {@link TokenRevocation} table; every node mirrors them in a {@link BloomFilter} keyed by
+ * user id (all tokens of a user) and token id. A token whose keys are not in the filter is certainly not revoked,
+ * which is the case for nearly every request. A filter hit (a revoked user, or a false positive) is confirmed against
+ * the table once and the answer cached until the next sync.
+ * <p>
+ * The filter is built at startup, extended every {@code jwt.revocation.sync-interval-ms} with rows revoked since the
+ * previous sync (which also picks up revocations made by other nodes), and rebuilt every
+ * {@code jwt.revocation.rebuild-interval-ms} to drop expired rows.
+ */
+@Service
+@ReplicaRouting(stalenessTolerant = false) // a revocation must be visible as soon as it is written
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Autowired private TokenRevocationRepository tokenRevocationRepository;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private long expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${jwt.revocation.sync-interval-ms:5000}")
+    private long syncIntervalMs;
+
+    @Value("${jwt.refresh-token.ttl:30d}")
+    private Duration refreshTokenTtl;
+
+    private volatile BloomFilter filter;
+    private volatile boolean loaded;
+    private volatile LocalDateTime lastSync;
+
+    /** Confirmed answers for filter hits: user revoked-before time, or a token's revoked flag (EPOCH if not revoked). */
+    private Cache<String, Instant> confirmed;
+
+    @PostConstruct
+    void init() {
+        filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        confirmed = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(syncIntervalMs))
+                .build();
+    }
+
+    private static String userKey(Long userId) {
+        return "u:" + userId;
+    }
+
+    private static String tokenKey(String tokenId) {
+        return "t:" + tokenId;
+    }
+
+    /**
+     * @param userId   Owner of the token.
+     * @param tokenId  The token's jti, or null for tokens issued without one.
+     * @param issuedAt When the token was issued.
+     * @return Whether the token was revoked, on its own or with all of the user's tokens.
+     */
+    public boolean isRevoked(Long userId, String tokenId, Instant issuedAt) {
+        BloomFilter current = filter;
+        // Until the startup load has run, the filter is empty and every check is confirmed against the table
+        boolean userHit = userId != null && (!loaded || current.mightContain(userKey(userId)));
+        boolean tokenHit = tokenId != null && (!loaded || current.mightContain(tokenKey(tokenId)));
+
+        if (userHit) {
+            Instant revokedBefore = confirmed.get(userKey(userId), key -> tokenRevocationRepository.findLatestUserRevocation(userId)
+                    .map(revokedAt -> revokedAt.atZone(ZONE).toInstant())
+                    .orElse(Instant.EPOCH));
+            // iat has second precision: a token issued in the second of the revocation counts as revoked
+            if (issuedAt != null && !issuedAt.isAfter(revokedBefore.truncatedTo(ChronoUnit.SECONDS))) {
+                return true;
+            }
+        }
+        if (tokenHit) {
+            Instant revoked = confirmed.get(tokenKey(tokenId), key -> tokenRevocationRepository.existsByTokenId(tokenId)
+                    ? Instant.MAX
+                    : Instant.EPOCH);
+            return !Instant.EPOCH.equals(revoked);
+        }
+        return false;
+    }
+
+    /**
+     * Revokes every token of the user issued up to now, e.g. after a password reset.
+     */
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        tokenRevocationRepository.save(new TokenRevocation(null, userId, null, now, now.plus(refreshTokenTtl)));
+        filter.put(userKey(userId));
+        confirmed.put(userKey(userId), now.atZone(ZONE).toInstant());
+        logger.info("Revoked all tokens of user {}.", userId);
+    }
+
+    /**
+     * Revokes a single token, e.g. a refresh token that has been exchanged.
+     */
+    @Transactional
+    public void revokeToken(Long userId, String tokenId, Instant expiresAt) {
+        tokenRevocationRepository.save(new TokenRevocation(null, userId, tokenId, LocalDateTime.now(),
+                LocalDateTime.ofInstant(expiresAt, ZONE)));
+        filter.put(tokenKey(tokenId));
+        confirmed.put(tokenKey(tokenId), Instant.MAX);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        int deleted = tokenRevocationRepository.deleteExpired(startedAt);
+        List<TokenRevocation> revocations = tokenRevocationRepository.findByExpiresAtAfter(startedAt);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revocations.size() * 2L), falsePositiveRate);
+        revocations.forEach(revocation -> add(rebuilt, revocation));
+        filter = rebuilt;
+        lastSync = startedAt;
+        loaded = true;
+        // Revocations written while the rebuild ran are picked up by the next sync, which overlaps this one
+        logger.info("Token revocation filter rebuilt: {} active revocations, {} expired removed, {} bits.",
+                revocations.size(), deleted, rebuilt.bitCount());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}", initialDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}")
+    @Transactional
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Adds revocations written since the previous sync on any node. The window reaches back past the previous sync
+     * so rows committed late are not missed; adding a key twice is harmless.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        LocalDateTime since = lastSync;
+        if (!loaded || since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<TokenRevocation> revocations = tokenRevocationRepository.findByRevokedAtGreaterThanEqual(
+                since.minus(Duration.ofMillis(syncIntervalMs * 2)));
+        BloomFilter current = filter;
+        for (TokenRevocation revocation : revocations) {
+            add(current, revocation);
+            // Drop answers cached before this revocation was seen
+            confirmed.invalidate(revocation.getTokenId() == null ? userKey(revocation.getUserId()) : tokenKey(revocation.getTokenId()));
+        }
+        lastSync = startedAt;
+    }
+
+    private static void add(BloomFilter target, TokenRevocation revocation) {
+        target.put(revocation.getTokenId() == null ? userKey(revocation.getUserId()) : tokenKey(revocation.getTokenId()));
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.taxi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.example.taxi.util.BloomFilter;
+import org.example.taxi.config.datasource.ReplicaRouting;
+import org.example.taxi.entity.User;
+import org.example.taxi.repository.UserRepository;
+import org.example.taxi.repository.projection.UserKeyRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Phone number existence checks that skip the database for unknown numbers.
+ * <p>
+ * Every node keeps a {@link BloomFilter} over the users' phone numbers. Most registration checks are for
+ * new numbers, which the filter rejects without a query; a filter hit is confirmed with the usual repository lookup.
+ * Phone numbers are keyed by their digits only, so differently formatted spellings of a number share a key: the filter
+ * may answer "maybe" for a spelling the table does not hold (the lookup then finds nothing), but never "no" for one
+ * it does.
+ * <p>
+ * Users saved here are added right away through {@link #record} (into both filters while a rebuild runs); users
+ * created or changed on other nodes are picked up every {@code app.user-filter.sync-interval-ms} by their update time,
+ * and the filter is rebuilt every {@code app.user-filter.rebuild-interval-ms}. Until the startup load has run, every
+ * check goes to the database.
+ * <p>
+ * Chat ids are not filtered: their checks guard against linking one Telegram account to two users, so they must see a
+ * link made on another node moments ago, and they are rare (once per registration) next to phone number checks.
+ */
+@Service
+@ReplicaRouting(stalenessTolerant = false) // a user saved moments ago must be found
+public class UserExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExistenceFilter.class);
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Value("${app.user-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.user-filter.expected-users:200000}")
+    private long expectedUsers;
+
+    @Value("${app.user-filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${app.user-filter.sync-interval-ms:5000}")
+    private long syncIntervalMs;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding; // non-null while a rebuild streams the table
+    private volatile boolean loaded;
+    private volatile LocalDateTime lastSync;
+    private final AtomicLong entries = new AtomicLong();
+
+    private Timer rebuildDuration;
+    private Counter rebuilds;
+    private final Lookups phoneLookups = new Lookups();
+
+    /** Outcome counters for one kind of key; the false-positive rate is taken over keys the table does not hold. */
+    private static final class Lookups {
+        Counter negative;
+        Counter confirmed;
+        Counter falsePositive;
+
+        double falsePositiveRate() {
+            double falsePositives = falsePositive.count();
+            double absent = falsePositives + negative.count();
+            return absent == 0 ? 0 : falsePositives / absent;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        filter = new BloomFilter(expectedUsers, falsePositiveRate);
+        rebuildDuration = Timer.builder("taxi.user-filter.rebuild.duration").register(meterRegistry);
+        rebuilds = Counter.builder("taxi.user-filter.rebuilds").register(meterRegistry);
+        Gauge.builder("taxi.user-filter.entries", entries, AtomicLong::get).register(meterRegistry);
+        registerLookups("phone", phoneLookups);
+    }
+
+    private void registerLookups(String kind, Lookups lookups) {
+        lookups.negative = Counter.builder("taxi.user-filter.lookups").tag("kind", kind).tag("result", "negative").register(meterRegistry);
+        lookups.confirmed = Counter.builder("taxi.user-filter.lookups").tag("kind", kind).tag("result", "confirmed").register(meterRegistry);
+        lookups.falsePositive = Counter.builder("taxi.user-filter.lookups").tag("kind", kind).tag("result", "false-positive").register(meterRegistry);
+        Gauge.builder("taxi.user-filter.false-positive-rate", lookups, Lookups::falsePositiveRate).tag("kind", kind).register(meterRegistry);
+    }
+
+    private static String phoneKey(String phoneNumber) {
+        return "p:" + phoneNumber.replaceAll("[^0-9]", "");
+    }
+
+    /**
+     * @return False when no user has the phone number; true when one might.
+     */
+    public boolean mightContainPhoneNumber(String phoneNumber) {
+        return phoneNumber == null || !enabled || !loaded || filter.mightContain(phoneKey(phoneNumber));
+    }
+
+    public Optional<User> findByPhoneNumber(String phoneNumber) {
+        if (!mightContainPhoneNumber(phoneNumber)) {
+            phoneLookups.negative.increment();
+            return Optional.empty();
+        }
+        return confirm(phoneLookups, userRepository.findByPhoneNumber(phoneNumber));
+    }
+
+    public boolean existsByPhoneNumber(String phoneNumber) {
+        if (!mightContainPhoneNumber(phoneNumber)) {
+            phoneLookups.negative.increment();
+            return false;
+        }
+        return confirm(phoneLookups, userRepository.existsByPhoneNumber(phoneNumber));
+    }
+
+    private <T> Optional<T> confirm(Lookups lookups, Optional<T> found) {
+        confirm(lookups, found.isPresent());
+        return found;
+    }
+
+    private boolean confirm(Lookups lookups, boolean found) {
+        if (loaded) {
+            (found ? lookups.confirmed : lookups.falsePositive).increment();
+        }
+        return found;
+    }
+
+    /**
+     * Adds the user's phone number; call after creating a user or changing the number.
+     */
+    public void record(User user) {
+        BloomFilter pending = rebuilding; // read first: once it is cleared, filter is already the rebuilt one
+        add(filter, user.getPhoneNumber());
+        if (pending != null) {
+            add(pending, user.getPhoneNumber());
+        }
+    }
+
+    private void add(BloomFilter target, String phoneNumber) {
+        if (phoneNumber != null) {
+            put(target, phoneKey(phoneNumber));
+        }
+    }
+
+    /** Keys already present (re-synced rows, or a false positive) are not counted again. */
+    private void put(BloomFilter target, String key) {
+        if (!target.mightContain(key)) {
+            target.put(key);
+            entries.incrementAndGet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        long userCount = userRepository.count();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedUsers, userCount + userCount / 2), falsePositiveRate);
+        long previousEntries = entries.getAndSet(0);
+        rebuilding = rebuilt;
+        try (Stream<UserKeyRow> rows = userRepository.streamUserKeys()) {
+            rows.forEach(row -> add(rebuilt, row.getPhoneNumber()));
+        } catch (RuntimeException e) {
+            rebuilding = null;
+            entries.set(previousEntries);
+            throw e;
+        }
+        filter = rebuilt;
+        rebuilding = null;
+        lastSync = startedAt;
+        loaded = true;
+        rebuildDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        rebuilds.increment();
+        // Users saved on other nodes while the rebuild ran are picked up by the next sync, which overlaps this one
+        logger.info("User existence filter rebuilt: {} users, {} keys, {} bits, {} hashes.",
+                userCount, entries.get(), rebuilt.bitCount(), rebuilt.hashCount());
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-filter.rebuild-interval-ms:600000}", initialDelayString = "${app.user-filter.rebuild-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Adds users created or changed since the previous sync on any node. The window reaches back
+     * past the previous sync so rows committed late are not missed; adding a key twice is harmless.
+     */
+    @Scheduled(fixedDelayString = "${app.user-filter.sync-interval-ms:5000}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        LocalDateTime since = lastSync;
+        if (!enabled || !loaded || since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<UserKeyRow> rows = userRepository.findUserKeysUpdatedSince(since.minus(Duration.ofMillis(syncIntervalMs * 2)));
+        BloomFilter current = filter;
+        rows.forEach(row -> add(current, row.getPhoneNumber()));
+        lastSync = startedAt;
+    }
+}
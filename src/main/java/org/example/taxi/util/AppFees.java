@@ -0,0 +1,28 @@
+package org.example.taxi.util;
+
+import java.math.BigDecimal;
+
+/**
+ * The app fee schedule: what the app charges per completed order, and the company's share of it. Every fee, revenue
+ * and earnings figure is derived from these values; the minor-unit (hundredths) forms are for the in-memory analytics,
+ * which sum longs.
+ */
+public final class AppFees {
+
+    public static final BigDecimal PER_PASSENGER = BigDecimal.valueOf(20);
+    public static final BigDecimal LUGGAGE = BigDecimal.valueOf(10); // per luggage order
+    public static final BigDecimal COMPANY_PASSENGER_SHARE = BigDecimal.valueOf(0.15); // 15%
+    public static final BigDecimal COMPANY_LUGGAGE_SHARE = BigDecimal.valueOf(1.00); // 100%
+
+    public static final long PER_PASSENGER_MINOR = toMinor(PER_PASSENGER);
+    public static final long LUGGAGE_MINOR = toMinor(LUGGAGE);
+    public static final long COMPANY_PASSENGER_SHARE_MINOR = toMinor(PER_PASSENGER.multiply(COMPANY_PASSENGER_SHARE));
+    public static final long COMPANY_LUGGAGE_SHARE_MINOR = toMinor(LUGGAGE.multiply(COMPANY_LUGGAGE_SHARE));
+
+    private AppFees() {
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.taxi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings: {@link #mightContain} never misses an added key, and answers true for a key
+ * that was not added with roughly the false-positive probability it was sized for.
+ * <p>
+ * Bits are set with a CAS per word, so adds and lookups can run concurrently without locks. Keys are hashed once with
+ * 128-bit MurmurHash3 and the {@code k} probe positions derived by double hashing (Kirsch &amp; Mitzenmacher).
+ * Elements cannot be removed; callers rebuild the filter to drop them.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions Number of keys the filter is sized for; more keys raise the false-positive rate.
+     * @param falsePositiveRate  Target false-positive probability, in (0, 1).
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long[] hash = murmur3(key.getBytes(StandardCharsets.UTF_8));
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            while (true) {
+                long current = words.get(index);
+                if ((current & mask) != 0 || words.compareAndSet(index, current, current | mask)) {
+                    break;
+                }
+            }
+            combined += hash[1];
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long[] hash = murmur3(key.getBytes(StandardCharsets.UTF_8));
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash[1];
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /** MurmurHash3 x64 128-bit, seed 0. */
+    private static long[] murmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+        int length = data.length;
+        int blocks = length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+            h1 ^= mixK1(k1, c1, c2);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2, c1, c2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        for (int i = length - tail - 1; i >= 0; i--) {
+            long b = data[tail + i] & 0xffL;
+            if (i >= 8) {
+                k2 |= b << ((i - 8) * 8);
+            } else {
+                k1 |= b << (i * 8);
+            }
+        }
+        if (k2 != 0) {
+            h2 ^= mixK2(k2, c1, c2);
+        }
+        if (k1 != 0) {
+            h1 ^= mixK1(k1, c1, c2);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long mixK1(long k1, long c1, long c2) {
+        k1 *= c1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * c2;
+    }
+
+    private static long mixK2(long k2, long c1, long c2) {
+        k2 *= c2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * c1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xffL);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.taxi.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Estimates stay within three standard errors across small and large cardinalities, and merging is the register-wise
+ * union: the merged sketch equals the sketch of the union of the inputs.
+ */
+class HyperLogLogTest {
+
+    private static final double BOUND = 3 * HyperLogLog.RELATIVE_STANDARD_ERROR;
+
+    @Test
+    void smallCardinalitiesAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertThat(sketch.estimate()).isZero();
+
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+            sketch.add(id); // duplicates do not count
+        }
+        assertThat(sketch.estimate()).isCloseTo(100, within(2L));
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinTheErrorBound() {
+        for (long n : new long[]{5_000, 50_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 0; id < n; id++) {
+                sketch.add(id);
+            }
+            double relativeError = Math.abs(sketch.estimate() - n) / (double) n;
+            assertThat(relativeError).as("relative error at n=%d", n).isLessThan(BOUND);
+        }
+    }
+
+    @Test
+    void mergeOfOverlappingSketchesIsTheSketchOfTheUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long id = 0; id < 60_000; id++) {
+            first.add(id);
+            union.add(id);
+        }
+        for (long id = 40_000; id < 100_000; id++) {
+            second.add(id);
+            union.add(id);
+        }
+
+        HyperLogLog merged = first.copy();
+        merged.merge(second);
+
+        assertThat(merged.toBytes()).isEqualTo(union.toBytes());
+        assertThat(Math.abs(merged.estimate() - 100_000) / 100_000.0).isLessThan(BOUND);
+        assertThat(first.estimate()).isCloseTo(60_000, within((long) (60_000 * BOUND))); // copy left the input alone
+        assertThat(HyperLogLog.fromBytes(merged.toBytes()).estimate()).isEqualTo(merged.estimate());
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.taxi.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sums cover exactly the requested minutes, a slot reused after the ring wraps forgets its old minute, minutes keep
+ * their own counts across the 24-bit tag rollover, and concurrent increments are never lost.
+ */
+class MinuteRingCounterTest {
+
+    private static final long MINUTE = 28_000_000; // around 2023 in epoch minutes
+
+    @Test
+    void sumCoversTheRequestedWindowOnly() {
+        MinuteRingCounter counter = new MinuteRingCounter();
+        for (int i = 0; i < 10; i++) {
+            counter.add(MINUTE + i, i + 1);
+        }
+
+        assertThat(counter.sum(MINUTE + 9, 1)).isEqualTo(10);
+        assertThat(counter.sum(MINUTE + 9, 3)).isEqualTo(10 + 9 + 8);
+        assertThat(counter.sum(MINUTE + 9, 10)).isEqualTo(55);
+        assertThat(counter.sum(MINUTE + 20, 5)).isZero();
+        assertThatThrownBy(() -> counter.sum(MINUTE, MinuteRingCounter.SLOTS + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void slotReusedAfterTheRingWrapsDropsTheOldMinute() {
+        MinuteRingCounter counter = new MinuteRingCounter();
+        counter.add(MINUTE, 5);
+        long wrapped = MINUTE + MinuteRingCounter.SLOTS; // same slot
+
+        assertThat(counter.sum(wrapped, MinuteRingCounter.SLOTS)).isZero(); // MINUTE is just outside the window
+        counter.add(wrapped, 2);
+        assertThat(counter.sum(wrapped, 1)).isEqualTo(2);
+        assertThat(counter.sum(wrapped - 1, MinuteRingCounter.SLOTS)).isZero(); // the old count is gone, not read as MINUTE's
+    }
+
+    @Test
+    void minutesAcrossTheTagRolloverKeepTheirOwnCounts() {
+        MinuteRingCounter counter = new MinuteRingCounter();
+        long rollover = 1L << 24; // the low 24 bits of the minute (its tag) wrap to 0 here
+        for (long minute = rollover - 3; minute < rollover + 3; minute++) {
+            counter.add(minute, 1);
+        }
+
+        assertThat(counter.sum(rollover + 2, 6)).isEqualTo(6);
+        assertThat(counter.sum(rollover - 1, 2)).isEqualTo(2);
+
+        // The slot of the last pre-rollover minute is reused by a minute whose tag has wrapped to a small value
+        long reused = rollover - 1 + MinuteRingCounter.SLOTS;
+        counter.add(reused, 4);
+        assertThat(counter.sum(reused, 1)).isEqualTo(4);
+        assertThat(counter.sum(rollover - 1, 1)).isZero();
+    }
+
+    @Test
+    void concurrentIncrementsAcrossAMinuteChangeAreNotLost() throws Exception {
+        MinuteRingCounter counter = new MinuteRingCounter();
+        counter.add(MINUTE - MinuteRingCounter.SLOTS, 1_000); // stale value in the slot the threads move into
+        int threads = 8;
+        int increments = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < increments; i++) {
+                    counter.add(MINUTE - 1, 1);
+                    counter.add(MINUTE, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(counter.sum(MINUTE, 1)).isEqualTo((long) threads * increments);
+        assertThat(counter.sum(MINUTE, 2)).isEqualTo(2L * threads * increments);
+    }
+}
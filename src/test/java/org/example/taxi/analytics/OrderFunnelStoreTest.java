@@ -0,0 +1,95 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.analytics.QuantileSketchStore.QuantileMetric;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.example.taxi.entity.OrderStatusTransition.ActorType;
+import org.example.taxi.event.OrderStatusChangedEvent;
+import org.example.taxi.repository.OrderStatusTransitionRepository;
+import org.example.taxi.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * An order moved back by an operator and then forward again counts each funnel stage and records its acceptance
+ * delay once, the first time it reaches the stage; stages skipped on the way are counted once as well.
+ */
+class OrderFunnelStoreTest {
+
+    private static final long DISTRICT = 7;
+
+    private final OrderFunnelStore funnel = new OrderFunnelStore();
+    private final QuantileSketchStore sketches = new QuantileSketchStore();
+    private final OrderService orderService = new OrderService();
+
+    @BeforeEach
+    void setUp() {
+        ApplicationEventPublisher publisher = event -> {
+            funnel.onOrderStatusChanged((OrderStatusChangedEvent) event);
+            sketches.onOrderStatusChanged((OrderStatusChangedEvent) event);
+        };
+        ReflectionTestUtils.setField(orderService, "eventPublisher", publisher);
+        ReflectionTestUtils.setField(orderService, "transitionRepository", mock(OrderStatusTransitionRepository.class));
+    }
+
+    @Test
+    void backwardThenForwardCountsEachStageOnce() {
+        OrderEntity order = newOrder();
+        move(order, OrderStatus.ACCEPTED, ActorType.DRIVER);
+        move(order, OrderStatus.EN_ROUTE, ActorType.DRIVER);
+        move(order, OrderStatus.PENDING, ActorType.OPERATOR);
+        move(order, OrderStatus.ACCEPTED, ActorType.OPERATOR);
+        move(order, OrderStatus.EN_ROUTE, ActorType.DRIVER);
+        move(order, OrderStatus.COMPLETED, ActorType.DRIVER);
+
+        assertThat(stages()).containsExactly(1, 1, 1, 1, 0, 0, 0);
+        assertThat(acceptanceDelays()).isEqualTo(1);
+    }
+
+    @Test
+    void skippedStagesAreCountedOnceAcrossAMoveBack() {
+        OrderEntity order = newOrder();
+        move(order, OrderStatus.EN_ROUTE, ActorType.ADMIN); // skips ACCEPTED
+        move(order, OrderStatus.PENDING, ActorType.ADMIN);
+        move(order, OrderStatus.ACCEPTED, ActorType.OPERATOR);
+        move(order, OrderStatus.CANCELED, ActorType.OPERATOR);
+
+        assertThat(stages()).containsExactly(1, 1, 1, 0, 0, 1, 0);
+        assertThat(acceptanceDelays()).isZero();
+    }
+
+    private OrderEntity newOrder() {
+        OrderEntity order = new OrderEntity();
+        order.setId(1L);
+        order.setFromDistrictId(DISTRICT);
+        order.setOrderType(OrderType.REGULAR);
+        order.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        order.setStatus(OrderStatus.PENDING);
+        orderService.publishStatusChange(order, null);
+        return order;
+    }
+
+    private void move(OrderEntity order, OrderStatus newStatus, ActorType actorType) {
+        orderService.publishStatusChange(order, orderService.changeStatus(order, newStatus, actorType, 42L));
+    }
+
+    private long[] stages() {
+        LocalDate today = LocalDate.now();
+        return funnel.sum(today.minusDays(1), today, DISTRICT, null, (day, district, type) -> district).get(DISTRICT);
+    }
+
+    private long acceptanceDelays() {
+        LocalDate today = LocalDate.now();
+        return sketches.merge(QuantileMetric.ACCEPTANCE_DELAY_SECONDS, today.minusDays(1), today, DISTRICT, null,
+                (day, district, type) -> district).values().stream().mapToLong(TDigest::count).sum();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.analytics.SeriesDownsampler.Aggregation;
+import org.example.taxi.analytics.SeriesDownsampler.Mode;
+import org.example.taxi.controller.dto.ChartDataPoint;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Calendar buckets start on the first day of the series, sums and averages respect the clipped bucket span, and no
+ * mode returns more than {@code maxPoints} points.
+ */
+class SeriesDownsamplerTest {
+
+    // Wednesday; 2024 is a leap year, so the 60 days end on Saturday 2024-03-02
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 3);
+
+    @Test
+    void emptyAndFittingSeriesAreReturnedAsIs() {
+        List<ChartDataPoint> empty = List.of();
+        assertThat(SeriesDownsampler.downsample(empty, 3, Mode.AUTO, Aggregation.SUM)).isEmpty();
+        assertThat(SeriesDownsampler.bucket(empty, 3, Aggregation.AVERAGE)).isEmpty();
+
+        List<ChartDataPoint> daily = daily(10, 1L);
+        assertThat(SeriesDownsampler.downsample(daily, 10, Mode.BUCKET, Aggregation.SUM)).isSameAs(daily);
+        assertThat(SeriesDownsampler.lttb(daily, 10)).isSameAs(daily);
+    }
+
+    @Test
+    void weeklyBucketsStartOnMondayButTheFirstIsClippedToTheSeries() {
+        List<ChartDataPoint> weekly = SeriesDownsampler.downsample(daily(60, 1L), 10, Mode.AUTO, Aggregation.SUM);
+
+        assertThat(weekly).hasSize(9);
+        assertThat(weekly.get(0)).isEqualTo(new ChartDataPoint("2024-01-03", 5L)); // Wed..Sun
+        assertThat(weekly.get(1)).isEqualTo(new ChartDataPoint("2024-01-08", 7L));
+        assertThat(weekly.get(8)).isEqualTo(new ChartDataPoint("2024-02-26", 6L)); // Mon..Sat
+        assertThat(weekly.stream().mapToLong(point -> point.getValue().longValue()).sum()).isEqualTo(60);
+    }
+
+    @Test
+    void coarsestFittingBucketIsUsedAtTheMaxPointsCap() {
+        List<ChartDataPoint> monthly = SeriesDownsampler.bucket(daily(60, 1L), 3, Aggregation.SUM);
+
+        assertThat(monthly).containsExactly(
+                new ChartDataPoint("2024-01-03", 29L),
+                new ChartDataPoint("2024-02-01", 29L),
+                new ChartDataPoint("2024-03-01", 2L));
+    }
+
+    @Test
+    void averagesDivideByTheDaysOfTheClippedBucket() {
+        List<ChartDataPoint> monthly = SeriesDownsampler.downsample(daily(60, 4L), 3, Mode.BUCKET, Aggregation.AVERAGE);
+
+        assertThat(monthly).extracting(ChartDataPoint::getValue)
+                .containsOnly(new BigDecimal("4.00"))
+                .hasSize(3);
+    }
+
+    @Test
+    void lttbKeepsTheEndpointsAndThePeakWithinTheCap() {
+        List<ChartDataPoint> daily = daily(100, 1L);
+        daily.set(42, new ChartDataPoint(daily.get(42).getName(), 1_000L));
+
+        List<ChartDataPoint> reduced = SeriesDownsampler.downsample(daily, 10, Mode.AUTO, Aggregation.AVERAGE);
+
+        assertThat(reduced).hasSize(10);
+        assertThat(reduced.get(0)).isSameAs(daily.get(0));
+        assertThat(reduced.get(9)).isSameAs(daily.get(99));
+        assertThat(reduced).contains(daily.get(42));
+        assertThatThrownBy(() -> SeriesDownsampler.lttb(daily, 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<ChartDataPoint> daily(int days, long value) {
+        List<ChartDataPoint> points = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            points.add(new ChartDataPoint(FIRST_DAY.plusDays(i).toString(), value));
+        }
+        return points;
+    }
+}
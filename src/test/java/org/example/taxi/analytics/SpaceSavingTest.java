@@ -0,0 +1,91 @@
+package org.example.taxi.analytics;
+
+import org.example.taxi.analytics.SpaceSaving.Estimate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every estimate brackets the true count, every item seen more than total / capacity times is reported, and merging
+ * summaries with overlapping items keeps both guarantees for the combined stream.
+ */
+class SpaceSavingTest {
+
+    private static final int CAPACITY = 20;
+
+    @Test
+    void estimatesBracketTheTrueCountsAndHeavyItemsArePresent() {
+        Map<String, Long> truth = new HashMap<>();
+        SpaceSaving<String> summary = new SpaceSaving<>(CAPACITY);
+        stream("a", 1).forEach(item -> {
+            summary.offer(item);
+            truth.merge(item, 1L, Long::sum);
+        });
+
+        assertThat(summary.total()).isEqualTo(truth.values().stream().mapToLong(Long::longValue).sum());
+        assertGuarantees(summary, truth);
+        assertThat(summary.top(3)).extracting(Estimate::item).containsExactly("a0", "a1", "a2");
+    }
+
+    @Test
+    void mergeOfOverlappingSummariesKeepsTheGuarantees() {
+        Map<String, Long> truth = new HashMap<>();
+        SpaceSaving<String> first = new SpaceSaving<>(CAPACITY);
+        SpaceSaving<String> second = new SpaceSaving<>(CAPACITY);
+        stream("a", 2).forEach(item -> {
+            first.offer(item);
+            truth.merge(item, 1L, Long::sum);
+        });
+        // Same heavy items with different weights, plus a tail of its own
+        stream("a", 3).forEach(item -> {
+            second.offer(item);
+            truth.merge(item, 1L, Long::sum);
+        });
+        stream("b", 4).forEach(item -> {
+            second.offer(item);
+            truth.merge(item, 1L, Long::sum);
+        });
+        long secondTotal = second.total();
+        long firstTotal = first.total();
+
+        first.merge(second);
+
+        assertThat(first.total()).isEqualTo(firstTotal + secondTotal);
+        assertThat(first.top(Integer.MAX_VALUE)).hasSizeLessThanOrEqualTo(CAPACITY);
+        assertGuarantees(first, truth);
+    }
+
+    private static void assertGuarantees(SpaceSaving<String> summary, Map<String, Long> truth) {
+        List<Estimate<String>> estimates = summary.top(Integer.MAX_VALUE);
+        for (Estimate<String> estimate : estimates) {
+            long actual = truth.getOrDefault(estimate.item(), 0L);
+            assertThat(actual).as(estimate.item()).isBetween(estimate.count() - estimate.error(), estimate.count());
+        }
+        long total = summary.total();
+        List<String> reported = estimates.stream().map(Estimate::item).toList();
+        truth.forEach((item, count) -> {
+            if (count > total / CAPACITY) {
+                assertThat(reported).as("heavy item %s (%d of %d)", item, count, total).contains(item);
+            }
+        });
+    }
+
+    /** Zipf-like: item {prefix}i occurs about 2000 / (i + 1) times, shuffled, over 500 distinct items. */
+    private static List<String> stream(String prefix, long seed) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            for (int n = 0; n < 2000 / (i + 1); n++) {
+                items.add(prefix + i);
+            }
+        }
+        Collections.shuffle(items, new Random(seed));
+        return items;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.taxi.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Quantiles of a shuffled uniform stream are accurate, tails more so than the middle, and a digest merged from parts
+ * answers like one built from the whole stream.
+ */
+class TDigestTest {
+
+    private static final int N = 100_000;
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void emptyAndSingleValueDigests() {
+        TDigest digest = new TDigest();
+        assertThat(digest.quantile(0.5)).isNaN();
+        assertThat(digest.count()).isZero();
+
+        digest.add(42);
+        assertThat(digest.quantile(0)).isEqualTo(42);
+        assertThat(digest.quantile(0.5)).isEqualTo(42);
+        assertThat(digest.quantile(1)).isEqualTo(42);
+    }
+
+    @Test
+    void quantilesOfAUniformStreamAreAccurate() {
+        TDigest digest = new TDigest();
+        shuffledValues().forEach(digest::add);
+
+        assertAccurate(digest);
+        assertThat(digest.min()).isEqualTo(0);
+        assertThat(digest.max()).isEqualTo(N - 1);
+    }
+
+    @Test
+    void mergedPartsMatchTheWholeStream() {
+        List<Double> values = shuffledValues();
+        TDigest merged = new TDigest();
+        for (int part = 0; part < 10; part++) {
+            TDigest digest = new TDigest();
+            values.subList(part * N / 10, (part + 1) * N / 10).forEach(digest::add);
+            merged.merge(digest);
+        }
+
+        assertThat(merged.count()).isEqualTo(N);
+        assertAccurate(merged);
+        assertAccurate(TDigest.fromBytes(merged.toBytes()));
+    }
+
+    private static void assertAccurate(TDigest digest) {
+        for (double q : QUANTILES) {
+            double exact = q * (N - 1);
+            // Rank error of a k1 digest at compression 100 stays well under 1% in the middle and shrinks in the tails
+            double tolerance = N * Math.max(0.0005, 0.02 * Math.sqrt(q * (1 - q)));
+            assertThat(digest.quantile(q)).as("q=%s", q).isCloseTo(exact, within(tolerance));
+        }
+    }
+
+    private static List<Double> shuffledValues() {
+        List<Double> values = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, new Random(7));
+        return values;
+    }
+}
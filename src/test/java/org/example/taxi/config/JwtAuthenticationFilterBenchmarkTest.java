@@ -0,0 +1,135 @@
+package org.example.taxi.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.example.taxi.repository.TokenRevocationRepository;
+import org.example.taxi.service.TokenRevocationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * JMH throughput of the bearer-token path of the security filter chain.
+ * <ul>
+ *     <li>{@code legacyThreeParses}: the previous filter (validate, subject, role: three parser builds, three key
+ *     derivations and three signature checks per request).</li>
+ *     <li>{@code singleParse}: one verification per request, claims cache bypassed (first request with a token).</li>
+ *     <li>{@code filterCached}: the current filter end to end, token already verified once, including the
+ *     revocation check against an empty revocation filter.</li>
+ * </ul>
+ * Runs in-process (no fork) so it works from Surefire's classpath.
+ * <p>
+ * Run with: {@code mvn test -Dtest=JwtAuthenticationFilterBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class JwtAuthenticationFilterBenchmarkTest {
+
+    private static final String SECRET = "715ca101fe877f404a656a4809c15f8336a4252db4a1c52ee98e0e883d69a62e";
+
+    @Test
+    public void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmarkTest.class.getName() + ".*")
+                .forks(0)
+                .threads(4)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class TokenState {
+        JwtTokenProvider provider;
+        JwtAuthenticationFilter filter;
+        String token;
+        final FilterChain chain = (request, response) -> { };
+
+        @Setup
+        public void setUp() {
+            provider = new JwtTokenProvider();
+            ReflectionTestUtils.setField(provider, "secretKey", SECRET);
+            ReflectionTestUtils.setField(provider, "claimsCacheMaxSize", 10_000L);
+            ReflectionTestUtils.setField(provider, "claimsCacheTtl", Duration.ofMinutes(10));
+            ReflectionTestUtils.setField(provider, "accessTokenTtl", Duration.ofMinutes(15));
+            provider.init();
+            // Empty, loaded revocation filter: the per-request check is the Bloom filter lookup only
+            TokenRevocationService revocations = new TokenRevocationService();
+            ReflectionTestUtils.setField(revocations, "tokenRevocationRepository", mock(TokenRevocationRepository.class, withSettings().stubOnly()));
+            ReflectionTestUtils.setField(revocations, "expectedEntries", 100_000L);
+            ReflectionTestUtils.setField(revocations, "falsePositiveRate", 0.001);
+            ReflectionTestUtils.setField(revocations, "syncIntervalMs", 5_000L);
+            ReflectionTestUtils.invokeMethod(revocations, "init");
+            ReflectionTestUtils.setField(revocations, "loaded", true);
+            filter = new JwtAuthenticationFilter(provider, new UserIdentityResolver(), revocations);
+            token = provider.generateToken("+998901234567", "CLIENT", 42L, 7L);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void legacyThreeParses(TokenState state, Blackhole blackhole) {
+        String token = state.token;
+        boolean valid;
+        try {
+            Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token);
+            valid = true;
+        } catch (Exception e) {
+            valid = false;
+        }
+        if (valid) {
+            blackhole.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().getSubject());
+            blackhole.consume(Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody().get("role", String.class));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void singleParse(TokenState state, Blackhole blackhole) {
+        blackhole.consume(state.provider.parse(state.token));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void filterCached(TokenState state, Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/client/orders");
+        request.addHeader("Authorization", "Bearer " + state.token);
+        state.filter.doFilter(request, new MockHttpServletResponse(), state.chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    private static SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET));
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.taxi.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.taxi.config.JwtTokenProvider;
+import org.example.taxi.config.UserDetailsCache;
+import org.example.taxi.config.UserIdentityResolver;
+import org.example.taxi.config.ratelimit.RateLimiter;
+import org.example.taxi.entity.User;
+import org.example.taxi.repository.UserRepository;
+import org.example.taxi.repository.projection.UserIdentityRow;
+import org.example.taxi.service.CustomUserDetailsService;
+import org.example.taxi.service.TokenRevocationService;
+import org.example.taxi.service.UserExistenceFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A login reads the user once for the password check and once for the identity; a repeat login is answered from the
+ * login and identity caches without touching the user repository, and issues the same user, role and profile ids.
+ */
+class AuthControllerLoginTest {
+
+    private static final String PHONE = "+998901234567";
+    private static final String PASSWORD = "secret";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AuthController controller = new AuthController();
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider();
+
+    @BeforeEach
+    void setUp() {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+        User user = new User();
+        user.setId(42L);
+        user.setPhoneNumber(PHONE);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setUserType(User.UserType.CLIENT);
+        when(userRepository.findByPhoneNumber(PHONE)).thenReturn(Optional.of(user));
+        UserIdentityRow identity = mock(UserIdentityRow.class);
+        when(identity.getUserId()).thenReturn(42L);
+        when(identity.getUserType()).thenReturn(User.UserType.CLIENT);
+        when(identity.getProfileId()).thenReturn(7L);
+        when(userRepository.findIdentityByPhoneNumber(PHONE)).thenReturn(Optional.of(identity));
+
+        UserDetailsCache userDetailsCache = new UserDetailsCache();
+        ReflectionTestUtils.setField(userDetailsCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userDetailsCache, "tokenRevocationService", mock(TokenRevocationService.class));
+        ReflectionTestUtils.setField(userDetailsCache, "enabled", true);
+        ReflectionTestUtils.setField(userDetailsCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(userDetailsCache, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.invokeMethod(userDetailsCache, "init");
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new CustomUserDetailsService(userRepository, mock(ApplicationEventPublisher.class)));
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserCache(userDetailsCache);
+
+        UserExistenceFilter existenceFilter = mock(UserExistenceFilter.class);
+        when(existenceFilter.mightContainPhoneNumber(anyString())).thenReturn(true);
+        UserIdentityResolver identityResolver = new UserIdentityResolver();
+        ReflectionTestUtils.setField(identityResolver, "userRepository", userRepository);
+        ReflectionTestUtils.setField(identityResolver, "userExistenceFilter", existenceFilter);
+        ReflectionTestUtils.setField(identityResolver, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(identityResolver, "cacheTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.invokeMethod(identityResolver, "init");
+
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", "715ca101fe877f404a656a4809c15f8336a4252db4a1c52ee98e0e883d69a62e");
+        ReflectionTestUtils.setField(jwtTokenProvider, "claimsCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "claimsCacheTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(jwtTokenProvider, "accessTokenTtl", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(jwtTokenProvider, "refreshTokenTtl", Duration.ofDays(30));
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init");
+
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        when(rateLimiter.tryAcquire(anyString(), anyString())).thenReturn(Duration.ZERO);
+
+        ReflectionTestUtils.setField(controller, "authenticationManager", new ProviderManager(provider));
+        ReflectionTestUtils.setField(controller, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(controller, "userIdentityResolver", identityResolver);
+        ReflectionTestUtils.setField(controller, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(controller, "userRepository", userRepository);
+    }
+
+    @Test
+    void repeatLoginMakesNoRepositoryCalls() {
+        assertIssuedForUser(controller.login(new LoginRequest(PHONE, PASSWORD)));
+        verify(userRepository, times(1)).findByPhoneNumber(PHONE);
+        verify(userRepository, times(1)).findIdentityByPhoneNumber(PHONE);
+
+        clearInvocations(userRepository);
+        assertIssuedForUser(controller.login(new LoginRequest(PHONE, PASSWORD)));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void wrongPasswordIsRejected() {
+        ResponseEntity<?> response = controller.login(new LoginRequest(PHONE, "wrong"));
+        assertThat(response.getStatusCode().value()).isEqualTo(401);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertIssuedForUser(ResponseEntity<?> response) {
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        String token = ((Map<String, Object>) response.getBody()).get("token").toString();
+        JwtTokenProvider.VerifiedToken verified = jwtTokenProvider.verify(token).orElseThrow();
+        assertThat(verified.userId()).isEqualTo(42L);
+        assertThat(verified.role()).isEqualTo("CLIENT");
+        assertThat(verified.profileId()).isEqualTo(7L);
+    }
+}
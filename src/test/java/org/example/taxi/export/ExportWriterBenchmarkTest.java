@@ -0,0 +1,112 @@
+package org.example.taxi.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and peak-heap benchmark for the export row writers, fed with synthetic order rows.
+ * Measures the serialization side of an export; the database cursor is exercised against a real Postgres only.
+ * <p>
+ * Run with: {@code mvn test -Dtest=ExportWriterBenchmarkTest -Dbenchmarks=true [-Dbenchmarks.rows=5000000]}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ExportWriterBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmarks.rows", 3_000_000);
+    private static final String[] COLUMNS = {
+            "id", "createdAt", "pickupTime", "status", "orderType", "seats", "totalCost",
+            "clientUserId", "clientPhoneNumber", "clientFirstName", "clientLastName",
+            "driverId", "driverPhoneNumber", "driverFirstName", "driverLastName",
+            "fromDistrictId", "fromDistrictName", "fromLocation", "toDistrictId", "toDistrictName", "toLocation",
+            "luggageContactInfo", "extraInfo"
+    };
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void csv() throws IOException {
+        run(ExportFormat.CSV, false);
+    }
+
+    @Test
+    void csvGzip() throws IOException {
+        run(ExportFormat.CSV, true);
+    }
+
+    @Test
+    void ndjson() throws IOException {
+        run(ExportFormat.NDJSON, false);
+    }
+
+    private void run(ExportFormat format, boolean gzip) throws IOException {
+        CountingOutputStream sink = new CountingOutputStream();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long startedAt = System.nanoTime();
+        OutputStream out = gzip ? new GZIPOutputStream(sink, 64 * 1024) : sink;
+        try (ExportRowWriter writer = ExportRowWriter.create(format, out, objectMapper)) {
+            writer.writeHeader(COLUMNS);
+            LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+            for (int i = 0; i < ROWS; i++) {
+                writer.writeRow(syntheticRow(i, base));
+            }
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        System.out.printf("%s%s: %,d rows in %.2f s = %,.0f rows/s, %,d MB written, peak heap %,d MB%n",
+                format, gzip ? "+gzip" : "", ROWS, seconds, ROWS / seconds,
+                sink.count / (1024 * 1024), peakHeap / (1024 * 1024));
+        assertTrue(sink.count > ROWS);
+    }
+
+    private static Object[] syntheticRow(int i, LocalDateTime base) {
+        LocalDateTime createdAt = base.plusMinutes(i);
+        return new Object[]{
+                (long) i, createdAt, createdAt.plusHours(2), OrderStatus.values()[i % 5], OrderType.values()[i % 4],
+                1 + i % 4, BigDecimal.valueOf(150_000L + (i % 7) * 10_000L),
+                (long) (i % 50_000), "+99890" + (1_000_000 + i % 50_000), "Client", "Name, Jr.",
+                (long) (i % 2_000), "+99891" + (1_000_000 + i % 2_000), "Driver", "Surname",
+                (long) (i % 40), "District " + i % 40, "Street " + i % 997, (long) ((i + 7) % 40), "District " + (i + 7) % 40,
+                "Avenue \"" + i % 311 + "\"", null, i % 10 == 0 ? "Window seat\nplease" : null
+        };
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.taxi.report;
+
+import org.example.taxi.service.AdminService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A queued job reports its queue position, a running one the rows its computation has processed and then the
+ * writing phase, and a finished one no phase.
+ */
+class ReportJobServiceTest {
+
+    private final CountDownLatch computeRelease = new CountDownLatch(1);
+    private final CountDownLatch writeStarted = new CountDownLatch(1);
+    private final CountDownLatch writeRelease = new CountDownLatch(1);
+
+    private ReportJobService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AdminService adminService = mock(AdminService.class);
+        when(adminService.getRevenueReport()).thenAnswer(invocation -> {
+            ReportProgress.rowsProcessed(3);
+            ReportProgress.rowsProcessed(4);
+            computeRelease.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+
+        ReportResultStore resultStore = mock(ReportResultStore.class);
+        when(resultStore.key(any(), any())).thenAnswer(invocation -> invocation.getArgument(0).toString());
+        when(resultStore.findFresh(anyString(), any())).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            writeRelease.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(resultStore).write(eq(ReportType.REVENUE.name()), any());
+
+        ReportProperties properties = new ReportProperties();
+        properties.setWorkers(1);
+        service = new ReportJobService(adminService, resultStore, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        computeRelease.countDown();
+        writeRelease.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void progressMovesFromQueuePositionToRowsToWriting() throws Exception {
+        ReportJob revenue = service.submit(ReportType.REVENUE, Map.of());
+        await().atMost(Duration.ofSeconds(5)).until(() -> revenue.getRowsProcessed() == 7);
+        ReportJob rides = service.submit(ReportType.RIDE_STATISTICS, Map.of());
+        ReportJob users = service.submit(ReportType.USER_STATISTICS, Map.of());
+
+        assertThat(revenue.getStatus()).isEqualTo(ReportJob.Status.RUNNING);
+        assertThat(revenue.getPhase()).isEqualTo(ReportJob.Phase.COMPUTING);
+        assertThat(service.queuePosition(revenue)).isNull();
+        assertThat(rides.getStatus()).isEqualTo(ReportJob.Status.QUEUED);
+        assertThat(service.queuePosition(rides)).isEqualTo(1);
+        assertThat(service.queuePosition(users)).isEqualTo(2);
+
+        computeRelease.countDown();
+        assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(revenue.getPhase()).isEqualTo(ReportJob.Phase.WRITING);
+
+        writeRelease.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> users.isFinished());
+        assertThat(revenue.getStatus()).isEqualTo(ReportJob.Status.SUCCEEDED);
+        assertThat(revenue.getPhase()).isNull();
+        assertThat(revenue.getRowsProcessed()).isEqualTo(7);
+        assertThat(service.queuePosition(users)).isNull();
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.taxi.repository;
+
+import org.example.taxi.entity.Client;
+import org.example.taxi.entity.Client.ClientOrderSource;
+import org.example.taxi.entity.User;
+import org.example.taxi.entity.User.UserType;
+import org.example.taxi.repository.projection.DailyCountRow;
+import org.example.taxi.repository.projection.DailySourceCountRow;
+import org.example.taxi.repository.projection.SourceCountRow;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The created-at analytics windows must be answered by the database: only rows inside [start, end) are counted,
+ * and no entity is loaded into the persistence context to do it.
+ */
+@DataJpaTest(properties = {
+        // Same dialect quirks as production: several entities use day/month/year column names
+        "spring.datasource.url=jdbc:h2:mem:range-queries;MODE=PostgreSQL;NON_KEYWORDS=DAY,MONTH,YEAR,VALUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CreatedAtRangeQueryTest {
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+        @Bean
+        PasswordEncoder passwordEncoder() { // needed by the startup data initializer
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    private static final LocalDateTime START = LocalDate.of(2024, 3, 1).atStartOfDay();
+    private static final LocalDateTime END = LocalDate.of(2024, 4, 1).atStartOfDay();
+
+    @Autowired private TestEntityManager entityManager;
+    @Autowired private ClientRepository clientRepository;
+    @Autowired private UserRepository userRepository;
+
+    private final Map<LocalDate, Map<ClientOrderSource, Long>> expectedClients = new HashMap<>();
+    private final Map<LocalDate, Long> expectedDriverUsers = new HashMap<>();
+    private int phoneSequence;
+
+    @BeforeEach
+    void seed() {
+        // Boundaries: start is inclusive, end is exclusive
+        client(START.minusNanos(1000), ClientOrderSource.MOBILE_APP, false);
+        client(START, ClientOrderSource.MOBILE_APP, true);
+        client(START.plusHours(23).plusMinutes(59), ClientOrderSource.OPERATOR, true);
+        client(END.minusNanos(1000), ClientOrderSource.OPERATOR, true);
+        client(END, ClientOrderSource.MOBILE_APP, false);
+        // Bulk outside the window, mostly after it (what the old "created after start" query dragged in)
+        for (int i = 0; i < 200; i++) {
+            client(END.plusDays(i % 400).plusHours(i % 24), i % 3 == 0 ? ClientOrderSource.OPERATOR : ClientOrderSource.MOBILE_APP, false);
+        }
+        for (int i = 0; i < 60; i++) {
+            client(START.plusDays(i % 31).plusHours(i % 24), i % 2 == 0 ? ClientOrderSource.MOBILE_APP : ClientOrderSource.OPERATOR, true);
+        }
+        for (int i = 0; i < 20; i++) {
+            user(UserType.DRIVER, START.plusDays(i % 10).plusHours(i), true);
+            user(UserType.DRIVER, START.minusDays(i + 1), false);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void dailyBySourceCountsOnlyRowsInRange() {
+        Statistics statistics = statistics();
+        List<DailySourceCountRow> rows = clientRepository.countDailyBySourceInRange(START, END);
+
+        Map<LocalDate, Map<ClientOrderSource, Long>> actual = new HashMap<>();
+        for (DailySourceCountRow row : rows) {
+            assertThat(row.getDay()).isBetween(START.toLocalDate(), END.toLocalDate().minusDays(1));
+            actual.computeIfAbsent(row.getDay(), d -> new HashMap<>()).put(row.getSource(), row.getTotal());
+        }
+        assertThat(actual).isEqualTo(expectedClients);
+        assertThat(rows).hasSize(expectedClients.values().stream().mapToInt(Map::size).sum());
+        assertNoEntitiesLoaded(statistics);
+    }
+
+    @Test
+    void dailyTotalsMatchRowsInRange() {
+        Statistics statistics = statistics();
+        Map<LocalDate, Long> actual = clientRepository.countDailyByCreatedAtInRange(START, END).stream()
+                .collect(Collectors.toMap(DailyCountRow::getDay, DailyCountRow::getTotal));
+
+        Map<LocalDate, Long> expected = new HashMap<>();
+        expectedClients.forEach((day, bySource) -> expected.put(day, bySource.values().stream().mapToLong(Long::longValue).sum()));
+        assertThat(actual).isEqualTo(expected);
+        assertNoEntitiesLoaded(statistics);
+    }
+
+    @Test
+    void sourceTotalsMatchRowsInRange() {
+        Statistics statistics = statistics();
+        Map<ClientOrderSource, Long> actual = clientRepository.countBySourceInRange(START, END).stream()
+                .collect(Collectors.toMap(SourceCountRow::getSource, SourceCountRow::getTotal));
+
+        Map<ClientOrderSource, Long> expected = new HashMap<>();
+        expectedClients.values().forEach(bySource -> bySource.forEach((source, n) -> expected.merge(source, n, Long::sum)));
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(63);
+        assertNoEntitiesLoaded(statistics);
+    }
+
+    @Test
+    void userDailyCountsRespectTypeAndRange() {
+        Statistics statistics = statistics();
+        Map<LocalDate, Long> drivers = userRepository.countDailyByUserTypeAndCreatedAtInRange(UserType.DRIVER, START, END).stream()
+                .collect(Collectors.toMap(DailyCountRow::getDay, DailyCountRow::getTotal));
+        assertThat(drivers).isEqualTo(expectedDriverUsers);
+
+        long allUsersInRange = userRepository.countDailyByCreatedAtInRange(START, END).stream().mapToLong(DailyCountRow::getTotal).sum();
+        assertThat(allUsersInRange).isEqualTo(20 + 63); // drivers plus the users behind in-range clients
+        assertNoEntitiesLoaded(statistics);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static void assertNoEntitiesLoaded(Statistics statistics) {
+        assertThat(statistics.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(statistics.getQueryExecutionCount()).as("queries executed").isLessThanOrEqualTo(2);
+    }
+
+    private void client(LocalDateTime createdAt, ClientOrderSource source, boolean inRange) {
+        Client client = new Client();
+        client.setUser(user(UserType.CLIENT, createdAt, false));
+        client.setOrderSource(source);
+        client.setCreatedAt(createdAt);
+        entityManager.persist(client);
+        if (inRange) {
+            expectedClients.computeIfAbsent(createdAt.toLocalDate(), d -> new HashMap<>()).merge(source, 1L, Long::sum);
+        }
+    }
+
+    private User user(UserType type, LocalDateTime createdAt, boolean expectedDriverInRange) {
+        User user = new User();
+        user.setPhoneNumber("+99890" + String.format("%07d", phoneSequence++));
+        user.setPassword("x");
+        user.setUserType(type);
+        user.setCreatedAt(createdAt);
+        entityManager.persist(user);
+        if (expectedDriverInRange) {
+            expectedDriverUsers.merge(createdAt.toLocalDate(), 1L, Long::sum);
+        }
+        return user;
+    }
+}
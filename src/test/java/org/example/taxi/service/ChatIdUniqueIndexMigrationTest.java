@@ -0,0 +1,103 @@
+package org.example.taxi.service;
+
+import org.example.taxi.entity.User;
+import org.example.taxi.entity.User.UserType;
+import org.example.taxi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Duplicate chat ids left by the old linking code are resolved in favour of the most recently updated user before the
+ * unique index is created; with resolution off they are only reported and the index is not created.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:chat-id-migration;MODE=PostgreSQL;NON_KEYWORDS=DAY,MONTH,YEAR,VALUE")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ChatIdUniqueIndexMigration.class)
+class ChatIdUniqueIndexMigrationTest {
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+        @Bean
+        PasswordEncoder passwordEncoder() { // needed by the startup data initializer
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @Autowired private TestEntityManager entityManager;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ChatIdUniqueIndexMigration migration;
+
+    private static int phoneSequence; // H2 commits on DDL, so users outlive a test
+
+    @BeforeEach
+    void dropIndex() {
+        entityManager.getEntityManager().createNativeQuery("DROP INDEX IF EXISTS uk_users_chat_id").executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("UPDATE users SET chat_id = NULL").executeUpdate();
+    }
+
+    @Test
+    void keepsTheChatOnTheMostRecentlyUpdatedUserAndCreatesTheIndex() {
+        User stale = user(100L, NOW.minusDays(3));
+        User recent = user(100L, NOW);
+        User other = user(200L, NOW.minusDays(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        migration.migrate();
+
+        assertThat(userRepository.findById(stale.getId()).orElseThrow().getChatId()).isNull();
+        assertThat(userRepository.findById(recent.getId()).orElseThrow().getChatId()).isEqualTo(100L);
+        assertThat(userRepository.findById(other.getId()).orElseThrow().getChatId()).isEqualTo(200L);
+        assertThat(userRepository.findDuplicateChatIds()).isEmpty();
+        assertThatThrownBy(() -> {
+            user(200L, NOW);
+            entityManager.flush();
+        }).hasMessageContaining("UK_USERS_CHAT_ID");
+    }
+
+    @Test
+    void onlyReportsDuplicatesWhenResolutionIsOff() {
+        ReflectionTestUtils.setField(migration, "resolveDuplicates", false);
+        try {
+            user(100L, NOW.minusDays(3));
+            user(100L, NOW);
+            entityManager.flush();
+            entityManager.clear();
+
+            migration.migrate();
+
+            assertThat(userRepository.findDuplicateChatIds()).containsExactly(100L);
+            user(100L, NOW.plusDays(1));
+            entityManager.flush(); // no index yet
+        } finally {
+            ReflectionTestUtils.setField(migration, "resolveDuplicates", true);
+        }
+    }
+
+    private User user(Long chatId, LocalDateTime updatedAt) {
+        User user = new User();
+        user.setPhoneNumber("+99890" + String.format("%07d", ++phoneSequence));
+        user.setPassword("x");
+        user.setUserType(UserType.CLIENT);
+        user.setChatId(chatId);
+        user.setUpdatedAt(updatedAt);
+        return entityManager.persist(user);
+    }
+}
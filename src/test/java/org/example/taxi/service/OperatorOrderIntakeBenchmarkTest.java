@@ -0,0 +1,200 @@
+package org.example.taxi.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.taxi.config.UserIdentityResolver;
+import org.example.taxi.controller.dto.OperatorOrderCreationRequest;
+import org.example.taxi.entity.Client;
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.User;
+import org.example.taxi.repository.ClientRepository;
+import org.example.taxi.repository.UserRepository;
+import org.example.taxi.repository.projection.UserIdentityRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * JMH throughput of operator order intake ({@link OperatorService#createOrderByOperator}).
+ * <ul>
+ *     <li>{@code legacyGuestOrder}: the previous guest path, a phone lookup plus a BCrypt hash of a throwaway
+ *     password before the user and client inserts.</li>
+ *     <li>{@code guestOrder}: a new phone number; one directory lookup, no hash.</li>
+ *     <li>{@code repeatClientOrder}: a known phone number answered by the cached directory; no query at all.</li>
+ * </ul>
+ * Repositories and {@link OrderService} are stubs, so the numbers are the CPU cost of intake; the saved round trips
+ * (user plus client lookup for known clients) come on top in production. Runs in-process (no fork).
+ * <p>
+ * Run with: {@code mvn test -Dtest=OperatorOrderIntakeBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class OperatorOrderIntakeBenchmarkTest {
+
+    private static final String KNOWN_PHONE = "+998901112233";
+
+    @Test
+    public void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OperatorOrderIntakeBenchmarkTest.class.getName() + ".*")
+                .forks(0)
+                .threads(4)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .build();
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class IntakeState {
+        OperatorService operatorService;
+        UserRepository userRepository;
+        ClientRepository clientRepository;
+        final PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        final AtomicLong phoneSequence = new AtomicLong(998_900_000_000L);
+
+        @Setup
+        public void setUp() {
+            // Per-order info logging would dominate the measurement
+            ((Logger) LoggerFactory.getLogger(OperatorService.class)).setLevel(Level.WARN);
+
+            // Stub-only mocks do not record invocations, which would otherwise grow without bound
+            userRepository = mock(UserRepository.class, withSettings().stubOnly());
+            clientRepository = mock(ClientRepository.class, withSettings().stubOnly());
+            OrderService orderService = mock(OrderService.class, withSettings().stubOnly());
+            GoalProgressCounterService goalProgressCounterService = mock(GoalProgressCounterService.class, withSettings().stubOnly());
+
+            when(userRepository.findIdentityByPhoneNumber(anyString())).thenReturn(Optional.empty());
+            when(userRepository.findIdentityByPhoneNumber(eq(KNOWN_PHONE))).thenReturn(Optional.of(new KnownClient()));
+            when(userRepository.findByPhoneNumber(anyString())).thenReturn(Optional.empty());
+            when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            when(clientRepository.findByUser_Id(anyLong())).thenReturn(Optional.empty());
+            when(orderService.createOrder(any(OrderEntity.class), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            // Loaded with the known client only, as after the startup rebuild
+            UserExistenceFilter userExistenceFilter = new UserExistenceFilter();
+            ReflectionTestUtils.setField(userExistenceFilter, "userRepository", userRepository);
+            ReflectionTestUtils.setField(userExistenceFilter, "meterRegistry", new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(userExistenceFilter, "enabled", true);
+            ReflectionTestUtils.setField(userExistenceFilter, "expectedUsers", 200_000L);
+            ReflectionTestUtils.setField(userExistenceFilter, "falsePositiveRate", 0.001);
+            ReflectionTestUtils.invokeMethod(userExistenceFilter, "init");
+            ReflectionTestUtils.setField(userExistenceFilter, "loaded", true);
+            User knownUser = new User();
+            knownUser.setPhoneNumber(KNOWN_PHONE);
+            userExistenceFilter.record(knownUser);
+
+            UserIdentityResolver userIdentityResolver = new UserIdentityResolver();
+            ReflectionTestUtils.setField(userIdentityResolver, "userRepository", userRepository);
+            ReflectionTestUtils.setField(userIdentityResolver, "userExistenceFilter", userExistenceFilter);
+            ReflectionTestUtils.setField(userIdentityResolver, "cacheMaxSize", 10_000L);
+            ReflectionTestUtils.setField(userIdentityResolver, "cacheTtl", Duration.ofMinutes(10));
+            ReflectionTestUtils.invokeMethod(userIdentityResolver, "init");
+
+            operatorService = new OperatorService();
+            ReflectionTestUtils.setField(operatorService, "userRepository", userRepository);
+            ReflectionTestUtils.setField(operatorService, "clientRepository", clientRepository);
+            ReflectionTestUtils.setField(operatorService, "orderService", orderService);
+            ReflectionTestUtils.setField(operatorService, "goalProgressCounterService", goalProgressCounterService);
+            ReflectionTestUtils.setField(operatorService, "userIdentityResolver", userIdentityResolver);
+            ReflectionTestUtils.setField(operatorService, "userExistenceFilter", userExistenceFilter);
+        }
+
+        String nextGuestPhone() {
+            return "+" + phoneSequence.incrementAndGet();
+        }
+    }
+
+    private static final class KnownClient implements UserIdentityRow {
+        @Override
+        public Long getUserId() {
+            return 1L;
+        }
+
+        @Override
+        public User.UserType getUserType() {
+            return User.UserType.CLIENT;
+        }
+
+        @Override
+        public Long getProfileId() {
+            return 1L;
+        }
+    }
+
+    private static OperatorOrderCreationRequest request(String phoneNumber) {
+        OperatorOrderCreationRequest request = new OperatorOrderCreationRequest();
+        request.setClientPhoneNumber(phoneNumber);
+        request.setOrderType(OrderEntity.OrderType.REGULAR);
+        request.setSeats(2);
+        request.setFromDistrictId(1L);
+        request.setToDistrictId(2L);
+        request.setFromLocation("Chorsu");
+        request.setToLocation("Bus station");
+        request.setPickupTime(LocalDateTime.now().plusHours(1));
+        return request;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void legacyGuestOrder(IntakeState state, Blackhole blackhole) {
+        OperatorOrderCreationRequest request = request(state.nextGuestPhone());
+        blackhole.consume(state.userRepository.findByPhoneNumber(request.getClientPhoneNumber()));
+        User user = new User();
+        user.setPhoneNumber(request.getClientPhoneNumber());
+        user.setPassword(state.bcrypt.encode("guest_password_" + LocalDateTime.now().getNano()));
+        user.setUserType(User.UserType.CLIENT);
+        user = state.userRepository.save(user);
+        Client client = new Client();
+        client.setUser(user);
+        blackhole.consume(state.clientRepository.save(client));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void guestOrder(IntakeState state, Blackhole blackhole) {
+        blackhole.consume(state.operatorService.createOrderByOperator(request(state.nextGuestPhone()), 1L));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void repeatClientOrder(IntakeState state, Blackhole blackhole) {
+        blackhole.consume(state.operatorService.createOrderByOperator(request(KNOWN_PHONE), 1L));
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.taxi.service;
+
+import org.example.taxi.entity.OrderEntity;
+import org.example.taxi.entity.OrderEntity.OrderStatus;
+import org.example.taxi.entity.OrderEntity.OrderType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sparse fieldsets are answered from the selected columns alone: no order entity or seat collection is loaded, and
+ * each row holds exactly the requested fields.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-fields;MODE=PostgreSQL;NON_KEYWORDS=DAY,MONTH,YEAR,VALUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderFieldQuery.class)
+class OrderFieldQueryTest {
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+        @Bean
+        PasswordEncoder passwordEncoder() { // needed by the startup data initializer
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Autowired private TestEntityManager entityManager;
+    @Autowired private OrderFieldQuery orderFieldQuery;
+
+    @BeforeEach
+    void seed() {
+        order(1L, null, OrderStatus.PENDING, NOW.plusHours(2));
+        order(1L, 7L, OrderStatus.COMPLETED, NOW.minusDays(1));
+        order(1L, 7L, OrderStatus.ACCEPTED, NOW.plusHours(1));
+        order(2L, 7L, OrderStatus.COMPLETED, NOW.minusDays(2));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void viewsAndFieldsResolveInOrderWithoutDuplicates() {
+        assertThat(orderFieldQuery.resolve(null)).isNull();
+        assertThat(orderFieldQuery.resolve(" ")).isNull();
+        assertThat(orderFieldQuery.resolve("summary,totalCost,id"))
+                .containsExactly("id", "status", "pickupTime", "fromDistrictId", "toDistrictId", "totalCost");
+        assertThatThrownBy(() -> orderFieldQuery.resolve("id,selectedSeats"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("selectedSeats");
+    }
+
+    @Test
+    void historyHoldsOnlyRequestedFields() {
+        Statistics statistics = statistics();
+        List<Map<String, Object>> history = orderFieldQuery.findByUserId(List.of("id", "status", "pickupTime"), 1L, Optional.empty());
+
+        assertThat(history).hasSize(3);
+        assertThat(history).allSatisfy(row -> assertThat(row).containsOnlyKeys("id", "status", "pickupTime"));
+        assertThat(history).extracting(row -> row.get("pickupTime"))
+                .containsExactly(NOW.plusHours(2), NOW.plusHours(1), NOW.minusDays(1));
+        assertNothingLoaded(statistics);
+    }
+
+    @Test
+    void filtersMatchTheEntityQueries() {
+        Statistics statistics = statistics();
+        List<String> fields = orderFieldQuery.resolve("card");
+
+        assertThat(orderFieldQuery.findByDriverId(fields, 7L, Optional.of(OrderStatus.COMPLETED))).hasSize(2);
+        assertThat(orderFieldQuery.findByDriverIdAndStatusIn(fields, 7L, List.of(OrderStatus.ACCEPTED, OrderStatus.EN_ROUTE)))
+                .singleElement().satisfies(row -> assertThat(row.get("status")).isEqualTo(OrderStatus.ACCEPTED));
+        assertThat(orderFieldQuery.findPendingForDriverFeed(fields, List.of(20L), 10L, NOW, NOW.plusDays(1), 4))
+                .singleElement().satisfies(row -> assertThat(row).containsEntry("seats", 2).containsEntry("orderType", OrderType.REGULAR));
+        assertThat(orderFieldQuery.findIncompleteCreatedBefore(List.of("id"), NOW.plusDays(1))).hasSize(2);
+        assertNothingLoaded(statistics);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static void assertNothingLoaded(Statistics statistics) {
+        assertThat(statistics.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(statistics.getCollectionLoadCount()).as("collections loaded").isZero();
+    }
+
+    private void order(Long userId, Long driverId, OrderStatus status, LocalDateTime pickupTime) {
+        OrderEntity order = new OrderEntity();
+        order.setUserId(userId);
+        order.setDriverId(driverId);
+        order.setStatus(status);
+        order.setOrderType(OrderType.REGULAR);
+        order.setSeats(2);
+        order.setSelectedSeats(List.of("front", "back-left"));
+        order.setExtraInfo("Call on arrival");
+        order.setFromDistrictId(10L);
+        order.setToDistrictId(20L);
+        order.setPickupTime(pickupTime);
+        order.setTotalCost(BigDecimal.valueOf(50_000));
+        order.setCreatedAt(NOW.minusDays(3));
+        entityManager.persist(order);
+    }
+}